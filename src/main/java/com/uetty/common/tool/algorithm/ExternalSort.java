@@ -0,0 +1,574 @@
+package com.uetty.common.tool.algorithm;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.function.ToLongFunction;
+
+/**
+ * 外部排序（数据量超过内存时使用）
+ * <p>按内存预算把输入切分为多段，每段在内存中排序后写入临时文件（可多线程并行），
+ * 再用小顶堆对各段做多路归并，结果以迭代器的形式边归并边输出，不需要把全部数据加载到内存</p>
+ * <p>临时文件中数据的读写方式由 {@link Serializer} 决定；段数超过单次归并路数上限时先分批归并为更大的段</p>
+ * <p>排序是稳定的（相等元素保持输入顺序）</p>
+ * @author vince
+ */
+@SuppressWarnings("unused")
+public class ExternalSort<T> {
+
+	/**
+	 * 默认内存预算 64MB
+	 */
+	public static final long DEFAULT_MEMORY_BUDGET = 64L * 1024 * 1024;
+
+	/**
+	 * 默认单次归并的段数上限
+	 */
+	public static final int DEFAULT_MAX_FAN_IN = 128;
+
+	/**
+	 * 未设置大小估算时，每个元素按该字节数估算
+	 */
+	private static final long DEFAULT_ELEMENT_SIZE = 64;
+
+	private static final int IO_BUFFER_SIZE = 64 * 1024;
+
+	private static final String TEMP_FILE_PREFIX = "extsort-";
+
+	private final Comparator<? super T> comparator;
+	private final Serializer<T> serializer;
+	private long memoryBudget = DEFAULT_MEMORY_BUDGET;
+	private int parallelism = 1;
+	private int maxFanIn = DEFAULT_MAX_FAN_IN;
+	private File tempDir;
+	private ToLongFunction<? super T> sizeEstimator = t -> DEFAULT_ELEMENT_SIZE;
+
+	public ExternalSort(Comparator<? super T> comparator, Serializer<T> serializer) {
+		if (comparator == null || serializer == null) {
+			throw new IllegalArgumentException("comparator and serializer must not be null");
+		}
+		this.comparator = comparator;
+		this.serializer = serializer;
+	}
+
+	/**
+	 * 字符串排序，按UTF-16字符数估算内存
+	 */
+	public static ExternalSort<String> ofStrings(Comparator<? super String> comparator) {
+		ExternalSort<String> sort = new ExternalSort<>(comparator, STRING_SERIALIZER);
+		sort.setSizeEstimator(s -> 56 + 2L * s.length());
+		return sort;
+	}
+
+	/**
+	 * 内存中所有待排序段的数据总量上限（按 sizeEstimator 估算），并行时由各线程平分
+	 * @param bytes 字节数
+	 * @return 链式返回自身
+	 */
+	public ExternalSort<T> setMemoryBudget(long bytes) {
+		if (bytes <= 0) {
+			throw new IllegalArgumentException("memory budget must be positive");
+		}
+		this.memoryBudget = bytes;
+		return this;
+	}
+
+	/**
+	 * 并行排序、写出临时段的线程数，默认1（在读取输入的线程之外）
+	 * @param parallelism 线程数
+	 * @return 链式返回自身
+	 */
+	public ExternalSort<T> setParallelism(int parallelism) {
+		if (parallelism <= 0) {
+			throw new IllegalArgumentException("parallelism must be positive");
+		}
+		this.parallelism = parallelism;
+		return this;
+	}
+
+	/**
+	 * 单次归并的段数上限，即同时打开的临时文件数上限
+	 * @param maxFanIn 段数，至少为2
+	 * @return 链式返回自身
+	 */
+	public ExternalSort<T> setMaxFanIn(int maxFanIn) {
+		if (maxFanIn < 2) {
+			throw new IllegalArgumentException("max fan in must be at least 2");
+		}
+		this.maxFanIn = maxFanIn;
+		return this;
+	}
+
+	/**
+	 * @param tempDir 临时文件目录，为null时使用系统临时目录
+	 * @return 链式返回自身
+	 */
+	public ExternalSort<T> setTempDir(File tempDir) {
+		this.tempDir = tempDir;
+		return this;
+	}
+
+	/**
+	 * @param sizeEstimator 单个元素占用内存的估算（字节）
+	 * @return 链式返回自身
+	 */
+	public ExternalSort<T> setSizeEstimator(ToLongFunction<? super T> sizeEstimator) {
+		this.sizeEstimator = sizeEstimator;
+		return this;
+	}
+
+	/**
+	 * 排序
+	 * <p>返回的迭代器读完后自动删除临时文件，提前结束时需调用 close()</p>
+	 * @param input 输入数据，只遍历一次
+	 * @return 有序的迭代器
+	 * @throws IOException 写临时文件失败
+	 */
+	public SortedIterator<T> sort(Iterator<? extends T> input) throws IOException {
+		List<Run> runs = new ArrayList<>();
+		try {
+			List<T> lastChunk = generateRuns(input, runs);
+			if (lastChunk != null) {
+				// 全部数据在内存预算内，无须写临时文件
+				return new SortedIterator<>(lastChunk.iterator(), null);
+			}
+			while (runs.size() > maxFanIn) {
+				runs = mergePass(runs);
+			}
+			return new SortedIterator<>(new MergeIterator(runs), runs);
+		} catch (IOException | RuntimeException | Error e) {
+			deleteRuns(runs);
+			throw e;
+		}
+	}
+
+	/**
+	 * 读取输入，按内存预算切段排序写出
+	 * @return 输入全部装入第一段时返回排好序的该段（不写文件），否则返回null
+	 */
+	private List<T> generateRuns(Iterator<? extends T> input, List<Run> runs) throws IOException {
+		// 读取线程正在填充的段 + 各工作线程正在排序写出的段，共同分摊内存预算
+		long chunkBudget = Math.max(memoryBudget / (parallelism + 1), 1);
+		ExecutorService executor = parallelism > 1 ? Executors.newFixedThreadPool(parallelism) : null;
+		Semaphore permits = new Semaphore(parallelism);
+		List<CompletableFuture<Run>> futures = new ArrayList<>();
+		try {
+			List<T> chunk = new ArrayList<>();
+			long chunkSize = 0;
+			boolean spilled = false;
+			while (input.hasNext()) {
+				T t = input.next();
+				chunk.add(t);
+				chunkSize += sizeEstimator.applyAsLong(t);
+				if (chunkSize >= chunkBudget) {
+					spilled = true;
+					futures.add(spillAsync(chunk, executor, permits));
+					chunk = new ArrayList<>();
+					chunkSize = 0;
+				}
+			}
+			if (!spilled) {
+				chunk.sort(comparator);
+				return chunk;
+			}
+			if (!chunk.isEmpty()) {
+				futures.add(spillAsync(chunk, executor, permits));
+			}
+			for (CompletableFuture<Run> future : futures) {
+				runs.add(join(future));
+			}
+			return null;
+		} catch (IOException | RuntimeException | Error e) {
+			for (CompletableFuture<Run> future : futures) {
+				try {
+					Run run = future.join();
+					if (!runs.contains(run)) {
+						runs.add(run);
+					}
+				} catch (RuntimeException ignore) {
+				}
+			}
+			throw e;
+		} finally {
+			if (executor != null) {
+				executor.shutdown();
+			}
+		}
+	}
+
+	private CompletableFuture<Run> spillAsync(List<T> chunk, ExecutorService executor, Semaphore permits) throws IOException {
+		if (executor == null) {
+			return CompletableFuture.completedFuture(spill(chunk));
+		}
+		// 等待有空闲线程，限制同时在内存中的段数
+		permits.acquireUninterruptibly();
+		try {
+			return CompletableFuture.supplyAsync(() -> {
+				try {
+					return spill(chunk);
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				} finally {
+					permits.release();
+				}
+			}, executor);
+		} catch (RuntimeException e) {
+			permits.release();
+			throw e;
+		}
+	}
+
+	private Run spill(List<T> chunk) throws IOException {
+		chunk.sort(comparator);
+		Run run = new Run(createTempFile());
+		try (DataOutputStream out = openOutput(run.file)) {
+			for (T t : chunk) {
+				serializer.write(out, t);
+			}
+		} catch (IOException | RuntimeException e) {
+			run.delete();
+			throw e;
+		}
+		run.count = chunk.size();
+		return run;
+	}
+
+	/**
+	 * 每 maxFanIn 段归并为一段
+	 */
+	private List<Run> mergePass(List<Run> runs) throws IOException {
+		List<Run> merged = new ArrayList<>();
+		try {
+			for (int from = 0; from < runs.size(); from += maxFanIn) {
+				List<Run> group = new ArrayList<>(runs.subList(from, Math.min(from + maxFanIn, runs.size())));
+				if (group.size() == 1) {
+					merged.add(group.get(0));
+					continue;
+				}
+				Run run = new Run(createTempFile());
+				merged.add(run);
+				try (MergeIterator it = new MergeIterator(group);
+					 DataOutputStream out = openOutput(run.file)) {
+					while (it.hasNext()) {
+						serializer.write(out, it.next());
+						run.count++;
+					}
+				}
+				deleteRuns(group);
+			}
+		} catch (IOException | RuntimeException e) {
+			deleteRuns(merged);
+			throw e;
+		}
+		return merged;
+	}
+
+	private File createTempFile() throws IOException {
+		return File.createTempFile(TEMP_FILE_PREFIX, ".run", tempDir);
+	}
+
+	private static DataOutputStream openOutput(File file) throws IOException {
+		return new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), IO_BUFFER_SIZE));
+	}
+
+	private static void deleteRuns(List<? extends Run> runs) {
+		for (Run run : runs) {
+			run.delete();
+		}
+	}
+
+	private static <R> R join(CompletableFuture<R> future) throws IOException {
+		try {
+			return future.join();
+		} catch (CompletionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof UncheckedIOException) {
+				throw ((UncheckedIOException) cause).getCause();
+			}
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw e;
+		}
+	}
+
+	/**
+	 * 文本文件按行排序（如csv导出文件）
+	 * @param input 输入文件
+	 * @param output 输出文件，可以与输入文件相同
+	 * @param charset 文件编码
+	 * @param comparator 行比较器
+	 * @param memoryBudget 内存预算（字节）
+	 * @return 行数
+	 * @throws IOException io exception
+	 */
+	public static long sortLines(File input, File output, Charset charset, Comparator<? super String> comparator,
+								 long memoryBudget) throws IOException {
+		ExternalSort<String> sort = ofStrings(comparator).setMemoryBudget(memoryBudget)
+				.setTempDir(output.getAbsoluteFile().getParentFile());
+		long count = 0;
+		SortedIterator<String> sorted;
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(input), charset), IO_BUFFER_SIZE)) {
+			sorted = sort.sort(new LineIterator(reader));
+		}
+		try (SortedIterator<String> it = sorted;
+			 BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(output), charset), IO_BUFFER_SIZE)) {
+			while (it.hasNext()) {
+				writer.write(it.next());
+				writer.newLine();
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * 临时文件中数据的读写方式
+	 */
+	public interface Serializer<T> {
+
+		void write(DataOutputStream out, T value) throws IOException;
+
+		T read(DataInputStream in) throws IOException;
+	}
+
+	/**
+	 * 字符串读写，UTF-8编码，不受 writeUTF 64KB长度的限制
+	 */
+	public static final Serializer<String> STRING_SERIALIZER = new Serializer<String>() {
+		@Override
+		public void write(DataOutputStream out, String value) throws IOException {
+			byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+			out.writeInt(bytes.length);
+			out.write(bytes);
+		}
+
+		@Override
+		public String read(DataInputStream in) throws IOException {
+			byte[] bytes = new byte[in.readInt()];
+			in.readFully(bytes);
+			return new String(bytes, StandardCharsets.UTF_8);
+		}
+	};
+
+	/**
+	 * 有序迭代器，读完后自动删除临时文件
+	 */
+	public static class SortedIterator<T> implements Iterator<T>, Closeable {
+		private final Iterator<T> delegate;
+		private final List<? extends Run> runs;
+		private boolean closed = false;
+
+		SortedIterator(Iterator<T> delegate, List<? extends Run> runs) {
+			this.delegate = delegate;
+			this.runs = runs;
+		}
+
+		@Override
+		public boolean hasNext() {
+			if (closed) {
+				return false;
+			}
+			boolean hasNext = delegate.hasNext();
+			if (!hasNext) {
+				close();
+			}
+			return hasNext;
+		}
+
+		@Override
+		public T next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			return delegate.next();
+		}
+
+		/**
+		 * 关闭打开的临时文件并删除
+		 */
+		@Override
+		public void close() {
+			if (closed) {
+				return;
+			}
+			closed = true;
+			if (delegate instanceof Closeable) {
+				try {
+					((Closeable) delegate).close();
+				} catch (IOException ignore) {
+				}
+			}
+			if (runs != null) {
+				deleteRuns(runs);
+			}
+		}
+	}
+
+	/**
+	 * 写入临时文件的一个有序段
+	 */
+	private static class Run {
+		private final File file;
+		private long count;
+
+		Run(File file) {
+			this.file = file;
+		}
+
+		@SuppressWarnings("ResultOfMethodCallIgnored")
+		void delete() {
+			file.delete();
+		}
+	}
+
+	/**
+	 * 读取一个有序段，保存当前元素作为堆中的比较依据
+	 */
+	private class RunReader {
+		private final DataInputStream in;
+		private final int index;
+		private long remaining;
+		private T head;
+
+		RunReader(Run run, int index) throws IOException {
+			this.in = new DataInputStream(new BufferedInputStream(new FileInputStream(run.file), IO_BUFFER_SIZE));
+			this.index = index;
+			this.remaining = run.count;
+		}
+
+		boolean advance() throws IOException {
+			if (remaining == 0) {
+				head = null;
+				return false;
+			}
+			remaining--;
+			head = serializer.read(in);
+			return true;
+		}
+
+		void close() {
+			try {
+				in.close();
+			} catch (IOException ignore) {
+			}
+		}
+	}
+
+	/**
+	 * 多路归并：小顶堆中保存各段的当前元素，相等时按段的先后顺序输出以保持稳定
+	 */
+	private class MergeIterator implements Iterator<T>, Closeable {
+		private final PriorityQueue<RunReader> heap;
+		private final List<RunReader> readers = new ArrayList<>();
+
+		MergeIterator(List<Run> runs) throws IOException {
+			Comparator<RunReader> readerComparator = (r1, r2) -> {
+				int c = comparator.compare(r1.head, r2.head);
+				return c != 0 ? c : Integer.compare(r1.index, r2.index);
+			};
+			heap = new PriorityQueue<>(Math.max(runs.size(), 1), readerComparator);
+			try {
+				for (int i = 0; i < runs.size(); i++) {
+					RunReader reader = new RunReader(runs.get(i), i);
+					readers.add(reader);
+					if (reader.advance()) {
+						heap.add(reader);
+					}
+				}
+			} catch (IOException | RuntimeException e) {
+				close();
+				throw e;
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			return !heap.isEmpty();
+		}
+
+		@Override
+		public T next() {
+			RunReader reader = heap.poll();
+			if (reader == null) {
+				throw new NoSuchElementException();
+			}
+			T value = reader.head;
+			try {
+				if (reader.advance()) {
+					heap.add(reader);
+				}
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			return value;
+		}
+
+		@Override
+		public void close() {
+			for (RunReader reader : readers) {
+				reader.close();
+			}
+			heap.clear();
+		}
+	}
+
+	private static class LineIterator implements Iterator<String> {
+		private final BufferedReader reader;
+		private String nextLine;
+
+		LineIterator(BufferedReader reader) {
+			this.reader = reader;
+		}
+
+		@Override
+		public boolean hasNext() {
+			if (nextLine != null) {
+				return true;
+			}
+			try {
+				nextLine = reader.readLine();
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			return nextLine != null;
+		}
+
+		@Override
+		public String next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			String line = nextLine;
+			nextLine = null;
+			return line;
+		}
+	}
+}
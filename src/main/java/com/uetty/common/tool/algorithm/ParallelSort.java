@@ -0,0 +1,805 @@
+package com.uetty.common.tool.algorithm;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * 并行排序（ForkJoin工作窃取）
+ * <p>双轴快排分区，分出的子区间作为子任务由ForkJoinPool调度，空闲线程自动窃取任务；
+ * 递归深度超过 2*log2(n) 时改用堆排序（内省排序），最坏时间复杂度 O(n log n)，不依赖洗牌重试</p>
+ * <p>int[]、long[]、double[] 有专门的实现，全程不装箱；对象排序不稳定（相等元素的相对顺序可能改变）</p>
+ * @author vince
+ */
+@SuppressWarnings("unused")
+public class ParallelSort {
+
+	/**
+	 * 小于该长度的区间使用插入排序
+	 */
+	private static final int INSERTION_SORT_THRESHOLD = 32;
+
+	/**
+	 * 小于该长度的区间不再拆分任务
+	 */
+	private static final int MIN_PARALLEL_SIZE = 1 << 13;
+
+	private ParallelSort() {
+	}
+
+	public static void sort(int[] a) {
+		sort(a, ForkJoinPool.commonPool());
+	}
+
+	public static void sort(int[] a, ForkJoinPool pool) {
+		if (a.length < 2) {
+			return;
+		}
+		pool.invoke(new IntSortTask(a, 0, a.length - 1, maxDepth(a.length), threshold(a.length, pool)));
+	}
+
+	public static void sort(long[] a) {
+		sort(a, ForkJoinPool.commonPool());
+	}
+
+	public static void sort(long[] a, ForkJoinPool pool) {
+		if (a.length < 2) {
+			return;
+		}
+		pool.invoke(new LongSortTask(a, 0, a.length - 1, maxDepth(a.length), threshold(a.length, pool)));
+	}
+
+	public static void sort(double[] a) {
+		sort(a, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * 排序规则与 {@link Double#compare} 一致：-0.0 在 0.0 之前，NaN 排在最后
+	 */
+	public static void sort(double[] a, ForkJoinPool pool) {
+		// NaN 移到末尾，-0.0 先当作 0.0 排序，排序后再放回 0.0 之前
+		int end = a.length;
+		int negativeZeros = 0;
+		for (int i = end - 1; i >= 0; i--) {
+			double x = a[i];
+			if (x != x) {
+				a[i] = a[--end];
+				a[end] = x;
+			} else if (x == 0.0d && Double.doubleToRawLongBits(x) < 0) {
+				a[i] = 0.0d;
+				negativeZeros++;
+			}
+		}
+		if (end > 1) {
+			pool.invoke(new DoubleSortTask(a, 0, end - 1, maxDepth(end), threshold(end, pool)));
+		}
+		if (negativeZeros > 0) {
+			int lo = 0;
+			int hi = end;
+			while (lo < hi) {
+				int mid = (lo + hi) >>> 1;
+				if (a[mid] < 0.0d) {
+					lo = mid + 1;
+				} else {
+					hi = mid;
+				}
+			}
+			for (int i = 0; i < negativeZeros; i++) {
+				a[lo + i] = -0.0d;
+			}
+		}
+	}
+
+	public static <T> void sort(T[] a, Comparator<? super T> c) {
+		sort(a, c, ForkJoinPool.commonPool());
+	}
+
+	public static <T> void sort(T[] a, Comparator<? super T> c, ForkJoinPool pool) {
+		sort(a, c, pool, 0);
+	}
+
+	/**
+	 * @param sequentialThreshold 区间长度小于该值时不再拆分任务，小于等于0时按数组长度和并行度自动计算；
+	 *                            不小于插入排序阈值，过小的区间不足以取样选轴
+	 */
+	public static <T> void sort(T[] a, Comparator<? super T> c, ForkJoinPool pool, int sequentialThreshold) {
+		if (a.length < 2) {
+			return;
+		}
+		int threshold = sequentialThreshold > 0
+				? Math.max(sequentialThreshold, INSERTION_SORT_THRESHOLD) : threshold(a.length, pool);
+		pool.invoke(new ObjectSortTask<>(a, 0, a.length - 1, maxDepth(a.length), threshold, c));
+	}
+
+	public static <T> void sort(List<T> list, Comparator<? super T> c) {
+		sort(list, c, ForkJoinPool.commonPool(), 0);
+	}
+
+	/**
+	 * 列表先复制到数组排序，再按顺序写回，与 {@link List#sort} 相同，避免 LinkedList 等随机访问慢的列表逐个 get/set
+	 * @param sequentialThreshold 区间长度小于该值时不再拆分任务，小于等于0时自动计算
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T> void sort(List<T> list, Comparator<? super T> c, ForkJoinPool pool, int sequentialThreshold) {
+		Object[] a = list.toArray();
+		sort((T[]) a, c, pool, sequentialThreshold);
+		ListIterator<T> it = list.listIterator();
+		for (Object e : a) {
+			it.next();
+			it.set((T) e);
+		}
+	}
+
+	private static int maxDepth(int n) {
+		return 2 * (32 - Integer.numberOfLeadingZeros(n));
+	}
+
+	/**
+	 * 每个线程大约分到4个任务
+	 */
+	private static int threshold(int n, ForkJoinPool pool) {
+		int p = pool.getParallelism();
+		return p <= 1 ? n : Math.max(n / (p << 2), MIN_PARALLEL_SIZE);
+	}
+
+	/**
+	 * 并行排序任务：双轴快排分区后，三个子区间作为子任务交给ForkJoinPool，子区间小于阈值时在当前线程顺序排序
+	 */
+	@SuppressWarnings("serial")
+	private static class IntSortTask extends RecursiveAction {
+		private final int[] a;
+		private final int lo;
+		private final int hi;
+		private final int depth;
+		private final int threshold;
+
+		IntSortTask(int[] a, int lo, int hi, int depth, int threshold) {
+			this.a = a;
+			this.lo = lo;
+			this.hi = hi;
+			this.depth = depth;
+			this.threshold = threshold;
+		}
+
+		@Override
+		protected void compute() {
+			if (hi - lo < threshold || depth == 0) {
+				sort(a, lo, hi, depth);
+				return;
+			}
+			long pivots = partition(a, lo, hi);
+			int lt = (int) (pivots >>> 32);
+			int gt = (int) pivots;
+			int nextDepth = depth - 1;
+			List<IntSortTask> tasks = new ArrayList<>(3);
+			addTask(tasks, lo, lt - 1, nextDepth);
+			if (a[lt] < a[gt]) {
+				// 两个轴值相等时中间区间全部相等，无须排序
+				addTask(tasks, lt + 1, gt - 1, nextDepth);
+			}
+			addTask(tasks, gt + 1, hi, nextDepth);
+			invokeAll(tasks);
+		}
+
+		private void addTask(List<IntSortTask> tasks, int from, int to, int nextDepth) {
+			if (from < to) {
+				tasks.add(new IntSortTask(a, from, to, nextDepth, threshold));
+			}
+		}
+	}
+
+	/**
+	 * 内省排序：双轴快排，递归过深时改用堆排序，小区间使用插入排序
+	 */
+	private static void sort(int[] a, int lo, int hi, int depth) {
+		while (hi - lo >= INSERTION_SORT_THRESHOLD) {
+			if (depth == 0) {
+				heapSort(a, lo, hi);
+				return;
+			}
+			depth--;
+			long pivots = partition(a, lo, hi);
+			int lt = (int) (pivots >>> 32);
+			int gt = (int) pivots;
+			sort(a, lo, lt - 1, depth);
+			if (a[lt] < a[gt]) {
+				sort(a, lt + 1, gt - 1, depth);
+			}
+			// 尾递归改为循环
+			lo = gt + 1;
+		}
+		insertionSort(a, lo, hi);
+	}
+
+	/**
+	 * 双轴分区，轴值取五点采样中的第二、第四个
+	 * <p>分区后 [lo, lt) 小于轴1，a[lt]为轴1，(lt, gt) 介于两轴之间，a[gt]为轴2，(gt, hi] 大于轴2</p>
+	 * @return 高32位为lt，低32位为gt
+	 */
+	private static long partition(int[] a, int lo, int hi) {
+		int seventh = ((hi - lo + 1) >> 3) + ((hi - lo + 1) >> 6) + 1;
+		int e3 = (lo + hi) >>> 1;
+		int e2 = e3 - seventh;
+		int e1 = e2 - seventh;
+		int e4 = e3 + seventh;
+		int e5 = e4 + seventh;
+		sort5(a, e1, e2, e3, e4, e5);
+
+		swap(a, lo, e2);
+		swap(a, hi, e4);
+		int p1 = a[lo];
+		int p2 = a[hi];
+		int lt = lo + 1;
+		int gt = hi - 1;
+		for (int k = lt; k <= gt; k++) {
+			int x = a[k];
+			if (x < p1) {
+				swap(a, k, lt++);
+			} else if (p2 < x) {
+				while (k < gt && p2 < a[gt]) {
+					gt--;
+				}
+				swap(a, k, gt--);
+				if (a[k] < p1) {
+					swap(a, k, lt++);
+				}
+			}
+		}
+		lt--;
+		gt++;
+		swap(a, lo, lt);
+		swap(a, hi, gt);
+		return ((long) lt << 32) | (gt & 0xffffffffL);
+	}
+
+	private static void sort5(int[] a, int e1, int e2, int e3, int e4, int e5) {
+		int[] idx = {e1, e2, e3, e4, e5};
+		for (int i = 1; i < idx.length; i++) {
+			for (int j = i; j > 0 && a[idx[j]] < a[idx[j - 1]]; j--) {
+				swap(a, idx[j], idx[j - 1]);
+			}
+		}
+	}
+
+	private static void insertionSort(int[] a, int lo, int hi) {
+		for (int i = lo + 1; i <= hi; i++) {
+			int x = a[i];
+			int j = i - 1;
+			while (j >= lo && x < a[j]) {
+				a[j + 1] = a[j];
+				j--;
+			}
+			a[j + 1] = x;
+		}
+	}
+
+	private static void heapSort(int[] a, int lo, int hi) {
+		int n = hi - lo + 1;
+		for (int i = n / 2 - 1; i >= 0; i--) {
+			siftDown(a, lo, i, n);
+		}
+		for (int end = n - 1; end > 0; end--) {
+			swap(a, lo, lo + end);
+			siftDown(a, lo, 0, end);
+		}
+	}
+
+	private static void siftDown(int[] a, int lo, int pos, int n) {
+		int x = a[lo + pos];
+		int child;
+		while ((child = 2 * pos + 1) < n) {
+			if (child + 1 < n && a[lo + child] < a[lo + child + 1]) {
+				child++;
+			}
+			if (x >= a[lo + child]) {
+				break;
+			}
+			a[lo + pos] = a[lo + child];
+			pos = child;
+		}
+		a[lo + pos] = x;
+	}
+
+	private static void swap(int[] a, int i, int j) {
+		int t = a[i];
+		a[i] = a[j];
+		a[j] = t;
+	}
+
+	/**
+	 * 并行排序任务：双轴快排分区后，三个子区间作为子任务交给ForkJoinPool，子区间小于阈值时在当前线程顺序排序
+	 */
+	@SuppressWarnings("serial")
+	private static class LongSortTask extends RecursiveAction {
+		private final long[] a;
+		private final int lo;
+		private final int hi;
+		private final int depth;
+		private final int threshold;
+
+		LongSortTask(long[] a, int lo, int hi, int depth, int threshold) {
+			this.a = a;
+			this.lo = lo;
+			this.hi = hi;
+			this.depth = depth;
+			this.threshold = threshold;
+		}
+
+		@Override
+		protected void compute() {
+			if (hi - lo < threshold || depth == 0) {
+				sort(a, lo, hi, depth);
+				return;
+			}
+			long pivots = partition(a, lo, hi);
+			int lt = (int) (pivots >>> 32);
+			int gt = (int) pivots;
+			int nextDepth = depth - 1;
+			List<LongSortTask> tasks = new ArrayList<>(3);
+			addTask(tasks, lo, lt - 1, nextDepth);
+			if (a[lt] < a[gt]) {
+				// 两个轴值相等时中间区间全部相等，无须排序
+				addTask(tasks, lt + 1, gt - 1, nextDepth);
+			}
+			addTask(tasks, gt + 1, hi, nextDepth);
+			invokeAll(tasks);
+		}
+
+		private void addTask(List<LongSortTask> tasks, int from, int to, int nextDepth) {
+			if (from < to) {
+				tasks.add(new LongSortTask(a, from, to, nextDepth, threshold));
+			}
+		}
+	}
+
+	/**
+	 * 内省排序：双轴快排，递归过深时改用堆排序，小区间使用插入排序
+	 */
+	private static void sort(long[] a, int lo, int hi, int depth) {
+		while (hi - lo >= INSERTION_SORT_THRESHOLD) {
+			if (depth == 0) {
+				heapSort(a, lo, hi);
+				return;
+			}
+			depth--;
+			long pivots = partition(a, lo, hi);
+			int lt = (int) (pivots >>> 32);
+			int gt = (int) pivots;
+			sort(a, lo, lt - 1, depth);
+			if (a[lt] < a[gt]) {
+				sort(a, lt + 1, gt - 1, depth);
+			}
+			// 尾递归改为循环
+			lo = gt + 1;
+		}
+		insertionSort(a, lo, hi);
+	}
+
+	/**
+	 * 双轴分区，轴值取五点采样中的第二、第四个
+	 * <p>分区后 [lo, lt) 小于轴1，a[lt]为轴1，(lt, gt) 介于两轴之间，a[gt]为轴2，(gt, hi] 大于轴2</p>
+	 * @return 高32位为lt，低32位为gt
+	 */
+	private static long partition(long[] a, int lo, int hi) {
+		int seventh = ((hi - lo + 1) >> 3) + ((hi - lo + 1) >> 6) + 1;
+		int e3 = (lo + hi) >>> 1;
+		int e2 = e3 - seventh;
+		int e1 = e2 - seventh;
+		int e4 = e3 + seventh;
+		int e5 = e4 + seventh;
+		sort5(a, e1, e2, e3, e4, e5);
+
+		swap(a, lo, e2);
+		swap(a, hi, e4);
+		long p1 = a[lo];
+		long p2 = a[hi];
+		int lt = lo + 1;
+		int gt = hi - 1;
+		for (int k = lt; k <= gt; k++) {
+			long x = a[k];
+			if (x < p1) {
+				swap(a, k, lt++);
+			} else if (p2 < x) {
+				while (k < gt && p2 < a[gt]) {
+					gt--;
+				}
+				swap(a, k, gt--);
+				if (a[k] < p1) {
+					swap(a, k, lt++);
+				}
+			}
+		}
+		lt--;
+		gt++;
+		swap(a, lo, lt);
+		swap(a, hi, gt);
+		return ((long) lt << 32) | (gt & 0xffffffffL);
+	}
+
+	private static void sort5(long[] a, int e1, int e2, int e3, int e4, int e5) {
+		int[] idx = {e1, e2, e3, e4, e5};
+		for (int i = 1; i < idx.length; i++) {
+			for (int j = i; j > 0 && a[idx[j]] < a[idx[j - 1]]; j--) {
+				swap(a, idx[j], idx[j - 1]);
+			}
+		}
+	}
+
+	private static void insertionSort(long[] a, int lo, int hi) {
+		for (int i = lo + 1; i <= hi; i++) {
+			long x = a[i];
+			int j = i - 1;
+			while (j >= lo && x < a[j]) {
+				a[j + 1] = a[j];
+				j--;
+			}
+			a[j + 1] = x;
+		}
+	}
+
+	private static void heapSort(long[] a, int lo, int hi) {
+		int n = hi - lo + 1;
+		for (int i = n / 2 - 1; i >= 0; i--) {
+			siftDown(a, lo, i, n);
+		}
+		for (int end = n - 1; end > 0; end--) {
+			swap(a, lo, lo + end);
+			siftDown(a, lo, 0, end);
+		}
+	}
+
+	private static void siftDown(long[] a, int lo, int pos, int n) {
+		long x = a[lo + pos];
+		int child;
+		while ((child = 2 * pos + 1) < n) {
+			if (child + 1 < n && a[lo + child] < a[lo + child + 1]) {
+				child++;
+			}
+			if (x >= a[lo + child]) {
+				break;
+			}
+			a[lo + pos] = a[lo + child];
+			pos = child;
+		}
+		a[lo + pos] = x;
+	}
+
+	private static void swap(long[] a, int i, int j) {
+		long t = a[i];
+		a[i] = a[j];
+		a[j] = t;
+	}
+
+	/**
+	 * 并行排序任务：双轴快排分区后，三个子区间作为子任务交给ForkJoinPool，子区间小于阈值时在当前线程顺序排序
+	 */
+	@SuppressWarnings("serial")
+	private static class DoubleSortTask extends RecursiveAction {
+		private final double[] a;
+		private final int lo;
+		private final int hi;
+		private final int depth;
+		private final int threshold;
+
+		DoubleSortTask(double[] a, int lo, int hi, int depth, int threshold) {
+			this.a = a;
+			this.lo = lo;
+			this.hi = hi;
+			this.depth = depth;
+			this.threshold = threshold;
+		}
+
+		@Override
+		protected void compute() {
+			if (hi - lo < threshold || depth == 0) {
+				sort(a, lo, hi, depth);
+				return;
+			}
+			long pivots = partition(a, lo, hi);
+			int lt = (int) (pivots >>> 32);
+			int gt = (int) pivots;
+			int nextDepth = depth - 1;
+			List<DoubleSortTask> tasks = new ArrayList<>(3);
+			addTask(tasks, lo, lt - 1, nextDepth);
+			if (a[lt] < a[gt]) {
+				// 两个轴值相等时中间区间全部相等，无须排序
+				addTask(tasks, lt + 1, gt - 1, nextDepth);
+			}
+			addTask(tasks, gt + 1, hi, nextDepth);
+			invokeAll(tasks);
+		}
+
+		private void addTask(List<DoubleSortTask> tasks, int from, int to, int nextDepth) {
+			if (from < to) {
+				tasks.add(new DoubleSortTask(a, from, to, nextDepth, threshold));
+			}
+		}
+	}
+
+	/**
+	 * 内省排序：双轴快排，递归过深时改用堆排序，小区间使用插入排序
+	 */
+	private static void sort(double[] a, int lo, int hi, int depth) {
+		while (hi - lo >= INSERTION_SORT_THRESHOLD) {
+			if (depth == 0) {
+				heapSort(a, lo, hi);
+				return;
+			}
+			depth--;
+			long pivots = partition(a, lo, hi);
+			int lt = (int) (pivots >>> 32);
+			int gt = (int) pivots;
+			sort(a, lo, lt - 1, depth);
+			if (a[lt] < a[gt]) {
+				sort(a, lt + 1, gt - 1, depth);
+			}
+			// 尾递归改为循环
+			lo = gt + 1;
+		}
+		insertionSort(a, lo, hi);
+	}
+
+	/**
+	 * 双轴分区，轴值取五点采样中的第二、第四个
+	 * <p>分区后 [lo, lt) 小于轴1，a[lt]为轴1，(lt, gt) 介于两轴之间，a[gt]为轴2，(gt, hi] 大于轴2</p>
+	 * @return 高32位为lt，低32位为gt
+	 */
+	private static long partition(double[] a, int lo, int hi) {
+		int seventh = ((hi - lo + 1) >> 3) + ((hi - lo + 1) >> 6) + 1;
+		int e3 = (lo + hi) >>> 1;
+		int e2 = e3 - seventh;
+		int e1 = e2 - seventh;
+		int e4 = e3 + seventh;
+		int e5 = e4 + seventh;
+		sort5(a, e1, e2, e3, e4, e5);
+
+		swap(a, lo, e2);
+		swap(a, hi, e4);
+		double p1 = a[lo];
+		double p2 = a[hi];
+		int lt = lo + 1;
+		int gt = hi - 1;
+		for (int k = lt; k <= gt; k++) {
+			double x = a[k];
+			if (x < p1) {
+				swap(a, k, lt++);
+			} else if (p2 < x) {
+				while (k < gt && p2 < a[gt]) {
+					gt--;
+				}
+				swap(a, k, gt--);
+				if (a[k] < p1) {
+					swap(a, k, lt++);
+				}
+			}
+		}
+		lt--;
+		gt++;
+		swap(a, lo, lt);
+		swap(a, hi, gt);
+		return ((long) lt << 32) | (gt & 0xffffffffL);
+	}
+
+	private static void sort5(double[] a, int e1, int e2, int e3, int e4, int e5) {
+		int[] idx = {e1, e2, e3, e4, e5};
+		for (int i = 1; i < idx.length; i++) {
+			for (int j = i; j > 0 && a[idx[j]] < a[idx[j - 1]]; j--) {
+				swap(a, idx[j], idx[j - 1]);
+			}
+		}
+	}
+
+	private static void insertionSort(double[] a, int lo, int hi) {
+		for (int i = lo + 1; i <= hi; i++) {
+			double x = a[i];
+			int j = i - 1;
+			while (j >= lo && x < a[j]) {
+				a[j + 1] = a[j];
+				j--;
+			}
+			a[j + 1] = x;
+		}
+	}
+
+	private static void heapSort(double[] a, int lo, int hi) {
+		int n = hi - lo + 1;
+		for (int i = n / 2 - 1; i >= 0; i--) {
+			siftDown(a, lo, i, n);
+		}
+		for (int end = n - 1; end > 0; end--) {
+			swap(a, lo, lo + end);
+			siftDown(a, lo, 0, end);
+		}
+	}
+
+	private static void siftDown(double[] a, int lo, int pos, int n) {
+		double x = a[lo + pos];
+		int child;
+		while ((child = 2 * pos + 1) < n) {
+			if (child + 1 < n && a[lo + child] < a[lo + child + 1]) {
+				child++;
+			}
+			if (x >= a[lo + child]) {
+				break;
+			}
+			a[lo + pos] = a[lo + child];
+			pos = child;
+		}
+		a[lo + pos] = x;
+	}
+
+	private static void swap(double[] a, int i, int j) {
+		double t = a[i];
+		a[i] = a[j];
+		a[j] = t;
+	}
+
+	/**
+	 * 并行排序任务：双轴快排分区后，三个子区间作为子任务交给ForkJoinPool，子区间小于阈值时在当前线程顺序排序
+	 */
+	@SuppressWarnings("serial")
+	private static class ObjectSortTask <T> extends RecursiveAction {
+		private final T[] a;
+		private final int lo;
+		private final int hi;
+		private final int depth;
+		private final int threshold;
+		private final Comparator<? super T> c;
+
+		ObjectSortTask(T[] a, int lo, int hi, int depth, int threshold, Comparator<? super T> c) {
+			this.a = a;
+			this.lo = lo;
+			this.hi = hi;
+			this.depth = depth;
+			this.threshold = threshold;
+			this.c = c;
+		}
+
+		@Override
+		protected void compute() {
+			if (hi - lo < threshold || depth == 0) {
+				sort(a, lo, hi, depth, c);
+				return;
+			}
+			long pivots = partition(a, lo, hi, c);
+			int lt = (int) (pivots >>> 32);
+			int gt = (int) pivots;
+			int nextDepth = depth - 1;
+			List<ObjectSortTask <T>> tasks = new ArrayList<>(3);
+			addTask(tasks, lo, lt - 1, nextDepth);
+			if (c.compare(a[lt], a[gt]) < 0) {
+				// 两个轴值相等时中间区间全部相等，无须排序
+				addTask(tasks, lt + 1, gt - 1, nextDepth);
+			}
+			addTask(tasks, gt + 1, hi, nextDepth);
+			invokeAll(tasks);
+		}
+
+		private void addTask(List<ObjectSortTask <T>> tasks, int from, int to, int nextDepth) {
+			if (from < to) {
+				tasks.add(new ObjectSortTask <>(a, from, to, nextDepth, threshold, c));
+			}
+		}
+	}
+
+	/**
+	 * 内省排序：双轴快排，递归过深时改用堆排序，小区间使用插入排序
+	 */
+	private static <T> void sort(T[] a, int lo, int hi, int depth, Comparator<? super T> c) {
+		while (hi - lo >= INSERTION_SORT_THRESHOLD) {
+			if (depth == 0) {
+				heapSort(a, lo, hi, c);
+				return;
+			}
+			depth--;
+			long pivots = partition(a, lo, hi, c);
+			int lt = (int) (pivots >>> 32);
+			int gt = (int) pivots;
+			sort(a, lo, lt - 1, depth, c);
+			if (c.compare(a[lt], a[gt]) < 0) {
+				sort(a, lt + 1, gt - 1, depth, c);
+			}
+			// 尾递归改为循环
+			lo = gt + 1;
+		}
+		insertionSort(a, lo, hi, c);
+	}
+
+	/**
+	 * 双轴分区，轴值取五点采样中的第二、第四个
+	 * <p>分区后 [lo, lt) 小于轴1，a[lt]为轴1，(lt, gt) 介于两轴之间，a[gt]为轴2，(gt, hi] 大于轴2</p>
+	 * @return 高32位为lt，低32位为gt
+	 */
+	private static <T> long partition(T[] a, int lo, int hi, Comparator<? super T> c) {
+		int seventh = ((hi - lo + 1) >> 3) + ((hi - lo + 1) >> 6) + 1;
+		int e3 = (lo + hi) >>> 1;
+		int e2 = e3 - seventh;
+		int e1 = e2 - seventh;
+		int e4 = e3 + seventh;
+		int e5 = e4 + seventh;
+		sort5(a, e1, e2, e3, e4, e5, c);
+
+		swap(a, lo, e2);
+		swap(a, hi, e4);
+		T p1 = a[lo];
+		T p2 = a[hi];
+		int lt = lo + 1;
+		int gt = hi - 1;
+		for (int k = lt; k <= gt; k++) {
+			T x = a[k];
+			if (c.compare(x, p1) < 0) {
+				swap(a, k, lt++);
+			} else if (c.compare(p2, x) < 0) {
+				while (k < gt && c.compare(p2, a[gt]) < 0) {
+					gt--;
+				}
+				swap(a, k, gt--);
+				if (c.compare(a[k], p1) < 0) {
+					swap(a, k, lt++);
+				}
+			}
+		}
+		lt--;
+		gt++;
+		swap(a, lo, lt);
+		swap(a, hi, gt);
+		return ((long) lt << 32) | (gt & 0xffffffffL);
+	}
+
+	private static <T> void sort5(T[] a, int e1, int e2, int e3, int e4, int e5, Comparator<? super T> c) {
+		int[] idx = {e1, e2, e3, e4, e5};
+		for (int i = 1; i < idx.length; i++) {
+			for (int j = i; j > 0 && c.compare(a[idx[j]], a[idx[j - 1]]) < 0; j--) {
+				swap(a, idx[j], idx[j - 1]);
+			}
+		}
+	}
+
+	private static <T> void insertionSort(T[] a, int lo, int hi, Comparator<? super T> c) {
+		for (int i = lo + 1; i <= hi; i++) {
+			T x = a[i];
+			int j = i - 1;
+			while (j >= lo && c.compare(x, a[j]) < 0) {
+				a[j + 1] = a[j];
+				j--;
+			}
+			a[j + 1] = x;
+		}
+	}
+
+	private static <T> void heapSort(T[] a, int lo, int hi, Comparator<? super T> c) {
+		int n = hi - lo + 1;
+		for (int i = n / 2 - 1; i >= 0; i--) {
+			siftDown(a, lo, i, n, c);
+		}
+		for (int end = n - 1; end > 0; end--) {
+			swap(a, lo, lo + end);
+			siftDown(a, lo, 0, end, c);
+		}
+	}
+
+	private static <T> void siftDown(T[] a, int lo, int pos, int n, Comparator<? super T> c) {
+		T x = a[lo + pos];
+		int child;
+		while ((child = 2 * pos + 1) < n) {
+			if (child + 1 < n && c.compare(a[lo + child], a[lo + child + 1]) < 0) {
+				child++;
+			}
+			if (c.compare(x, a[lo + child]) >= 0) {
+				break;
+			}
+			a[lo + pos] = a[lo + child];
+			pos = child;
+		}
+		a[lo + pos] = x;
+	}
+
+	private static <T> void swap(T[] a, int i, int j) {
+		T t = a[i];
+		a[i] = a[j];
+		a[j] = t;
+	}
+}
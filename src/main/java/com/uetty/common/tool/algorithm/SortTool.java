@@ -1,6 +1,7 @@
 package com.uetty.common.tool.algorithm;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 @SuppressWarnings("unused")
@@ -127,41 +128,40 @@ public class SortTool {
 		quickSort.execute();
 	}
 	
-	public static void main(String[] args) throws InterruptedException {
-		List<Integer> list = new ArrayList<>();
-		for (int i = 0; i < 20000000; i++) {
-			list.add((int)(Math.random() * 1000000));
+	/**
+	 * 各排序实现的耗时对比，每种实现先预热再取多轮平均
+	 */
+	public static void main(String[] args) {
+		int size = 5_000_000;
+		int rounds = 5;
+		int[] data = new int[size];
+		for (int i = 0; i < size; i++) {
+			data[i] = (int) (Math.random() * 1000000);
+		}
+		List<Integer> list = new ArrayList<>(size);
+		for (int x : data) {
+			list.add(x);
 		}
-		System.out.println("sort start");
+		System.out.println("sort start, size " + size);
 
-		long st;
-		List<Integer> source;
-		
-		source = new ArrayList<>(list);
-		System.out.println("\nquick sort");
-		st = System.currentTimeMillis();
-		quickSort(source);
-		System.out.println(System.currentTimeMillis() - st);
-//		System.out.println(source);
+		benchmark("quick sort (List<Integer>)", rounds, () -> quickSort(new ArrayList<>(list)));
+		benchmark("heap sort (List<Integer>)", rounds, () -> HeapSort.sort(new ArrayList<>(list), Integer::compare));
+		benchmark("multi quick sort (List<Integer>)", rounds, () -> multiQuickSort(new ArrayList<>(list)));
+		benchmark("parallel sort (List<Integer>)", rounds, () -> ParallelSort.sort(new ArrayList<>(list), Integer::compare));
+		benchmark("Arrays.sort (int[])", rounds, () -> Arrays.sort(data.clone()));
+		benchmark("Arrays.parallelSort (int[])", rounds, () -> Arrays.parallelSort(data.clone()));
+		benchmark("parallel sort (int[])", rounds, () -> ParallelSort.sort(data.clone()));
+	}
 
-		Thread.sleep(2000);
-		System.out.println("\nmquick sort");
-		source = new ArrayList<>(list);
-		st = System.currentTimeMillis();
-		multiQuickSort(source);
-		System.out.println(System.currentTimeMillis() - st);
-//		System.out.println(source);
-		
-//		source = new ArrayList<>(list);
-//		System.out.println("\nbubble sort");
-//		st = System.currentTimeMillis();
-//		bubbleSort(source);
-//		System.out.println(System.currentTimeMillis() - st);
-//		
-//		source = new ArrayList<>(list);
-//		System.out.println("\nselection sort");
-//		st = System.currentTimeMillis();
-//		selectionSort(source);
-//		System.out.println(System.currentTimeMillis() - st);
+	private static void benchmark(String name, int rounds, Runnable sort) {
+		// 预热
+		for (int i = 0; i < 2; i++) {
+			sort.run();
+		}
+		long st = System.nanoTime();
+		for (int i = 0; i < rounds; i++) {
+			sort.run();
+		}
+		System.out.println(name + ": " + (System.nanoTime() - st) / rounds / 1000000 + "ms");
 	}
 }
@@ -0,0 +1,123 @@
+package com.uetty.common.tool.algorithm.diff;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Histogram差分算法（与git diff --histogram思路一致）
+ * <p>统计区间内序列a中各数据元的出现次数，选取出现次数最少的数据元所在的最长公共片段作为分割点递归，
+ * 是Patience算法的扩展：没有唯一数据元时也能选出低频锚点；出现次数都超过上限时退回Myers算法</p>
+ * @author : Vince
+ */
+class HistogramDiff extends TokenDiff {
+
+    /**
+     * 出现次数超过该值的数据元不作为锚点
+     */
+    private static final int MAX_CHAIN_LENGTH = 64;
+
+    /**
+     * 按数据元编号统计区间内a中的出现次数，及出现位置组成的链表
+     */
+    private final int[] count;
+    private final int[] head;
+    private final int[] next;
+
+    HistogramDiff(int[] a, int[] b) {
+        super(a, b);
+        int bound = tokenBound();
+        this.count = new int[bound];
+        this.head = new int[bound];
+        this.next = new int[a.length];
+    }
+
+    @Override
+    void diff(int aLo, int aHi, int bLo, int bHi) {
+        Deque<int[]> ranges = new ArrayDeque<>();
+        ranges.push(new int[]{aLo, aHi, bLo, bHi});
+        while (!ranges.isEmpty()) {
+            int[] range = ranges.pop();
+            diffRange(range[0], range[1], range[2], range[3], ranges);
+        }
+    }
+
+    private void diffRange(int aLo, int aHi, int bLo, int bHi, Deque<int[]> ranges) {
+        while (aLo < aHi && bLo < bHi && a[aLo] == b[bLo]) {
+            addMatch(aLo++, bLo++);
+        }
+        while (aLo < aHi && bLo < bHi && a[aHi - 1] == b[bHi - 1]) {
+            addMatch(--aHi, --bHi);
+        }
+        if (aLo >= aHi || bLo >= bHi) {
+            return;
+        }
+
+        for (int i = aHi - 1; i >= aLo; i--) {
+            int t = a[i];
+            next[i] = count[t] == 0 ? -1 : head[t];
+            head[t] = i;
+            count[t]++;
+        }
+
+        int bestCount = MAX_CHAIN_LENGTH + 1;
+        int bestLen = 0;
+        int bestA = -1;
+        int bestB = -1;
+        for (int bi = bLo; bi < bHi; ) {
+            int c = count[b[bi]];
+            int bNext = bi + 1;
+            if (c == 0 || c > bestCount) {
+                bi = bNext;
+                continue;
+            }
+            for (int ai = head[b[bi]]; ai >= 0; ai = next[ai]) {
+                // 向两侧扩展为最长的公共片段
+                int as = ai;
+                int bs = bi;
+                while (as > aLo && bs > bLo && a[as - 1] == b[bs - 1]) {
+                    as--;
+                    bs--;
+                }
+                int ae = ai + 1;
+                int be = bi + 1;
+                int regionCount = c;
+                while (ae < aHi && be < bHi && a[ae] == b[be]) {
+                    regionCount = Math.min(regionCount, count[a[ae]]);
+                    ae++;
+                    be++;
+                }
+                for (int k = as; k < ai; k++) {
+                    regionCount = Math.min(regionCount, count[a[k]]);
+                }
+                if (be > bNext) {
+                    bNext = be;
+                }
+                if (regionCount < bestCount || (regionCount == bestCount && ae - as > bestLen)) {
+                    bestCount = regionCount;
+                    bestLen = ae - as;
+                    bestA = as;
+                    bestB = bs;
+                }
+            }
+            bi = bNext;
+        }
+
+        for (int i = aLo; i < aHi; i++) {
+            count[a[i]] = 0;
+        }
+
+        if (bestLen == 0) {
+            myers(aLo, aHi, bLo, bHi);
+            return;
+        }
+        for (int i = 0; i < bestLen; i++) {
+            addMatch(bestA + i, bestB + i);
+        }
+        if (aLo < bestA && bLo < bestB) {
+            ranges.push(new int[]{aLo, bestA, bLo, bestB});
+        }
+        if (bestA + bestLen < aHi && bestB + bestLen < bHi) {
+            ranges.push(new int[]{bestA + bestLen, aHi, bestB + bestLen, bHi});
+        }
+    }
+}
@@ -4,14 +4,24 @@ import org.apache.commons.io.FileUtils;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.CharBuffer;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 /**
  * 文本diff算法
+ * <p>默认使用动态规划表求最长公共子序列，内存占用为 O(N*M)；
+ * 大文本比较请使用 {@link Engine#MYERS}，时间 O((N+M)D)、内存 O(N+M)，D为两个文本的差异数；
+ * 按行比较代码、配置文件、日志时可使用 {@link LineMetadataPicker} 配合 {@link Engine#PATIENCE} 或 {@link Engine#HISTOGRAM}</p>
+ * <p>除了 {@link #seekCommon()} 返回公共片段外，也可以通过 {@link #forEachEdit} 流式获取编辑脚本，
+ * 或通过 {@link #writeUnifiedDiff} 直接输出unified diff</p>
  * @author : Vince
  */
 @SuppressWarnings({"WeakerAccess", "unused"})
@@ -23,6 +33,13 @@ public class LCSDiff {
     private MetadataSpec[] specs1;
     private MetadataSpec[] specs2;
     private MetadataPicker metadataPicker = new CharactMetadataPicker();
+    private Engine engine = Engine.LCS_TABLE;
+
+    /**
+     * 数据元整数化后的序列，相同的数据元对应相同的整数
+     */
+    private int[] tokens1;
+    private int[] tokens2;
 
     private byte[][] cdata;
 
@@ -36,18 +53,29 @@ public class LCSDiff {
         if (metadataPicker != null) {
             this.metadataPicker = metadataPicker;
         }
-        this.specs1 = toSpecArray(str1);
-        this.specs2 = toSpecArray(str2);
+        Map<String, Integer> tokenIds = new HashMap<>();
+        this.specs1 = toSpecArray(str1, tokenIds);
+        this.tokens1 = toTokens(this.specs1);
+        this.specs2 = toSpecArray(str2, tokenIds);
+        this.tokens2 = toTokens(this.specs2);
+    }
+
+    public LCSDiff(String str1, String str2, MetadataPicker metadataPicker, Engine engine) {
+        this(str1, str2, metadataPicker);
+        setEngine(engine);
     }
 
     public CommonInfo seekCommon() {
+        if (engine != Engine.LCS_TABLE) {
+            return seekCommonByTokens();
+        }
         calculate();
         CommonInfo commonInfo = lookback();
         this.cdata = null;
         return commonInfo;
     }
 
-    private MetadataSpec[] toSpecArray(String str) {
+    private MetadataSpec[] toSpecArray(String str, Map<String, Integer> tokenIds) {
         Metadatas metas = metadataPicker.doPick(str);
         String[] data = metas.getData();
         MetadataSpec[] specs = new MetadataSpec[data.length];
@@ -58,11 +86,134 @@ public class LCSDiff {
             cursor += data[i].length();
             spec.end = cursor;
             spec.string = null; // 这里用不到
+            // 两个文本共用编号表，比较数据元时只需比较整数
+            spec.token = tokenIds.computeIfAbsent(data[i], k -> tokenIds.size());
             specs[i] = spec;
         }
         return specs;
     }
 
+    private int[] toTokens(MetadataSpec[] specs) {
+        int[] tokens = new int[specs.length];
+        for (int i = 0; i < specs.length; i++) {
+            tokens[i] = specs[i].token;
+        }
+        return tokens;
+    }
+
+    private TokenDiff computeTokenDiff() {
+        TokenDiff tokenDiff;
+        if (engine == Engine.PATIENCE) {
+            tokenDiff = new PatienceDiff(tokens1, tokens2);
+        } else if (engine == Engine.HISTOGRAM) {
+            tokenDiff = new HistogramDiff(tokens1, tokens2);
+        } else {
+            tokenDiff = new MyersDiff(tokens1, tokens2);
+        }
+        tokenDiff.compute();
+        return tokenDiff;
+    }
+
+    private CommonInfo seekCommonByTokens() {
+        List<MetadataSpec> sameSpecs1 = new ArrayList<>();
+        List<MetadataSpec> sameSpecs2 = new ArrayList<>();
+        forEachEdit((type, from1, to1, from2, to2) -> {
+            if (type == EditType.EQUAL) {
+                sameSpecs1.add(aggregateSpec(specs1[from1], specs1[to1 - 1], c1));
+                sameSpecs2.add(aggregateSpec(specs2[from2], specs2[to2 - 1], c2));
+            }
+        });
+
+        CommonInfo commonInfo = new CommonInfo();
+        commonInfo.specs1 = sameSpecs1;
+        commonInfo.specs2 = sameSpecs2;
+        return commonInfo;
+    }
+
+    /**
+     * 按顺序回调编辑脚本，不生成 MetadataSpec 列表
+     * <p>连续相同的数据元合并为一次 EQUAL 回调；两段相同数据之间先回调 DELETE（如有）再回调 INSERT（如有）；
+     * {@link Engine#LCS_TABLE} 不支持编辑脚本，按 {@link Engine#MYERS} 计算</p>
+     *
+     * @param callback 编辑回调
+     */
+    public void forEachEdit(EditCallback callback) {
+        TokenDiff tokenDiff = computeTokenDiff();
+        int n = tokens1.length;
+        int m = tokens2.length;
+        int i = 0;
+        int j = 0;
+        while (i < n || j < m) {
+            int ai = i;
+            while (ai < n && tokenDiff.matchOf(ai) < 0) {
+                ai++;
+            }
+            int bj = ai < n ? tokenDiff.matchOf(ai) : m;
+            if (ai > i) {
+                callback.handler(EditType.DELETE, i, ai, j, j);
+            }
+            if (bj > j) {
+                callback.handler(EditType.INSERT, ai, ai, j, bj);
+            }
+            if (ai >= n) {
+                break;
+            }
+            int ae = ai + 1;
+            int be = bj + 1;
+            while (ae < n && tokenDiff.matchOf(ae) == be) {
+                ae++;
+                be++;
+            }
+            callback.handler(EditType.EQUAL, ai, ae, bj, be);
+            i = ae;
+            j = be;
+        }
+    }
+
+    /**
+     * 输出unified diff格式的差异（与 diff -u 格式一致），边计算边写出
+     * <p>每个数据元作为一行输出，一般配合 {@link LineMetadataPicker} 使用</p>
+     *
+     * @param out 输出目标
+     * @param name1 原文件名
+     * @param name2 新文件名
+     * @param context 每处差异前后保留的相同行数
+     * @return 差异块（hunk）数量，为0时两个文本相同且没有任何输出
+     * @throws IOException 写出失败
+     */
+    public int writeUnifiedDiff(Appendable out, String name1, String name2, int context) throws IOException {
+        UnifiedDiffWriter writer = new UnifiedDiffWriter(out, name1, name2, Math.max(context, 0));
+        try {
+            forEachEdit(writer);
+            writer.finish();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return writer.hunkCount;
+    }
+
+    /**
+     * @return 原文本中第 index 个数据元
+     */
+    public String getToken1(int index) {
+        return new String(c1, specs1[index].start, specs1[index].end - specs1[index].start);
+    }
+
+    /**
+     * @return 新文本中第 index 个数据元
+     */
+    public String getToken2(int index) {
+        return new String(c2, specs2[index].start, specs2[index].end - specs2[index].start);
+    }
+
+    public int getTokenCount1() {
+        return specs1.length;
+    }
+
+    public int getTokenCount2() {
+        return specs2.length;
+    }
+
     private void calculate() {
         cdata = new byte[specs2.length + 1][];
         for (int i = 0; i < cdata.length; i++) {
@@ -134,8 +285,12 @@ public class LCSDiff {
 
     private MetadataSpec aggregateSpec(List<MetadataSpec> list, char[] cs) {
         if (list.size() == 0) return null;
-        int start = list.get(0).start;
-        int end = list.get(list.size() - 1).end;
+        return aggregateSpec(list.get(0), list.get(list.size() - 1), cs);
+    }
+
+    private MetadataSpec aggregateSpec(MetadataSpec first, MetadataSpec last, char[] cs) {
+        int start = first.start;
+        int end = last.end;
         MetadataSpec spec = new MetadataSpec();
         spec.start = start;
         spec.end = end;
@@ -148,17 +303,8 @@ public class LCSDiff {
     }
 
     private boolean metaEquals(MetadataSpec spec1, MetadataSpec spec2) {
-        int startSpec1 = spec1.start;
-        int endSpec1 = spec1.end;
-        int startSpec2 = spec2.start;
-        int endSpec2 = spec2.end;
-        if (endSpec1 - startSpec1 != endSpec2 - startSpec2) return false;
-
-        for (int i = 0; i + startSpec1 < endSpec1; i++) {
-            if (c1[i + startSpec1] != c2[i + startSpec2]) return false;
-        }
-
-        return true;
+        // 数据元已整数化，编号相同即内容相同
+        return spec1.token == spec2.token;
     }
 
     private int getCount(int i, int j) {
@@ -185,6 +331,7 @@ public class LCSDiff {
         int start;
         int end;
         String string;
+        int token;
 
         public int getStart() {
             return start;
@@ -211,6 +358,181 @@ public class LCSDiff {
         }
     }
 
+    public Engine getEngine() {
+        return engine;
+    }
+
+    public void setEngine(Engine engine) {
+        if (engine != null) {
+            this.engine = engine;
+        }
+    }
+
+    /**
+     * diff算法实现
+     */
+    public enum Engine {
+        /**
+         * 动态规划表，内存 O(N*M)，只适合较短的文本
+         */
+        LCS_TABLE,
+        /**
+         * Myers O(ND) 算法（线性空间），适合大文本，结果为最长公共子序列
+         */
+        MYERS,
+        /**
+         * Patience算法，以两边唯一的行为锚点，适合代码、配置文件按行比较
+         */
+        PATIENCE,
+        /**
+         * Histogram算法，以低频的行为锚点，适合代码、配置文件、日志按行比较
+         */
+        HISTOGRAM
+    }
+
+    /**
+     * 编辑类型
+     */
+    public enum EditType {
+        EQUAL,
+        DELETE,
+        INSERT
+    }
+
+    /**
+     * 编辑脚本回调
+     */
+    public interface EditCallback {
+
+        /**
+         * 数据元下标区间均为左闭右开
+         *
+         * @param type 编辑类型
+         * @param from1 原文本数据元开始下标
+         * @param to1 原文本数据元结束下标，INSERT时与from1相同
+         * @param from2 新文本数据元开始下标
+         * @param to2 新文本数据元结束下标，DELETE时与from2相同
+         */
+        void handler(EditType type, int from1, int to1, int from2, int to2);
+    }
+
+    /**
+     * unified diff输出，只缓存当前差异块的编辑区间
+     */
+    private class UnifiedDiffWriter implements EditCallback {
+        private final Appendable out;
+        private final String name1;
+        private final String name2;
+        private final int context;
+        private final CharBuffer text1 = CharBuffer.wrap(c1);
+        private final CharBuffer text2 = CharBuffer.wrap(c2);
+
+        /**
+         * 当前差异块的编辑区间：类型序号、from1、to1、from2、to2
+         */
+        private final List<int[]> ops = new ArrayList<>();
+        private boolean hasChange = false;
+        private int hunkCount = 0;
+
+        UnifiedDiffWriter(Appendable out, String name1, String name2, int context) {
+            this.out = out;
+            this.name1 = name1;
+            this.name2 = name2;
+            this.context = context;
+        }
+
+        @Override
+        public void handler(EditType type, int from1, int to1, int from2, int to2) {
+            if (type != EditType.EQUAL) {
+                ops.add(new int[]{type.ordinal(), from1, to1, from2, to2});
+                hasChange = true;
+                return;
+            }
+            int len = to1 - from1;
+            if (!hasChange) {
+                // 差异块开始前只保留最后 context 行
+                ops.clear();
+                addLeading(from1, to1, from2, to2);
+            } else if (len > context * 2) {
+                int tail = Math.min(context, len);
+                if (tail > 0) {
+                    ops.add(new int[]{EditType.EQUAL.ordinal(), from1, from1 + tail, from2, from2 + tail});
+                }
+                flush();
+                addLeading(from1, to1, from2, to2);
+            } else {
+                ops.add(new int[]{EditType.EQUAL.ordinal(), from1, to1, from2, to2});
+            }
+        }
+
+        private void addLeading(int from1, int to1, int from2, int to2) {
+            int lead = Math.min(context, to1 - from1);
+            if (lead > 0) {
+                ops.add(new int[]{EditType.EQUAL.ordinal(), to1 - lead, to1, to2 - lead, to2});
+            }
+        }
+
+        void finish() {
+            if (!hasChange) {
+                return;
+            }
+            int[] last = ops.get(ops.size() - 1);
+            if (last[0] == EditType.EQUAL.ordinal() && last[2] - last[1] > context) {
+                last[2] = last[1] + context;
+                last[4] = last[3] + context;
+            }
+            flush();
+        }
+
+        private void flush() {
+            try {
+                if (hunkCount == 0) {
+                    out.append("--- ").append(name1).append('\n');
+                    out.append("+++ ").append(name2).append('\n');
+                }
+                int[] first = ops.get(0);
+                int[] last = ops.get(ops.size() - 1);
+                out.append("@@ -").append(range(first[1], last[2]))
+                        .append(" +").append(range(first[3], last[4])).append(" @@\n");
+                for (int[] op : ops) {
+                    if (op[0] == EditType.EQUAL.ordinal()) {
+                        writeLines(' ', specs1, text1, op[1], op[2]);
+                    } else if (op[0] == EditType.DELETE.ordinal()) {
+                        writeLines('-', specs1, text1, op[1], op[2]);
+                    } else {
+                        writeLines('+', specs2, text2, op[3], op[4]);
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            hunkCount++;
+            ops.clear();
+            hasChange = false;
+        }
+
+        /**
+         * 行号从1开始；行数为1时省略，为0时行号为前一行
+         */
+        private String range(int from, int to) {
+            int len = to - from;
+            if (len == 1) {
+                return String.valueOf(from + 1);
+            }
+            return (len == 0 ? from : from + 1) + "," + len;
+        }
+
+        private void writeLines(char prefix, MetadataSpec[] specs, CharBuffer text, int from, int to) throws IOException {
+            for (int i = from; i < to; i++) {
+                MetadataSpec spec = specs[i];
+                out.append(prefix).append(text, spec.start, spec.end);
+                if (spec.end == spec.start || (text.get(spec.end - 1) != '\n' && text.get(spec.end - 1) != '\r')) {
+                    out.append("\n\\ No newline at end of file\n");
+                }
+            }
+        }
+    }
+
     /**
      * 共同数据
      * @author : Vince
@@ -0,0 +1,36 @@
+package com.uetty.common.tool.algorithm.diff;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 采拣一行（包含行尾的换行符 \n、\r\n 或 \r）作为一个不可分割的数据元
+ * <p>适合配置文件、日志等按行比较的场景，数据元数量为行数，内存消耗最小；配合 {@link LCSDiff#writeUnifiedDiff} 输出unified diff</p>
+ * @author : Vince
+ */
+public class LineMetadataPicker implements MetadataPicker {
+
+    @Override
+    public Metadatas doPick(String str) {
+        List<String> list = new ArrayList<>();
+        int start = 0;
+        int len = str.length();
+        for (int i = 0; i < len; i++) {
+            char c = str.charAt(i);
+            if (c == '\n' || c == '\r') {
+                if (c == '\r' && i + 1 < len && str.charAt(i + 1) == '\n') {
+                    i++;
+                }
+                list.add(str.substring(start, i + 1));
+                start = i + 1;
+            }
+        }
+        if (start < len) {
+            list.add(str.substring(start));
+        }
+
+        Metadatas metadatas = new Metadatas();
+        metadatas.setData(list.toArray(new String[0]));
+        return metadatas;
+    }
+}
@@ -0,0 +1,137 @@
+package com.uetty.common.tool.algorithm.diff;
+
+/**
+ * Myers O(ND) 差分算法（线性空间的中间蛇分治版本）
+ * <p>输入为已经整数化的数据元序列，输出两个序列的最长公共子序列</p>
+ * <p>时间复杂度 O((N+M)D)，D为最少编辑次数，两个文本越相似越快；除结果外只使用 O(N+M) 的额外内存</p>
+ * @author : Vince
+ */
+class MyersDiff extends TokenDiff {
+
+    /**
+     * 前向、后向搜索的最远到达位置，按对角线编号下标偏移存放，各层递归复用
+     */
+    private final int[] vf;
+    private final int[] vb;
+
+    /**
+     * 最近一次找到的中间蛇（相对当前子问题的坐标）
+     */
+    private int snakeX;
+    private int snakeY;
+    private int snakeU;
+    private int snakeV;
+
+    MyersDiff(int[] a, int[] b) {
+        super(a, b);
+        int vlen = (a.length + b.length + 1) / 2 * 2 + 3;
+        this.vf = new int[vlen];
+        this.vb = new int[vlen];
+    }
+
+    MyersDiff(TokenDiff parent) {
+        super(parent);
+        int vlen = (a.length + b.length + 1) / 2 * 2 + 3;
+        this.vf = new int[vlen];
+        this.vb = new int[vlen];
+    }
+
+    @Override
+    void diff(int aLo, int aHi, int bLo, int bHi) {
+        lcs(aLo, aHi, bLo, bHi);
+    }
+
+    /**
+     * 区间均为左闭右开
+     */
+    private void lcs(int aLo, int aHi, int bLo, int bHi) {
+        // 去掉公共前缀
+        while (aLo < aHi && bLo < bHi && a[aLo] == b[bLo]) {
+            addMatch(aLo++, bLo++);
+        }
+        // 去掉公共后缀，子问题处理完后再记录
+        int aEnd = aHi;
+        while (aLo < aHi && bLo < bHi && a[aHi - 1] == b[bHi - 1]) {
+            aHi--;
+            bHi--;
+        }
+        int suffixLen = aEnd - aHi;
+
+        // 去掉前后缀后只要有一侧为空，剩下的全是插入或删除
+        if (aLo < aHi && bLo < bHi) {
+            middleSnake(aLo, aHi, bLo, bHi);
+            int x = snakeX;
+            int y = snakeY;
+            int u = snakeU;
+            int v = snakeV;
+            lcs(aLo, aLo + x, bLo, bLo + y);
+            for (int i = x; i < u; i++) {
+                addMatch(aLo + i, bLo + y + i - x);
+            }
+            lcs(aLo + u, aHi, bLo + v, bHi);
+        }
+
+        for (int i = 0; i < suffixLen; i++) {
+            addMatch(aHi + i, bHi + i);
+        }
+    }
+
+    /**
+     * 同时从两端搜索，在两条路径重叠处找到最优路径中间的一段蛇形（连续相同的数据元）
+     */
+    private void middleSnake(int aLo, int aHi, int bLo, int bHi) {
+        int n = aHi - aLo;
+        int m = bHi - bLo;
+        int delta = n - m;
+        boolean odd = (delta & 1) != 0;
+        int max = (n + m + 1) / 2;
+        int off = max + 1;
+        vf[off + 1] = 0;
+        vb[off + 1] = 0;
+
+        for (int d = 0; d <= max; d++) {
+            // 前向
+            for (int k = -d; k <= d; k += 2) {
+                int x = (k == -d || (k != d && vf[off + k - 1] < vf[off + k + 1])) ? vf[off + k + 1] : vf[off + k - 1] + 1;
+                int y = x - k;
+                int x0 = x;
+                int y0 = y;
+                while (x < n && y < m && a[aLo + x] == b[bLo + y]) {
+                    x++;
+                    y++;
+                }
+                vf[off + k] = x;
+                // 后向第 d-1 步覆盖的对角线
+                if (odd && k >= delta - (d - 1) && k <= delta + (d - 1) && x + vb[off + delta - k] >= n) {
+                    setSnake(x0, y0, x, y);
+                    return;
+                }
+            }
+            // 后向，坐标从两个序列末尾倒数
+            for (int k = -d; k <= d; k += 2) {
+                int x = (k == -d || (k != d && vb[off + k - 1] < vb[off + k + 1])) ? vb[off + k + 1] : vb[off + k - 1] + 1;
+                int y = x - k;
+                int x0 = x;
+                int y0 = y;
+                while (x < n && y < m && a[aHi - 1 - x] == b[bHi - 1 - y]) {
+                    x++;
+                    y++;
+                }
+                vb[off + k] = x;
+                if (!odd && k >= delta - d && k <= delta + d && x + vf[off + delta - k] >= n) {
+                    setSnake(n - x, m - y, n - x0, m - y0);
+                    return;
+                }
+            }
+        }
+        // 不会到达这里：编辑距离不超过 n + m
+        throw new IllegalStateException("middle snake not found");
+    }
+
+    private void setSnake(int x, int y, int u, int v) {
+        snakeX = x;
+        snakeY = y;
+        snakeU = u;
+        snakeV = v;
+    }
+}
@@ -0,0 +1,139 @@
+package com.uetty.common.tool.algorithm.diff;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Patience差分算法
+ * <p>以两边都只出现一次的数据元作为锚点，取锚点的最长递增子序列后在锚点之间递归；
+ * 区间内没有唯一数据元时退回Myers算法。对代码、配置文件等按行比较时，结果更贴近人的直觉（不会把大括号、空行错位对齐）</p>
+ * @author : Vince
+ */
+class PatienceDiff extends TokenDiff {
+
+    /**
+     * 按数据元编号统计区间内出现次数及（唯一时的）位置，各区间用完后清零复用
+     */
+    private final int[] countA;
+    private final int[] countB;
+    private final int[] posA;
+
+    PatienceDiff(int[] a, int[] b) {
+        super(a, b);
+        int bound = tokenBound();
+        this.countA = new int[bound];
+        this.countB = new int[bound];
+        this.posA = new int[bound];
+    }
+
+    @Override
+    void diff(int aLo, int aHi, int bLo, int bHi) {
+        Deque<int[]> ranges = new ArrayDeque<>();
+        ranges.push(new int[]{aLo, aHi, bLo, bHi});
+        while (!ranges.isEmpty()) {
+            int[] range = ranges.pop();
+            diffRange(range[0], range[1], range[2], range[3], ranges);
+        }
+    }
+
+    private void diffRange(int aLo, int aHi, int bLo, int bHi, Deque<int[]> ranges) {
+        while (aLo < aHi && bLo < bHi && a[aLo] == b[bLo]) {
+            addMatch(aLo++, bLo++);
+        }
+        while (aLo < aHi && bLo < bHi && a[aHi - 1] == b[bHi - 1]) {
+            addMatch(--aHi, --bHi);
+        }
+        if (aLo >= aHi || bLo >= bHi) {
+            return;
+        }
+
+        int[] anchors = uniqueAnchors(aLo, aHi, bLo, bHi);
+        if (anchors.length == 0) {
+            myers(aLo, aHi, bLo, bHi);
+            return;
+        }
+        // anchors 按b中位置递增存放的 a下标、b下标 对
+        int prevA = aLo;
+        int prevB = bLo;
+        for (int i = 0; i < anchors.length; i += 2) {
+            int ai = anchors[i];
+            int bi = anchors[i + 1];
+            addMatch(ai, bi);
+            pushRange(ranges, prevA, ai, prevB, bi);
+            prevA = ai + 1;
+            prevB = bi + 1;
+        }
+        pushRange(ranges, prevA, aHi, prevB, bHi);
+    }
+
+    private void pushRange(Deque<int[]> ranges, int aLo, int aHi, int bLo, int bHi) {
+        if (aLo < aHi && bLo < bHi) {
+            ranges.push(new int[]{aLo, aHi, bLo, bHi});
+        }
+    }
+
+    /**
+     * 两边都唯一的数据元，按a中位置取最长递增子序列（patience sorting）
+     */
+    private int[] uniqueAnchors(int aLo, int aHi, int bLo, int bHi) {
+        for (int i = aLo; i < aHi; i++) {
+            countA[a[i]]++;
+            posA[a[i]] = i;
+        }
+        for (int i = bLo; i < bHi; i++) {
+            countB[b[i]]++;
+        }
+
+        // 按b中顺序排列的唯一公共数据元
+        int n = 0;
+        int[] candA = new int[Math.min(aHi - aLo, bHi - bLo)];
+        int[] candB = new int[candA.length];
+        for (int i = bLo; i < bHi && n < candA.length; i++) {
+            int t = b[i];
+            if (countB[t] == 1 && countA[t] == 1) {
+                candA[n] = posA[t];
+                candB[n] = i;
+                n++;
+            }
+        }
+
+        for (int i = aLo; i < aHi; i++) {
+            countA[a[i]] = 0;
+        }
+        for (int i = bLo; i < bHi; i++) {
+            countB[b[i]] = 0;
+        }
+        if (n == 0) {
+            return new int[0];
+        }
+
+        // tails[k]: 长度为k+1的递增子序列中末尾最小的候选下标
+        int[] tails = new int[n];
+        int[] prev = new int[n];
+        int len = 0;
+        for (int i = 0; i < n; i++) {
+            int lo = 0;
+            int hi = len;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (candA[tails[mid]] < candA[i]) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            prev[i] = lo > 0 ? tails[lo - 1] : -1;
+            tails[lo] = i;
+            if (lo == len) {
+                len++;
+            }
+        }
+
+        int[] anchors = new int[len * 2];
+        for (int k = len - 1, i = tails[len - 1]; k >= 0; k--, i = prev[i]) {
+            anchors[k * 2] = candA[i];
+            anchors[k * 2 + 1] = candB[i];
+        }
+        return anchors;
+    }
+}
@@ -0,0 +1,85 @@
+package com.uetty.common.tool.algorithm.diff;
+
+import java.util.Arrays;
+
+/**
+ * 整数化数据元序列的差分算法基类
+ * <p>结果记录为序列a中每个数据元在序列b中对应的相同数据元下标，没有对应时为-1，
+ * 各对应关系在两个序列中都是递增的（即一个公共子序列）</p>
+ * @author : Vince
+ */
+abstract class TokenDiff {
+
+    final int[] a;
+    final int[] b;
+
+    /**
+     * a中下标 -> b中对应的下标
+     */
+    private final int[] aToB;
+
+    private MyersDiff myersDiff;
+
+    TokenDiff(int[] a, int[] b) {
+        this.a = a;
+        this.b = b;
+        this.aToB = new int[a.length];
+        Arrays.fill(aToB, -1);
+    }
+
+    /**
+     * 与parent共用输入和结果
+     */
+    TokenDiff(TokenDiff parent) {
+        this.a = parent.a;
+        this.b = parent.b;
+        this.aToB = parent.aToB;
+    }
+
+    /**
+     * 计算公共子序列
+     */
+    void compute() {
+        diff(0, a.length, 0, b.length);
+    }
+
+    /**
+     * 计算区间内的公共子序列，区间均为左闭右开
+     */
+    abstract void diff(int aLo, int aHi, int bLo, int bHi);
+
+    /**
+     * @return a中下标为 ai 的数据元在b中对应的下标，没有对应时为-1
+     */
+    int matchOf(int ai) {
+        return aToB[ai];
+    }
+
+    void addMatch(int ai, int bi) {
+        aToB[ai] = bi;
+    }
+
+    /**
+     * 使用Myers算法计算区间，供其他算法处理找不到锚点的区间
+     */
+    void myers(int aLo, int aHi, int bLo, int bHi) {
+        if (myersDiff == null) {
+            myersDiff = new MyersDiff(this);
+        }
+        myersDiff.diff(aLo, aHi, bLo, bHi);
+    }
+
+    /**
+     * 两个序列中数据元编号的上限（不含）
+     */
+    int tokenBound() {
+        int max = -1;
+        for (int t : a) {
+            max = Math.max(max, t);
+        }
+        for (int t : b) {
+            max = Math.max(max, t);
+        }
+        return max + 1;
+    }
+}
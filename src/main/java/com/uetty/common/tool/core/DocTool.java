@@ -6,6 +6,7 @@ import com.itextpdf.text.pdf.PdfContentByte;
 import com.itextpdf.text.pdf.PdfReader;
 import com.itextpdf.text.pdf.PdfStamper;
 import com.uetty.common.tool.constant.Global;
+import com.uetty.common.tool.core.excel.ExcelExporter;
 import com.uetty.common.tool.core.pdf.ExtFontRegistry;
 import freemarker.template.TemplateException;
 import org.apache.commons.beanutils.PropertyUtils;
@@ -213,7 +214,9 @@ public class DocTool {
 	 * @throws IllegalAccessException illegal access
 	 * @throws NoSuchMethodException no such method
 	 * @throws InvocationTargetException invocation target
+	 * @deprecated 整个工作簿保存在内存中，数据量大时容易内存溢出，请使用 {@link #exportExcelXlsx} 或 {@link ExcelExporter}
 	 */
+	@Deprecated
 	public static boolean exportExcel(String path, String sheetTitle, LinkedHashMap<String, String> headMap,
 			List<Object> dataList) throws IllegalAccessException, NoSuchMethodException, InvocationTargetException {
 		Set<String> keySet = headMap.keySet();
@@ -263,6 +266,29 @@ public class DocTool {
 		return true;
 	}
 
+	/**
+	 * 按指定的表头和数据，在指定的路径流式生成xlsx文件
+	 * <p>数据逐行写出，内存中只保留少量行，数据量超出单sheet上限时自动分sheet</p>
+	 *
+	 * @param path 导出路径
+	 * @param sheetTitle Excel的sheet标题，同时作为文件名
+	 * @param headMap 表格第一行表头,类型为LinkedHashMap
+	 * @param dataList 对应的数据，可以是普通对象或Map
+	 * @return 是否导出成功
+	 * @see ExcelExporter
+	 */
+	public static boolean exportExcelXlsx(String path, String sheetTitle, LinkedHashMap<String, String> headMap,
+			Iterable<?> dataList) {
+		ExcelExporter exporter = new ExcelExporter(sheetTitle, headMap);
+		try {
+			exporter.export(dataList, new File(path + sheetTitle + ".xlsx"));
+		} catch (IOException e) {
+			e.printStackTrace();
+			return false;
+		}
+		return true;
+	}
+
 	/**
 	 * 写到excel文件
 	 * @param wb workbook
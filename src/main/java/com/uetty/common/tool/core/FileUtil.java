@@ -2,12 +2,17 @@ package com.uetty.common.tool.core;
 
 import java.io.*;
 import java.net.URL;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
 import java.util.UUID;
 import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 @SuppressWarnings({"ResultOfMethodCallIgnored", "WeakerAccess", "unused"})
 public class FileUtil {
@@ -293,6 +298,81 @@ public class FileUtil {
 		}
 	}
 
+	/**
+	 * 一行行处理文件（内存映射读取，比 {@link #readLineByLine(File, String, IOConsumer)} 少一层字符流缓冲）
+	 * @param file 文件
+	 * @param charset 字符编码
+	 * @param consumer 行字符串处理消费者
+	 * @throws IOException io exception
+	 */
+	public static void readLineByLineMapped(File file, Charset charset, IOConsumer<String> consumer) throws IOException {
+		try (Stream<String> lines = lines(file, charset)) {
+			lines.forEach(line -> {
+				try {
+					consumer.accept(line);
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			});
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+	}
+
+	/**
+	 * 多线程处理文件的每一行（文件按换行符拆分为多段，在公共ForkJoinPool中并行处理，适合GB级日志文件）
+	 * @param file 文件
+	 * @param charset 字符编码
+	 * @param consumer 行字符串处理消费者，会被多个线程同时调用，且不保证行的顺序
+	 * @throws IOException io exception
+	 */
+	public static void readLineByLineParallel(File file, Charset charset, Consumer<String> consumer) throws IOException {
+		try (Stream<String> lines = lines(file, charset)) {
+			lines.parallel().forEach(consumer);
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+	}
+
+	/**
+	 * 文件按行组成的流（UTF-8）
+	 * @see #lines(File, Charset)
+	 */
+	public static Stream<String> lines(File file) throws IOException {
+		return lines(file, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * 文件按行组成的流，使用完需要关闭（try-with-resources）
+	 * <p>换行符为单字节的字符集（UTF-8、GBK等）使用内存映射读取，并行流按换行符拆分为多段并行处理；
+	 * 其他字符集（如UTF-16）按字符流顺序读取</p>
+	 * @param file 文件
+	 * @param charset 字符编码
+	 * @throws IOException io exception
+	 */
+	public static Stream<String> lines(File file, Charset charset) throws IOException {
+		if (!MappedLineSpliterator.isSupported(charset)) {
+			BufferedReader br = new BufferedReader(new InputStreamReader(new FileInputStream(file), charset));
+			return br.lines().onClose(() -> closeUnchecked(br));
+		}
+		FileChannel channel = MappedLineSpliterator.open(file);
+		try {
+			MappedLineSpliterator spliterator = new MappedLineSpliterator(channel, charset, 0, channel.size());
+			return StreamSupport.stream(spliterator, false).onClose(() -> closeUnchecked(channel));
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	private static void closeUnchecked(Closeable closeable) {
+		try {
+			closeable.close();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
 	/**
 	 * 一组字符一组字符处理文件（考虑到文件可能太大，会对内存造成过大压力，通过consumer一组字符一组字符处理）
 	 * @param file 文件
@@ -531,8 +611,7 @@ public class FileUtil {
 		}
 
 		if (!sourceFile.isDirectory())  { // 是文件（不是文件夹），直接拷贝
-			FileInputStream fis = new FileInputStream(sourceFile);
-			copySingleFile(fis, targetFile, override);
+			copySingleFile(sourceFile, targetFile, override);
 			return;
 		}
 
@@ -579,11 +658,60 @@ public class FileUtil {
 		Objects.requireNonNull(sourceInput);
 		Objects.requireNonNull(targetFile);
 
+		if (!prepareTargetFile(targetFile, override)) {
+			sourceInput.close();
+			return;
+		}
+		if (sourceInput instanceof FileInputStream) {
+			// 文件输入流直接通过通道拷贝
+			try (FileInputStream fis = (FileInputStream) sourceInput;
+				 FileChannel out = FileChannel.open(targetFile.toPath(), StandardOpenOption.WRITE)) {
+				FileChannel in = fis.getChannel();
+				transfer(in, in.position(), in.size(), out);
+			}
+			return;
+		}
+		try (InputStream fis = sourceInput;
+			 FileOutputStream fos = new FileOutputStream(targetFile)) {
+			byte[] bytes = new byte[1024];
+			int len;
+			while ((len = fis.read(bytes)) != -1) {
+				fos.write(bytes, 0, len);
+			}
+		}
+	}
+
+	/**
+	 * 拷贝单个文件，通过 {@link FileChannel#transferTo} 拷贝（由操作系统直接完成，数据不经过java堆）
+	 * @param sourceFile 源文件
+	 * @param targetFile 目标文件
+	 * @param override 目标文件已存在时是否覆盖
+	 * @throws IOException io exception
+	 */
+	public static void copySingleFile(File sourceFile, File targetFile, boolean override) throws IOException {
+		Objects.requireNonNull(sourceFile);
+		Objects.requireNonNull(targetFile);
+
+		if (!prepareTargetFile(targetFile, override)) {
+			return;
+		}
+		try (FileChannel in = FileChannel.open(sourceFile.toPath(), StandardOpenOption.READ);
+			 FileChannel out = FileChannel.open(targetFile.toPath(), StandardOpenOption.WRITE)) {
+			transfer(in, 0, in.size(), out);
+		}
+	}
+
+	/**
+	 * 准备目标文件：已存在时按override删除或跳过，不存在时创建父目录
+	 * @return 是否需要拷贝
+	 */
+	@SuppressWarnings("ResultOfMethodCallIgnored")
+	private static boolean prepareTargetFile(File targetFile, boolean override) throws IOException {
 		if (targetFile.exists()) {
 			if (override) {
 				deleteFiles(targetFile);
 			} else {
-				return;
+				return false;
 			}
 		} else {
 			File parentFile = targetFile.getParentFile();
@@ -592,13 +720,17 @@ public class FileUtil {
 			}
 		}
 		targetFile.createNewFile();
-		try (InputStream fis = sourceInput;
-			 FileOutputStream fos = new FileOutputStream(targetFile)) {
-			byte[] bytes = new byte[1024];
-			int len;
-			while ((len = fis.read(bytes)) != -1) {
-				fos.write(bytes, 0, len);
+		return true;
+	}
+
+	private static void transfer(FileChannel in, long position, long end, FileChannel out) throws IOException {
+		// transferTo单次传输的字节数可能小于请求数（如超过2G），需循环
+		while (position < end) {
+			long n = in.transferTo(position, end - position, out);
+			if (n <= 0) {
+				break;
 			}
+			position += n;
 		}
 	}
 
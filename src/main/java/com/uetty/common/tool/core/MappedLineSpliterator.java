@@ -0,0 +1,251 @@
+package com.uetty.common.tool.core;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Spliterator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * 基于内存映射的按行读取
+ * <p>文件分段映射到内存后直接扫描换行符，每行只做一次字节到字符串的解码；
+ * 拆分时从中点向后找到下一个换行符作为分界，各段可并行处理，适合GB级日志文件</p>
+ * <p>行尾规则与 {@link java.io.BufferedReader#readLine()} 相同（\n、\r、\r\n），只在 \n 之后拆分；
+ * 只支持换行符为单字节0x0A的字符集（UTF-8、GBK、ISO-8859-1等）</p>
+ * @see FileUtil#lines(File, Charset)
+ */
+public class MappedLineSpliterator implements Spliterator<String> {
+
+    /**
+     * 单次映射的大小
+     */
+    private static final int MAP_WINDOW = 32 * 1024 * 1024;
+
+    /**
+     * 小于该大小的区间不再拆分
+     */
+    private static final long MIN_SPLIT_SIZE = 1024 * 1024;
+
+    private final FileChannel channel;
+    private final Charset charset;
+
+    /**
+     * 当前读取位置（行首）
+     */
+    private long position;
+
+    /**
+     * 区间结束位置（行边界或文件末尾）
+     */
+    private long end;
+
+    private MappedByteBuffer window;
+    private long windowStart;
+    private byte[] lineBuffer = new byte[256];
+
+    MappedLineSpliterator(FileChannel channel, Charset charset, long start, long end) {
+        this.channel = channel;
+        this.charset = charset;
+        this.position = start;
+        this.end = end;
+    }
+
+    /**
+     * 字符集中 \r \n 是否都是单字节编码
+     */
+    static boolean isSupported(Charset charset) {
+        return Arrays.equals("\r\n".getBytes(charset), new byte[]{'\r', '\n'}) && charset.canEncode();
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super String> action) {
+        if (position >= end) {
+            return false;
+        }
+        action.accept(nextLine());
+        return true;
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super String> action) {
+        while (position < end) {
+            action.accept(nextLine());
+        }
+    }
+
+    /**
+     * 读取一行，调用前需保证 position &lt; end
+     */
+    private String nextLine() {
+        int len = 0;
+        while (true) {
+            if (position >= end) {
+                break;
+            }
+            ensureWindow(position);
+            int index = (int) (position - windowStart);
+            int limit = (int) Math.min(window.limit(), end - windowStart);
+            int from = index;
+            byte terminator = 0;
+            while (index < limit) {
+                byte b = window.get(index);
+                if (b == '\n' || b == '\r') {
+                    terminator = b;
+                    break;
+                }
+                index++;
+            }
+            int count = index - from;
+            if (count > 0) {
+                ensureLineCapacity(len + count);
+                window.position(from);
+                window.get(lineBuffer, len, count);
+                len += count;
+            }
+            position = windowStart + index;
+            if (terminator == 0) {
+                // 到达映射窗口末尾，行还没有结束，继续映射下一段
+                continue;
+            }
+            position++;
+            if (terminator == '\r' && position < end) {
+                ensureWindow(position);
+                if (window.get((int) (position - windowStart)) == '\n') {
+                    position++;
+                }
+            }
+            break;
+        }
+        return new String(lineBuffer, 0, len, charset);
+    }
+
+    private void ensureLineCapacity(int capacity) {
+        if (capacity > lineBuffer.length) {
+            lineBuffer = Arrays.copyOf(lineBuffer, Math.max(capacity, lineBuffer.length * 2));
+        }
+    }
+
+    private void ensureWindow(long pos) {
+        if (window != null && pos >= windowStart && pos < windowStart + window.limit()) {
+            return;
+        }
+        long size = Math.min(MAP_WINDOW, end - pos);
+        try {
+            window = channel.map(FileChannel.MapMode.READ_ONLY, pos, size);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        windowStart = pos;
+    }
+
+    @Override
+    public Spliterator<String> trySplit() {
+        if (end - position < MIN_SPLIT_SIZE) {
+            return null;
+        }
+        long mid = findLineStart(position + (end - position) / 2);
+        if (mid <= position || mid >= end) {
+            return null;
+        }
+        MappedLineSpliterator prefix = new MappedLineSpliterator(channel, charset, position, mid);
+        position = mid;
+        window = null;
+        return prefix;
+    }
+
+    /**
+     * 从pos开始向后查找下一个 \n 之后的位置，找不到时返回end
+     */
+    private long findLineStart(long pos) {
+        while (pos < end) {
+            long size = Math.min(64 * 1024, end - pos);
+            MappedByteBuffer buffer;
+            try {
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, pos, size);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            for (int i = 0; i < size; i++) {
+                if (buffer.get(i) == '\n') {
+                    return pos + i + 1;
+                }
+            }
+            pos += size;
+        }
+        return end;
+    }
+
+    /**
+     * 剩余字节数（行数未知，仅作为拆分参考）
+     */
+    @Override
+    public long estimateSize() {
+        return end - position;
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED | NONNULL | IMMUTABLE;
+    }
+
+    static FileChannel open(File file) throws IOException {
+        return FileChannel.open(file.toPath(), StandardOpenOption.READ);
+    }
+
+    /**
+     * 新旧读取方式的耗时对比，参数为测试文件路径和大小（MB），文件不存在时生成日志格式的测试文件
+     */
+    public static void main(String[] args) throws IOException {
+        File file = new File(args.length > 0 ? args[0] : FileUtil.getDefaultTmpDir() + File.separator + "mapped-line-bench.log");
+        long sizeMb = args.length > 1 ? Long.parseLong(args[1]) : 1024;
+        if (!file.exists()) {
+            try (Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8), 1 << 20)) {
+                long written = 0;
+                for (long i = 0; written < sizeMb * 1024 * 1024; i++) {
+                    String line = "2020-01-01 00:00:00.000 INFO  [main] c.u.c.t.Bench - request " + i + " 处理完成 cost=" + (i % 997) + "ms\n";
+                    writer.write(line);
+                    written += line.length() + 8;
+                }
+            }
+        }
+        for (int round = 0; round < 3; round++) {
+            LongAdder counter = new LongAdder();
+            long st = System.nanoTime();
+            FileUtil.readLineByLine(file, line -> counter.add(line.length()));
+            System.out.println("readLineByLine(BufferedReader): " + (System.nanoTime() - st) / 1000000 + "ms, chars " + counter.sum());
+
+            counter.reset();
+            st = System.nanoTime();
+            FileUtil.readLineByLineMapped(file, StandardCharsets.UTF_8, line -> counter.add(line.length()));
+            System.out.println("readLineByLineMapped: " + (System.nanoTime() - st) / 1000000 + "ms, chars " + counter.sum());
+
+            counter.reset();
+            st = System.nanoTime();
+            FileUtil.readLineByLineParallel(file, StandardCharsets.UTF_8, line -> counter.add(line.length()));
+            System.out.println("readLineByLineParallel: " + (System.nanoTime() - st) / 1000000 + "ms, chars " + counter.sum());
+
+            File copy = new File(file.getPath() + ".copy");
+            st = System.nanoTime();
+            FileUtil.copySingleFile(new BufferedInputStream(new FileInputStream(file)), copy, true);
+            System.out.println("copySingleFile(InputStream): " + (System.nanoTime() - st) / 1000000 + "ms");
+            st = System.nanoTime();
+            FileUtil.copySingleFile(file, copy, true);
+            System.out.println("copySingleFile(File, transferTo): " + (System.nanoTime() - st) / 1000000 + "ms");
+            //noinspection ResultOfMethodCallIgnored
+            copy.delete();
+        }
+    }
+}
@@ -0,0 +1,718 @@
+package com.uetty.common.tool.core;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.ZipException;
+
+/**
+ * 并行zip压缩
+ * <p>文件树按需遍历，不预先收集全部文件；各文件在线程池中并行压缩，再按遍历顺序依次写入zip文件，
+ * 同时在途的文件数有上限，压缩结果超过阈值时暂存到临时文件，内存占用与文件总量无关</p>
+ * <p>已压缩格式（图片、压缩包、pdf、音视频、office文档等）直接存储不再压缩，压缩后没有变小的文件也改为存储</p>
+ * <p>文件大小、偏移量或文件数超出zip格式限制时自动使用Zip64扩展</p>
+ * @author vince
+ */
+@SuppressWarnings("unused")
+public class ParallelZipper {
+
+    /**
+     * 默认不再压缩的扩展名
+     */
+    public static final Set<String> DEFAULT_STORED_EXTENSIONS = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+            "jpg", "jpeg", "png", "gif", "webp", "heic",
+            "zip", "gz", "tgz", "bz2", "xz", "7z", "rar", "zst", "jar", "war", "apk",
+            "pdf", "docx", "xlsx", "pptx",
+            "mp3", "aac", "ogg", "flac", "mp4", "m4a", "mkv", "avi", "mov", "webm",
+            "woff", "woff2")));
+
+    /**
+     * 单个文件压缩结果在内存中保留的最大字节数，超过后写入临时文件
+     */
+    private static final int SPILL_THRESHOLD = 4 * 1024 * 1024;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final long ZIP64_MAGIC = 0xFFFFFFFFL;
+
+    private static final int ZIP64_MAGIC_COUNT = 0xFFFF;
+
+    private static final int METHOD_STORED = 0;
+
+    private static final int METHOD_DEFLATED = 8;
+
+    /**
+     * 通用标志位11：文件名为UTF-8编码
+     */
+    private static final int FLAG_UTF8 = 0x0800;
+
+    private Executor executor;
+
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+
+    private int level = Deflater.DEFAULT_COMPRESSION;
+
+    private boolean flat;
+
+    private Set<String> storedExtensions = DEFAULT_STORED_EXTENSIONS;
+
+    /**
+     * 压缩任务执行的线程池，不设置时每次压缩临时创建 parallelism 个线程
+     */
+    public ParallelZipper setExecutor(Executor executor) {
+        this.executor = executor;
+        return this;
+    }
+
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * 并行度，同时在途的文件数为并行度的2倍
+     */
+    public ParallelZipper setParallelism(int parallelism) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("parallelism must be positive");
+        }
+        this.parallelism = parallelism;
+        return this;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * 压缩级别 0-9，默认 {@link Deflater#DEFAULT_COMPRESSION}
+     */
+    public ParallelZipper setLevel(int level) {
+        if ((level < 0 || level > 9) && level != Deflater.DEFAULT_COMPRESSION) {
+            throw new IllegalArgumentException("invalid compression level: " + level);
+        }
+        this.level = level;
+        return this;
+    }
+
+    public int getLevel() {
+        return level;
+    }
+
+    /**
+     * 是否使目录层级扁平化（子目录文件名以 _ 连接父目录名，重名时才带上目录前缀）
+     */
+    public ParallelZipper setFlat(boolean flat) {
+        this.flat = flat;
+        return this;
+    }
+
+    public boolean isFlat() {
+        return flat;
+    }
+
+    /**
+     * 直接存储不压缩的扩展名（小写，不含.）
+     */
+    public ParallelZipper setStoredExtensions(Set<String> storedExtensions) {
+        this.storedExtensions = storedExtensions != null ? storedExtensions : Collections.emptySet();
+        return this;
+    }
+
+    public Set<String> getStoredExtensions() {
+        return storedExtensions;
+    }
+
+    /**
+     * 生成zip文件
+     * @param zipOutFile zip输出文件
+     * @param files 待压缩文件（夹）列表
+     * @return 写入的条目数
+     * @throws IOException io exception
+     */
+    public int zip(File zipOutFile, File... files) throws IOException {
+        File parent = zipOutFile.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.exists()) {
+            //noinspection ResultOfMethodCallIgnored
+            parent.mkdirs();
+        }
+        ExecutorService ownExecutor = null;
+        Executor taskExecutor = executor;
+        if (taskExecutor == null) {
+            ownExecutor = Executors.newFixedThreadPool(parallelism, daemonThreadFactory());
+            taskExecutor = ownExecutor;
+        }
+        try (OutputStream os = new BufferedOutputStream(new FileOutputStream(zipOutFile), BUFFER_SIZE)) {
+            ZipWriter writer = new ZipWriter(os);
+            Iterator<PendingEntry> walker = new FileWalker(files != null ? files : new File[0], flat);
+            Deque<CompletableFuture<CompressedEntry>> inFlight = new ArrayDeque<>();
+            int window = parallelism * 2;
+            try {
+                while (walker.hasNext() || !inFlight.isEmpty()) {
+                    while (inFlight.size() < window && walker.hasNext()) {
+                        PendingEntry pending = walker.next();
+                        if (pending.file == null) {
+                            inFlight.add(CompletableFuture.completedFuture(CompressedEntry.directory(pending.name)));
+                        } else {
+                            inFlight.add(CompletableFuture.supplyAsync(() -> compress(pending), taskExecutor));
+                        }
+                    }
+                    CompressedEntry entry = join(inFlight.poll());
+                    try {
+                        writer.write(entry);
+                    } finally {
+                        entry.release();
+                    }
+                }
+                writer.finish();
+                return writer.entries.size();
+            } finally {
+                // 出错时丢弃未写入的结果
+                for (CompletableFuture<CompressedEntry> future : inFlight) {
+                    future.thenAccept(CompressedEntry::release);
+                }
+            }
+        } finally {
+            if (ownExecutor != null) {
+                ownExecutor.shutdown();
+            }
+        }
+    }
+
+    private static CompressedEntry join(CompletableFuture<CompressedEntry> future) throws IOException {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) e.getCause()).getCause();
+            }
+            throw e;
+        }
+    }
+
+    private static ThreadFactory daemonThreadFactory() {
+        AtomicInteger index = new AtomicInteger();
+        return r -> {
+            Thread thread = new Thread(r, "parallel-zipper-" + index.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private CompressedEntry compress(PendingEntry pending) {
+        File file = pending.file;
+        try {
+            if (isStoredType(file.getName())) {
+                return stored(pending, crcOf(file));
+            }
+            CRC32 crc = new CRC32();
+            long size = 0;
+            SpillBuffer buffer = new SpillBuffer();
+            Deflater deflater = new Deflater(level, true);
+            try (InputStream is = new FileInputStream(file);
+                 DeflaterOutputStream dos = new DeflaterOutputStream(buffer, deflater, BUFFER_SIZE)) {
+                byte[] bytes = new byte[BUFFER_SIZE];
+                int len;
+                while ((len = is.read(bytes)) != -1) {
+                    crc.update(bytes, 0, len);
+                    dos.write(bytes, 0, len);
+                    size += len;
+                }
+            } catch (IOException | RuntimeException e) {
+                buffer.delete();
+                throw e;
+            } finally {
+                deflater.end();
+            }
+            if (buffer.size() >= size) {
+                // 压缩后没有变小，改为存储
+                buffer.delete();
+                long[] crcAndSize = {crc.getValue(), size};
+                return stored(pending, crcAndSize);
+            }
+            return new CompressedEntry(pending.name, null, METHOD_DEFLATED, crc.getValue(), size, buffer.size(),
+                    buffer, dosTime(file.lastModified()));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * 存储的文件只预先计算CRC，写入时直接从文件复制，不做缓存
+     */
+    private static CompressedEntry stored(PendingEntry pending, long[] crcAndSize) {
+        return new CompressedEntry(pending.name, pending.file, METHOD_STORED, crcAndSize[0], crcAndSize[1], crcAndSize[1],
+                null, dosTime(pending.file.lastModified()));
+    }
+
+    private static long[] crcOf(File file) throws IOException {
+        CRC32 crc = new CRC32();
+        long size = 0;
+        try (InputStream is = new FileInputStream(file)) {
+            byte[] bytes = new byte[BUFFER_SIZE];
+            int len;
+            while ((len = is.read(bytes)) != -1) {
+                crc.update(bytes, 0, len);
+                size += len;
+            }
+        }
+        return new long[]{crc.getValue(), size};
+    }
+
+    private boolean isStoredType(String fileName) {
+        int dot = fileName.lastIndexOf('.');
+        return dot >= 0 && storedExtensions.contains(fileName.substring(dot + 1).toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * java时间转为zip使用的DOS时间（高16位日期，低16位时间）
+     */
+    private static long dosTime(long millis) {
+        LocalDateTime time = LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault());
+        if (time.getYear() < 1980) {
+            return (1 << 21) | (1 << 16);
+        }
+        return (long) (time.getYear() - 1980) << 25 | time.getMonthValue() << 21 | time.getDayOfMonth() << 16
+                | time.getHour() << 11 | time.getMinute() << 5 | time.getSecond() >> 1;
+    }
+
+    /**
+     * 待压缩条目，file为null时表示目录
+     */
+    private static final class PendingEntry {
+        private final String name;
+        private final File file;
+
+        PendingEntry(String name, File file) {
+            this.name = name;
+            this.file = file;
+        }
+    }
+
+    /**
+     * 按需遍历文件树，条目命名规则与原 ZipUtil.recursionFiles 相同
+     */
+    private static final class FileWalker implements Iterator<PendingEntry> {
+        private final File[] roots;
+        private final boolean flat;
+        private int rootIndex = 0;
+        /**
+         * 遍历栈，每层为 [目录前缀, 子文件迭代器]
+         */
+        private final Deque<Object[]> stack = new ArrayDeque<>();
+        /**
+         * 扁平化时当前根目录下已使用的文件名
+         */
+        private final Set<String> flatNames = new HashSet<>();
+        private PendingEntry next;
+
+        FileWalker(File[] roots, boolean flat) {
+            this.roots = roots;
+            this.flat = flat;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (next == null) {
+                if (stack.isEmpty()) {
+                    if (rootIndex >= roots.length) {
+                        return false;
+                    }
+                    flatNames.clear();
+                    next = visit("", roots[rootIndex++]);
+                    continue;
+                }
+                Object[] top = stack.peek();
+                @SuppressWarnings("unchecked")
+                Iterator<File> children = (Iterator<File>) top[1];
+                if (!children.hasNext()) {
+                    stack.pop();
+                    continue;
+                }
+                next = visit((String) top[0], children.next());
+            }
+            return true;
+        }
+
+        @Override
+        public PendingEntry next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            PendingEntry entry = next;
+            next = null;
+            return entry;
+        }
+
+        /**
+         * @return 文件或空目录对应的条目，非空目录入栈并返回null
+         */
+        private PendingEntry visit(String parentDirPath, File file) {
+            String fileName = file.getName();
+            fileName = fileName.contains("/") ? fileName.replace("/", "") : fileName;
+
+            File[] subFiles;
+            if (!file.isDirectory() || (subFiles = file.listFiles()) == null || subFiles.length == 0) {
+                String key;
+                if (flat) {
+                    key = flatNames.contains(fileName) ? parentDirPath + fileName : fileName;
+                } else {
+                    key = parentDirPath + fileName;
+                }
+                PendingEntry entry = file.isDirectory() ? new PendingEntry(key + "/", null) : new PendingEntry(key, file);
+                if (flat) {
+                    flatNames.add(entry.name);
+                }
+                return entry;
+            }
+            // 按文件名排序，保证压缩结果稳定
+            Arrays.sort(subFiles);
+            String baseDir = parentDirPath + fileName;
+            baseDir = flat ? (baseDir + "_") : (baseDir + "/");
+            stack.push(new Object[]{baseDir, Arrays.asList(subFiles).iterator()});
+            return null;
+        }
+    }
+
+    /**
+     * 单个条目的压缩结果
+     */
+    private static final class CompressedEntry {
+        private final String name;
+        /**
+         * 存储方式时的源文件
+         */
+        private final File source;
+        private final int method;
+        private final long crc;
+        private final long size;
+        private final long compressedSize;
+        private final SpillBuffer data;
+        private final long dosTime;
+
+        CompressedEntry(String name, File source, int method, long crc, long size, long compressedSize,
+                        SpillBuffer data, long dosTime) {
+            this.name = name;
+            this.source = source;
+            this.method = method;
+            this.crc = crc;
+            this.size = size;
+            this.compressedSize = compressedSize;
+            this.data = data;
+            this.dosTime = dosTime;
+        }
+
+        static CompressedEntry directory(String name) {
+            return new CompressedEntry(name, null, METHOD_STORED, 0, 0, 0, null, dosTime(System.currentTimeMillis()));
+        }
+
+        void release() {
+            if (data != null) {
+                data.delete();
+            }
+        }
+    }
+
+    /**
+     * 已写入条目的中央目录信息
+     */
+    private static final class CentralEntry {
+        private final byte[] name;
+        private final int method;
+        private final long crc;
+        private final long size;
+        private final long compressedSize;
+        private final long dosTime;
+        private final long offset;
+        private final boolean directory;
+
+        CentralEntry(byte[] name, CompressedEntry entry, long offset) {
+            this.name = name;
+            this.method = entry.method;
+            this.crc = entry.crc;
+            this.size = entry.size;
+            this.compressedSize = entry.compressedSize;
+            this.dosTime = entry.dosTime;
+            this.offset = offset;
+            this.directory = entry.name.endsWith("/");
+        }
+    }
+
+    /**
+     * zip格式写入，条目大小在写入前已知，本地文件头直接写入大小，不使用数据描述符
+     */
+    private static final class ZipWriter {
+        private final OutputStream os;
+        private final List<CentralEntry> entries = new ArrayList<>();
+        private final Set<String> names = new HashSet<>();
+        private final byte[] buf = new byte[8];
+        private long written = 0;
+
+        ZipWriter(OutputStream os) {
+            this.os = os;
+        }
+
+        void write(CompressedEntry entry) throws IOException {
+            if (!names.add(entry.name)) {
+                throw new ZipException("duplicate entry: " + entry.name);
+            }
+            byte[] name = entry.name.getBytes(StandardCharsets.UTF_8);
+            long offset = written;
+            boolean zip64 = entry.size >= ZIP64_MAGIC || entry.compressedSize >= ZIP64_MAGIC;
+
+            writeInt(0x04034b50L);
+            writeShort(versionNeeded(entry.method, zip64 || offset >= ZIP64_MAGIC));
+            writeShort(FLAG_UTF8);
+            writeShort(entry.method);
+            writeInt(entry.dosTime);
+            writeInt(entry.crc);
+            writeInt(zip64 ? ZIP64_MAGIC : entry.compressedSize);
+            writeInt(zip64 ? ZIP64_MAGIC : entry.size);
+            writeShort(name.length);
+            writeShort(zip64 ? 20 : 0);
+            writeBytes(name);
+            if (zip64) {
+                writeShort(0x0001);
+                writeShort(16);
+                writeLong(entry.size);
+                writeLong(entry.compressedSize);
+            }
+
+            if (entry.data != null) {
+                entry.data.writeTo(os);
+                written += entry.data.size();
+            } else if (entry.source != null) {
+                copyStored(entry);
+            }
+            entries.add(new CentralEntry(name, entry, offset));
+        }
+
+        private void copyStored(CompressedEntry entry) throws IOException {
+            long copied = 0;
+            try (InputStream is = new FileInputStream(entry.source)) {
+                byte[] bytes = new byte[BUFFER_SIZE];
+                int len;
+                while ((len = is.read(bytes)) != -1) {
+                    copied += len;
+                    if (copied > entry.size) {
+                        break;
+                    }
+                    os.write(bytes, 0, len);
+                }
+            }
+            if (copied != entry.size) {
+                throw new ZipException("file changed while zipping: " + entry.source);
+            }
+            written += copied;
+        }
+
+        void finish() throws IOException {
+            long cdOffset = written;
+            for (CentralEntry entry : entries) {
+                boolean sizeZip64 = entry.size >= ZIP64_MAGIC;
+                boolean csizeZip64 = entry.compressedSize >= ZIP64_MAGIC;
+                boolean offsetZip64 = entry.offset >= ZIP64_MAGIC;
+                int extraLen = (sizeZip64 ? 8 : 0) + (csizeZip64 ? 8 : 0) + (offsetZip64 ? 8 : 0);
+                boolean zip64 = extraLen > 0;
+
+                writeInt(0x02014b50L);
+                writeShort(45);
+                writeShort(versionNeeded(entry.method, zip64));
+                writeShort(FLAG_UTF8);
+                writeShort(entry.method);
+                writeInt(entry.dosTime);
+                writeInt(entry.crc);
+                writeInt(csizeZip64 ? ZIP64_MAGIC : entry.compressedSize);
+                writeInt(sizeZip64 ? ZIP64_MAGIC : entry.size);
+                writeShort(entry.name.length);
+                writeShort(zip64 ? extraLen + 4 : 0);
+                // 注释长度、起始磁盘号、内部属性
+                writeShort(0);
+                writeShort(0);
+                writeShort(0);
+                // 外部属性，目录标记 FILE_ATTRIBUTE_DIRECTORY
+                writeInt(entry.directory ? 0x10 : 0);
+                writeInt(offsetZip64 ? ZIP64_MAGIC : entry.offset);
+                writeBytes(entry.name);
+                if (zip64) {
+                    writeShort(0x0001);
+                    writeShort(extraLen);
+                    if (sizeZip64) {
+                        writeLong(entry.size);
+                    }
+                    if (csizeZip64) {
+                        writeLong(entry.compressedSize);
+                    }
+                    if (offsetZip64) {
+                        writeLong(entry.offset);
+                    }
+                }
+            }
+            long cdSize = written - cdOffset;
+            int count = entries.size();
+
+            if (count >= ZIP64_MAGIC_COUNT || cdOffset >= ZIP64_MAGIC || cdSize >= ZIP64_MAGIC) {
+                long zip64EndOffset = written;
+                // Zip64中央目录结束记录
+                writeInt(0x06064b50L);
+                writeLong(44);
+                writeShort(45);
+                writeShort(45);
+                writeInt(0);
+                writeInt(0);
+                writeLong(count);
+                writeLong(count);
+                writeLong(cdSize);
+                writeLong(cdOffset);
+                // Zip64中央目录结束定位
+                writeInt(0x07064b50L);
+                writeInt(0);
+                writeLong(zip64EndOffset);
+                writeInt(1);
+            }
+            writeInt(0x06054b50L);
+            writeShort(0);
+            writeShort(0);
+            writeShort(Math.min(count, ZIP64_MAGIC_COUNT));
+            writeShort(Math.min(count, ZIP64_MAGIC_COUNT));
+            writeInt(Math.min(cdSize, ZIP64_MAGIC));
+            writeInt(Math.min(cdOffset, ZIP64_MAGIC));
+            writeShort(0);
+            os.flush();
+        }
+
+        private static int versionNeeded(int method, boolean zip64) {
+            if (zip64) {
+                return 45;
+            }
+            return method == METHOD_DEFLATED ? 20 : 10;
+        }
+
+        private void writeShort(int v) throws IOException {
+            buf[0] = (byte) v;
+            buf[1] = (byte) (v >>> 8);
+            os.write(buf, 0, 2);
+            written += 2;
+        }
+
+        private void writeInt(long v) throws IOException {
+            for (int i = 0; i < 4; i++) {
+                buf[i] = (byte) (v >>> (i * 8));
+            }
+            os.write(buf, 0, 4);
+            written += 4;
+        }
+
+        private void writeLong(long v) throws IOException {
+            for (int i = 0; i < 8; i++) {
+                buf[i] = (byte) (v >>> (i * 8));
+            }
+            os.write(buf, 0, 8);
+            written += 8;
+        }
+
+        private void writeBytes(byte[] bytes) throws IOException {
+            os.write(bytes);
+            written += bytes.length;
+        }
+    }
+
+    /**
+     * 压缩结果缓冲，超过 {@link #SPILL_THRESHOLD} 后转存临时文件
+     */
+    private static final class SpillBuffer extends OutputStream {
+        private ByteArrayOutputStream memory = new ByteArrayOutputStream(8 * 1024);
+        private File tempFile;
+        private OutputStream fileOut;
+        private long size;
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (fileOut == null && memory.size() + len > SPILL_THRESHOLD) {
+                tempFile = File.createTempFile("zip-spill-", ".tmp");
+                fileOut = new BufferedOutputStream(new FileOutputStream(tempFile), BUFFER_SIZE);
+                memory.writeTo(fileOut);
+                memory = null;
+            }
+            if (fileOut != null) {
+                fileOut.write(b, off, len);
+            } else {
+                memory.write(b, off, len);
+            }
+            size += len;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (fileOut != null) {
+                fileOut.close();
+            }
+        }
+
+        long size() {
+            return size;
+        }
+
+        void writeTo(OutputStream os) throws IOException {
+            if (tempFile == null) {
+                memory.writeTo(os);
+                return;
+            }
+            try (InputStream is = new FileInputStream(tempFile)) {
+                byte[] bytes = new byte[BUFFER_SIZE];
+                int len;
+                while ((len = is.read(bytes)) != -1) {
+                    os.write(bytes, 0, len);
+                }
+            }
+        }
+
+        void delete() {
+            memory = null;
+            if (tempFile != null) {
+                try {
+                    close();
+                } catch (IOException ignore) {
+                }
+                //noinspection ResultOfMethodCallIgnored
+                tempFile.delete();
+                tempFile = null;
+            }
+        }
+    }
+}
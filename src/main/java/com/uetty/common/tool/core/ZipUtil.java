@@ -1,155 +1,164 @@
 package com.uetty.common.tool.core;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
 import java.util.Enumeration;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
 import java.util.zip.ZipFile;
-import java.util.zip.ZipOutputStream;
 
 /**
  * @author vince
+ * @see ParallelZipper
  */
 public class ZipUtil {
 
     /**
-     * 递归文件（夹）
-     * @param file 文件
-     * @param flat 是否扁平化
-     * @return 返回所有文件map
+     * 解压时不限制解压后的总大小
      */
-    private static Map<String, File> recursionFiles(File file, boolean flat) {
-        Map<String, File> map = new HashMap<>();
+    public static final long UNLIMITED = Long.MAX_VALUE;
 
-        recursionFiles0(map, "", file, flat);
-
-        return map;
-    }
-
-    /**
-     * 递归文件（夹）
-     * @param map 存储文件路径映射
-     * @param parentDirPath 父级目录
-     * @param file 文件
-     * @param flat 是否扁平化
-     */
-    private static void recursionFiles0(Map<String, File> map, String parentDirPath, File file, boolean flat) {
-        String fileName = file.getName();
-        fileName = fileName.contains("/") ? fileName.replace("/", "") : fileName;
-
-        File[] subFiles;
-        if (!file.isDirectory() || (subFiles = file.listFiles()) == null || subFiles.length == 0) {
-            String key;
-            if (flat) {
-                key = map.containsKey(fileName) ? parentDirPath + fileName : fileName;
-            } else {
-                key = parentDirPath + fileName;
-            }
-            if (file.isDirectory()) {
-                file = null;
-                key = key + "/";
-            }
-            map.put(key, file);
-            return;
-        }
-
-        String baseDir = parentDirPath + fileName;
-        baseDir = flat ? (baseDir + "_") : (baseDir + "/");
-        for (File subFile : subFiles) {
-            recursionFiles0(map, baseDir, subFile, flat);
-        }
-    }
+    private static final int BUFFER_SIZE = 64 * 1024;
 
     public static void zip(File zipOutFile, File... files) throws IOException {
         zip(zipOutFile, false, files);
     }
 
     /**
-     * 生成zip文件
+     * 生成zip文件（并行压缩，已压缩格式直接存储，必要时使用Zip64）
      * @param zipOutFile zip输出文件
      * @param flat 是否使目录层级扁平化
      * @param files 待压缩文件（夹）列表
      * @throws IOException io exception
      */
-    @SuppressWarnings("ResultOfMethodCallIgnored")
     public static void zip(File zipOutFile, boolean flat, File... files) throws IOException {
+        new ParallelZipper().setFlat(flat).zip(zipOutFile, files);
+    }
 
-        ZipOutputStream zipOut = null;
-
-        try {
-            if (!zipOutFile.exists()) {
-                if (!zipOutFile.getParentFile().exists()) {
-                    zipOutFile.getParentFile().mkdirs();
-                }
-                zipOutFile.createNewFile();
-            }
-            if (files == null) {
-                return;
-            }
-
-            zipOut = new ZipOutputStream(new FileOutputStream(zipOutFile));
-
-            for (File file : files) {
-                Map<String, File> fileMap = recursionFiles(file, flat);
-                for (Map.Entry<String, File> fileEntry : fileMap.entrySet()) {
-                    String key = fileEntry.getKey();
-                    File fileItem = fileEntry.getValue();
-                    System.out.println(key);
-                    zipOut.putNextEntry(new ZipEntry(key));
-
-                    if (fileItem != null) {
-                        FileUtil.writeFromInputStream(zipOut, new FileInputStream(fileItem));
-                    }
-                    zipOut.closeEntry();
-                }
-            }
-
-        } finally {
-            if (zipOut != null) {
-                zipOut.close();
-            }
-        }
+    public static void unzip(File outFolder, File inFile) throws IOException {
+        unzip(outFolder, inFile, Runnable::run, UNLIMITED);
     }
 
+    /**
+     * 解压zip文件
+     * <p>目录先依次创建，文件在线程池中并行解压（ZipFile支持多线程同时读取不同条目）</p>
+     * <p>解压后总大小超过maxTotalBytes时中止解压并抛出异常（防止zip炸弹），
+     * 既检查条目声明的大小，也统计实际解压出的字节数，不依赖声明大小；
+     * 条目路径超出输出目录（如 ../）时拒绝解压</p>
+     * @param outFolder 输出目录
+     * @param inFile zip文件
+     * @param executor 解压文件的线程池
+     * @param maxTotalBytes 解压后总大小上限，{@link #UNLIMITED} 不限制
+     * @throws ZipException 超出大小上限或条目路径非法
+     * @throws IOException io exception
+     */
     @SuppressWarnings("ResultOfMethodCallIgnored")
-    public static void unzip(File outFolder, File inFile) throws IOException {
+    public static void unzip(File outFolder, File inFile, Executor executor, long maxTotalBytes) throws IOException {
         if (!outFolder.exists()) {
             outFolder.mkdirs();
         }
+        String outPath = outFolder.getCanonicalPath() + File.separator;
 
         try (ZipFile zipFile = new ZipFile(inFile)) {
-
+            List<ZipEntry> fileEntries = new ArrayList<>();
+            long declaredTotal = 0;
             Enumeration<? extends ZipEntry> entries = zipFile.entries();
             while (entries.hasMoreElements()) {
                 ZipEntry next = entries.nextElement();
-                InputStream is = zipFile.getInputStream(next);
-
-                String name = next.getName();
-
-                System.out.println(name);
-
-                File file = new File(outFolder, name);
+                File file = resolve(outFolder, outPath, next.getName());
                 if (next.isDirectory()) {
                     file.mkdirs();
                     continue;
                 }
-                if (!file.exists()) {
-                    File parentFile = file.getParentFile();
-                    if (parentFile != null) {
-                        parentFile.mkdirs();
+                if (next.getSize() > 0) {
+                    declaredTotal += next.getSize();
+                    checkLimit(declaredTotal, maxTotalBytes);
+                }
+                File parentFile = file.getParentFile();
+                if (parentFile != null) {
+                    parentFile.mkdirs();
+                }
+                fileEntries.add(next);
+            }
+
+            AtomicLong total = new AtomicLong();
+            AtomicBoolean failed = new AtomicBoolean();
+            List<CompletableFuture<Void>> futures = new ArrayList<>(fileEntries.size());
+            for (ZipEntry entry : fileEntries) {
+                futures.add(CompletableFuture.runAsync(() -> {
+                    if (failed.get()) {
+                        return;
+                    }
+                    try {
+                        extract(zipFile, entry, resolve(outFolder, outPath, entry.getName()), total, maxTotalBytes, failed);
+                    } catch (IOException e) {
+                        failed.set(true);
+                        throw new UncheckedIOException(e);
+                    }
+                }, executor));
+            }
+            IOException error = null;
+            for (CompletableFuture<Void> future : futures) {
+                try {
+                    future.join();
+                } catch (CompletionException e) {
+                    if (error == null) {
+                        if (!(e.getCause() instanceof UncheckedIOException)) {
+                            throw e;
+                        }
+                        error = ((UncheckedIOException) e.getCause()).getCause();
                     }
-                    file.createNewFile();
                 }
-                try (FileOutputStream fos = new FileOutputStream(file)) {
-                    FileUtil.writeFromInputStream(fos, is);
+            }
+            if (error != null) {
+                throw error;
+            }
+        }
+    }
+
+    /**
+     * 条目对应的输出文件，防止条目名包含 ../ 等写到输出目录以外（zip slip）
+     */
+    private static File resolve(File outFolder, String outPath, String name) throws IOException {
+        File file = new File(outFolder, name);
+        String path = file.getCanonicalPath();
+        if (!path.startsWith(outPath) && !(path + File.separator).equals(outPath)) {
+            throw new ZipException("entry is outside of the target dir: " + name);
+        }
+        return file;
+    }
+
+    private static void extract(ZipFile zipFile, ZipEntry entry, File file, AtomicLong total, long maxTotalBytes,
+                                AtomicBoolean failed) throws IOException {
+        try (InputStream is = zipFile.getInputStream(entry);
+             OutputStream os = new FileOutputStream(file)) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int len;
+            while ((len = is.read(buffer)) != -1) {
+                if (failed.get()) {
+                    return;
                 }
+                checkLimit(total.addAndGet(len), maxTotalBytes);
+                os.write(buffer, 0, len);
             }
         }
     }
 
+    private static void checkLimit(long total, long maxTotalBytes) throws ZipException {
+        if (total > maxTotalBytes) {
+            throw new ZipException("uncompressed size exceeds limit " + maxTotalBytes);
+        }
+    }
+
 }
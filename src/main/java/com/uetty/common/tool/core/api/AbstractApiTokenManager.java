@@ -4,16 +4,28 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Queue;
-import java.util.UUID;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.concurrent.locks.LockSupport;
 import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * 各种api的token冷却时间管理的抽象
  * <p>将token泛型化以适应不同类型的token，同时将与泛型有关的抽象到子类实现
+ * <p>空闲的token按可用时间（冷却结束时间）排序存放在跳表中，租借时只取队首，取出操作无锁且为 O(log n)；
+ * 没有可用token时，等待线程休眠到队首token冷却结束或有token归还时被唤醒
+ * <p>冷却时间需要按请求类型分别计算的，可以划分为多条通道（lane），每条通道有各自的排序，
+ * 同一个token同一时刻只能从一条通道租借出去
  */
 @SuppressWarnings("unused")
 public abstract class AbstractApiTokenManager<T> {
@@ -23,17 +35,59 @@ public abstract class AbstractApiTokenManager<T> {
      * 设置租期的上限，防止长期未归还的情况（这种情况一般是代码失误导致，这里加一重保证）
      */
     private static final long MAX_RENT_TIMESTAMP = 120_000L;
+
+    @SuppressWarnings("rawtypes")
+    private static final AtomicLongFieldUpdater<AbstractApiTokenManager.TokenNode> STATE_UPDATER =
+            AtomicLongFieldUpdater.newUpdater(AbstractApiTokenManager.TokenNode.class, "state");
+
     /**
-     * 存储的TOKEN的queue，多服务器部署情景下，将queue和lock
+     * 只用于刷新token列表，租借和归还不需要加锁
      */
-    private volatile Queue<TokenNode> tokenQueue = new ConcurrentLinkedQueue<>();
+    protected static final ReentrantLock lock = new ReentrantLock();
+
     /**
-     * 已租借出去的token
+     * 每条通道的空闲token，按可用时间排序
      */
-    private volatile Queue<TokenNode> rentedQueue = new ConcurrentLinkedQueue<>();
+    private final List<ConcurrentSkipListMap<Slot, TokenNode>> lanes;
+    /**
+     * 每条通道的等待线程，只有队首的线程按队首token的可用时间定时醒来，其余线程等待被唤醒
+     */
+    private final List<Queue<Thread>> waiters;
+    /**
+     * 已租借出去的token，按租期到期时间排序
+     */
+    private final ConcurrentSkipListMap<Lease, TokenNode> leases = new ConcurrentSkipListMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private volatile List<TokenNode> tokenNodes = Collections.emptyList();
 
-    protected static final ReentrantLock lock = new ReentrantLock();
-    private int tokenSize;
+    private final LongAdder rentCount = new LongAdder();
+    private final LongAdder timeoutCount = new LongAdder();
+    private final LongAdder reclaimCount = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+    private final LongAccumulator maxWaitNanos = new LongAccumulator(Math::max, 0L);
+    private final LongAdder busyMillis = new LongAdder();
+    private volatile long metricsStartMillis = System.currentTimeMillis();
+
+    protected AbstractApiTokenManager() {
+        this(1);
+    }
+
+    /**
+     * @param laneCount 通道数量，冷却时间按请求类型分别计算时，每种请求类型一条通道
+     */
+    protected AbstractApiTokenManager(int laneCount) {
+        if (laneCount <= 0) {
+            throw new IllegalArgumentException("laneCount must be positive");
+        }
+        List<ConcurrentSkipListMap<Slot, TokenNode>> lanes = new ArrayList<>(laneCount);
+        List<Queue<Thread>> waiters = new ArrayList<>(laneCount);
+        for (int i = 0; i < laneCount; i++) {
+            lanes.add(new ConcurrentSkipListMap<>());
+            waiters.add(new ConcurrentLinkedQueue<>());
+        }
+        this.lanes = Collections.unmodifiableList(lanes);
+        this.waiters = Collections.unmodifiableList(waiters);
+    }
 
     /**
      * 重置token的下次冷却时间
@@ -61,18 +115,21 @@ public abstract class AbstractApiTokenManager<T> {
         return new TokenRenter(node);
     }
 
-    private void requeueIfEquals(Queue<TokenNode> oldQueue, Queue<TokenNode> newQueue, List<T> tokenList) {
-        TokenNode node;
-        while ((node = oldQueue.poll()) != null) {
-            for (int i = 0; i < tokenList.size(); i++) {
-                T token = tokenList.get(i);
-                if (tokenEquals(node.getToken(), token)) {
-                    newQueue.offer(node);
-                    tokenList.remove(i);
-                    break;
-                }
-            }
-        }
+    /**
+     * 当前线程租借token使用的通道，多通道时由子类覆盖
+     */
+    protected int currentLane() {
+        return 0;
+    }
+
+    /**
+     * token在指定通道中的可用时间，多通道时由子类覆盖
+     * @param tokenNode token节点
+     * @param lane 通道
+     * @return 可用时间戳
+     */
+    protected long getReadyTimestamp(TokenNode tokenNode, int lane) {
+        return tokenNode.getNextColdDownTimestamp();
     }
 
     /*
@@ -82,21 +139,36 @@ public abstract class AbstractApiTokenManager<T> {
         try {
             lock.lock();
 
-            List<T> tokenList = getNewestTokenList();
-            Queue<TokenNode> oldTokenQueue = tokenQueue;
-            Queue<TokenNode> oldRentedQueue = rentedQueue;
-            tokenQueue = new ConcurrentLinkedQueue<>();
-            rentedQueue = new ConcurrentLinkedQueue<>();
-            // 旧的TOKEN继续回流到TOKEN队列中
-            requeueIfEquals(oldTokenQueue, tokenQueue, tokenList);
-            requeueIfEquals(oldRentedQueue, rentedQueue, tokenList);
+            List<T> tokenList = new ArrayList<>(getNewestTokenList());
+            List<TokenNode> oldNodes = tokenNodes;
+            List<TokenNode> newNodes = new ArrayList<>(tokenList.size());
+            // 旧的TOKEN继续保留（包括已租借出去的）
+            for (TokenNode node : oldNodes) {
+                boolean retain = false;
+                for (int i = 0; i < tokenList.size(); i++) {
+                    if (tokenEquals(node.getToken(), tokenList.get(i))) {
+                        tokenList.remove(i);
+                        retain = true;
+                        break;
+                    }
+                }
+                if (retain) {
+                    newNodes.add(node);
+                } else {
+                    retire(node);
+                }
+            }
 
             // 新的TOKEN
+            List<TokenNode> addedNodes = new ArrayList<>(tokenList.size());
             for (T token : tokenList) {
-                TokenNode tokenNode = newTokenNode(token);
-                tokenQueue.offer(tokenNode);
+                addedNodes.add(newTokenNode(token));
+            }
+            newNodes.addAll(addedNodes);
+            tokenNodes = Collections.unmodifiableList(newNodes);
+            for (TokenNode node : addedNodes) {
+                enqueue(node, node.state);
             }
-            tokenSize = tokenQueue.size() + rentedQueue.size();
 
             if (getTokenSize() == 0) {
                 LOG.warn("Token size is 0....");
@@ -104,89 +176,311 @@ public abstract class AbstractApiTokenManager<T> {
         } finally {
             lock.unlock();
         }
+        for (int i = 0; i < lanes.size(); i++) {
+            signalNext(i);
+        }
     }
 
     /**
-     * queue中的下一个token是否可租借，如果可用则返回，不可用则返回空
-     * @return 返回包含租借成功的token的包装类实例
+     * token从列表中移除：空闲的直接标记为占用使其不能再被租借，租借中的归还时不再放回队列
      */
-    private TokenRenter rentNextTokenIfAvailable() {
-        try {
-            lock.lock();
-            TokenNode node = tokenQueue.poll();
-            if (node == null) return null;
-
-            // 判断是否可租借
-            boolean available = false;
-            // 判断是否可租借
-            if (node.getLastRentTimestamp() + MAX_RENT_TIMESTAMP < System.currentTimeMillis() // 判断租期超时，防止token长时间未归还的情况（出于代码健壮性考虑）
-                    || (node.status == TokenNode.STATUS_IDLE
-                    && node.getNextColdDownTimestamp() < System.currentTimeMillis())) {
-                available = true;
-            }
-            if (available) {
-                node.status = TokenNode.STATUS_RENTED; // 标记token状态为租借出去
-                node.setLastRentTimestamp(System.currentTimeMillis()); // 更新租借时间
-                node.rentSign = UUID.randomUUID().toString(); //
-                rentedQueue.offer(node);
-            } else {
-                tokenQueue.offer(node); // 回归到队列中
+    private void retire(TokenNode node) {
+        node.retired = true;
+        long state = node.state;
+        while ((state & 1) == 0 && !STATE_UPDATER.compareAndSet(node, state, state + 1)) {
+            state = node.state;
+        }
+        for (int i = 0; i < lanes.size(); i++) {
+            Slot slot = node.slots[i];
+            if (slot != null) {
+                lanes.get(i).remove(slot);
             }
+        }
+    }
 
-            return available ? newTokenRenter(node) : null;
-        } finally {
-            lock.unlock();
+    /**
+     * token放入所有通道的空闲队列
+     * @param state token当前的空闲状态值，只有状态未变化时才能用这些位置租借
+     */
+    private void enqueue(TokenNode node, long state) {
+        for (int i = 0; i < lanes.size(); i++) {
+            Slot slot = new Slot(getReadyTimestamp(node, i), sequence.incrementAndGet(), state);
+            node.slots[i] = slot;
+            lanes.get(i).put(slot, node);
         }
     }
 
     /**
-     * 多次循环rentNextTokenIfAvailable，把队列中的所有token都遍历一遍
+     * 租借指定通道中已冷却的token，没有可用token时返回空
+     * <p>优先回收租期已超时的token（出于代码健壮性考虑）
      * @return 返回包含租借成功的token的包装类实例
      */
-    private TokenRenter loopGetToken() {
-        int size = tokenQueue.size();
-        for (int  i = 0; i < size; i++) {
-            TokenRenter renter = rentNextTokenIfAvailable();
-            if (renter != null) {
-                return renter;
+    private TokenRenter rentNextTokenIfAvailable(int lane) {
+        long now = System.currentTimeMillis();
+        Map.Entry<Lease, TokenNode> expired;
+        while ((expired = leases.firstEntry()) != null && expired.getKey().expireTimestamp < now) {
+            if (leases.remove(expired.getKey()) != null) {
+                reclaimCount.increment();
+                busyMillis.add(MAX_RENT_TIMESTAMP);
+                LOG.warn("token rent expired, reclaim it");
+                if (!expired.getValue().retired) {
+                    return rent(expired.getValue(), now);
+                }
             }
         }
+
+        ConcurrentSkipListMap<Slot, TokenNode> idle = lanes.get(lane);
+        Map.Entry<Slot, TokenNode> first;
+        while ((first = idle.firstEntry()) != null && first.getKey().readyTimestamp < now) {
+            Slot slot = first.getKey();
+            TokenNode node = first.getValue();
+            // 从跳表中移除成功的线程才能尝试占用，状态值不一致的是过期的位置，直接丢弃
+            if (idle.remove(slot) == null
+                    || !STATE_UPDATER.compareAndSet(node, slot.state, slot.state + 1)) {
+                continue;
+            }
+            for (int i = 0; i < lanes.size(); i++) {
+                if (i != lane) {
+                    lanes.get(i).remove(node.slots[i]);
+                }
+            }
+            if (node.retired) {
+                continue;
+            }
+            return rent(node, now);
+        }
         return null;
     }
 
+    private TokenRenter rent(TokenNode node, long now) {
+        node.setLastRentTimestamp(now); // 更新租借时间
+        Lease lease = new Lease(now + MAX_RENT_TIMESTAMP, sequence.incrementAndGet(), now);
+        node.lease = lease;
+        leases.put(lease, node);
+        return newTokenRenter(node);
+    }
+
+    /**
+     * 指定通道中最早可能有token可用的时间
+     */
+    private long nextAvailableTimestamp(int lane) {
+        long next = Long.MAX_VALUE;
+        Map.Entry<Slot, TokenNode> first = lanes.get(lane).firstEntry();
+        if (first != null) {
+            next = first.getKey().readyTimestamp;
+        }
+        Map.Entry<Lease, TokenNode> lease = leases.firstEntry();
+        if (lease != null) {
+            next = Math.min(next, lease.getKey().expireTimestamp);
+        }
+        return next;
+    }
+
+    private TokenRenter awaitAvailableToken(int lane, long deadlineNanos) {
+        Queue<Thread> queue = waiters.get(lane);
+        Thread current = Thread.currentThread();
+        queue.offer(current);
+        try {
+            while (true) {
+                TokenRenter renter = rentNextTokenIfAvailable(lane);
+                if (renter != null) {
+                    return renter;
+                }
+                long remain = deadlineNanos - System.nanoTime();
+                if (remain <= 0) {
+                    return null;
+                }
+                if (queue.peek() == current) {
+                    long next = nextAvailableTimestamp(lane);
+                    if (next != Long.MAX_VALUE) {
+                        // 冷却时间的判断是严格小于，多等1毫秒
+                        long delayMillis = Math.max(next - System.currentTimeMillis() + 1, 0);
+                        remain = Math.min(remain, TimeUnit.MILLISECONDS.toNanos(delayMillis));
+                    }
+                }
+                LockSupport.parkNanos(this, remain);
+                if (Thread.interrupted()) {
+                    current.interrupt();
+                    return null;
+                }
+            }
+        } finally {
+            queue.remove(current);
+            // 由下一个等待线程接替定时等待
+            signalNext(lane);
+        }
+    }
+
+    private void signalNext(int lane) {
+        Thread next = waiters.get(lane).peek();
+        if (next != null) {
+            LockSupport.unpark(next);
+        }
+    }
+
     /**
      * 尝试获取可用的Token，如果在限制时间内不能获取token，则返回null
-     * @param delay 等待时间，超出等待时间，则获取失败
+     * <p>没有可用token时休眠等待，直到有token冷却结束或被归还，线程被中断时返回null并保留中断状态
+     * @param delay 等待时间（毫秒），超出等待时间，则获取失败
      * @return 返回包含租借成功的token的包装类实例
      */
     public TokenRenter tryGetAvailableToken(long delay) {
-        long time = System.currentTimeMillis();
-        do {
-            TokenRenter tokenRenter = loopGetToken();
-            if (tokenRenter != null) return tokenRenter;
-
-            LockSupport.parkNanos(40_000_000L);
-        } while (time + delay < System.currentTimeMillis());
-        return null;
+        int lane = currentLane();
+        long start = System.nanoTime();
+        TokenRenter renter = rentNextTokenIfAvailable(lane);
+        if (renter == null && delay > 0) {
+            renter = awaitAvailableToken(lane, start + TimeUnit.MILLISECONDS.toNanos(delay));
+        }
+        long waited = System.nanoTime() - start;
+        waitNanos.add(waited);
+        maxWaitNanos.accumulate(waited);
+        if (renter != null) {
+            rentCount.increment();
+        } else {
+            timeoutCount.increment();
+        }
+        return renter;
     }
 
     @SuppressWarnings("unused")
     public int getTokenSize() {
-        return this.tokenSize;
+        return tokenNodes.size();
+    }
+
+    /**
+     * 当前所有token节点（包括已租借出去的），不可修改
+     */
+    protected List<TokenNode> getTokenNodes() {
+        return tokenNodes;
+    }
+
+    /**
+     * 当前已租借出去的token数量
+     */
+    public int getRentedSize() {
+        return leases.size();
+    }
+
+    /**
+     * 租借成功次数
+     */
+    public long getRentCount() {
+        return rentCount.sum();
     }
 
+    /**
+     * 等待超时（或被中断）未能租借到token的次数
+     */
+    public long getTimeoutCount() {
+        return timeoutCount.sum();
+    }
+
+    /**
+     * 因租期超时被强制回收的次数
+     */
+    public long getReclaimCount() {
+        return reclaimCount.sum();
+    }
+
+    /**
+     * 平均等待时间（毫秒，包括等待超时的请求）
+     */
+    public double getAverageWaitMillis() {
+        long count = rentCount.sum() + timeoutCount.sum();
+        return count == 0 ? 0D : waitNanos.sum() / 1_000_000D / count;
+    }
+
+    /**
+     * 最长等待时间（毫秒）
+     */
+    public double getMaxWaitMillis() {
+        return maxWaitNanos.get() / 1_000_000D;
+    }
+
+    /**
+     * token利用率：统计开始以来已归还的租借总时长 / (token数量 * 统计时长)，租借中的时长在归还后计入
+     */
+    public double getUtilization() {
+        long elapsed = System.currentTimeMillis() - metricsStartMillis;
+        int size = getTokenSize();
+        if (elapsed <= 0 || size == 0) {
+            return 0D;
+        }
+        return Math.min(1D, busyMillis.sum() / ((double) elapsed * size));
+    }
+
+    /**
+     * 重置统计数据
+     */
+    public void resetMetrics() {
+        rentCount.reset();
+        timeoutCount.reset();
+        reclaimCount.reset();
+        waitNanos.reset();
+        maxWaitNanos.reset();
+        busyMillis.reset();
+        metricsStartMillis = System.currentTimeMillis();
+    }
+
+    /**
+     * 空闲队列中的位置，按可用时间排序
+     */
+    private static final class Slot implements Comparable<Slot> {
+        final long readyTimestamp;
+        final long seq;
+        /**
+         * 放入队列时token的状态值，token被租借后状态值改变，旧的位置即失效
+         */
+        final long state;
+
+        Slot(long readyTimestamp, long seq, long state) {
+            this.readyTimestamp = readyTimestamp;
+            this.seq = seq;
+            this.state = state;
+        }
+
+        @Override
+        public int compareTo(Slot o) {
+            int c = Long.compare(readyTimestamp, o.readyTimestamp);
+            return c != 0 ? c : Long.compare(seq, o.seq);
+        }
+    }
+
+    /**
+     * 一次租借的租约，按到期时间排序
+     */
+    private static final class Lease implements Comparable<Lease> {
+        final long expireTimestamp;
+        final long seq;
+        final long rentTimestamp;
+
+        Lease(long expireTimestamp, long seq, long rentTimestamp) {
+            this.expireTimestamp = expireTimestamp;
+            this.seq = seq;
+            this.rentTimestamp = rentTimestamp;
+        }
+
+        @Override
+        public int compareTo(Lease o) {
+            int c = Long.compare(expireTimestamp, o.expireTimestamp);
+            return c != 0 ? c : Long.compare(seq, o.seq);
+        }
+    }
 
     /**
      * 内部队列使用的token节点
      */
     public class TokenNode implements Serializable {
-        private static final int STATUS_IDLE = 0;
-        private static final int STATUS_RENTED = 1;
         volatile long lastRentTimestamp = 0L; // 上次租借的时间戳
         volatile long nextColdDownTimestamp = 0L; // 下次冷却的时间戳（冷却时间跟归还时间有关系）
         protected volatile T token;
-        protected volatile int status = STATUS_IDLE;
-        volatile String rentSign = ""; // 出借签名
+        /**
+         * 状态值，偶数为空闲，奇数为已租借，每次租借和归还都加1
+         */
+        volatile long state = 0L;
+        volatile boolean retired = false; // 已从token列表中移除
+        transient volatile Lease lease; // 当前租约
+        final transient Slot[] slots = new Slot[lanes.size()]; // 在各通道空闲队列中的位置
 
         protected TokenNode(T token) {
             this.token = token;
@@ -194,6 +488,9 @@ public abstract class AbstractApiTokenManager<T> {
         public T getToken() {
             return this.token;
         }
+        public boolean isRented() {
+            return (state & 1) != 0;
+        }
         public void setNextColdDownTimestamp(long nextColdDownTimestamp) {
             this.nextColdDownTimestamp = nextColdDownTimestamp;
         }
@@ -213,10 +510,10 @@ public abstract class AbstractApiTokenManager<T> {
      */
     public class TokenRenter {
         protected TokenNode tokenNode;
-        private final String rentSign; // 借出签名
+        private final Lease lease; // 租约
         protected TokenRenter(TokenNode tokenNode) {
             this.tokenNode = tokenNode;
-            this.rentSign = tokenNode.rentSign;
+            this.lease = tokenNode.lease;
         }
         public T getToken() {
             return tokenNode.getToken();
@@ -225,22 +522,22 @@ public abstract class AbstractApiTokenManager<T> {
          * 归还租借的token
          */
         public void giveBackToken() {
-            try {
-                lock.lock();
-                if (!this.rentSign.equals(tokenNode.rentSign)) {
-                    // 已经因为超时而失效
-                    return;
-                }
-                // 重置冷却时间
-                resetNextColdDownTimestamp(tokenNode);
-                rentedQueue.removeIf((node) -> {
-                    // 如果相等从借出记录的队列移到未借出队列
-                    return node != null && tokenEquals(node.token, this.tokenNode.token);
-                });
-                tokenQueue.offer(tokenNode);
-                tokenNode.status = TokenNode.STATUS_IDLE;
-            } finally {
-                lock.unlock();
+            if (leases.remove(lease) == null) {
+                // 已经因为超时而失效，或重复归还
+                return;
+            }
+            busyMillis.add(System.currentTimeMillis() - lease.rentTimestamp);
+            // 重置冷却时间
+            resetNextColdDownTimestamp(tokenNode);
+            if (tokenNode.retired) {
+                return;
+            }
+            long idleState = tokenNode.state + 1;
+            // 先标记为空闲再放入队列，放入后即可被其他线程租借
+            tokenNode.state = idleState;
+            enqueue(tokenNode, idleState);
+            for (int i = 0; i < lanes.size(); i++) {
+                signalNext(i);
             }
         }
     }
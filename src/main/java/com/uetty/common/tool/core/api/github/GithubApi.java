@@ -8,6 +8,7 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.util.*;
+import java.util.function.Function;
 
 /**
  */
@@ -18,14 +19,17 @@ public class GithubApi {
     private static final String CHARSET = "UTF-8";
     private static final String USER_AGENT = "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/69.0.3497.81 Safari/537.36";
     private static final String ACCEPT_TEXT_MATCH_MATEDATA = "application/vnd.github.v3.text-match+json";
-	
-	private static final String GITHUB_API_SEARCH_CODE = "https://api.github.com/search/code";
+    private static final String GITHUB_API_BASE_URL = "https://api.github.com";
+    private static final String PATH_SEARCH_CODE = "/search/code";
+    private static volatile String apiBaseUrl = GITHUB_API_BASE_URL;
 
     private static final int CODE_SUCCESS = 200;
     private static final int CODE_PERMANENT_REDIRECTION = 301; // 永久重定向
     private static final int CODE_TEMPORARY_REDIRECTION_1 = 302; // 临时重定向
     private static final int CODE_TEMPORARY_REDIRECTION_2 = 307; // 临时重定向
     private static final int CODE_JSON_ERROR = 400;
+    private static final int CODE_FORBIDDEN = 403;
+    private static final int CODE_TOO_MANY_REQUESTS = 429;
     private static final int CODE_INVALID_PARAM = 422;
 
     private static final String RESPONSE_HEAD_RETRY = "Retry-After";
@@ -58,8 +62,28 @@ public class GithubApi {
 
     private static final Base64.Decoder decoder = Base64.getDecoder();
 
+    /**
+     * api地址，默认为 https://api.github.com ，可设置为GitHub Enterprise或本地模拟服务的地址
+     */
+    public static void setApiBaseUrl(String apiBaseUrl) {
+        GithubApi.apiBaseUrl = apiBaseUrl != null ? apiBaseUrl : GITHUB_API_BASE_URL;
+    }
+
+    public static String getApiBaseUrl() {
+        return apiBaseUrl;
+    }
+
     private static String getStringHeader(Map<String, List<String>> responseHeaders, String key) {
         List<String> strings = responseHeaders.get(key);
+        if (strings == null) {
+            // HTTP/2 的响应头为小写
+            for (Map.Entry<String, List<String>> entry : responseHeaders.entrySet()) {
+                if (key.equalsIgnoreCase(entry.getKey())) {
+                    strings = entry.getValue();
+                    break;
+                }
+            }
+        }
         if (strings == null || strings.size() == 0) return null;
         String value = null;
         for (String val : strings) {
@@ -101,9 +125,13 @@ public class GithubApi {
                 baseVo.setErrorMessage(getStringHeader(responseHeaders, RESPONSE_BODY_MESSAGE));
             } else {
                 Integer retryAfter = getIntHeader(responseHeaders, RESPONSE_HEAD_RETRY);
+                readRateLimit(baseVo, responseHeaders);
                 if (retryAfter != null) {
                     baseVo.setStatus(GithubSearchBaseVo.Status.RATE_ABUSED);
                     baseVo.setRetryAfter(retryAfter);
+                } else if ((responseCode == CODE_FORBIDDEN || responseCode == CODE_TOO_MANY_REQUESTS)
+                        && baseVo.getRateLimitRemain() != null && baseVo.getRateLimitRemain() <= 0) {
+                    baseVo.setStatus(GithubSearchBaseVo.Status.RATE_LIMITED);
                 } else {
                     baseVo.setStatus(GithubSearchBaseVo.Status.UNEXPECTED_ERROR);
                 }
@@ -117,12 +145,66 @@ public class GithubApi {
             } catch (Exception e) {}
         } else {
             baseVo.setStatus(GithubSearchBaseVo.Status.SUCCESS);
-            Integer limit = getIntHeader(responseHeaders, RESPONSE_HEAD_LIMIT);
-            baseVo.setRateLimitLimit(limit != null ? limit : 30);
-            Integer remain = getIntHeader(responseHeaders, RESPONSE_HEAD_REMAIN);
-            baseVo.setRateLimitRemain(remain != null ? remain : 0);
+            readRateLimit(baseVo, responseHeaders);
+            if (baseVo.getRateLimitLimit() == null) {
+                baseVo.setRateLimitLimit(30);
+            }
+            if (baseVo.getRateLimitRemain() == null) {
+                baseVo.setRateLimitRemain(0);
+            }
+            if (baseVo.getRateLimitReset() == null) {
+                baseVo.setRateLimitReset(System.currentTimeMillis() + 10_000);
+            }
+        }
+    }
+
+    /**
+     * 读取请求次数限制的响应头，重置时间由秒转为毫秒
+     */
+    private static void readRateLimit(GithubSearchBaseVo baseVo, Map<String, List<String>> responseHeaders) {
+        try {
+            baseVo.setRateLimitLimit(getIntHeader(responseHeaders, RESPONSE_HEAD_LIMIT));
+            baseVo.setRateLimitRemain(getIntHeader(responseHeaders, RESPONSE_HEAD_REMAIN));
             Long reset = getLongHeader(responseHeaders, RESPONSE_HEAD_RESET);
-            baseVo.setRateLimitReset(reset != null ? reset : System.currentTimeMillis() + 10_000);
+            baseVo.setRateLimitReset(reset != null ? reset * 1000 : null);
+        } catch (NumberFormatException e) {
+            LOG.debug("illegal rate limit header -> {}", e.getMessage());
+        }
+    }
+
+    private static boolean isRateLimited(GithubSearchBaseVo vo) {
+        return vo != null && (vo.getStatus() == GithubSearchBaseVo.Status.RATE_LIMITED
+                || vo.getStatus() == GithubSearchBaseVo.Status.RATE_ABUSED);
+    }
+
+    /**
+     * 租借token执行请求，请求结果用于更新token的请求次数状态
+     * <p>所有token次数都用尽时在token队列中排队等待，直到有token重置或超出等待时间；
+     * 请求因次数限制失败时换下一个token重试</p>
+     * @param maxWaitMillis 最长等待时间（毫秒）
+     * @return 请求结果，超出等待时间仍未租借到token时返回最后一次请求的结果，没有请求过则返回null
+     */
+    private static <V extends GithubSearchBaseVo> V requestWithToken(GithubTokenManager tokenManager, GithubTokenManager.RentType rentType,
+                                                                     long maxWaitMillis, Function<String, V> request) {
+        long deadline = System.currentTimeMillis() + maxWaitMillis;
+        V vo = null;
+        while (true) {
+            long wait = Math.max(deadline - System.currentTimeMillis(), 0);
+            GithubTokenManager.GithubTokenRenter tokenRenter = tokenManager.tryGetAvailableToken(wait, rentType);
+            if (tokenRenter == null) {
+                return vo;
+            }
+            vo = null;
+            try {
+                GithubToken token = tokenRenter.getToken();
+                vo = request.apply(token.getToken());
+            } finally {
+                tokenRenter.giveBackToken(vo);
+            }
+            if (!isRateLimited(vo) || System.currentTimeMillis() >= deadline) {
+                return vo;
+            }
+            LOG.debug("github token rate limited, retry with next token");
         }
     }
 
@@ -232,7 +314,7 @@ public class GithubApi {
         searchVo.setSearchKey(keywords);
         searchVo.setScope(scopes);
         try {
-            HttpClientUtil.HttpResponseVo httpResponseVo = HttpClientUtil.doGet(GITHUB_API_SEARCH_CODE, headers, params);
+            HttpClientUtil.HttpResponseVo httpResponseVo = HttpClientUtil.doGet(apiBaseUrl + PATH_SEARCH_CODE, headers, params);
             Integer responseCode = httpResponseVo.getCode();
             Map<String, List<String>> responseHeaders = httpResponseVo.getHeaders();
             String responseBody = httpResponseVo.getBody();
@@ -252,22 +334,18 @@ public class GithubApi {
 
     @SuppressWarnings("unused")
     public static GithubSearchCodeVo searchCodeList(String keywords, String scopes, int page, int perPage, GithubTokenManager tokenManager) {
-        GithubTokenManager.GithubTokenRenter tokenRenter = null;
-        GithubSearchCodeVo vo = null;
-        try {
-            tokenRenter = tokenManager.tryGetAvailableToken(GET_TOKEN_DELAY, GithubTokenManager.RentType.SEARCH_CODE);
-            if (tokenRenter == null) {
-                return null;
-            }
-            GithubToken token = tokenRenter.getToken();
-            vo = searchCodeList(keywords, scopes, page, perPage, token.getToken());
-            return vo;
-        } finally {
-            if (tokenRenter != null) {
-                tokenRenter.giveBackToken(vo != null ? vo.getRateLimitRemain() : Integer.valueOf(1),
-                        vo != null ? vo.getRateLimitReset() : Long.valueOf(0), vo != null ? vo.getRetryAfter() : null);
-            }
-        }
+        return searchCodeList(keywords, scopes, page, perPage, tokenManager, GET_TOKEN_DELAY);
+    }
+
+    /**
+     * 查询code列表，从token池中选择剩余次数最多的token，所有token次数用尽时排队等待
+     * @param maxWaitMillis 等待token的最长时间（毫秒），大批量抓取时可设置为大于重置周期（60秒）
+     */
+    @SuppressWarnings("unused")
+    public static GithubSearchCodeVo searchCodeList(String keywords, String scopes, int page, int perPage, GithubTokenManager tokenManager,
+                                                    long maxWaitMillis) {
+        return requestWithToken(tokenManager, GithubTokenManager.RentType.SEARCH_CODE, maxWaitMillis,
+                token -> searchCodeList(keywords, scopes, page, perPage, token));
     }
 
     @SuppressWarnings("CatchMayIgnoreException")
@@ -329,22 +407,17 @@ public class GithubApi {
 
     @SuppressWarnings("unused")
     public static GithubSearchContentVo searchContent(String url, GithubTokenManager tokenManager) {
-        GithubTokenManager.GithubTokenRenter tokenRenter = null;
-        GithubSearchContentVo vo = null;
-        try {
-            tokenRenter = tokenManager.tryGetAvailableToken(4000L, GithubTokenManager.RentType.SEARCH_CONETNT);
-            if (tokenRenter == null) {
-                return null;
-            }
-            GithubToken token = tokenRenter.getToken();
-            vo = searchContent(url, token.getToken());
-            return vo;
-        } finally {
-            if (tokenRenter != null) {
-                tokenRenter.giveBackToken(vo != null ? vo.getRateLimitRemain() : Integer.valueOf(1),
-                        vo != null ? vo.getRateLimitReset() : Long.valueOf(0), vo != null ? vo.getRetryAfter() : null);
-            }
-        }
+        return searchContent(url, tokenManager, 4000L);
+    }
+
+    /**
+     * 查询文件内容，所有token次数用尽时排队等待
+     * @param maxWaitMillis 等待token的最长时间（毫秒）
+     */
+    @SuppressWarnings("unused")
+    public static GithubSearchContentVo searchContent(String url, GithubTokenManager tokenManager, long maxWaitMillis) {
+        return requestWithToken(tokenManager, GithubTokenManager.RentType.SEARCH_CONETNT, maxWaitMillis,
+                token -> searchContent(url, token));
     }
 
     public static void main(String[] args) throws IOException {
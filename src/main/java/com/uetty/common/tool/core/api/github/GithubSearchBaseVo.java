@@ -10,6 +10,7 @@ public class GithubSearchBaseVo {
         /** 成功 */ SUCCESS,
         /** 未响应 */ UNRESPONSIVE,
         /** 频率滥用限制 */ RATE_ABUSED,
+        /** 请求次数用尽（需等待重置时间） */ RATE_LIMITED,
         /** 永久重定向（代码需要修改） */ PERMANENT_REDIRECTION,
         /** 临时重定向 */ TEMPORARY_REDIRECTION,
         /** 客户端错误（代码需要检查） */ CLIENT_ERROR,
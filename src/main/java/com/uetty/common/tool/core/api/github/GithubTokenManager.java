@@ -15,19 +15,33 @@ public abstract class GithubTokenManager extends AbstractApiTokenManager<GithubT
      */
     private static final long INTERVAL_AFTER_GIVEBACK = 1_000L;
     /**
-     * 两次请求之间至少需要间隔的时间（上次借出时间和本次借出时间的间隔）
+     * 响应中没有请求次数限制信息时，两次请求之间至少需要间隔的时间（上次借出时间和本次借出时间的间隔）
      */
     private static final long INTERVAL_BETWEEN_RENT = 5_000L;
+    /**
+     * 小于该值的重置时间按秒处理（X-RateLimit-Reset响应头为秒级时间戳）
+     */
+    private static final long MAX_SECONDS_TIMESTAMP = 100_000_000_000L;
 
     public enum RentType {
         SEARCH_CODE,
         SEARCH_CONETNT,
     }
 
+    /**
+     * 每个token每种请求类型的请求次数状态（令牌桶），由响应头 X-RateLimit-Remaining/X-RateLimit-Reset 更新
+     */
     public static class RateLimit implements Serializable {
+        Integer rateLimitLimit;
         Integer rateLimitRemain = 1;
         Long rateLimitReset = 0L;
         Integer retryAfter = 0;
+        private Integer getRateLimitLimit() {
+            return rateLimitLimit;
+        }
+        private void setRateLimitLimit(Integer rateLimitLimit) {
+            this.rateLimitLimit = rateLimitLimit;
+        }
         private Integer getRateLimitRemain() {
             return rateLimitRemain;
         }
@@ -92,24 +106,62 @@ public abstract class GithubTokenManager extends AbstractApiTokenManager<GithubT
      * 覆盖TokenRenter类，其归还时增加两个几个参数
      */
     public class GithubTokenRenter extends TokenRenter {
+        private final RentType rentType; // 租借时的请求类型
         private GithubTokenRenter(TokenNode tokenNode) {
             super(tokenNode);
+            this.rentType = ThreadLocalHolder.rentType.get();
         }
         @Override
         @Deprecated
         public void giveBackToken() {
             throw new UnsupportedOperationException("please use giveBackToken(Integer, Long, Integer)");
         }
+        /**
+         * 归还token，同时更新请求次数状态
+         * @param limitRemain 重置时间之前的剩余次数，为空时按上次的剩余次数减1估算
+         * @param limitReset 重置时间（秒或毫秒时间戳）
+         * @param retryAfter 请求滥用时需要等待的秒数
+         */
         @SuppressWarnings("unused")
         public void giveBackToken(Integer limitRemain, Long limitReset, Integer retryAfter) {
+            giveBackToken(null, limitRemain, limitReset, retryAfter);
+        }
+        /**
+         * 归还token，请求次数状态从请求结果中读取
+         * @param vo 请求结果，请求失败时为空
+         */
+        public void giveBackToken(GithubSearchBaseVo vo) {
+            if (vo == null) {
+                giveBackToken(null, 1, 0L, null);
+                return;
+            }
+            giveBackToken(vo.getRateLimitLimit(), vo.getRateLimitRemain(), vo.getRateLimitReset(), vo.getRetryAfter());
+        }
+        private void giveBackToken(Integer limit, Integer limitRemain, Long limitReset, Integer retryAfter) {
+            GithubTokenNode tokenNode = (GithubTokenNode) this.tokenNode;
+            RateLimit last = tokenNode.getRateLimit(rentType);
             RateLimit rateLimit = new RateLimit();
+            rateLimit.setRateLimitLimit(limit != null ? limit : last.getRateLimitLimit());
             rateLimit.setRateLimitRemain(limitRemain);
-            rateLimit.setRateLimitReset(limitReset);
+            rateLimit.setRateLimitReset(toMillis(limitReset));
             rateLimit.setRetryAfter(retryAfter);
-            RentType rentType = ThreadLocalHolder.rentType.get();
-            GithubTokenNode tokenNode = (GithubTokenNode) this.tokenNode;
+            long lastReset = toMillis(last.getRateLimitReset());
+            if (limitRemain == null && lastReset > System.currentTimeMillis()) {
+                // 响应中没有次数信息，在上次的基础上扣减
+                int lastRemain = last.getRateLimitRemain() != null ? last.getRateLimitRemain() : 1;
+                rateLimit.setRateLimitRemain(Math.max(lastRemain - 1, 0));
+                rateLimit.setRateLimitReset(lastReset);
+            }
             tokenNode.setRateLimit(rentType, rateLimit);
-            super.giveBackToken();
+
+            // 冷却时间按租借时的请求类型计算，不受当前线程之后租借其他类型的影响
+            RentType current = ThreadLocalHolder.rentType.get();
+            ThreadLocalHolder.rentType.set(rentType);
+            try {
+                super.giveBackToken();
+            } finally {
+                ThreadLocalHolder.rentType.set(current);
+            }
         }
     }
 
@@ -117,6 +169,25 @@ public abstract class GithubTokenManager extends AbstractApiTokenManager<GithubT
         private static final ThreadLocal<RentType> rentType = new ThreadLocal<>();
     }
 
+    /**
+     * 每种请求类型的冷却时间分别计算，各使用一条通道
+     */
+    protected GithubTokenManager() {
+        super(RentType.values().length);
+    }
+
+    @Override
+    protected int currentLane() {
+        RentType rentType = ThreadLocalHolder.rentType.get();
+        return rentType != null ? rentType.ordinal() : 0;
+    }
+
+    @Override
+    protected long getReadyTimestamp(TokenNode tokenNode, int lane) {
+        Long timestamp = ((GithubTokenNode) tokenNode).nextColdDownTimestampMap.get(RentType.values()[lane]);
+        return timestamp != null ? timestamp : 0L;
+    }
+
     @Override
     protected TokenNode newTokenNode(GithubToken token) {
         return new GithubTokenNode(token);
@@ -127,6 +198,18 @@ public abstract class GithubTokenManager extends AbstractApiTokenManager<GithubT
         return new GithubTokenRenter(node);
     }
 
+    private static long toMillis(Long timestamp) {
+        if (timestamp == null || timestamp <= 0) {
+            return 0L;
+        }
+        return timestamp < MAX_SECONDS_TIMESTAMP ? timestamp * 1000 : timestamp;
+    }
+
+    /**
+     * 根据剩余次数自适应计算冷却时间：剩余次数在重置时间之前均匀使用，
+     * 剩余次数越多的token冷却时间越短，在队列中越靠前，请求优先路由到剩余次数多的token；
+     * 次数用尽时冷却到重置时间，此时请求在队列中等待而不是失败
+     */
     @Override
     protected void resetNextColdDownTimestamp(TokenNode tokenNode) {
         GithubTokenNode githubTokenNode = (GithubTokenNode) tokenNode;
@@ -136,22 +219,47 @@ public abstract class GithubTokenManager extends AbstractApiTokenManager<GithubT
         long currentTimeMillis = System.currentTimeMillis();
         Integer retryAfter = rateLimit.getRetryAfter();
         if (retryAfter != null && retryAfter > 0) { // 上次请求被github标记为请求滥用
-            tokenNode.setNextColdDownTimestamp(currentTimeMillis + retryAfter);
+            tokenNode.setNextColdDownTimestamp(currentTimeMillis + retryAfter * 1000L);
             return;
         }
 
-        long lastRentTimestamp = tokenNode.getLastRentTimestamp();
-        long resetTimestamp = rateLimit.getRateLimitReset() != null ? rateLimit.getRateLimitReset() : 0L;
-
-        long nextColdDownTimestamp = Math.max(lastRentTimestamp + INTERVAL_BETWEEN_RENT,
-                currentTimeMillis + INTERVAL_AFTER_GIVEBACK);
-        int currentRateLimitRemain = rateLimit.getRateLimitRemain() != null ? rateLimit.getRateLimitRemain() : 1; // 重置时间之前的剩余次数
-        if (currentRateLimitRemain <= 0 || (resetTimestamp > 0 && resetTimestamp < nextColdDownTimestamp)) {
-            nextColdDownTimestamp = resetTimestamp;
+        long resetTimestamp = toMillis(rateLimit.getRateLimitReset());
+        long nextColdDownTimestamp;
+        if (resetTimestamp <= currentTimeMillis) {
+            // 没有次数信息或已过重置时间，按固定间隔
+            nextColdDownTimestamp = Math.max(tokenNode.getLastRentTimestamp() + INTERVAL_BETWEEN_RENT,
+                    currentTimeMillis + INTERVAL_AFTER_GIVEBACK);
+        } else {
+            int currentRateLimitRemain = rateLimit.getRateLimitRemain() != null ? rateLimit.getRateLimitRemain() : 1; // 重置时间之前的剩余次数
+            if (currentRateLimitRemain <= 0) {
+                nextColdDownTimestamp = resetTimestamp;
+            } else {
+                long pace = (resetTimestamp - currentTimeMillis) / currentRateLimitRemain;
+                nextColdDownTimestamp = currentTimeMillis + Math.max(pace, INTERVAL_AFTER_GIVEBACK);
+            }
         }
         tokenNode.setNextColdDownTimestamp(nextColdDownTimestamp);
     }
 
+    /**
+     * 指定请求类型在所有token上的剩余次数之和（已过重置时间的token按限制次数计算）
+     * @param rentType 请求类型
+     * @return 剩余次数
+     */
+    public int getRemainingBudget(RentType rentType) {
+        long now = System.currentTimeMillis();
+        int budget = 0;
+        for (TokenNode node : getTokenNodes()) {
+            RateLimit rateLimit = ((GithubTokenNode) node).getRateLimit(rentType);
+            if (toMillis(rateLimit.getRateLimitReset()) <= now) {
+                budget += rateLimit.getRateLimitLimit() != null ? rateLimit.getRateLimitLimit() : 1;
+            } else if (rateLimit.getRateLimitRemain() != null) {
+                budget += Math.max(rateLimit.getRateLimitRemain(), 0);
+            }
+        }
+        return budget;
+    }
+
     @Override
     protected abstract List<GithubToken> getNewestTokenList();
 
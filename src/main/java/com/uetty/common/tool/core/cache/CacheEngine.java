@@ -1,8 +1,14 @@
 package com.uetty.common.tool.core.cache;
 
+import com.uetty.common.tool.core.cache.mo.LoadOptions;
 import com.uetty.common.tool.core.cache.mo.Lock;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
 
 /**
  * 缓存引擎
@@ -30,6 +36,69 @@ public interface CacheEngine {
 
     void removeAll();
 
+    /**
+     * 取出一个缓存对象，不存在时调用loader加载并放入缓存（并发加载合并为一次）
+     *
+     * @param cacheName      key
+     * @param loader         加载方法，返回null时不缓存
+     * @param expirationTime 缓存时间，如果过期时间没有被定义，则默认30分钟，否则按照定义时间
+     */
+    default <T> T get(String cacheName, Supplier<T> loader, Long expirationTime) {
+        return SingleFlightLoader.get(this, cacheName, loader, expirationTime, null);
+    }
+
+    /**
+     * 取出一个缓存对象，不存在时调用loader加载并放入缓存（并发加载合并为一次）
+     *
+     * @param cacheName      key
+     * @param loader         加载方法，返回null时不缓存
+     * @param expirationTime 缓存时间，如果过期时间没有被定义，则默认30分钟，否则按照定义时间
+     * @param options        提前刷新、过期旧值、分布式锁等选项
+     */
+    default <T> T get(String cacheName, Supplier<T> loader, Long expirationTime, LoadOptions options) {
+        return SingleFlightLoader.get(this, cacheName, loader, expirationTime, options);
+    }
+
+    /**
+     * 批量取出缓存对象
+     *
+     * @param cacheNames keys
+     * @return 命中的缓存（未命中的key不包含在结果中），按传入顺序排列
+     */
+    default <T> Map<String, T> getAll(Collection<String> cacheNames) {
+        Map<String, T> result = new LinkedHashMap<>();
+        for (String cacheName : cacheNames) {
+            T data = get(cacheName);
+            if (data != null) {
+                result.put(cacheName, data);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 批量存放缓存对象
+     *
+     * @param dataMap        key -> object
+     * @param expirationTime 缓存时间，如果过期时间没有被定义，则默认30分钟，否则按照定义时间
+     */
+    default <T> void putAll(Map<String, T> dataMap, Long expirationTime) {
+        for (Map.Entry<String, T> entry : dataMap.entrySet()) {
+            put(entry.getKey(), entry.getValue(), expirationTime);
+        }
+    }
+
+    /**
+     * 批量删除缓存
+     *
+     * @param cacheNames keys
+     */
+    default void removeAll(Collection<String> cacheNames) {
+        for (String cacheName : cacheNames) {
+            remove(cacheName);
+        }
+    }
+
     /**
      * 删除某个缓存
      *
@@ -55,6 +124,31 @@ public interface CacheEngine {
 
     long getExpireSeconds(String cacheName);
 
+    /**
+     * 缓存剩余的有效毫秒数
+     *
+     * @param cacheName key
+     * @return 剩余毫秒数，不存在或未设置过期时间时返回负数
+     */
+    default long getExpireMillis(String cacheName) {
+        long seconds = getExpireSeconds(cacheName);
+        return seconds >= 0 ? seconds * 1000 : seconds;
+    }
+
+    /**
+     * 批量获取缓存剩余的有效毫秒数
+     *
+     * @param cacheNames key列表
+     * @return 与传入顺序一致的剩余毫秒数列表，不存在或未设置过期时间的为负数
+     */
+    default List<Long> getExpireMillis(List<String> cacheNames) {
+        List<Long> result = new ArrayList<>(cacheNames.size());
+        for (String cacheName : cacheNames) {
+            result.add(getExpireMillis(cacheName));
+        }
+        return result;
+    }
+
     Lock lock(String key, int autoReleaseSeconds);
 
     Lock lock(String key);
@@ -1,15 +1,21 @@
 package com.uetty.common.tool.core.cache;
 
 import com.alibaba.fastjson2.JSONObject;
+import com.uetty.common.tool.core.cache.mo.LoadOptions;
 import com.uetty.common.tool.core.spring.SpringContextPeeper;
 import com.uetty.common.tool.core.string.StringUtil;
 
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
 
 public class CacheManager {
 
     public static final String CACHE_TYPE_MEMORY = "memory";
     public static final String CACHE_TYPE_REDIS = "redis";
+    public static final String CACHE_TYPE_NEAR = "near";
 
     private static volatile CacheEngine cacheEngine;
 
@@ -91,11 +97,104 @@ public class CacheManager {
         return cacheEngine.get(cacheName);
     }
 
+    /**
+     * 取出一个缓存对象，不存在时调用loader加载并放入缓存（并发加载合并为一次）
+     *
+     * @param cacheName      key
+     * @param loader         加载方法，返回null时不缓存
+     * @param expirationTime 缓存时间，如果过期时间没有被定义，则默认30分钟，否则按照定义时间
+     */
+    public static <T> T get(String cacheName, Supplier<T> loader, Long expirationTime) {
+        initCacheEngine();
+        return cacheEngine.get(cacheName, loader, expirationTime);
+    }
+
+    /**
+     * 取出一个缓存对象，不存在时调用loader加载并放入缓存（并发加载合并为一次）
+     *
+     * @param options 提前刷新、过期旧值、分布式锁等选项
+     */
+    public static <T> T get(String cacheName, Supplier<T> loader, Long expirationTime, LoadOptions options) {
+        initCacheEngine();
+        return cacheEngine.get(cacheName, loader, expirationTime, options);
+    }
+
+    /**
+     * 从指定类型的缓存引擎取出缓存对象，不存在时调用loader加载（缓存引擎不存在时直接调用loader）
+     */
+    public static <T> T get(String cacheType, String cacheName, Supplier<T> loader, Long expirationTime, LoadOptions options) {
+        CacheEngine cacheEngine = getCacheEngine(cacheType);
+        if (cacheEngine == null) {
+            return loader.get();
+        }
+        return cacheEngine.get(cacheName, loader, expirationTime, options);
+    }
+
     public static void removeAll() {
         initCacheEngine();
         cacheEngine.removeAll();
     }
 
+    /**
+     * 批量存放缓存对象
+     *
+     * @param dataMap        key -> object
+     * @param expirationTime 缓存时间，如果过期时间没有被定义，则默认30分钟，否则按照定义时间
+     */
+    public static <T> void putAll(String cacheType, Map<String, T> dataMap, Long expirationTime) {
+        CacheEngine cacheEngine = getCacheEngine(cacheType);
+        if (cacheEngine == null) {
+            return;
+        }
+        cacheEngine.putAll(dataMap, expirationTime);
+    }
+
+    /**
+     * 批量取出缓存对象，未命中的key不包含在结果中
+     */
+    public static <T> Map<String, T> getAll(String cacheType, Collection<String> cacheNames) {
+        CacheEngine cacheEngine = getCacheEngine(cacheType);
+        if (cacheEngine == null) {
+            return Collections.emptyMap();
+        }
+        return cacheEngine.getAll(cacheNames);
+    }
+
+    public static void removeAll(String cacheType, Collection<String> cacheNames) {
+        CacheEngine cacheEngine = getCacheEngine(cacheType);
+        if (cacheEngine == null) {
+            return;
+        }
+        cacheEngine.removeAll(cacheNames);
+    }
+
+    /**
+     * 批量存放缓存对象
+     *
+     * @param dataMap        key -> object
+     * @param expirationTime 缓存时间，如果过期时间没有被定义，则默认30分钟，否则按照定义时间
+     */
+    public static <T> void putAll(Map<String, T> dataMap, Long expirationTime) {
+        initCacheEngine();
+        cacheEngine.putAll(dataMap, expirationTime);
+    }
+
+    /**
+     * 批量取出缓存对象，未命中的key不包含在结果中
+     */
+    public static <T> Map<String, T> getAll(Collection<String> cacheNames) {
+        initCacheEngine();
+        return cacheEngine.getAll(cacheNames);
+    }
+
+    /**
+     * 批量删除缓存
+     */
+    public static void removeAll(Collection<String> cacheNames) {
+        initCacheEngine();
+        cacheEngine.removeAll(cacheNames);
+    }
+
     /**
      * 删除某个缓存
      *
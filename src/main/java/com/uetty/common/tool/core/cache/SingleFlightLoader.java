@@ -0,0 +1,236 @@
+package com.uetty.common.tool.core.cache;
+
+import com.uetty.common.tool.core.cache.mo.Lock;
+import com.uetty.common.tool.core.cache.mo.LoadOptions;
+
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * 缓存加载（get-or-compute），防止缓存击穿
+ * <p>同一JVM内对同一个key的并发加载合并为一次，其余线程等待该次加载的结果；
+ * 多个JVM之间通过缓存引擎的 lock() 互斥，未抢到锁的节点等待缓存被填充</p>
+ * <p>开启提前刷新或过期旧值后，已有值时调用方不再阻塞，刷新在后台进行</p>
+ */
+public class SingleFlightLoader {
+
+    private static final String LOAD_LOCK_PREFIX = "load:";
+
+    /**
+     * 与各缓存引擎一致，默认缓存30分钟
+     */
+    private static final long DEFAULT_EXPIRATION_MILLIS = 30 * 60 * 1000L;
+
+    /**
+     * 未抢到分布式锁时轮询缓存的间隔
+     */
+    private static final long POLL_INTERVAL_MILLIS = 50;
+
+    private static final ConcurrentHashMap<FlightKey, CompletableFuture<Object>> IN_FLIGHT = new ConcurrentHashMap<>();
+
+    private SingleFlightLoader() {
+    }
+
+    /**
+     * 取出缓存对象，不存在时调用loader加载并放入缓存
+     *
+     * @param cacheEngine    缓存引擎
+     * @param cacheName      key
+     * @param loader         加载方法，返回null时不缓存
+     * @param expirationTime 缓存时间，为null时默认30分钟
+     * @param options        加载选项，为null时使用默认选项
+     */
+    public static <T> T get(CacheEngine cacheEngine, String cacheName, Supplier<T> loader,
+                            Long expirationTime, LoadOptions options) {
+        if (options == null) {
+            options = LoadOptions.defaults();
+        }
+
+        T cached = cacheEngine.get(cacheName);
+        if (cached != null) {
+            if (options.isAsyncRefresh() && needRefresh(cacheEngine, cacheName, options)) {
+                refreshAsync(cacheEngine, cacheName, loader, expirationTime, options);
+            }
+            return cached;
+        }
+
+        return loadSync(cacheEngine, cacheName, loader, expirationTime, options);
+    }
+
+    private static boolean needRefresh(CacheEngine cacheEngine, String cacheName, LoadOptions options) {
+        long expireSeconds = cacheEngine.getExpireSeconds(cacheName);
+        if (expireSeconds < 0) {
+            return false;
+        }
+        // 剩余时间已进入 旧值期 + 提前刷新期
+        return expireSeconds * 1000 <= options.getStaleMillis() + options.getRefreshAheadMillis();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T loadSync(CacheEngine cacheEngine, String cacheName, Supplier<T> loader,
+                                  Long expirationTime, LoadOptions options) {
+        FlightKey flightKey = new FlightKey(cacheEngine, cacheName);
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        CompletableFuture<Object> existing = IN_FLIGHT.putIfAbsent(flightKey, future);
+        if (existing != null) {
+            return (T) join(existing);
+        }
+
+        try {
+            T data = load(cacheEngine, cacheName, loader, expirationTime, options, false);
+            future.complete(data);
+            return data;
+        } catch (RuntimeException | Error e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            IN_FLIGHT.remove(flightKey, future);
+        }
+    }
+
+    private static <T> void refreshAsync(CacheEngine cacheEngine, String cacheName, Supplier<T> loader,
+                                         Long expirationTime, LoadOptions options) {
+        FlightKey flightKey = new FlightKey(cacheEngine, cacheName);
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        if (IN_FLIGHT.putIfAbsent(flightKey, future) != null) {
+            // 已经在加载或刷新中
+            return;
+        }
+
+        Executor executor = options.getRefreshExecutor() != null ? options.getRefreshExecutor() : ForkJoinPool.commonPool();
+        try {
+            executor.execute(() -> {
+                try {
+                    future.complete(load(cacheEngine, cacheName, loader, expirationTime, options, true));
+                } catch (Throwable e) {
+                    // 刷新失败时保留旧值，下次访问再尝试
+                    future.completeExceptionally(e);
+                } finally {
+                    IN_FLIGHT.remove(flightKey, future);
+                }
+            });
+        } catch (RuntimeException e) {
+            // 线程池拒绝
+            IN_FLIGHT.remove(flightKey, future);
+            future.completeExceptionally(e);
+        }
+    }
+
+    private static <T> T load(CacheEngine cacheEngine, String cacheName, Supplier<T> loader,
+                              Long expirationTime, LoadOptions options, boolean refresh) {
+        Lock lock = null;
+        if (options.isDistributedLock()) {
+            lock = cacheEngine.lock(LOAD_LOCK_PREFIX + cacheName, options.getLockSeconds());
+            if (lock == null) {
+                if (refresh) {
+                    // 其他节点正在刷新
+                    return null;
+                }
+                T data = waitForOtherNode(cacheEngine, cacheName, options);
+                if (data != null) {
+                    return data;
+                }
+                // 等待超时或锁已释放仍未取得数据，自行加载
+                lock = cacheEngine.lock(LOAD_LOCK_PREFIX + cacheName, options.getLockSeconds());
+            }
+        }
+
+        try {
+            if (!refresh) {
+                // 再检查一次，其他线程或节点可能刚加载完
+                T data = cacheEngine.get(cacheName);
+                if (data != null) {
+                    return data;
+                }
+            }
+
+            T data = loader.get();
+            if (data != null) {
+                cacheEngine.put(cacheName, data, storeMillis(expirationTime, options));
+            }
+            return data;
+        } finally {
+            if (lock != null) {
+                lock.release();
+            }
+        }
+    }
+
+    private static <T> T waitForOtherNode(CacheEngine cacheEngine, String cacheName, LoadOptions options) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(options.getLockWaitMillis());
+        while (System.nanoTime() < deadline) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(POLL_INTERVAL_MILLIS));
+            if (Thread.currentThread().isInterrupted()) {
+                break;
+            }
+            T data = cacheEngine.get(cacheName);
+            if (data != null) {
+                return data;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 实际保存时间 = 过期时间 + 旧值期
+     */
+    private static Long storeMillis(Long expirationTime, LoadOptions options) {
+        if (options.getStaleMillis() <= 0) {
+            return expirationTime;
+        }
+        long expiration = expirationTime != null ? expirationTime : DEFAULT_EXPIRATION_MILLIS;
+        return expiration + options.getStaleMillis();
+    }
+
+    private static Object join(CompletableFuture<Object> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 以引擎实例 + key 区分加载任务
+     */
+    private static final class FlightKey {
+        private final CacheEngine cacheEngine;
+        private final String cacheName;
+
+        FlightKey(CacheEngine cacheEngine, String cacheName) {
+            this.cacheEngine = cacheEngine;
+            this.cacheName = cacheName;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof FlightKey)) {
+                return false;
+            }
+            FlightKey that = (FlightKey) o;
+            return cacheEngine == that.cacheEngine && Objects.equals(cacheName, that.cacheName);
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(cacheEngine) * 31 + Objects.hashCode(cacheName);
+        }
+    }
+}
@@ -2,23 +2,28 @@ package com.uetty.common.tool.core.cache.impl;
 
 import com.uetty.common.tool.core.cache.CacheEngine;
 import com.uetty.common.tool.core.cache.CacheManager;
+import com.uetty.common.tool.core.cache.mo.CacheStats;
 import com.uetty.common.tool.core.cache.mo.Lock;
-import com.uetty.common.tool.core.string.StringUtil;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.concurrent.locks.ReentrantLock;
-import java.util.stream.Collectors;
 
 /**
  * 本地内存缓存引擎（仅适用于单实例）
+ * <p>默认不限制容量，仅在过期后清理；通过构造参数指定最大条目数和/或最大估算字节数后开启有界模式，
+ * 超出容量时按 W-TinyLFU 策略淘汰，可作为L1缓存使用</p>
  */
 public class MemoryCacheEngine implements CacheEngine {
 
@@ -27,7 +32,18 @@ public class MemoryCacheEngine implements CacheEngine {
         return CacheManager.CACHE_TYPE_MEMORY;
     }
 
-    private static final ConcurrentHashMap<String, AutoExpireData<?>> CACHE_MAP = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, AutoExpireData<?>> cacheMap = new ConcurrentHashMap<>();
+
+    /**
+     * 缓存key的有序索引，用于前缀扫描与前缀删除
+     */
+    private final ConcurrentSkipListSet<String> keyIndex = new ConcurrentSkipListSet<>();
+
+    /**
+     * 过期时间轮，由 timerLock 保护
+     */
+    private final TimerWheel timerWheel = new TimerWheel(System.currentTimeMillis());
+    private final ReentrantLock timerLock = new ReentrantLock();
 
     private static final String CACHE_PREFIX = "cache:";
     private static final String LOCK_PREFIX = "lock:";
@@ -42,15 +58,108 @@ public class MemoryCacheEngine implements CacheEngine {
     /**
      * 缓存自动清理单线程定时线程池
      */
-    private static final ScheduledThreadPoolExecutor executorService = new ScheduledThreadPoolExecutor(1, r -> new Thread("memory cache clear thread"));
+    private static final ScheduledThreadPoolExecutor executorService = new ScheduledThreadPoolExecutor(1, r -> {
+        Thread thread = new Thread(r, "memory cache clear thread");
+        thread.setDaemon(true);
+        return thread;
+    });
 
     static {
-        startTask();
+        // 引擎关闭后，取消的清理任务立即从队列中移除
+        executorService.setRemoveOnCancelPolicy(true);
+    }
+
+    /**
+     * 本实例的定时清理任务，关闭引擎时取消（任务持有引擎的引用，不取消则引擎无法被回收）
+     */
+    private final ScheduledFuture<?> clearFuture;
+
+    /**
+     * 最大条目数，小于等于0不限制
+     */
+    private final long maximumSize;
+    /**
+     * 最大估算字节数，小于等于0不限制
+     */
+    private final long maximumWeight;
+
+    private final Weigher weigher;
+
+    /**
+     * 淘汰策略，无界模式下为null
+     */
+    private final TinyLfuPolicy policy;
+    /**
+     * 保护淘汰策略的锁，写操作阻塞获取，读操作仅尝试获取（竞争时丢弃访问记录，不影响正确性）
+     */
+    private final ReentrantLock evictionLock = new ReentrantLock();
+
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder evictionCount = new LongAdder();
+    private final LongAdder evictionWeight = new LongAdder();
+
+    /**
+     * 无界模式
+     */
+    public MemoryCacheEngine() {
+        this(0, 0, null);
     }
 
-    private static synchronized void startTask() {
-        ClearTask clearTask = new ClearTask();
-        executorService.schedule(clearTask, 900, TimeUnit.MILLISECONDS);
+    /**
+     * 有界模式，限制最大条目数
+     * @param maximumSize 最大条目数
+     */
+    public MemoryCacheEngine(long maximumSize) {
+        this(maximumSize, 0, null);
+    }
+
+    /**
+     * 有界模式，同时限制最大条目数与最大估算字节数（使用默认的字节估算方式）
+     * @param maximumSize 最大条目数，小于等于0不限制
+     * @param maximumWeight 最大估算字节数，小于等于0不限制
+     */
+    public MemoryCacheEngine(long maximumSize, long maximumWeight) {
+        this(maximumSize, maximumWeight, null);
+    }
+
+    /**
+     * 有界模式
+     * @param maximumSize 最大条目数，小于等于0不限制
+     * @param maximumWeight 最大估算字节数，小于等于0不限制
+     * @param weigher 条目字节估算方式，为null时使用 {@link #estimateWeight(String, Object)}
+     */
+    public MemoryCacheEngine(long maximumSize, long maximumWeight, Weigher weigher) {
+        this.maximumSize = maximumSize;
+        this.maximumWeight = maximumWeight;
+        this.weigher = weigher != null ? weigher : MemoryCacheEngine::estimateWeight;
+        this.policy = maximumSize > 0 || maximumWeight > 0 ? new TinyLfuPolicy(maximumSize, maximumWeight) : null;
+        this.clearFuture = startTask();
+    }
+
+    private ScheduledFuture<?> startTask() {
+        ClearTask clearTask = new ClearTask(this);
+        return executorService.scheduleWithFixedDelay(clearTask, 900, 900, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 关闭引擎：停止定时清理任务并清空缓存，临时创建的引擎不再使用时需要调用，否则无法被回收
+     */
+    public void shutdown() {
+        clearFuture.cancel(false);
+        removeAll();
+    }
+
+    public long getMaximumSize() {
+        return maximumSize;
+    }
+
+    public long getMaximumWeight() {
+        return maximumWeight;
+    }
+
+    public boolean isBounded() {
+        return policy != null;
     }
 
     private String getCacheKey(String cacheName) {
@@ -79,7 +188,209 @@ public class MemoryCacheEngine implements CacheEngine {
 
         AutoExpireData<T> cache = new AutoExpireData<>(obj);
         cache.setAutoExpiredMillis(expirationMillis);
-        CACHE_MAP.put(getCacheKey(cacheName), cache);
+        putEntry(getCacheKey(cacheName), cache);
+    }
+
+    @Override
+    public <T> void putAll(Map<String, T> dataMap, Long expirationMillis) {
+        if (expirationMillis == null) {
+            expirationMillis = EXPIRE_SECONDS;
+        }
+
+        Map<String, AutoExpireData<?>> entryMap = new LinkedHashMap<>();
+        for (Map.Entry<String, T> entry : dataMap.entrySet()) {
+            if (entry.getValue() == null) {
+                continue;
+            }
+            AutoExpireData<T> cache = new AutoExpireData<>(entry.getValue());
+            cache.setAutoExpiredMillis(expirationMillis);
+            entryMap.put(getCacheKey(entry.getKey()), cache);
+        }
+        if (entryMap.isEmpty()) {
+            return;
+        }
+
+        if (policy == null) {
+            entryMap.forEach(this::storeEntry);
+            return;
+        }
+        // 有界模式下整批只获取一次淘汰锁
+        evictionLock.lock();
+        try {
+            entryMap.forEach(this::storeAndEvict);
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    private void putEntry(String key, AutoExpireData<?> cache) {
+        if (policy == null) {
+            storeEntry(key, cache);
+            return;
+        }
+
+        evictionLock.lock();
+        try {
+            storeAndEvict(key, cache);
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * 写入并按淘汰策略淘汰超出容量的条目，调用方需持有 evictionLock
+     */
+    private void storeAndEvict(String key, AutoExpireData<?> cache) {
+        long weight = maximumWeight > 0 ? Math.max(1, weigher.weigh(key, cache.data)) : 1;
+        storeEntry(key, cache);
+        List<TinyLfuPolicy.Node> evictedList = policy.onWrite(key, weight);
+        for (TinyLfuPolicy.Node evicted : evictedList) {
+            if (discardEntry(evicted.key, null)) {
+                evictionCount.increment();
+                evictionWeight.add(evicted.weight);
+            }
+        }
+    }
+
+    private void removeEntry(String key) {
+        removeEntry(key, null);
+    }
+
+    /**
+     * 删除缓存条目
+     * @param value 期望的当前值，为null时不校验
+     */
+    private void removeEntry(String key, AutoExpireData<?> value) {
+        if (policy == null) {
+            discardEntry(key, value);
+            return;
+        }
+        evictionLock.lock();
+        try {
+            if (discardEntry(key, value)) {
+                policy.onRemove(key);
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * 写入map，同时维护key索引与时间轮（在map的单key原子操作内完成，保证三者一致）
+     */
+    private void storeEntry(String key, AutoExpireData<?> cache) {
+        cacheMap.compute(key, (k, old) -> {
+            if (old != null) {
+                unscheduleExpiration(old);
+            }
+            scheduleExpiration(k, cache);
+            if (k.startsWith(CACHE_PREFIX)) {
+                keyIndex.add(k);
+            }
+            return cache;
+        });
+    }
+
+    /**
+     * 从map中移除，同时维护key索引与时间轮
+     * @param expected 期望的当前值，为null时不校验
+     * @return 是否有条目被移除
+     */
+    private boolean discardEntry(String key, AutoExpireData<?> expected) {
+        boolean[] removed = new boolean[1];
+        cacheMap.computeIfPresent(key, (k, old) -> {
+            if (expected != null && old != expected) {
+                return old;
+            }
+            unscheduleExpiration(old);
+            keyIndex.remove(k);
+            removed[0] = true;
+            return null;
+        });
+        return removed[0];
+    }
+
+    private void scheduleExpiration(String key, AutoExpireData<?> data) {
+        TimerWheel.Node node = new TimerWheel.Node(key, data, data.getExpireTime());
+        data.timerNode = node;
+        timerLock.lock();
+        try {
+            timerWheel.schedule(node);
+        } finally {
+            timerLock.unlock();
+        }
+    }
+
+    private void unscheduleExpiration(AutoExpireData<?> data) {
+        TimerWheel.Node node = data.timerNode;
+        if (node == null) {
+            return;
+        }
+        timerLock.lock();
+        try {
+            timerWheel.deschedule(node);
+        } finally {
+            timerLock.unlock();
+        }
+    }
+
+    private void rescheduleExpiration(AutoExpireData<?> data) {
+        TimerWheel.Node node = data.timerNode;
+        if (node == null) {
+            return;
+        }
+        timerLock.lock();
+        try {
+            node.expireTime = data.getExpireTime();
+            timerWheel.reschedule(node);
+        } finally {
+            timerLock.unlock();
+        }
+    }
+
+    /**
+     * 推进时间轮，删除到期的条目
+     */
+    private void expireEntries() {
+        List<TimerWheel.Node> expiredList;
+        timerLock.lock();
+        try {
+            expiredList = timerWheel.advance(System.currentTimeMillis());
+        } finally {
+            timerLock.unlock();
+        }
+
+        for (TimerWheel.Node node : expiredList) {
+            if (node.data.checkAlive()) {
+                // 出轮期间过期时间被延长，重新放回时间轮
+                rescheduleAlive(node);
+                continue;
+            }
+            removeEntry(node.key, node.data);
+        }
+    }
+
+    private void rescheduleAlive(TimerWheel.Node node) {
+        timerLock.lock();
+        try {
+            node.expireTime = node.data.getExpireTime();
+            timerWheel.schedule(node);
+        } finally {
+            timerLock.unlock();
+        }
+    }
+
+    private void recordAccess(String key) {
+        if (policy == null) {
+            return;
+        }
+        if (evictionLock.tryLock()) {
+            try {
+                policy.onAccess(key);
+            } finally {
+                evictionLock.unlock();
+            }
+        }
     }
 
 
@@ -93,23 +404,61 @@ public class MemoryCacheEngine implements CacheEngine {
     @Override
     public <T> T get(String cacheName) {
 
-        AutoExpireData<?> autoExpireData = CACHE_MAP.get(getCacheKey(cacheName));
+        String key = getCacheKey(cacheName);
+        AutoExpireData<?> autoExpireData = cacheMap.get(key);
 
-        if (autoExpireData == null) {
+        Object data = autoExpireData != null ? autoExpireData.getData() : null;
+        if (data == null) {
+            missCount.increment();
             return null;
         }
 
-        return (T) autoExpireData.getData();
+        hitCount.increment();
+        recordAccess(key);
+        return (T) data;
+    }
+
+    @Override
+    public void removeAll(Collection<String> cacheNames) {
+        if (policy == null) {
+            for (String cacheName : cacheNames) {
+                discardEntry(getCacheKey(cacheName), null);
+            }
+            return;
+        }
+        evictionLock.lock();
+        try {
+            for (String cacheName : cacheNames) {
+                String key = getCacheKey(cacheName);
+                if (discardEntry(key, null)) {
+                    policy.onRemove(key);
+                }
+            }
+        } finally {
+            evictionLock.unlock();
+        }
     }
 
     @Override
     public void removeAll() {
-        Map<String, AutoExpireData<?>> map = new HashMap<>(CACHE_MAP);
-        List<Map.Entry<String, AutoExpireData<?>>> entryList = map.entrySet().stream()
-                .filter(entry -> StringUtil.startsWith(entry.getKey(), CACHE_PREFIX))
-                .collect(Collectors.toList());
-        for (Map.Entry<String, AutoExpireData<?>> entry : entryList) {
-            CACHE_MAP.remove(entry.getKey(), entry.getValue());
+        // 索引中只包含缓存key，不会删除锁
+        for (String key : keyIndex) {
+            removeEntry(key);
+        }
+    }
+
+    /**
+     * 删除指定前缀的缓存，只遍历前缀范围内的key
+     *
+     * @param cachePrefix 缓存名前缀
+     */
+    public void removeByPrefix(String cachePrefix) {
+        String cacheKeyPrefix = getCacheKey(cachePrefix);
+        for (String key : keyIndex.tailSet(cacheKeyPrefix)) {
+            if (!key.startsWith(cacheKeyPrefix)) {
+                break;
+            }
+            removeEntry(key);
         }
     }
 
@@ -120,25 +469,25 @@ public class MemoryCacheEngine implements CacheEngine {
      */
     @Override
     public void remove(String cacheName) {
-        CACHE_MAP.remove(getCacheKey(cacheName));
+        removeEntry(getCacheKey(cacheName));
     }
 
     @Override
     public <T> void remove(String cacheName, T data) {
-        AutoExpireData<?> autoExpireData = CACHE_MAP.get(getCacheKey(cacheName));
+        AutoExpireData<?> autoExpireData = cacheMap.get(getCacheKey(cacheName));
         if (autoExpireData == null) {
             return;
         }
         Object data1 = autoExpireData.getData();
         if (Objects.equals(data1, data)) {
-            CACHE_MAP.remove(getCacheKey(cacheName), autoExpireData);
+            removeEntry(getCacheKey(cacheName), autoExpireData);
         }
     }
 
     @Override
     public void updateExpiration(String cacheName, long expirationMillis) {
 
-        AutoExpireData<?> autoExpireData = CACHE_MAP.get(getCacheKey(cacheName));
+        AutoExpireData<?> autoExpireData = cacheMap.get(getCacheKey(cacheName));
 
         if (autoExpireData == null) {
             return;
@@ -150,6 +499,7 @@ public class MemoryCacheEngine implements CacheEngine {
         expirationMillis = currentTimeMillis + expirationMillis - createTime;
 
         autoExpireData.setAutoExpiredMillis(expirationMillis);
+        rescheduleExpiration(autoExpireData);
     }
 
     /**
@@ -169,16 +519,19 @@ public class MemoryCacheEngine implements CacheEngine {
     public List<String> scanCachePrefix(String cachePrefix) {
         String cacheKeyPrefix = getCacheKey(cachePrefix);
 
-        List<String> keys = new ArrayList<>(CACHE_MAP.keySet());
-        return keys.stream()
-                .filter(key -> StringUtil.startsWith(key, cacheKeyPrefix))
-                .map(key -> key.substring(CACHE_PREFIX.length()))
-                .collect(Collectors.toList());
+        List<String> keys = new ArrayList<>();
+        for (String key : keyIndex.tailSet(cacheKeyPrefix)) {
+            if (!key.startsWith(cacheKeyPrefix)) {
+                break;
+            }
+            keys.add(key.substring(CACHE_PREFIX.length()));
+        }
+        return keys;
     }
 
     @Override
     public long getExpireSeconds(String cacheName) {
-        AutoExpireData<?> autoExpireData = CACHE_MAP.get(getCacheKey(cacheName));
+        AutoExpireData<?> autoExpireData = cacheMap.get(getCacheKey(cacheName));
 
         if (autoExpireData == null) {
             return -1;
@@ -193,6 +546,78 @@ public class MemoryCacheEngine implements CacheEngine {
         return restMillis >= 0 ? restMillis / 1000 : -1;
     }
 
+    @Override
+    public long getExpireMillis(String cacheName) {
+        AutoExpireData<?> autoExpireData = cacheMap.get(getCacheKey(cacheName));
+        if (autoExpireData == null) {
+            return -1;
+        }
+        long restMillis = autoExpireData.createTime + autoExpireData.autoExpiredMillis - System.currentTimeMillis();
+        return restMillis >= 0 ? restMillis : -1;
+    }
+
+    /**
+     * 缓存统计
+     */
+    public CacheStats stats() {
+        CacheStats stats = new CacheStats();
+        stats.setHitCount(hitCount.sum());
+        stats.setMissCount(missCount.sum());
+        stats.setEvictionCount(evictionCount.sum());
+        stats.setEvictionWeight(evictionWeight.sum());
+        if (policy == null) {
+            stats.setEstimatedSize(cacheMap.mappingCount());
+            return stats;
+        }
+        evictionLock.lock();
+        try {
+            stats.setEstimatedSize(policy.size());
+            stats.setWeightedSize(maximumWeight > 0 ? policy.weightedSize() : 0);
+        } finally {
+            evictionLock.unlock();
+        }
+        return stats;
+    }
+
+    /**
+     * 估算缓存条目占用的字节数（浅估算，集合类只按元素个数估算）
+     */
+    public static long estimateWeight(String key, Object value) {
+        // map节点 + AutoExpireData + 策略节点的固定开销
+        long weight = 112 + stringWeight(key);
+        if (value == null) {
+            return weight;
+        }
+        if (value instanceof CharSequence) {
+            weight += stringWeight((CharSequence) value);
+        } else if (value instanceof byte[]) {
+            weight += 16 + ((byte[]) value).length;
+        } else if (value instanceof char[]) {
+            weight += 16 + 2L * ((char[]) value).length;
+        } else if (value instanceof Number || value instanceof Boolean || value instanceof Character) {
+            weight += 16;
+        } else if (value instanceof Collection) {
+            weight += 40 + 40L * ((Collection<?>) value).size();
+        } else if (value instanceof Map) {
+            weight += 48 + 64L * ((Map<?, ?>) value).size();
+        } else {
+            weight += 64;
+        }
+        return weight;
+    }
+
+    private static long stringWeight(CharSequence str) {
+        return str == null ? 0 : 40 + 2L * str.length();
+    }
+
+    /**
+     * 条目字节估算
+     */
+    @FunctionalInterface
+    public interface Weigher {
+        long weigh(String key, Object value);
+    }
+
     public static class AutoExpireData<T> {
 
         private final T data;
@@ -201,6 +626,11 @@ public class MemoryCacheEngine implements CacheEngine {
 
         private long autoExpiredMillis = EXPIRE_SECONDS * 1000;
 
+        /**
+         * 所在的时间轮节点
+         */
+        TimerWheel.Node timerNode;
+
 
         public AutoExpireData(T data) {
             this.data = data;
@@ -227,6 +657,15 @@ public class MemoryCacheEngine implements CacheEngine {
             return createTime;
         }
 
+        /**
+         * 过期时间点
+         */
+        public long getExpireTime() {
+            long expireTime = createTime + autoExpiredMillis;
+            // 防止超大过期时间溢出
+            return expireTime < createTime ? Long.MAX_VALUE : expireTime;
+        }
+
         public boolean checkAlive() {
             long createTime = this.createTime;
             long autoExpiredMillis = this.autoExpiredMillis;
@@ -251,22 +690,16 @@ public class MemoryCacheEngine implements CacheEngine {
 
     static class ClearTask implements Runnable {
 
+        private final MemoryCacheEngine engine;
+
+        ClearTask(MemoryCacheEngine engine) {
+            this.engine = engine;
+        }
+
         @Override
         public void run() {
-            Map<String, AutoExpireData<?>> map = new HashMap<>(CACHE_MAP);
             try {
-                for (Map.Entry<String, AutoExpireData<?>> entry : map.entrySet()) {
-
-                    String key = entry.getKey();
-                    AutoExpireData<?> value = entry.getValue();
-
-                    if (value.checkAlive()) {
-                        continue;
-                    }
-
-                    CACHE_MAP.remove(key, value);
-                }
-
+                engine.expireEntries();
             } catch (Exception e) {
                 e.printStackTrace();
             }
@@ -287,15 +720,14 @@ public class MemoryCacheEngine implements CacheEngine {
         try {
             reentrantLock.lock();
             try {
-                AutoExpireData<?> lockData = CACHE_MAP.get(lock.getKey());
-                boolean alive = lockData.checkAlive();
-                if (alive) {
+                AutoExpireData<?> lockData = cacheMap.get(lock.getKey());
+                if (lockData != null && lockData.checkAlive()) {
                     // 已经被锁过了
                     return null;
                 }
                 AutoExpireData<String> cache = new AutoExpireData<>(lock.getToken());
                 cache.setAutoExpiredMillis(autoReleaseSeconds * 1000L);
-                CACHE_MAP.put(lock.getKey(), cache);
+                storeEntry(lock.getKey(), cache);
             } finally {
                 reentrantLock.unlock();
             }
@@ -318,8 +750,11 @@ public class MemoryCacheEngine implements CacheEngine {
          * 释放锁
          */
         public void release() {
-            // 释放锁
-            remove(getKey(), getToken());
+            // 释放锁（锁的key不带缓存前缀，不能走 remove(cacheName, data)）
+            AutoExpireData<?> lockData = cacheMap.get(getKey());
+            if (lockData != null && Objects.equals(lockData.data, getToken())) {
+                removeEntry(getKey(), lockData);
+            }
         }
     }
 }
@@ -0,0 +1,275 @@
+package com.uetty.common.tool.core.cache.impl;
+
+import com.uetty.common.tool.core.cache.CacheEngine;
+import com.uetty.common.tool.core.cache.CacheManager;
+import com.uetty.common.tool.core.cache.mo.Lock;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * 二级缓存引擎：本地内存缓存（L1）+ 远程缓存（L2，一般为redis）
+ * <p>读取优先命中本地缓存，未命中时读取远程缓存并回填本地；写入、删除同时作用于两级缓存，
+ * 并通过失效通道广播给其他节点删除其本地副本</p>
+ * <p>本地副本的存活时间不超过 localTtlCapMillis，即使失效消息丢失，各节点读到旧数据的时间也不会超过该上限</p>
+ */
+public class NearCacheEngine implements CacheEngine {
+
+    /**
+     * 默认本地副本最长存活1分钟
+     */
+    public static final long DEFAULT_LOCAL_TTL_CAP_MILLIS = 60 * 1000L;
+
+    private static final String OP_KEY = "k";
+    private static final String OP_KEYS = "m";
+    private static final String OP_ALL = "a";
+
+    /**
+     * 批量失效消息中缓存名的分隔符
+     */
+    private static final String KEYS_SEPARATOR = "\n";
+
+    private final MemoryCacheEngine local;
+    private final CacheEngine remote;
+    private final InvalidationChannel channel;
+    private final long localTtlCapMillis;
+
+    /**
+     * 当前节点标识，忽略自己发出的失效消息
+     */
+    private final String nodeId = UUID.randomUUID().toString();
+
+    public NearCacheEngine(MemoryCacheEngine local, CacheEngine remote, InvalidationChannel channel) {
+        this(local, remote, channel, DEFAULT_LOCAL_TTL_CAP_MILLIS);
+    }
+
+    /**
+     * @param local 本地缓存，建议使用有界模式
+     * @param remote 远程缓存
+     * @param channel 失效通道，为null时不做跨节点失效（仅依赖本地副本的存活时间上限）
+     * @param localTtlCapMillis 本地副本最长存活毫秒数
+     */
+    public NearCacheEngine(MemoryCacheEngine local, CacheEngine remote, InvalidationChannel channel, long localTtlCapMillis) {
+        if (local == null || remote == null) {
+            throw new IllegalArgumentException("local and remote cache engine must not be null");
+        }
+        this.local = local;
+        this.remote = remote;
+        this.channel = channel;
+        this.localTtlCapMillis = localTtlCapMillis;
+        if (channel != null) {
+            channel.subscribe(this::onInvalidation);
+        }
+    }
+
+    @Override
+    public String cacheType() {
+        return CacheManager.CACHE_TYPE_NEAR;
+    }
+
+    public MemoryCacheEngine getLocal() {
+        return local;
+    }
+
+    public CacheEngine getRemote() {
+        return remote;
+    }
+
+    private long localTtl(Long expirationMillis) {
+        if (expirationMillis == null) {
+            return localTtlCapMillis;
+        }
+        return Math.min(expirationMillis, localTtlCapMillis);
+    }
+
+    @Override
+    public <T> void put(String cacheName, T obj, Long expirationTime) {
+        if (obj == null) {
+            return;
+        }
+        remote.put(cacheName, obj, expirationTime);
+        local.put(cacheName, obj, localTtl(expirationTime));
+        publish(OP_KEY, cacheName);
+    }
+
+    @Override
+    public <T> T get(String cacheName) {
+        T data = local.get(cacheName);
+        if (data != null) {
+            return data;
+        }
+        data = remote.get(cacheName);
+        if (data != null) {
+            fillLocal(cacheName, data, remote.getExpireMillis(cacheName));
+        }
+        return data;
+    }
+
+    /**
+     * 远程命中的数据放入本地缓存，本地过期时间不超过远程剩余的过期时间，
+     * 远程过期时间未知或已过期时不放入，避免远程过期后本地仍返回旧数据
+     */
+    private <T> void fillLocal(String cacheName, T data, long remoteTtlMillis) {
+        if (remoteTtlMillis <= 0) {
+            return;
+        }
+        local.put(cacheName, data, Math.min(remoteTtlMillis, localTtlCapMillis));
+    }
+
+    @Override
+    public <T> Map<String, T> getAll(Collection<String> cacheNames) {
+        Map<String, T> localHits = local.getAll(cacheNames);
+        if (localHits.size() == cacheNames.size()) {
+            return localHits;
+        }
+
+        List<String> missNames = new ArrayList<>();
+        for (String cacheName : cacheNames) {
+            if (!localHits.containsKey(cacheName)) {
+                missNames.add(cacheName);
+            }
+        }
+        Map<String, T> remoteHits = remote.getAll(missNames);
+        if (!remoteHits.isEmpty()) {
+            List<String> hitNames = new ArrayList<>(remoteHits.keySet());
+            List<Long> remoteTtls = remote.getExpireMillis(hitNames);
+            for (int i = 0; i < hitNames.size(); i++) {
+                fillLocal(hitNames.get(i), remoteHits.get(hitNames.get(i)), remoteTtls.get(i));
+            }
+        }
+
+        // 按传入顺序合并两级结果
+        Map<String, T> result = new LinkedHashMap<>();
+        for (String cacheName : cacheNames) {
+            T data = localHits.get(cacheName);
+            if (data == null) {
+                data = remoteHits.get(cacheName);
+            }
+            if (data != null) {
+                result.put(cacheName, data);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public <T> void putAll(Map<String, T> dataMap, Long expirationTime) {
+        if (dataMap == null || dataMap.isEmpty()) {
+            return;
+        }
+        remote.putAll(dataMap, expirationTime);
+        local.putAll(dataMap, localTtl(expirationTime));
+        publish(OP_KEYS, String.join(KEYS_SEPARATOR, dataMap.keySet()));
+    }
+
+    @Override
+    public void removeAll(Collection<String> cacheNames) {
+        if (cacheNames == null || cacheNames.isEmpty()) {
+            return;
+        }
+        remote.removeAll(cacheNames);
+        local.removeAll(cacheNames);
+        publish(OP_KEYS, String.join(KEYS_SEPARATOR, cacheNames));
+    }
+
+    @Override
+    public void removeAll() {
+        remote.removeAll();
+        local.removeAll();
+        publish(OP_ALL, "");
+    }
+
+    @Override
+    public void remove(String cacheName) {
+        remote.remove(cacheName);
+        local.remove(cacheName);
+        publish(OP_KEY, cacheName);
+    }
+
+    @Override
+    public <T> void remove(String cacheName, T data) {
+        remote.remove(cacheName, data);
+        // 无法确认远程是否删除成功，本地副本直接丢弃，下次读取时回源
+        local.remove(cacheName);
+        publish(OP_KEY, cacheName);
+    }
+
+    @Override
+    public void updateExpiration(String cacheName, long expirationMillis) {
+        remote.updateExpiration(cacheName, expirationMillis);
+        local.updateExpiration(cacheName, localTtl(expirationMillis));
+    }
+
+    @Override
+    public boolean checkExists(String cacheName) {
+        return local.get(cacheName) != null || remote.checkExists(cacheName);
+    }
+
+    @Override
+    public List<String> scanCachePrefix(String cachePrefix) {
+        return remote.scanCachePrefix(cachePrefix);
+    }
+
+    @Override
+    public long getExpireSeconds(String cacheName) {
+        return remote.getExpireSeconds(cacheName);
+    }
+
+    @Override
+    public Lock lock(String key, int autoReleaseSeconds) {
+        return remote.lock(key, autoReleaseSeconds);
+    }
+
+    @Override
+    public Lock lock(String key) {
+        return remote.lock(key);
+    }
+
+    private void publish(String op, String cacheName) {
+        if (channel == null) {
+            return;
+        }
+        try {
+            channel.publish(nodeId + ":" + op + ":" + cacheName);
+        } catch (Exception e) {
+            // 广播失败时其他节点依赖本地副本的存活时间上限兜底
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * 处理其他节点发来的失效消息，格式：节点标识:操作:缓存名
+     */
+    void onInvalidation(String message) {
+        if (message == null) {
+            return;
+        }
+        String[] parts = message.split(":", 3);
+        if (parts.length < 3 || nodeId.equals(parts[0])) {
+            return;
+        }
+        if (OP_ALL.equals(parts[1])) {
+            local.removeAll();
+        } else if (OP_KEYS.equals(parts[1])) {
+            local.removeAll(Arrays.asList(parts[2].split(KEYS_SEPARATOR)));
+        } else {
+            local.remove(parts[2]);
+        }
+    }
+
+    /**
+     * 跨节点失效消息通道
+     */
+    public interface InvalidationChannel {
+
+        void publish(String message);
+
+        void subscribe(Consumer<String> listener);
+    }
+}
@@ -5,14 +5,20 @@ import com.uetty.common.tool.core.cache.CacheManager;
 import com.uetty.common.tool.core.cache.mo.Lock;
 import com.uetty.common.tool.core.spring.SpringContextPeeper;
 import com.uetty.common.tool.core.string.StringUtil;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.RedisOperations;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
 import org.springframework.data.redis.core.ValueOperations;
 import org.springframework.data.redis.core.script.DefaultRedisScript;
 import org.springframework.data.redis.core.script.RedisScript;
 
 import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.UUID;
@@ -138,6 +144,76 @@ public class RedisCacheEngine implements CacheEngine {
         return (T) o;
     }
 
+    @SuppressWarnings("unchecked")
+    @Override
+    public <T> Map<String, T> getAll(Collection<String> cacheNames) {
+        Map<String, T> result = new LinkedHashMap<>();
+        if (cacheNames == null || cacheNames.isEmpty()) {
+            return result;
+        }
+        RedisTemplate<String, Object> redisTemplate = getRedisTemplate();
+
+        List<String> nameList = new ArrayList<>(cacheNames);
+        List<String> keys = new ArrayList<>(nameList.size());
+        for (String cacheName : nameList) {
+            keys.add(String.format(CACHE_TYPE_FASTJSON, cacheName));
+        }
+
+        // 一次MGET取回，结果与key一一对应，不存在的为null
+        List<Object> values = redisTemplate.opsForValue().multiGet(keys);
+        if (values == null) {
+            return result;
+        }
+        for (int i = 0; i < nameList.size() && i < values.size(); i++) {
+            Object value = values.get(i);
+            if (value != null) {
+                result.put(nameList.get(i), (T) value);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public <T> void putAll(Map<String, T> dataMap, Long expirationTime) {
+        if (dataMap == null || dataMap.isEmpty()) {
+            return;
+        }
+        RedisTemplate<String, Object> redisTemplate = getRedisTemplate();
+
+        Duration duration = Duration.ofMillis(expirationTime != null ? expirationTime : CACHE_HOLD_TIME_30MIN);
+
+        // MSET不支持过期时间，使用管道批量SET PX，一次往返
+        redisTemplate.executePipelined(new SessionCallback<Object>() {
+            @SuppressWarnings("unchecked")
+            @Override
+            public <K, V> Object execute(RedisOperations<K, V> operations) throws DataAccessException {
+                ValueOperations<String, Object> opsForValue = ((RedisOperations<String, Object>) operations).opsForValue();
+                for (Map.Entry<String, T> entry : dataMap.entrySet()) {
+                    if (entry.getValue() == null) {
+                        continue;
+                    }
+                    String key = String.format(CACHE_TYPE_FASTJSON, entry.getKey());
+                    opsForValue.set(key, entry.getValue(), duration);
+                }
+                return null;
+            }
+        });
+    }
+
+    @Override
+    public void removeAll(Collection<String> cacheNames) {
+        if (cacheNames == null || cacheNames.isEmpty()) {
+            return;
+        }
+        RedisTemplate<String, Object> redisTemplate = getRedisTemplate();
+
+        List<String> keys = new ArrayList<>(cacheNames.size());
+        for (String cacheName : cacheNames) {
+            keys.add(String.format(CACHE_TYPE_FASTJSON, cacheName));
+        }
+        redisTemplate.delete(keys);
+    }
+
     @Override
     public void removeAll() {
         RedisTemplate<String, Object> redisTemplate = getRedisTemplate();
@@ -228,6 +304,47 @@ public class RedisCacheEngine implements CacheEngine {
         return expire;
     }
 
+    @Override
+    public long getExpireMillis(String cacheName) {
+        RedisTemplate<String, Object> redisTemplate = getRedisTemplate();
+
+        String key = String.format(CACHE_TYPE_FASTJSON, cacheName);
+
+        Long expire = redisTemplate.getExpire(key, TimeUnit.MILLISECONDS);
+        if (expire == null) {
+            return -1;
+        }
+        return expire;
+    }
+
+    /**
+     * 批量获取剩余毫秒数，使用pipeline一次往返
+     */
+    @Override
+    public List<Long> getExpireMillis(List<String> cacheNames) {
+        List<Long> result = new ArrayList<>(cacheNames.size());
+        if (cacheNames.isEmpty()) {
+            return result;
+        }
+        RedisTemplate<String, Object> redisTemplate = getRedisTemplate();
+        List<Object> expires = redisTemplate.executePipelined(new SessionCallback<Object>() {
+            @SuppressWarnings("unchecked")
+            @Override
+            public <K, V> Object execute(RedisOperations<K, V> operations) throws DataAccessException {
+                RedisOperations<String, Object> ops = (RedisOperations<String, Object>) operations;
+                for (String cacheName : cacheNames) {
+                    ops.getExpire(String.format(CACHE_TYPE_FASTJSON, cacheName), TimeUnit.MILLISECONDS);
+                }
+                return null;
+            }
+        });
+        for (int i = 0; i < cacheNames.size(); i++) {
+            Object expire = expires != null && i < expires.size() ? expires.get(i) : null;
+            result.add(expire instanceof Number ? ((Number) expire).longValue() : -1L);
+        }
+        return result;
+    }
+
     /**
      * 获取锁
      * @param key 锁名
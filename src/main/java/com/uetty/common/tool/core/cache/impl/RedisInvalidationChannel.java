@@ -0,0 +1,86 @@
+package com.uetty.common.tool.core.cache.impl;
+
+import com.uetty.common.tool.core.spring.SpringContextPeeper;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+
+/**
+ * 基于redis发布订阅的缓存失效通道
+ */
+public class RedisInvalidationChannel implements NearCacheEngine.InvalidationChannel {
+
+    public static final String DEFAULT_TOPIC = "app:cacheEngine:invalidation";
+
+    private final String topic;
+
+    private volatile RedisTemplate<String, Object> redisTemplate;
+
+    private volatile RedisMessageListenerContainer listenerContainer;
+
+    public RedisInvalidationChannel() {
+        this(DEFAULT_TOPIC, null, null);
+    }
+
+    /**
+     * @param topic 频道名
+     * @param redisTemplate 为null时从spring上下文获取名为redisTemplate的bean
+     * @param listenerContainer 为null时基于redisTemplate的连接工厂创建
+     */
+    public RedisInvalidationChannel(String topic, RedisTemplate<String, Object> redisTemplate,
+                                    RedisMessageListenerContainer listenerContainer) {
+        this.topic = topic;
+        this.redisTemplate = redisTemplate;
+        this.listenerContainer = listenerContainer;
+    }
+
+    @SuppressWarnings("unchecked")
+    private RedisTemplate<String, Object> getRedisTemplate() {
+        if (redisTemplate != null) {
+            return redisTemplate;
+        }
+        redisTemplate = (RedisTemplate<String, Object>) SpringContextPeeper.getBeanQuiet(RedisTemplate.class, "redisTemplate");
+        if (redisTemplate == null) {
+            throw new RuntimeException("redis template not found");
+        }
+        return redisTemplate;
+    }
+
+    private RedisMessageListenerContainer getListenerContainer() {
+        if (listenerContainer != null) {
+            return listenerContainer;
+        }
+        synchronized (this) {
+            if (listenerContainer != null) {
+                return listenerContainer;
+            }
+            RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+            container.setConnectionFactory(getRedisTemplate().getConnectionFactory());
+            container.afterPropertiesSet();
+            container.start();
+            listenerContainer = container;
+        }
+        return listenerContainer;
+    }
+
+    @Override
+    public void publish(String message) {
+        getRedisTemplate().convertAndSend(topic, message);
+    }
+
+    @Override
+    public void subscribe(Consumer<String> listener) {
+        RedisSerializer<?> serializer = getRedisTemplate().getValueSerializer();
+        getListenerContainer().addMessageListener((message, pattern) -> {
+            // convertAndSend 使用 valueSerializer 序列化，这里对称反序列化
+            Object body = serializer != null
+                    ? serializer.deserialize(message.getBody())
+                    : new String(message.getBody(), StandardCharsets.UTF_8);
+            listener.accept(body != null ? body.toString() : null);
+        }, new ChannelTopic(topic));
+    }
+}
@@ -0,0 +1,177 @@
+package com.uetty.common.tool.core.cache.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 分层时间轮（非线程安全，由调用方加锁）
+ * <p>按剩余时长将过期节点放入不同层级的桶中（约1秒、1分钟、1小时、1天、数天），
+ * 时间推进时只处理经过的桶，高层桶中未到期的节点下沉到低层，处理代价与到期数量成正比，与缓存总量无关</p>
+ */
+class TimerWheel {
+
+    private static final int[] BUCKETS = {64, 64, 32, 4, 1};
+
+    /**
+     * 各层单个桶的时间跨度（毫秒，均为2的幂）
+     */
+    private static final long[] SPANS = {
+            1L << 10, // 1.02秒
+            1L << 16, // 1.09分钟
+            1L << 22, // 1.17小时
+            1L << 27, // 1.55天
+            1L << 29, // 6.21天
+            1L << 29,
+    };
+
+    private static final long[] SHIFT = {
+            Long.numberOfTrailingZeros(SPANS[0]),
+            Long.numberOfTrailingZeros(SPANS[1]),
+            Long.numberOfTrailingZeros(SPANS[2]),
+            Long.numberOfTrailingZeros(SPANS[3]),
+            Long.numberOfTrailingZeros(SPANS[4]),
+    };
+
+    private final Node[][] wheel;
+
+    /**
+     * 上次推进到的时间点
+     */
+    private long time;
+
+    TimerWheel(long currentTimeMillis) {
+        this.time = currentTimeMillis;
+        this.wheel = new Node[BUCKETS.length][];
+        for (int i = 0; i < wheel.length; i++) {
+            wheel[i] = new Node[BUCKETS[i]];
+            for (int j = 0; j < wheel[i].length; j++) {
+                wheel[i][j] = new Node(null, null, 0);
+            }
+        }
+    }
+
+    /**
+     * 将节点放入对应的桶
+     */
+    void schedule(Node node) {
+        Node sentinel = findBucket(node.expireTime);
+        link(sentinel, node);
+    }
+
+    /**
+     * 节点过期时间变化后调整所在的桶（节点不在时间轮中时忽略）
+     */
+    void reschedule(Node node) {
+        if (node.next == null) {
+            return;
+        }
+        unlink(node);
+        schedule(node);
+    }
+
+    void deschedule(Node node) {
+        if (node.next == null) {
+            return;
+        }
+        unlink(node);
+    }
+
+    /**
+     * 推进时间轮
+     * @return 已到期并移出时间轮的节点
+     */
+    List<Node> advance(long currentTimeMillis) {
+        long previousTime = time;
+        time = currentTimeMillis;
+
+        List<Node> expired = new ArrayList<>();
+        for (int i = 0; i < SHIFT.length; i++) {
+            long previousTicks = previousTime >>> SHIFT[i];
+            long currentTicks = currentTimeMillis >>> SHIFT[i];
+            long delta = currentTicks - previousTicks;
+            if (delta <= 0) {
+                break;
+            }
+            expire(i, previousTicks, delta, expired);
+        }
+        return expired;
+    }
+
+    private void expire(int index, long previousTicks, long delta, List<Node> expired) {
+        Node[] timerWheel = wheel[index];
+        int mask = timerWheel.length - 1;
+
+        int steps = (int) Math.min(1 + delta, timerWheel.length);
+        int start = (int) (previousTicks & mask);
+        int end = start + steps;
+
+        for (int i = start; i < end; i++) {
+            Node sentinel = timerWheel[i & mask];
+            Node node = sentinel.next;
+            sentinel.prev = sentinel;
+            sentinel.next = sentinel;
+
+            while (node != sentinel) {
+                Node next = node.next;
+                node.prev = null;
+                node.next = null;
+
+                if (node.expireTime <= time) {
+                    expired.add(node);
+                } else {
+                    // 未到期的节点下沉到更精确的层级
+                    schedule(node);
+                }
+                node = next;
+            }
+        }
+    }
+
+    private Node findBucket(long expireTime) {
+        // 已经到期的节点放入当前桶，下次推进时即被处理
+        long bucketTime = Math.max(expireTime, time);
+        long duration = bucketTime - time;
+        int length = wheel.length - 1;
+        for (int i = 0; i < length; i++) {
+            if (duration < SPANS[i + 1]) {
+                long ticks = bucketTime >>> SHIFT[i];
+                int index = (int) (ticks & (wheel[i].length - 1));
+                return wheel[i][index];
+            }
+        }
+        return wheel[length][0];
+    }
+
+    private static void link(Node sentinel, Node node) {
+        node.prev = sentinel.prev;
+        node.next = sentinel;
+        sentinel.prev.next = node;
+        sentinel.prev = node;
+    }
+
+    private static void unlink(Node node) {
+        node.prev.next = node.next;
+        node.next.prev = node.prev;
+        node.prev = null;
+        node.next = null;
+    }
+
+    static final class Node {
+        final String key;
+        final MemoryCacheEngine.AutoExpireData<?> data;
+        long expireTime;
+        Node prev;
+        Node next;
+
+        Node(String key, MemoryCacheEngine.AutoExpireData<?> data, long expireTime) {
+            this.key = key;
+            this.data = data;
+            this.expireTime = expireTime;
+            // 哨兵节点自成环
+            if (key == null) {
+                this.prev = this;
+                this.next = this;
+            }
+        }
+    }
+}
@@ -0,0 +1,361 @@
+package com.uetty.common.tool.core.cache.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * W-TinyLFU 淘汰策略（非线程安全，由调用方加锁）
+ * <p>新写入的数据先进入窗口区（LRU，约占1%容量），窗口溢出的数据进入主区的试用区，
+ * 主区满时由频率草图比较试用区的候选者与牺牲者，频率低者被淘汰；试用区内再次被访问的数据晋升到保护区（约占主区80%）</p>
+ * <p>数量上限与权重上限可单独或同时生效，小于等于0表示不限制</p>
+ */
+class TinyLfuPolicy {
+
+    private static final double WINDOW_PERCENT = 0.01d;
+    private static final double PROTECTED_PERCENT = 0.8d;
+
+    private static final byte WINDOW = 0;
+    private static final byte PROBATION = 1;
+    private static final byte PROTECTED = 2;
+
+    private final long maximumSize;
+    private final long maximumWeight;
+
+    private final long windowMaximumSize;
+    private final long windowMaximumWeight;
+    private final long protectedMaximumSize;
+    private final long protectedMaximumWeight;
+
+    private final FrequencySketch sketch;
+
+    private final Map<String, Node> nodes = new HashMap<>();
+
+    private final AccessOrderDeque window = new AccessOrderDeque();
+    private final AccessOrderDeque probation = new AccessOrderDeque();
+    private final AccessOrderDeque protectedDeque = new AccessOrderDeque();
+
+    private long weightedSize;
+
+    TinyLfuPolicy(long maximumSize, long maximumWeight) {
+        this.maximumSize = maximumSize;
+        this.maximumWeight = maximumWeight;
+
+        this.windowMaximumSize = maximumSize > 0 ? Math.max(1, (long) (maximumSize * WINDOW_PERCENT)) : 0;
+        this.windowMaximumWeight = maximumWeight > 0 ? Math.max(1, (long) (maximumWeight * WINDOW_PERCENT)) : 0;
+        this.protectedMaximumSize = maximumSize > 0
+                ? Math.max(1, (long) ((maximumSize - windowMaximumSize) * PROTECTED_PERCENT)) : 0;
+        this.protectedMaximumWeight = maximumWeight > 0
+                ? Math.max(1, (long) ((maximumWeight - windowMaximumWeight) * PROTECTED_PERCENT)) : 0;
+
+        // 权重模式下无法预知条目数，按一个条目约占1KB估算草图大小
+        long sketchCapacity = maximumSize > 0 ? maximumSize : Math.max(16, maximumWeight >>> 10);
+        this.sketch = new FrequencySketch(sketchCapacity);
+    }
+
+    long size() {
+        return nodes.size();
+    }
+
+    long weightedSize() {
+        return weightedSize;
+    }
+
+    boolean contains(String key) {
+        return nodes.containsKey(key);
+    }
+
+    /**
+     * 记录一次访问
+     */
+    void onAccess(String key) {
+        sketch.increment(key.hashCode());
+        Node node = nodes.get(key);
+        if (node == null) {
+            return;
+        }
+        reorder(node);
+    }
+
+    /**
+     * 记录一次写入
+     * @return 因超出容量而被淘汰的节点
+     */
+    List<Node> onWrite(String key, long weight) {
+        sketch.increment(key.hashCode());
+        Node node = nodes.get(key);
+        if (node == null) {
+            node = new Node(key, weight);
+            node.queue = WINDOW;
+            nodes.put(key, node);
+            window.addLast(node);
+            weightedSize += weight;
+        } else {
+            long delta = weight - node.weight;
+            node.weight = weight;
+            dequeOf(node).weight += delta;
+            weightedSize += delta;
+            reorder(node);
+        }
+        return evict();
+    }
+
+    /**
+     * 记录一次删除（过期、手动删除等）
+     */
+    void onRemove(String key) {
+        Node node = nodes.remove(key);
+        if (node == null) {
+            return;
+        }
+        dequeOf(node).remove(node);
+        weightedSize -= node.weight;
+    }
+
+    void clear() {
+        nodes.clear();
+        window.clear();
+        probation.clear();
+        protectedDeque.clear();
+        weightedSize = 0;
+    }
+
+    private void reorder(Node node) {
+        if (node.queue == WINDOW) {
+            window.moveToBack(node);
+        } else if (node.queue == PROBATION) {
+            // 试用区再次命中，晋升到保护区
+            probation.remove(node);
+            node.queue = PROTECTED;
+            protectedDeque.addLast(node);
+            demoteProtected();
+        } else {
+            protectedDeque.moveToBack(node);
+        }
+    }
+
+    private void demoteProtected() {
+        while (exceeds(protectedDeque.count, protectedDeque.weight, protectedMaximumSize, protectedMaximumWeight)
+                && protectedDeque.count > 1) {
+            Node node = protectedDeque.pollFirst();
+            node.queue = PROBATION;
+            probation.addLast(node);
+        }
+    }
+
+    private List<Node> evict() {
+        // 窗口区溢出的数据转入试用区尾部，作为准入候选者
+        while (exceeds(window.count, window.weight, windowMaximumSize, windowMaximumWeight)) {
+            Node node = window.pollFirst();
+            node.queue = PROBATION;
+            probation.addLast(node);
+        }
+
+        List<Node> evicted = null;
+        while (exceeds(nodes.size(), weightedSize, maximumSize, maximumWeight)) {
+            Node victim = probation.peekFirst();
+            Node candidate = probation.peekLast();
+            Node evict;
+            if (victim == null) {
+                // 试用区为空时，依次从保护区、窗口区淘汰最久未访问的数据
+                evict = protectedDeque.peekFirst() != null ? protectedDeque.peekFirst() : window.peekFirst();
+                if (evict == null) {
+                    break;
+                }
+            } else if (victim == candidate) {
+                evict = victim;
+            } else {
+                evict = admit(candidate, victim) ? victim : candidate;
+            }
+
+            onRemove(evict.key);
+            if (evicted == null) {
+                evicted = new ArrayList<>();
+            }
+            evicted.add(evict);
+        }
+        return evicted != null ? evicted : Collections.emptyList();
+    }
+
+    private boolean admit(Node candidate, Node victim) {
+        int candidateFreq = sketch.frequency(candidate.key.hashCode());
+        int victimFreq = sketch.frequency(victim.key.hashCode());
+        return candidateFreq > victimFreq;
+    }
+
+    private AccessOrderDeque dequeOf(Node node) {
+        if (node.queue == WINDOW) {
+            return window;
+        }
+        return node.queue == PROBATION ? probation : protectedDeque;
+    }
+
+    private static boolean exceeds(long count, long weight, long maximumSize, long maximumWeight) {
+        return (maximumSize > 0 && count > maximumSize) || (maximumWeight > 0 && weight > maximumWeight);
+    }
+
+    static final class Node {
+        final String key;
+        long weight;
+        byte queue;
+        Node prev;
+        Node next;
+
+        Node(String key, long weight) {
+            this.key = key;
+            this.weight = weight;
+        }
+    }
+
+    /**
+     * 侵入式双向链表，头部为最久未访问
+     */
+    static final class AccessOrderDeque {
+        Node head;
+        Node tail;
+        long count;
+        long weight;
+
+        void addLast(Node node) {
+            node.prev = tail;
+            node.next = null;
+            if (tail == null) {
+                head = node;
+            } else {
+                tail.next = node;
+            }
+            tail = node;
+            count++;
+            weight += node.weight;
+        }
+
+        void remove(Node node) {
+            if (node.prev == null) {
+                head = node.next;
+            } else {
+                node.prev.next = node.next;
+            }
+            if (node.next == null) {
+                tail = node.prev;
+            } else {
+                node.next.prev = node.prev;
+            }
+            node.prev = null;
+            node.next = null;
+            count--;
+            weight -= node.weight;
+        }
+
+        void moveToBack(Node node) {
+            if (tail == node) {
+                return;
+            }
+            remove(node);
+            addLast(node);
+        }
+
+        Node peekFirst() {
+            return head;
+        }
+
+        Node peekLast() {
+            return tail;
+        }
+
+        Node pollFirst() {
+            Node node = head;
+            if (node != null) {
+                remove(node);
+            }
+            return node;
+        }
+
+        void clear() {
+            head = null;
+            tail = null;
+            count = 0;
+            weight = 0;
+        }
+    }
+
+    /**
+     * 4-bit Count-Min 频率草图，计数达到采样上限时所有计数减半（老化）
+     */
+    static final class FrequencySketch {
+
+        private static final long[] SEED = {
+                0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+        private static final long RESET_MASK = 0x7777777777777777L;
+        private static final long ONE_MASK = 0x1111111111111111L;
+
+        private final long[] table;
+        private final int tableMask;
+        private final int sampleSize;
+        private int size;
+
+        FrequencySketch(long capacity) {
+            int maximum = (int) Math.min(Math.max(capacity, 16), 1 << 30);
+            int length = Integer.highestOneBit(maximum - 1) << 1;
+            this.table = new long[length];
+            this.tableMask = length - 1;
+            this.sampleSize = (int) Math.min(10L * maximum, Integer.MAX_VALUE);
+        }
+
+        int frequency(int hashCode) {
+            int hash = spread(hashCode);
+            int start = (hash & 3) << 2;
+            int frequency = Integer.MAX_VALUE;
+            for (int i = 0; i < 4; i++) {
+                int index = indexOf(hash, i);
+                int count = (int) ((table[index] >>> ((start + i) << 2)) & 0xfL);
+                frequency = Math.min(frequency, count);
+            }
+            return frequency;
+        }
+
+        void increment(int hashCode) {
+            int hash = spread(hashCode);
+            int start = (hash & 3) << 2;
+            boolean added = false;
+            for (int i = 0; i < 4; i++) {
+                added |= incrementAt(indexOf(hash, i), start + i);
+            }
+            if (added && ++size >= sampleSize) {
+                reset();
+            }
+        }
+
+        private boolean incrementAt(int i, int j) {
+            int offset = j << 2;
+            long mask = 0xfL << offset;
+            if ((table[i] & mask) != mask) {
+                table[i] += 1L << offset;
+                return true;
+            }
+            return false;
+        }
+
+        private void reset() {
+            int count = 0;
+            for (int i = 0; i < table.length; i++) {
+                count += Long.bitCount(table[i] & ONE_MASK);
+                table[i] = (table[i] >>> 1) & RESET_MASK;
+            }
+            size = (size >>> 1) - (count >>> 2);
+        }
+
+        private int indexOf(int item, int i) {
+            long hash = (item + SEED[i]) * SEED[i];
+            hash += hash >>> 32;
+            return ((int) hash) & tableMask;
+        }
+
+        private static int spread(int x) {
+            x = ((x >>> 16) ^ x) * 0x45d9f3b;
+            x = ((x >>> 16) ^ x) * 0x45d9f3b;
+            return (x >>> 16) ^ x;
+        }
+    }
+}
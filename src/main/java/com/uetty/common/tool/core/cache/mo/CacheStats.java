@@ -0,0 +1,34 @@
+package com.uetty.common.tool.core.cache.mo;
+
+import lombok.Data;
+
+/**
+ * 缓存统计快照
+ */
+@Data
+public class CacheStats {
+
+    private long hitCount;
+    private long missCount;
+    /**
+     * 因超出容量被淘汰的数量（不含过期）
+     */
+    private long evictionCount;
+    /**
+     * 因超出容量被淘汰的估算字节数
+     */
+    private long evictionWeight;
+    /**
+     * 当前缓存条目数
+     */
+    private long estimatedSize;
+    /**
+     * 当前缓存估算字节数（未开启权重限制时为0）
+     */
+    private long weightedSize;
+
+    public double getHitRate() {
+        long requestCount = hitCount + missCount;
+        return requestCount == 0 ? 1.0d : (double) hitCount / requestCount;
+    }
+}
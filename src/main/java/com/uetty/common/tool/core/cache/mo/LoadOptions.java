@@ -0,0 +1,58 @@
+package com.uetty.common.tool.core.cache.mo;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.concurrent.Executor;
+
+/**
+ * 缓存加载选项
+ */
+@Builder
+@Data
+public class LoadOptions {
+
+    /**
+     * 距离过期不足该毫秒数时，返回当前值并在后台异步刷新（0表示不提前刷新）
+     */
+    @Builder.Default
+    private long refreshAheadMillis = 0;
+
+    /**
+     * 过期后仍可返回旧值的毫秒数，期间返回旧值并在后台异步刷新（0表示不返回旧值）
+     * <p>缓存的实际保存时间为 过期时间 + staleMillis，直接通过 get(cacheName) 读取时可能读到旧值</p>
+     */
+    @Builder.Default
+    private long staleMillis = 0;
+
+    /**
+     * 是否使用缓存引擎的 lock() 在多个JVM之间互斥加载
+     */
+    @Builder.Default
+    private boolean distributedLock = true;
+
+    /**
+     * 分布式加载锁的自动释放秒数
+     */
+    @Builder.Default
+    private int lockSeconds = 30;
+
+    /**
+     * 未获取到分布式加载锁时，等待其他节点加载完成的最长毫秒数，超时后自行加载
+     */
+    @Builder.Default
+    private long lockWaitMillis = 3000;
+
+    /**
+     * 后台刷新使用的线程池，为null时使用 ForkJoinPool.commonPool()
+     */
+    private Executor refreshExecutor;
+
+    public static LoadOptions defaults() {
+        return LoadOptions.builder().build();
+    }
+
+    public boolean isAsyncRefresh() {
+        return refreshAheadMillis > 0 || staleMillis > 0;
+    }
+}
@@ -0,0 +1,335 @@
+package com.uetty.common.tool.core.excel;
+
+import com.uetty.common.tool.core.reflect.PropertyAccessors;
+import org.apache.commons.beanutils.PropertyUtils;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * excel流式导出工具类（xlsx格式）
+ * <p>基于SXSSF，内存中只保留最近 windowSize 行，其余行写入临时文件，导出百万行数据时内存占用基本恒定；
+ * 数据源可以是迭代器或Stream，边查询边写出，不必先把全部数据加载到List中</p>
+ * <p>超过单sheet最大行数时自动新建sheet，sheet名依次为 标题、标题_2、标题_3 ...</p>
+ * <p>属性读取使用 {@link PropertyAccessors} 预编译的读取函数，每种数据类型只解析一次；
+ * 数字、布尔、日期写为对应类型的单元格，其余写为文本</p>
+ */
+@SuppressWarnings("unused")
+public class ExcelExporter {
+
+    /**
+     * xlsx单sheet最大行数 1048576，减去表头行
+     */
+    public static final int MAX_ROWS_PER_SHEET = 1048575;
+
+    public static final int DEFAULT_WINDOW_SIZE = 100;
+
+    public static final String DEFAULT_DATE_FORMAT = "yyyy-MM-dd HH:mm:ss";
+
+    /**
+     * 单元格文本最大长度
+     */
+    private static final int MAX_CELL_TEXT_LENGTH = 32767;
+
+    /**
+     * 绝对值不超过该值的整数转为double时不丢失精度
+     */
+    private static final long MAX_EXACT_LONG = 1L << 53;
+
+    private final List<String> keys = new ArrayList<>();
+
+    private final List<String> titles = new ArrayList<>();
+
+    private String sheetTitle = "sheet";
+
+    private int maxRowsPerSheet = MAX_ROWS_PER_SHEET;
+
+    private int windowSize = DEFAULT_WINDOW_SIZE;
+
+    private String dateFormat = DEFAULT_DATE_FORMAT;
+
+    /**
+     * @param headMap 表头，key为属性名（可用 . 分隔嵌套属性），value为表头标题，按插入顺序输出
+     */
+    public ExcelExporter(LinkedHashMap<String, String> headMap) {
+        if (headMap == null || headMap.isEmpty()) {
+            throw new IllegalArgumentException("head map must not be empty");
+        }
+        for (Map.Entry<String, String> entry : headMap.entrySet()) {
+            keys.add(entry.getKey());
+            titles.add(entry.getValue() != null ? entry.getValue() : "");
+        }
+    }
+
+    public ExcelExporter(String sheetTitle, LinkedHashMap<String, String> headMap) {
+        this(headMap);
+        setSheetTitle(sheetTitle);
+    }
+
+    /**
+     * 导出到输出流，不关闭输出流
+     * @param dataIterator 数据，元素可以是普通对象或Map
+     * @return 导出的数据行数
+     */
+    public long export(Iterator<?> dataIterator, OutputStream os) throws IOException {
+        SXSSFWorkbook wb = new SXSSFWorkbook(windowSize);
+        // 临时文件压缩，避免百万行时临时文件过大
+        wb.setCompressTempFiles(true);
+        try {
+            SheetWriter writer = new SheetWriter(wb);
+            long count = 0;
+            if (dataIterator != null) {
+                while (dataIterator.hasNext()) {
+                    writer.writeRow(dataIterator.next());
+                    count++;
+                }
+            }
+            writer.ensureSheet();
+            wb.write(os);
+            os.flush();
+            return count;
+        } finally {
+            // 删除临时文件
+            wb.dispose();
+        }
+    }
+
+    public long export(Iterable<?> dataList, OutputStream os) throws IOException {
+        return export(dataList != null ? dataList.iterator() : null, os);
+    }
+
+    /**
+     * 导出Stream中的数据，导出完成后关闭Stream（如数据库游标）
+     */
+    public long export(Stream<?> dataStream, OutputStream os) throws IOException {
+        if (dataStream == null) {
+            return export((Iterator<?>) null, os);
+        }
+        try (Stream<?> stream = dataStream) {
+            return export(stream.iterator(), os);
+        }
+    }
+
+    /**
+     * 导出到文件
+     */
+    public long export(Iterator<?> dataIterator, File file) throws IOException {
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.exists()) {
+            //noinspection ResultOfMethodCallIgnored
+            parent.mkdirs();
+        }
+        try (OutputStream os = new BufferedOutputStream(new FileOutputStream(file))) {
+            return export(dataIterator, os);
+        }
+    }
+
+    public long export(Iterable<?> dataList, File file) throws IOException {
+        return export(dataList != null ? dataList.iterator() : null, file);
+    }
+
+    public long export(Stream<?> dataStream, File file) throws IOException {
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.exists()) {
+            //noinspection ResultOfMethodCallIgnored
+            parent.mkdirs();
+        }
+        try (OutputStream os = new BufferedOutputStream(new FileOutputStream(file))) {
+            return export(dataStream, os);
+        }
+    }
+
+    /**
+     * 单次导出的写入状态
+     */
+    private class SheetWriter {
+        private final SXSSFWorkbook wb;
+        private final CellStyle headStyle;
+        private final CellStyle dateStyle;
+
+        private Sheet sheet;
+        private int sheetCount = 0;
+        private int rowNum = 0;
+
+        /**
+         * 上一行数据的类型及其属性读取函数，同一批数据一般类型相同
+         */
+        private Class<?> lastClass;
+        private List<Function<Object, Object>> lastGetters;
+
+        SheetWriter(SXSSFWorkbook wb) {
+            this.wb = wb;
+            this.headStyle = wb.createCellStyle();
+            this.headStyle.setAlignment(CellStyle.ALIGN_CENTER);
+            this.dateStyle = wb.createCellStyle();
+            this.dateStyle.setDataFormat(wb.getCreationHelper().createDataFormat().getFormat(dateFormat));
+        }
+
+        void ensureSheet() {
+            if (sheet == null) {
+                newSheet();
+            }
+        }
+
+        private void newSheet() {
+            sheetCount++;
+            String name = sheetCount == 1 ? sheetTitle : sheetTitle + "_" + sheetCount;
+            sheet = wb.createSheet(name);
+            // 根据表头设置列宽
+            for (int i = 0; i < titles.size(); i++) {
+                sheet.setColumnWidth(i, Math.min((titles.get(i).length() + 2) * 2 * 256, 255 * 256));
+            }
+            Row row = sheet.createRow(0);
+            for (int i = 0; i < titles.size(); i++) {
+                Cell cell = row.createCell(i);
+                cell.setCellValue(titles.get(i));
+                cell.setCellStyle(headStyle);
+            }
+            rowNum = 0;
+        }
+
+        void writeRow(Object data) {
+            if (sheet == null || rowNum >= maxRowsPerSheet) {
+                newSheet();
+            }
+            Row row = sheet.createRow(++rowNum);
+            if (data == null) {
+                return;
+            }
+            List<Function<Object, Object>> getters = getters(data.getClass());
+            for (int i = 0; i < getters.size(); i++) {
+                Function<Object, Object> getter = getters.get(i);
+                Object value = getter != null ? getter.apply(data) : getPropertyQuiet(data, keys.get(i));
+                if (value != null) {
+                    setCellValue(row.createCell(i), value);
+                }
+            }
+        }
+
+        private List<Function<Object, Object>> getters(Class<?> clz) {
+            if (clz == lastClass) {
+                return lastGetters;
+            }
+            List<Function<Object, Object>> getters = new ArrayList<>(keys.size());
+            for (String key : keys) {
+                getters.add(PropertyAccessors.getter(clz, key));
+            }
+            lastClass = clz;
+            lastGetters = getters;
+            return getters;
+        }
+
+        /**
+         * 能否无损写为数值单元格，否则按文本写入（大数、超出2^53的long等），避免丢失位数
+         */
+        private boolean isExactDouble(Number value) {
+            if (value instanceof Double || value instanceof Float || value instanceof Integer
+                    || value instanceof Short || value instanceof Byte) {
+                return true;
+            }
+            if (value instanceof Long || value instanceof AtomicLong || value instanceof AtomicInteger) {
+                long v = value.longValue();
+                return v >= -MAX_EXACT_LONG && v <= MAX_EXACT_LONG;
+            }
+            return false;
+        }
+
+        private void setCellValue(Cell cell, Object value) {
+            if (value instanceof Number && isExactDouble((Number) value)) {
+                cell.setCellValue(((Number) value).doubleValue());
+            } else if (value instanceof Boolean) {
+                cell.setCellValue((Boolean) value);
+            } else if (value instanceof Date) {
+                cell.setCellValue((Date) value);
+                cell.setCellStyle(dateStyle);
+            } else if (value instanceof Calendar) {
+                cell.setCellValue((Calendar) value);
+                cell.setCellStyle(dateStyle);
+            } else {
+                String str = value instanceof BigDecimal ? ((BigDecimal) value).toPlainString() : value.toString();
+                if (str.length() > MAX_CELL_TEXT_LENGTH) {
+                    str = str.substring(0, MAX_CELL_TEXT_LENGTH);
+                }
+                cell.setCellValue(str);
+            }
+        }
+    }
+
+    /**
+     * 预编译读取函数无法解析的属性（如索引、映射语法），按原 DocTool.exportExcel 的方式读取
+     */
+    private static Object getPropertyQuiet(Object data, String key) {
+        try {
+            return PropertyUtils.getProperty(data, key);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    public String getSheetTitle() {
+        return sheetTitle;
+    }
+
+    public void setSheetTitle(String sheetTitle) {
+        if (sheetTitle == null || sheetTitle.isEmpty()) {
+            throw new IllegalArgumentException("sheet title must not be empty");
+        }
+        this.sheetTitle = sheetTitle;
+    }
+
+    public int getMaxRowsPerSheet() {
+        return maxRowsPerSheet;
+    }
+
+    /**
+     * 单sheet最大数据行数（不含表头），不能超过 {@link #MAX_ROWS_PER_SHEET}
+     */
+    public void setMaxRowsPerSheet(int maxRowsPerSheet) {
+        if (maxRowsPerSheet <= 0 || maxRowsPerSheet > MAX_ROWS_PER_SHEET) {
+            throw new IllegalArgumentException("max rows per sheet must be in (0, " + MAX_ROWS_PER_SHEET + "]");
+        }
+        this.maxRowsPerSheet = maxRowsPerSheet;
+    }
+
+    public int getWindowSize() {
+        return windowSize;
+    }
+
+    /**
+     * 内存中保留的行数，超出的行写入临时文件
+     */
+    public void setWindowSize(int windowSize) {
+        if (windowSize <= 0) {
+            throw new IllegalArgumentException("window size must be positive");
+        }
+        this.windowSize = windowSize;
+    }
+
+    public String getDateFormat() {
+        return dateFormat;
+    }
+
+    public void setDateFormat(String dateFormat) {
+        this.dateFormat = dateFormat;
+    }
+}
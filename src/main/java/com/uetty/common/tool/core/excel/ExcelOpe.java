@@ -1,7 +1,9 @@
 package com.uetty.common.tool.core.excel;
 
+import com.uetty.common.tool.core.reflect.ReflectUtil;
 import org.apache.poi.POIXMLDocument;
 import org.apache.poi.POIXMLDocumentPart;
+import org.apache.poi.hssf.model.InternalWorkbook;
 import org.apache.poi.hssf.usermodel.HSSFClientAnchor;
 import org.apache.poi.hssf.usermodel.HSSFDateUtil;
 import org.apache.poi.hssf.usermodel.HSSFFormulaEvaluator;
@@ -30,11 +32,18 @@ import java.math.BigDecimal;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * excel操作工具类
  * <p>支持范围：同时支持xls格式和xlsx格式的excel
  * <p>缺点：存在数值类型数据，不能区分小数和整数的问题，如：整数5，读取进去会变成5.0，需要依靠填单时在单元格内数值字符串前加英文单引号解决
+ * <p>整个工作簿加载到内存，大文件只读导入请使用 {@link ExcelStreamReader}
+ * <p>多个sheet或大sheet的多个行区间可以用 {@link #iterateParallel} 并行解析
  * @author vince
  */
 @SuppressWarnings("unused")
@@ -55,6 +64,11 @@ public class ExcelOpe {
 
     private boolean readNumericAsString = false;
 
+    /**
+     * 数据格式编号 -> 是否日期格式，同一工作簿内格式编号对应的格式不变，解析一次即可
+     */
+    private final Map<Short, Boolean> dateFormatCache = new ConcurrentHashMap<>();
+
     /**
      * 仅xls格式成功过
      * @param is 输入流
@@ -473,7 +487,7 @@ public class ExcelOpe {
                 // 高版本使用
                 // case NUMERIC:
                 case Cell.CELL_TYPE_NUMERIC:
-                    if (HSSFDateUtil.isCellDateFormatted(cell)) {
+                    if (isCellDateFormatted(cell, cell.getNumericCellValue())) {
                         value = cell.getDateCellValue();
                         if (value != null && getReadDateFormat() != null) {
                             value = getReadDateFormat().format(value);
@@ -529,6 +543,33 @@ public class ExcelOpe {
         return value;
     }
 
+    /**
+     * 与 {@link HSSFDateUtil#isCellDateFormatted} 判断一致，按数据格式编号缓存判断结果
+     */
+    private boolean isCellDateFormatted(Cell cell, double value) {
+        CellStyle style = cell.getCellStyle();
+        if (style == null) {
+            return false;
+        }
+        short formatIndex = style.getDataFormat();
+        Boolean isDate = dateFormatCache.get(formatIndex);
+        if (isDate == null) {
+            isDate = DateUtil.isADateFormat(formatIndex, style.getDataFormatString());
+            dateFormatCache.put(formatIndex, isDate);
+        }
+        return isDate && DateUtil.isValidExcelDate(value);
+    }
+
+    private boolean isDate1904() {
+        if (isXSSFWorkbook) {
+            XSSFWorkbook xwb = (XSSFWorkbook) wb;
+            return xwb.getCTWorkbook().isSetWorkbookPr() && xwb.getCTWorkbook().getWorkbookPr().getDate1904();
+        }
+        // 低版本POI未公开xls的日期窗口设置
+        Object internalWorkbook = ReflectUtil.getFieldValue(wb, "workbook");
+        return internalWorkbook instanceof InternalWorkbook && ((InternalWorkbook) internalWorkbook).isUsing1904DateWindowing();
+    }
+
     /**
      * The Interface CellCallback.
      * 
@@ -638,6 +679,247 @@ public class ExcelOpe {
         return rows;
     }
 
+    /**
+     * 并行读取多个sheet，每个sheet一个任务，结果按sheet顺序返回
+     * <p>与逐个调用 {@link #excelToListList(int)} 的结果一致（公式单元格只计算取值，不回写单元格）</p>
+     *
+     * @param executor 执行解析任务的线程池，为null时使用 ForkJoinPool.commonPool()
+     * @param sheetNos sheet编号，不传时读取全部sheet
+     * @return 每个sheet的行列表
+     */
+    public List<List<List<Object>>> excelToListListParallel(Executor executor, int... sheetNos) {
+        int[] sheets = sheetNos == null || sheetNos.length == 0 ? allSheetNos() : sheetNos;
+        List<List<List<Object>>> result = new ArrayList<>();
+        Map<Integer, List<List<Object>>> sheetRows = new HashMap<>();
+        for (int sheetNo : sheets) {
+            List<List<Object>> rows = sheetRows.computeIfAbsent(sheetNo, k -> new ArrayList<>());
+            result.add(rows);
+        }
+        // 有序回调在当前线程执行，直接写入结果
+        iterateParallel((sheetNo, rowNum, cells) -> sheetRows.get(sheetNo).add(cells),
+                executor, true, 0, distinct(sheets));
+        return result;
+    }
+
+    /**
+     * 并行解析sheet
+     * <p>按sheet（以及 rowsPerTask 划分的行区间）拆分为多个任务，在指定线程池中并行解析单元格值，
+     * 单元格值与 {@link #getCellValue(Cell)} 一致，公式单元格只计算取值，不回写单元格</p>
+     * <p>ordered为true时，解析结果在当前线程按 sheet、行号 顺序回调；
+     * 为false时，各任务在工作线程中边解析边回调，回调需自行保证线程安全</p>
+     * <p>解析期间不要修改工作簿</p>
+     *
+     * @param callback 行回调，不存在的行不回调
+     * @param executor 执行解析任务的线程池，为null时使用 ForkJoinPool.commonPool()
+     * @param ordered 是否按顺序回调
+     * @param rowsPerTask 每个任务解析的行数，小于等于0时每个sheet一个任务
+     * @param sheetNos sheet编号，不传时解析全部sheet
+     */
+    public void iterateParallel(ExcelStreamReader.RowCallback callback, Executor executor, boolean ordered,
+                                int rowsPerTask, int... sheetNos) {
+        if (executor == null) {
+            executor = ForkJoinPool.commonPool();
+        }
+        List<ReadTask> tasks = splitTasks(sheetNos == null || sheetNos.length == 0 ? allSheetNos() : sheetNos, rowsPerTask);
+        boolean date1904 = isDate1904();
+
+        List<CompletableFuture<List<RowValues>>> futures = new ArrayList<>(tasks.size());
+        for (ReadTask task : tasks) {
+            ExcelStreamReader.RowCallback taskCallback = ordered ? null : callback;
+            futures.add(CompletableFuture.supplyAsync(() -> task.read(new CellDecoder(date1904), taskCallback), executor));
+        }
+
+        try {
+            if (ordered) {
+                for (CompletableFuture<List<RowValues>> future : futures) {
+                    for (RowValues row : future.join()) {
+                        callback.handler(row.sheetNo, row.rowNum, row.cells);
+                    }
+                }
+            } else {
+                CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).join();
+            }
+        } catch (CompletionException e) {
+            // 尚未开始的任务不再执行
+            for (CompletableFuture<List<RowValues>> future : futures) {
+                future.cancel(false);
+            }
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+
+    private int[] allSheetNos() {
+        int[] sheetNos = new int[wb.getNumberOfSheets()];
+        for (int i = 0; i < sheetNos.length; i++) {
+            sheetNos[i] = i;
+        }
+        return sheetNos;
+    }
+
+    private static int[] distinct(int[] sheetNos) {
+        return Arrays.stream(sheetNos).distinct().toArray();
+    }
+
+    private List<ReadTask> splitTasks(int[] sheetNos, int rowsPerTask) {
+        List<ReadTask> tasks = new ArrayList<>();
+        for (int sheetNo : sheetNos) {
+            Sheet sheet = wb.getSheetAt(sheetNo);
+            int firstRowNum = sheet.getFirstRowNum();
+            int lastRowNum = sheet.getLastRowNum();
+            if (rowsPerTask <= 0) {
+                tasks.add(new ReadTask(sheetNo, sheet, firstRowNum, lastRowNum));
+                continue;
+            }
+            for (int from = firstRowNum; from <= lastRowNum; from += rowsPerTask) {
+                tasks.add(new ReadTask(sheetNo, sheet, from, (int) Math.min((long) from + rowsPerTask - 1, lastRowNum)));
+            }
+        }
+        return tasks;
+    }
+
+    /**
+     * 解析任务：某个sheet的一段行区间
+     */
+    private class ReadTask {
+        private final int sheetNo;
+        private final Sheet sheet;
+        private final int fromRow;
+        private final int toRow;
+
+        ReadTask(int sheetNo, Sheet sheet, int fromRow, int toRow) {
+            this.sheetNo = sheetNo;
+            this.sheet = sheet;
+            this.fromRow = fromRow;
+            this.toRow = toRow;
+        }
+
+        /**
+         * @param callback 不为null时直接回调，否则收集结果返回
+         */
+        List<RowValues> read(CellDecoder decoder, ExcelStreamReader.RowCallback callback) {
+            List<RowValues> rows = callback == null ? new ArrayList<>() : Collections.emptyList();
+            for (int i = fromRow; i <= toRow; i++) {
+                Row row = sheet.getRow(i);
+                if (row == null) {
+                    continue;
+                }
+                List<Object> cellList = new ArrayList<>();
+                for (int j = 0; j < row.getLastCellNum(); j++) {
+                    cellList.add(decoder.decode(row.getCell(j)));
+                }
+                if (callback != null) {
+                    callback.handler(sheetNo, i, cellList);
+                } else {
+                    rows.add(new RowValues(sheetNo, i, cellList));
+                }
+            }
+            return rows;
+        }
+    }
+
+    private static class RowValues {
+        private final int sheetNo;
+        private final int rowNum;
+        private final List<Object> cells;
+
+        RowValues(int sheetNo, int rowNum, List<Object> cells) {
+            this.sheetNo = sheetNo;
+            this.rowNum = rowNum;
+            this.cells = cells;
+        }
+    }
+
+    /**
+     * 单个任务内使用的单元格解析器
+     * <p>DateFormat 和 FormulaEvaluator 都不是线程安全的，每个任务持有自己的副本，任务内复用</p>
+     */
+    private class CellDecoder {
+        private final boolean date1904;
+        private final DateFormat dateFormat;
+        private FormulaEvaluator evaluator;
+
+        CellDecoder(boolean date1904) {
+            this.date1904 = date1904;
+            DateFormat readDateFormat = getReadDateFormat();
+            this.dateFormat = readDateFormat != null ? (DateFormat) readDateFormat.clone() : null;
+        }
+
+        Object decode(Cell cell) {
+            if (cell == null) {
+                return null;
+            }
+            switch (cell.getCellType()) {
+                case Cell.CELL_TYPE_NUMERIC:
+                    return decodeNumeric(cell, cell.getNumericCellValue());
+                case Cell.CELL_TYPE_BOOLEAN:
+                    return cell.getBooleanCellValue();
+                case Cell.CELL_TYPE_FORMULA:
+                    return decodeFormula(cell);
+                case Cell.CELL_TYPE_STRING:
+                    RichTextString rtxt = cell.getRichStringCellValue();
+                    if (rtxt == null) {
+                        return null;
+                    }
+                    return decodeString(rtxt.getString());
+                default:
+                    return null;
+            }
+        }
+
+        private Object decodeFormula(Cell cell) {
+            if (evaluator == null) {
+                evaluator = isXSSFWorkbook() ? new XSSFFormulaEvaluator((XSSFWorkbook) wb)
+                        : new HSSFFormulaEvaluator((HSSFWorkbook) wb);
+            }
+            CellValue cellValue = evaluator.evaluate(cell);
+            if (cellValue == null) {
+                return null;
+            }
+            switch (cellValue.getCellType()) {
+                case Cell.CELL_TYPE_NUMERIC:
+                    return decodeNumeric(cell, cellValue.getNumberValue());
+                case Cell.CELL_TYPE_BOOLEAN:
+                    return cellValue.getBooleanValue();
+                case Cell.CELL_TYPE_STRING:
+                    return decodeString(cellValue.getStringValue());
+                default:
+                    return null;
+            }
+        }
+
+        private Object decodeNumeric(Cell cell, double numericCellValue) {
+            if (isCellDateFormatted(cell, numericCellValue)) {
+                Date date = DateUtil.getJavaDate(numericCellValue, date1904);
+                if (date != null && dateFormat != null) {
+                    return dateFormat.format(date);
+                }
+                return date;
+            }
+            if (isReadNumericAsString()) {
+                if ((long) numericCellValue == numericCellValue) {
+                    return String.valueOf((long) numericCellValue);
+                }
+                return String.valueOf(numericCellValue);
+            }
+            return numericCellValue;
+        }
+
+        private Object decodeString(String str) {
+            if (str == null) {
+                return null;
+            }
+            // 全角空格转为半角空格
+            return str.replace("　", " ");
+        }
+    }
+
     /**
      * The Interface RowCallBack.
      */
@@ -0,0 +1,676 @@
+package com.uetty.common.tool.core.excel;
+
+import org.apache.poi.POIXMLDocument;
+import org.apache.poi.hssf.eventusermodel.FormatTrackingHSSFListener;
+import org.apache.poi.hssf.eventusermodel.HSSFEventFactory;
+import org.apache.poi.hssf.eventusermodel.HSSFListener;
+import org.apache.poi.hssf.eventusermodel.HSSFRequest;
+import org.apache.poi.hssf.eventusermodel.MissingRecordAwareHSSFListener;
+import org.apache.poi.hssf.eventusermodel.dummyrecord.LastCellOfRowDummyRecord;
+import org.apache.poi.hssf.record.BOFRecord;
+import org.apache.poi.hssf.record.BoolErrRecord;
+import org.apache.poi.hssf.record.BoundSheetRecord;
+import org.apache.poi.hssf.record.CellValueRecordInterface;
+import org.apache.poi.hssf.record.DateWindow1904Record;
+import org.apache.poi.hssf.record.EOFRecord;
+import org.apache.poi.hssf.record.FormulaRecord;
+import org.apache.poi.hssf.record.LabelRecord;
+import org.apache.poi.hssf.record.LabelSSTRecord;
+import org.apache.poi.hssf.record.NumberRecord;
+import org.apache.poi.hssf.record.Record;
+import org.apache.poi.hssf.record.SSTRecord;
+import org.apache.poi.hssf.record.StringRecord;
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.poifs.filesystem.NPOIFSFileSystem;
+import org.apache.poi.poifs.filesystem.POIFSFileSystem;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFCellStyle;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
+
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParserFactory;
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.text.DateFormat;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * excel流式读取工具类
+ * <p>支持范围：同时支持xls格式（HSSF事件模型）和xlsx格式（SAX解析sheet xml）的excel
+ * <p>与 {@link ExcelOpe} 不同，不构建整个工作簿的对象模型，按行回调，内存占用与文件大小基本无关，适合大文件导入；
+ * 单元格值的类型与 {@link ExcelOpe#getCellValue} 一致（公式取缓存的计算结果）
+ * <p>传入输入流时先写入临时文件再读取，用完需调用 {@link #close()} 删除临时文件
+ */
+@SuppressWarnings("unused")
+public class ExcelStreamReader implements Closeable {
+
+    private final File file;
+
+    /**
+     * 由输入流生成的临时文件，关闭时删除
+     */
+    private final File tempFile;
+
+    private final boolean isXSSFWorkbook;
+
+    private DateFormat readDateFormat = null;
+
+    private boolean readNumericAsString = false;
+
+    /**
+     * 是否在读取第一个sheet前加载共享字符串表，否则在遇到第一个共享字符串单元格时才加载
+     */
+    private boolean eagerSharedStrings = false;
+
+    public ExcelStreamReader(File file) {
+        this(file, null);
+    }
+
+    public ExcelStreamReader(String filePath) {
+        this(new File(filePath), null);
+    }
+
+    /**
+     * @param is 输入流，读取到临时文件后由调用方关闭
+     */
+    public ExcelStreamReader(InputStream is) {
+        this(null, is);
+    }
+
+    private ExcelStreamReader(File file, InputStream is) {
+        this.tempFile = is != null ? spool(is) : null;
+        this.file = tempFile != null ? tempFile : file;
+        try {
+            try (InputStream fis = new BufferedInputStream(new FileInputStream(this.file), 8)) {
+                if (POIFSFileSystem.hasPOIFSHeader(fis)) {
+                    isXSSFWorkbook = false;
+                } else if (POIXMLDocument.hasOOXMLHeader(fis)) {
+                    isXSSFWorkbook = true;
+                } else {
+                    throw new RuntimeException("invalid excel file header");
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            close();
+            throw e instanceof RuntimeException ? (RuntimeException) e : new RuntimeException(e);
+        }
+    }
+
+    private static File spool(InputStream is) {
+        try {
+            File temp = File.createTempFile("excel-stream-", ".tmp");
+            try {
+                Files.copy(is, temp.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            } catch (IOException e) {
+                Files.deleteIfExists(temp.toPath());
+                throw e;
+            }
+            return temp;
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * 行回调
+     */
+    public interface RowCallback {
+
+        /**
+         * @param sheetNo sheet编号（0,1,2...n）
+         * @param rowNum 行号（0,1,2...n），不存在的行不回调
+         * @param cells 单元格值，按列号排列，空单元格为null；回调结束后列表不再使用，可以保留
+         */
+        void handler(int sheetNo, int rowNum, List<Object> cells);
+    }
+
+    /**
+     * 以表头为key的行回调
+     */
+    public interface MapRowCallback {
+
+        void handler(Map<String, Object> m);
+    }
+
+    /**
+     * 遍历某个sheet的所有行
+     *
+     * @param sheetNo sheet编号（0,1,2...n）
+     * @param callback 行回调
+     */
+    public void read(int sheetNo, RowCallback callback) {
+        doRead(sheetNo, callback);
+    }
+
+    /**
+     * 遍历所有sheet的所有行
+     *
+     * @param callback 行回调
+     */
+    public void readAll(RowCallback callback) {
+        doRead(-1, callback);
+    }
+
+    /**
+     * 遍历行，以keyRowNo行的值作为key
+     *
+     * @param sheetNo sheet编号（0,1,2...n）
+     * @param callback 行回调
+     * @param keyRowNo 作为key的行号 （0,1,2...n）
+     * @param dataStartRowNo 第一行数据的行号 （1,2...n）
+     */
+    public void iterateRows(int sheetNo, MapRowCallback callback, int keyRowNo, int dataStartRowNo) {
+        List<String> keyList = new ArrayList<>();
+        doRead(sheetNo, (sheet, rowNum, cells) -> {
+            if (rowNum == keyRowNo) {
+                for (Object cell : cells) {
+                    keyList.add(cell != null ? cell.toString() : null);
+                }
+                return;
+            }
+            if (rowNum < dataStartRowNo) {
+                return;
+            }
+            Map<String, Object> rowMap = new HashMap<>();
+            for (int j = 0; j < cells.size() && j < keyList.size(); j++) {
+                String key = keyList.get(j);
+                if (key == null || "".equals(key)) {
+                    continue;
+                }
+                rowMap.put(key, cells.get(j));
+            }
+            callback.handler(rowMap);
+        });
+    }
+
+    /**
+     * sheet名称列表（xlsx只读取workbook.xml，xls需要扫描一遍文件）
+     */
+    public List<String> getSheetNames() {
+        try {
+            if (isXSSFWorkbook) {
+                try (OPCPackage pkg = OPCPackage.open(file, PackageAccess.READ)) {
+                    List<String> names = new ArrayList<>();
+                    XSSFReader.SheetIterator sheets = (XSSFReader.SheetIterator) new XSSFReader(pkg).getSheetsData();
+                    while (sheets.hasNext()) {
+                        sheets.next().close();
+                        names.add(sheets.getSheetName());
+                    }
+                    return names;
+                }
+            }
+            HssfHandler handler = new HssfHandler(Integer.MAX_VALUE, null);
+            handler.process();
+            return handler.sheetNames;
+        } catch (IOException | OpenXML4JException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private void doRead(int sheetNo, RowCallback callback) {
+        try {
+            if (isXSSFWorkbook) {
+                readXlsx(sheetNo, callback);
+            } else {
+                new HssfHandler(sheetNo, callback).process();
+            }
+        } catch (IOException | OpenXML4JException | SAXException | ParserConfigurationException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private void readXlsx(int sheetNo, RowCallback callback)
+            throws IOException, OpenXML4JException, SAXException, ParserConfigurationException {
+        try (OPCPackage pkg = OPCPackage.open(file, PackageAccess.READ)) {
+            XSSFReader reader = new XSSFReader(pkg);
+            XlsxContext context = new XlsxContext(pkg, reader.getStylesTable(), readDate1904(reader));
+            if (eagerSharedStrings) {
+                context.sharedStrings();
+            }
+
+            Iterator<InputStream> sheets = reader.getSheetsData();
+            int index = 0;
+            while (sheets.hasNext()) {
+                try (InputStream sheetStream = sheets.next()) {
+                    if (sheetNo < 0 || index == sheetNo) {
+                        XMLReader xmlReader = newXmlReader();
+                        xmlReader.setContentHandler(new XlsxSheetHandler(index, context, callback));
+                        xmlReader.parse(new InputSource(sheetStream));
+                    }
+                }
+                if (index == sheetNo) {
+                    return;
+                }
+                index++;
+            }
+        }
+    }
+
+    private static boolean readDate1904(XSSFReader reader)
+            throws IOException, OpenXML4JException, SAXException, ParserConfigurationException {
+        boolean[] date1904 = new boolean[1];
+        try (InputStream workbookStream = reader.getWorkbookData()) {
+            XMLReader xmlReader = newXmlReader();
+            xmlReader.setContentHandler(new DefaultHandler() {
+                @Override
+                public void startElement(String uri, String localName, String qName, Attributes attributes) {
+                    if ("workbookPr".equals(localName)) {
+                        String value = attributes.getValue("date1904");
+                        date1904[0] = "1".equals(value) || "true".equalsIgnoreCase(value);
+                    }
+                }
+            });
+            xmlReader.parse(new InputSource(workbookStream));
+        }
+        return date1904[0];
+    }
+
+    private static XMLReader newXmlReader() throws ParserConfigurationException, SAXException {
+        SAXParserFactory factory = SAXParserFactory.newInstance();
+        factory.setNamespaceAware(true);
+        try {
+            // 禁止DTD，防止XXE
+            factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+        } catch (Exception ignore) {}
+        return factory.newSAXParser().getXMLReader();
+    }
+
+    private Object numericValue(double value, boolean isDate, boolean date1904) {
+        if (isDate) {
+            Object date = DateUtil.getJavaDate(value, date1904);
+            if (getReadDateFormat() != null) {
+                date = getReadDateFormat().format(date);
+            }
+            return date;
+        }
+        if (this.isReadNumericAsString()) {
+            if ((long) value == value) {
+                return String.valueOf((long) value);
+            } else {
+                return String.valueOf(value);
+            }
+        }
+        return value;
+    }
+
+    private static String stringValue(String value) {
+        // 全角空格转为半角空格
+        return value != null ? value.replace("　", " ") : null;
+    }
+
+    private static void setCell(List<Object> cells, int col, Object value) {
+        while (cells.size() < col) {
+            cells.add(null);
+        }
+        if (cells.size() == col) {
+            cells.add(value);
+        } else {
+            cells.set(col, value);
+        }
+    }
+
+    /**
+     * 单元格引用（如AB12）中的列号
+     */
+    private static int columnOf(String cellRef) {
+        int col = 0;
+        for (int i = 0; i < cellRef.length(); i++) {
+            char c = cellRef.charAt(i);
+            if (c < 'A' || c > 'Z') {
+                break;
+            }
+            col = col * 26 + (c - 'A' + 1);
+        }
+        return col - 1;
+    }
+
+    /**
+     * xlsx读取上下文：共享字符串表延迟加载，样式是否为日期格式按样式号缓存
+     */
+    private static class XlsxContext {
+        private final OPCPackage pkg;
+        private final StylesTable stylesTable;
+        private final boolean date1904;
+        private final Map<Integer, Boolean> dateStyleCache = new HashMap<>();
+        private ReadOnlySharedStringsTable sharedStrings;
+
+        XlsxContext(OPCPackage pkg, StylesTable stylesTable, boolean date1904) {
+            this.pkg = pkg;
+            this.stylesTable = stylesTable;
+            this.date1904 = date1904;
+        }
+
+        ReadOnlySharedStringsTable sharedStrings() throws IOException, SAXException {
+            if (sharedStrings == null) {
+                sharedStrings = new ReadOnlySharedStringsTable(pkg);
+            }
+            return sharedStrings;
+        }
+
+        boolean isDateStyle(int styleIndex) {
+            if (stylesTable == null || styleIndex < 0) {
+                return false;
+            }
+            return dateStyleCache.computeIfAbsent(styleIndex, idx -> {
+                if (idx >= stylesTable.getNumCellStyles()) {
+                    return false;
+                }
+                XSSFCellStyle style = stylesTable.getStyleAt(idx);
+                return style != null && DateUtil.isADateFormat(style.getDataFormat(), style.getDataFormatString());
+            });
+        }
+    }
+
+    /**
+     * sheet xml 的SAX处理：row/c/v/is/t
+     */
+    private class XlsxSheetHandler extends DefaultHandler {
+        private final int sheetNo;
+        private final XlsxContext context;
+        private final RowCallback callback;
+
+        private final StringBuilder text = new StringBuilder();
+        private List<Object> cells;
+        private int rowNum;
+        private int nextRowNum = 0;
+
+        private int col;
+        private String cellType;
+        private int styleIndex;
+        private boolean hasValue;
+        private boolean inValue;
+        private boolean inInlineString;
+        private boolean inText;
+
+        XlsxSheetHandler(int sheetNo, XlsxContext context, RowCallback callback) {
+            this.sheetNo = sheetNo;
+            this.context = context;
+            this.callback = callback;
+        }
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attributes) {
+            switch (localName) {
+                case "row":
+                    String r = attributes.getValue("r");
+                    rowNum = r != null ? Integer.parseInt(r) - 1 : nextRowNum;
+                    cells = new ArrayList<>();
+                    break;
+                case "c":
+                    String ref = attributes.getValue("r");
+                    col = ref != null ? columnOf(ref) : cells.size();
+                    cellType = attributes.getValue("t");
+                    String s = attributes.getValue("s");
+                    styleIndex = s != null ? Integer.parseInt(s) : -1;
+                    hasValue = false;
+                    text.setLength(0);
+                    break;
+                case "v":
+                    inValue = true;
+                    text.setLength(0);
+                    break;
+                case "is":
+                    inInlineString = true;
+                    text.setLength(0);
+                    break;
+                case "t":
+                    inText = inInlineString;
+                    break;
+                default:
+            }
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length) {
+            if (inValue || inText) {
+                text.append(ch, start, length);
+            }
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) throws SAXException {
+            switch (localName) {
+                case "v":
+                    inValue = false;
+                    hasValue = true;
+                    break;
+                case "t":
+                    inText = false;
+                    break;
+                case "is":
+                    inInlineString = false;
+                    hasValue = true;
+                    break;
+                case "c":
+                    if (hasValue) {
+                        setCell(cells, col, decode());
+                    }
+                    break;
+                case "row":
+                    callback.handler(sheetNo, rowNum, cells);
+                    nextRowNum = rowNum + 1;
+                    cells = null;
+                    break;
+                default:
+            }
+        }
+
+        private Object decode() throws SAXException {
+            String value = text.toString();
+            if (cellType == null || "n".equals(cellType)) {
+                if (value.isEmpty()) {
+                    return null;
+                }
+                return numericValue(Double.parseDouble(value), context.isDateStyle(styleIndex), context.date1904);
+            }
+            switch (cellType) {
+                case "s":
+                    try {
+                        return stringValue(context.sharedStrings().getEntryAt(Integer.parseInt(value)));
+                    } catch (IOException e) {
+                        throw new SAXException(e);
+                    }
+                case "inlineStr":
+                case "str":
+                    return stringValue(value);
+                case "b":
+                    return "1".equals(value) || "true".equalsIgnoreCase(value);
+                case "d":
+                    return value;
+                default:
+                    // 错误值（#DIV/0!等）
+                    return null;
+            }
+        }
+    }
+
+    /**
+     * xls事件模型处理，单元格记录按行到达，行结束时回调
+     */
+    private class HssfHandler implements HSSFListener {
+        private final int targetSheet;
+        private final RowCallback callback;
+        private final FormatTrackingHSSFListener formatListener;
+        private final Map<Integer, Boolean> dateFormatCache = new HashMap<>();
+
+        private final List<String> sheetNames = new ArrayList<>();
+        private SSTRecord sstRecord;
+        private boolean date1904;
+        private int sheetIndex = -1;
+        private boolean inTargetSheet;
+
+        private List<Object> cells;
+        private int pendingStringRow = -1;
+        private int pendingStringCol = -1;
+
+        HssfHandler(int targetSheet, RowCallback callback) {
+            this.targetSheet = targetSheet;
+            this.callback = callback;
+            this.formatListener = new FormatTrackingHSSFListener(new MissingRecordAwareHSSFListener(this));
+        }
+
+        void process() throws IOException {
+            try (NPOIFSFileSystem fs = new NPOIFSFileSystem(file, true)) {
+                HSSFRequest request = new HSSFRequest();
+                request.addListenerForAllRecords(formatListener);
+                new HSSFEventFactory().processWorkbookEvents(request, fs.getRoot());
+            }
+        }
+
+        @Override
+        public void processRecord(Record record) {
+            switch (record.getSid()) {
+                case BoundSheetRecord.sid:
+                    sheetNames.add(((BoundSheetRecord) record).getSheetname());
+                    return;
+                case BOFRecord.sid:
+                    if (((BOFRecord) record).getType() == BOFRecord.TYPE_WORKSHEET) {
+                        sheetIndex++;
+                        inTargetSheet = callback != null && (targetSheet < 0 || sheetIndex == targetSheet);
+                    }
+                    return;
+                case EOFRecord.sid:
+                    inTargetSheet = false;
+                    return;
+                case SSTRecord.sid:
+                    sstRecord = (SSTRecord) record;
+                    return;
+                case DateWindow1904Record.sid:
+                    date1904 = ((DateWindow1904Record) record).getWindowing() == 1;
+                    return;
+                default:
+            }
+            if (!inTargetSheet) {
+                return;
+            }
+
+            switch (record.getSid()) {
+                case NumberRecord.sid:
+                    NumberRecord number = (NumberRecord) record;
+                    setValue(number, numericValue(number.getValue(), isDateFormatted(number), date1904));
+                    break;
+                case LabelSSTRecord.sid:
+                    LabelSSTRecord label = (LabelSSTRecord) record;
+                    setValue(label, stringValue(sstRecord.getString(label.getSSTIndex()).getString()));
+                    break;
+                case LabelRecord.sid:
+                    LabelRecord labelRecord = (LabelRecord) record;
+                    setValue(labelRecord, stringValue(labelRecord.getValue()));
+                    break;
+                case BoolErrRecord.sid:
+                    BoolErrRecord boolErr = (BoolErrRecord) record;
+                    setValue(boolErr, boolErr.isBoolean() ? boolErr.getBooleanValue() : null);
+                    break;
+                case FormulaRecord.sid:
+                    processFormula((FormulaRecord) record);
+                    break;
+                case StringRecord.sid:
+                    if (pendingStringRow >= 0) {
+                        ensureRow();
+                        setCell(cells, pendingStringCol, stringValue(((StringRecord) record).getString()));
+                        pendingStringRow = -1;
+                    }
+                    break;
+                default:
+                    if (record instanceof LastCellOfRowDummyRecord) {
+                        if (cells != null) {
+                            callback.handler(sheetIndex, ((LastCellOfRowDummyRecord) record).getRow(), cells);
+                            cells = null;
+                        }
+                    }
+            }
+        }
+
+        @SuppressWarnings("deprecation")
+        private void processFormula(FormulaRecord formula) {
+            switch (formula.getCachedResultType()) {
+                case Cell.CELL_TYPE_STRING:
+                    // 字符串结果在紧随其后的StringRecord中
+                    pendingStringRow = formula.getRow();
+                    pendingStringCol = formula.getColumn();
+                    ensureRow();
+                    break;
+                case Cell.CELL_TYPE_BOOLEAN:
+                    setValue(formula, formula.getCachedBooleanValue());
+                    break;
+                case Cell.CELL_TYPE_NUMERIC:
+                    setValue(formula, numericValue(formula.getValue(), isDateFormatted(formula), date1904));
+                    break;
+                default:
+                    setValue(formula, null);
+            }
+        }
+
+        private boolean isDateFormatted(CellValueRecordInterface record) {
+            int formatIndex = formatListener.getFormatIndex(record);
+            return dateFormatCache.computeIfAbsent(formatIndex,
+                    idx -> DateUtil.isADateFormat(idx, formatListener.getFormatString(record)));
+        }
+
+        private void ensureRow() {
+            if (cells == null) {
+                cells = new ArrayList<>();
+            }
+        }
+
+        private void setValue(CellValueRecordInterface record, Object value) {
+            ensureRow();
+            setCell(cells, record.getColumn(), value);
+        }
+    }
+
+    public boolean isReadNumericAsString() {
+        return readNumericAsString;
+    }
+
+    public void setReadNumericAsString(boolean readNumericAsString) {
+        this.readNumericAsString = readNumericAsString;
+    }
+
+    public DateFormat getReadDateFormat() {
+        return readDateFormat;
+    }
+
+    public void setReadDateFormat(DateFormat readDateFormat) {
+        this.readDateFormat = readDateFormat;
+    }
+
+    public boolean isEagerSharedStrings() {
+        return eagerSharedStrings;
+    }
+
+    public void setEagerSharedStrings(boolean eagerSharedStrings) {
+        this.eagerSharedStrings = eagerSharedStrings;
+    }
+
+    public boolean isXSSFWorkbook() {
+        return isXSSFWorkbook;
+    }
+
+    @Override
+    public void close() {
+        if (tempFile != null && tempFile.exists() && !tempFile.delete()) {
+            tempFile.deleteOnExit();
+        }
+    }
+}
@@ -1,9 +1,12 @@
 package com.uetty.common.tool.core.jdbc;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * 动态显示sql代码块工具
@@ -19,11 +22,21 @@ public class DynamicSqlLoader {
 	private static final char[] BLOCK_OPEN_CHARS = BLOCK_OPEN.toCharArray(); // 匹配开头
 	private static final char[] BLOCK_MIDDLE_CHARS = BLOCK_MIDDLE.toCharArray(); // 匹配中间部分
 	private static final char[] BLOCK_CLOSE_CHARS = BLOCK_CLOSE.toCharArray(); // 匹配结尾
+
+	private static final String PLAN_BLOCKS = "blocks";
+	private static final String PLAN_SQL = "sql";
 	
+	/**
+	 * 模板解析结果与sql拼接计划的缓存，同一模板只解析一次；
+	 * 计划只与显示、替换了哪些命名空间有关，替换内容在生成sql时填入，不进入缓存
+	 */
+	private static final SqlPlanCache PLAN_CACHE = new SqlPlanCache();
+
 	private final String rawTempSql;
-	private final List<DynamicBlock> blockList = new ArrayList<>();
+	private List<DynamicBlock> blockList = Collections.emptyList(); // 解析结果在实例间共享，只读
 	private final Map<String, Boolean> namespaceModeMap = new HashMap<>();
 	private final Map<String, String> namespaceReplaceMap = new HashMap<>();
+	private String[] sqlParts; // 当前显示设置对应的拼接计划，设置变化时置空
 	
 	public DynamicSqlLoader(String tempSql) {
 		this.rawTempSql = tempSql;
@@ -36,28 +49,44 @@ public class DynamicSqlLoader {
 	 */
 	public void setNamespaceMode(String namespace, boolean isShow) {
 		namespaceModeMap.put(namespace, isShow);
+		sqlParts = null;
 	}
 	
 	public void setNamespaceReplace(String namespace, String replaceStr) {
 		if (replaceStr != null) {
 			namespaceReplaceMap.put(namespace, replaceStr);
 			namespaceModeMap.put(namespace, true);
+			sqlParts = null;
 		}
 	}
 	
 	public void clearBlockList() {
-		blockList.clear();
+		blockList = Collections.emptyList();
+		sqlParts = null;
+	}
+
+	/**
+	 * 模板解析与sql生成的缓存（用于查看命中数等）
+	 */
+	public static SqlPlanCache getPlanCache() {
+		return PLAN_CACHE;
 	}
 	
 	public void clearModeSet() {
 		namespaceModeMap.clear();
 		namespaceReplaceMap.clear();
+		sqlParts = null;
 	}
 
 	/**
 	 *  检测动态代码块区域
 	 */
 	private void testBlock() {
+		blockList = PLAN_CACHE.get(SqlPlanCache.key(PLAN_BLOCKS, rawTempSql), () -> parseBlocks(rawTempSql));
+	}
+
+	private static List<DynamicBlock> parseBlocks(String rawTempSql) {
+		List<DynamicBlock> blockList = new ArrayList<>();
 		char[] charArray = rawTempSql.toCharArray();
 		List<DynamicBlock> openStack = new ArrayList<>(); // open标志栈
 		List<DynamicBlock> middleStack = new ArrayList<>(); // middle标志栈
@@ -106,10 +135,11 @@ public class DynamicSqlLoader {
 			DynamicBlock ml = openStack.remove(openStack.size() - 1);
 			throw new RuntimeException("'" + new String(BLOCK_MIDDLE_CHARS) + "' not found in tempSql '" + rawTempSql.substring(ml.open + BLOCK_OPEN_CHARS.length) + "'");
 		}
+		return Collections.unmodifiableList(blockList);
 	}
 	
 	
-	private boolean matchOpen(int index, char[] charArray) {
+	private static boolean matchOpen(int index, char[] charArray) {
 		if (charArray.length < BLOCK_OPEN_CHARS.length + index) {
 			return false;
 		}
@@ -121,7 +151,7 @@ public class DynamicSqlLoader {
 		return true;
 	}
 	
-	private boolean matchMiddle(int index, char[] charArray) {
+	private static boolean matchMiddle(int index, char[] charArray) {
 		if (charArray.length < BLOCK_MIDDLE_CHARS.length + index) {
 			return false;
 		}
@@ -133,7 +163,7 @@ public class DynamicSqlLoader {
 		return true;
 	}
 	
-	private boolean matchClose(int index, char[] charArray) {
+	private static boolean matchClose(int index, char[] charArray) {
 		if (charArray.length < BLOCK_CLOSE_CHARS.length + index) {
 			return false;
 		}
@@ -146,10 +176,38 @@ public class DynamicSqlLoader {
 	}
 	
 	public String loadSql() {
-		if (blockList.size() == 0) {
-			testBlock();
+		String[] parts = sqlParts;
+		if (parts == null) {
+			if (blockList.size() == 0) {
+				testBlock();
+			}
+			// 相同模板下，显示与替换的命名空间相同时拼接计划相同
+			Set<String> shown = new HashSet<>();
+			for (Map.Entry<String, Boolean> entry : namespaceModeMap.entrySet()) {
+				if (entry.getValue()) {
+					shown.add(entry.getKey());
+				}
+			}
+			Object planKey = SqlPlanCache.key(PLAN_SQL, rawTempSql, shown, new HashSet<>(namespaceReplaceMap.keySet()));
+			parts = PLAN_CACHE.get(planKey, this::buildPlan);
+			sqlParts = parts;
+		}
+		if (parts.length == 1) {
+			return parts[0];
 		}
-		
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < parts.length; i++) {
+			// 偶数位为sql片段，奇数位为替换的命名空间
+			sb.append(i % 2 == 0 ? parts[i] : namespaceReplaceMap.get(parts[i]));
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * 生成拼接计划：sql片段与替换的命名空间交替排列，首尾均为sql片段
+	 */
+	private String[] buildPlan() {
+		List<String> parts = new ArrayList<>();
 		StringBuilder sb = new StringBuilder();
 		List<Integer> closeIndexStack; // 待处理close标志栈
 		closeIndexStack = new ArrayList<>();
@@ -167,9 +225,11 @@ public class DynamicSqlLoader {
 					Boolean boo = namespaceModeMap.get(block.namespace);
 					if (boo != null && boo) { // 显示区块
 						String replaceStr = namespaceReplaceMap.get(block.namespace);
-						if (replaceStr != null) { // 区块替换
+						if (replaceStr != null) { // 区块替换，替换内容在生成sql时填入
 							index = block.close + BLOCK_CLOSE_CHARS.length;
-							sb.append(replaceStr);
+							parts.add(sb.toString());
+							parts.add(block.namespace);
+							sb.setLength(0);
 						} else { // 正常显示
 							index = block.middle + BLOCK_MIDDLE_CHARS.length;
 							closeIndexStack.add(block.close);// 栈中添加待处理的close标志位置
@@ -202,8 +262,9 @@ public class DynamicSqlLoader {
 				
 		}
 		sb.append(rawTempSql.substring(index));
+		parts.add(sb.toString());
 		
-		return sb.toString();
+		return parts.toArray(new String[0]);
 	}
 	
 	// 动态代码块区域
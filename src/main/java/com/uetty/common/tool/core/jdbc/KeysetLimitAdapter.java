@@ -0,0 +1,42 @@
+package com.uetty.common.tool.core.jdbc;
+
+/**
+ * 键集分页 LIMIT条件 适配器
+ * <p>第一页不传after，之后每页传入上一页最后一行的排序列值</p>
+ */
+public class KeysetLimitAdapter implements LimitAdapter {
+
+	private final int pageSize;
+	private final Object[] after;
+
+	/**
+	 * @param pageSize 每页条数
+	 * @param after 上一页最后一行的排序列值，与 {@link OrderAdapter#getKeysetColumns()} 一一对应
+	 */
+	public KeysetLimitAdapter(int pageSize, Object... after) {
+		this.pageSize = pageSize;
+		this.after = after != null && after.length > 0 ? after : null;
+	}
+
+	@Override
+	public String getLimit() {
+		return "LIMIT " + pageSize;
+	}
+
+	@Override
+	public Object[] getKeysetAfter() {
+		return after;
+	}
+
+	/**
+	 * 键集分页的sql只与每页行数有关
+	 */
+	@Override
+	public Object getPlanKey() {
+		return pageSize;
+	}
+
+	public int getPageSize() {
+		return pageSize;
+	}
+}
@@ -7,5 +7,21 @@ package com.uetty.common.tool.core.jdbc;
 public interface LimitAdapter {
 
 	String getLimit();
-	
+
+	/**
+	 * 键集分页（keyset pagination）时上一页最后一行的排序列值，与 {@link OrderAdapter#getKeysetColumns()} 一一对应
+	 * <p>返回null时查询第一页；使用键集分页时 getLimit() 只限制条数，不再使用OFFSET，深分页无需扫描跳过的行</p>
+	 */
+	default Object[] getKeysetAfter() {
+		return null;
+	}
+
+	/**
+	 * sql形态的key，用于缓存拼接出的sql，返回null（默认）时不缓存
+	 * <p>返回值相同时 {@link #getLimit()} 必须相同；带偏移量等一次性取值的分页不建议返回key，
+	 * 不同实现类的key互不影响，不需要包含类型信息</p>
+	 */
+	default Object getPlanKey() {
+		return null;
+	}
 }
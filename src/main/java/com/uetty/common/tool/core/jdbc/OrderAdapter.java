@@ -11,4 +11,28 @@ public interface OrderAdapter {
 	String getOrder();
 	
 	Map<String, String> getJoinMap();
+
+	/**
+	 * 键集分页使用的排序列，需与 getOrder() 的排序列顺序一致，且组合唯一（一般以主键结尾）
+	 * <p>返回null或空数组时不使用键集分页</p>
+	 */
+	default String[] getKeysetColumns() {
+		return null;
+	}
+
+	/**
+	 * 键集分页的排序方向是否为降序（所有排序列方向一致）
+	 */
+	default boolean isKeysetDescending() {
+		return false;
+	}
+
+	/**
+	 * sql形态的key，用于缓存拼接出的sql，返回null（默认）时不缓存
+	 * <p>返回值相同时，拼接出的排序、join条件以及键集列和方向必须相同；
+	 * 不同实现类的key互不影响，不需要包含类型信息</p>
+	 */
+	default Object getPlanKey() {
+		return null;
+	}
 }
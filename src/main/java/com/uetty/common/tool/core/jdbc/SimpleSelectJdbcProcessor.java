@@ -9,6 +9,9 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.*;
 import java.util.Map.Entry;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * 简单查询sql处理器抽象
@@ -20,7 +23,22 @@ public abstract class SimpleSelectJdbcProcessor<T> {
 
 	private static final Logger logger = LoggerFactory.getLogger(SimpleSelectJdbcProcessor.class);
 	
+	/**
+	 * 流式查询默认每次从数据库取回的行数
+	 */
+	public static final int DEFAULT_FETCH_SIZE = 1000;
+
+	private static final String PLAN_LIST = "list";
+	private static final String PLAN_COUNT = "count";
+
+	/**
+	 * 按适配器拼接出的sql缓存，以各适配器的类型和 getPlanKey() 为key，命中时不再调用拼接sql的方法；
+	 * 同一sql字符串配合驱动或连接池的预编译语句缓存（如MySQL cachePrepStmts）可复用服务端预编译结果
+	 */
+	private static final SqlPlanCache PLAN_CACHE = new SqlPlanCache();
+
 	boolean developMode = false;
+	int fetchSize = DEFAULT_FETCH_SIZE; // 流式查询每次取回的行数
 	GroupAdapter groupAdapter; // group条件适配器
 	LimitAdapter limitAdapter; // limit条件适配器
 	SelectAdapter<T> selectAdapter; // select条件适配器
@@ -35,6 +53,21 @@ public abstract class SimpleSelectJdbcProcessor<T> {
 		this.developMode = developMode;
 	}
 
+	/**
+	 * sql计划缓存（用于查看命中数等）
+	 */
+	public static SqlPlanCache getPlanCache() {
+		return PLAN_CACHE;
+	}
+
+	public int getFetchSize() {
+		return fetchSize;
+	}
+
+	public void setFetchSize(int fetchSize) {
+		this.fetchSize = fetchSize;
+	}
+
 	public GroupAdapter getGroupAdapter() {
 		return groupAdapter;
 	}
@@ -100,53 +133,12 @@ public abstract class SimpleSelectJdbcProcessor<T> {
 		return joinMap;
 	}
 	
-	@SuppressWarnings("UnusedAssignment")
 	public List<T> searchList(Connection conn) {
 		PreparedStatement pstmt = null;
 		ResultSet rs = null;
 		List<T> list = new ArrayList<>();
 		try {
-			assert(selectAdapter != null);
-			
-			StringBuilder sb = new StringBuilder();
-			// select
-			String selectSql = selectAdapter.getSelectSql();
-			sb.append(selectSql);
-			// join
-			Map<String, String> joinMap = getAllJoinMap();
-			for (Entry<String, String> next : joinMap.entrySet()) {
-				sb.append(" ").append(next.getValue());
-			}
-			// where
-			if (whereAdapter != null) {
-				String whereCase = whereAdapter.getWhereCase();
-				sb.append(" ").append(whereCase);
-			}
-			// group
-			if (groupAdapter != null) {
-				String groupBy = groupAdapter.getGroupBy();
-				sb.append(" ").append(groupBy);
-			}
-			// order
-			if (orderAdapter != null) {
-				String order = orderAdapter.getOrder();
-				sb.append(" ").append(order);
-			}
-			// limit
-			if (limitAdapter != null) {
-				String limit = limitAdapter.getLimit();
-				sb.append(" ").append(limit);
-			}
-			
-			if (this.developMode) {
-				logger.debug(sb.toString());
-			}
-			
-			pstmt = conn.prepareStatement(sb.toString());
-			if (whereAdapter != null) {
-				int index = 1;
-				index = whereAdapter.setStatements(index, pstmt);
-			}
+			pstmt = prepareList(conn, false);
 			rs = pstmt.executeQuery();
 			while (rs.next()) {
 				list.add(selectAdapter.readData(rs));
@@ -155,22 +147,262 @@ public abstract class SimpleSelectJdbcProcessor<T> {
 			logger.error("Error occured when search List", e);
 			throw new RuntimeException(e.getMessage(), e);
 		} finally {
-			if (rs != null) {
-				try {
-					rs.close();
-				} catch (SQLException e) {
-					e.printStackTrace();
-				}
+			closeQuietly(rs, pstmt);
+		}
+		return list;
+	}
+
+	/**
+	 * 流式查询，逐行回调，结果集不在内存中累积
+	 * <p>使用只进、只读游标并设置 fetchSize；MySQL 需要 fetchSize 设为 Integer.MIN_VALUE 或连接参数 useCursorFetch=true，
+	 * PostgreSQL 需要关闭自动提交，否则驱动仍会一次取回全部结果</p>
+	 * @param conn 数据库连接，由调用方关闭
+	 * @param consumer 行处理
+	 * @return 处理的行数
+	 */
+	public long searchEach(Connection conn, Consumer<T> consumer) {
+		PreparedStatement pstmt = null;
+		ResultSet rs = null;
+		long count = 0;
+		try {
+			pstmt = prepareList(conn, true);
+			rs = pstmt.executeQuery();
+			while (rs.next()) {
+				consumer.accept(selectAdapter.readData(rs));
+				count++;
 			}
-			if (pstmt != null) {
+		} catch (Throwable e) {
+			logger.error("Error occured when search each", e);
+			throw new RuntimeException(e.getMessage(), e);
+		} finally {
+			closeQuietly(rs, pstmt);
+		}
+		return count;
+	}
+
+	/**
+	 * 流式查询，返回逐行读取的Stream
+	 * <p>返回的Stream必须关闭（建议 try-with-resources），关闭时释放ResultSet和PreparedStatement；游标设置同 {@link #searchEach(Connection, Consumer)}</p>
+	 * @param conn 数据库连接，由调用方关闭，Stream关闭前不能关闭连接
+	 */
+	public Stream<T> searchStream(Connection conn) {
+		PreparedStatement pstmt = null;
+		ResultSet rs = null;
+		try {
+			pstmt = prepareList(conn, true);
+			rs = pstmt.executeQuery();
+		} catch (Throwable e) {
+			closeQuietly(rs, pstmt);
+			logger.error("Error occured when search stream", e);
+			throw new RuntimeException(e.getMessage(), e);
+		}
+
+		final PreparedStatement statement = pstmt;
+		final ResultSet resultSet = rs;
+		Spliterator<T> spliterator = new Spliterators.AbstractSpliterator<T>(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL) {
+			@Override
+			public boolean tryAdvance(Consumer<? super T> action) {
 				try {
-					pstmt.close();
+					if (!resultSet.next()) {
+						return false;
+					}
+					action.accept(selectAdapter.readData(resultSet));
+					return true;
 				} catch (SQLException e) {
-					e.printStackTrace();
+					logger.error("Error occured when search stream", e);
+					throw new RuntimeException(e.getMessage(), e);
 				}
 			}
+		};
+		return StreamSupport.stream(spliterator, false).onClose(() -> closeQuietly(resultSet, statement));
+	}
+
+	/**
+	 * 拼接列表查询sql并设置参数
+	 * @param streaming 是否流式读取
+	 */
+	private PreparedStatement prepareList(Connection conn, boolean streaming) throws SQLException {
+		assert(selectAdapter != null);
+
+		String[] keysetColumns = orderAdapter != null ? orderAdapter.getKeysetColumns() : null;
+		Object[] keysetAfter = limitAdapter != null ? limitAdapter.getKeysetAfter() : null;
+		boolean keyset = keysetColumns != null && keysetColumns.length > 0 && keysetAfter != null;
+		if (keyset && keysetAfter.length != keysetColumns.length) {
+			throw new IllegalArgumentException("keyset values count " + keysetAfter.length
+					+ " not match keyset columns count " + keysetColumns.length);
+		}
+
+		boolean descending = keyset && orderAdapter.isKeysetDescending();
+
+		Object planKey = planKey(PLAN_LIST, true, keyset);
+		String sql = planKey != null
+				? PLAN_CACHE.get(planKey, () -> buildListSql(keyset, keysetColumns, descending))
+				: buildListSql(keyset, keysetColumns, descending);
+
+		if (this.developMode) {
+			logger.debug(sql);
+		}
+
+		PreparedStatement pstmt;
+		if (streaming) {
+			pstmt = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+			pstmt.setFetchSize(fetchSize);
+		} else {
+			pstmt = conn.prepareStatement(sql);
+		}
+		try {
+			int index = 1;
+			if (whereAdapter != null) {
+				index = whereAdapter.setStatements(index, pstmt);
+			}
+			if (keyset) {
+				setKeysetStatements(index, pstmt, keysetAfter);
+			}
+		} catch (SQLException | RuntimeException e) {
+			closeQuietly(null, pstmt);
+			throw e;
+		}
+		return pstmt;
+	}
+
+	private String buildListSql(boolean keyset, String[] keysetColumns, boolean descending) {
+		String whereCase = whereAdapter != null ? whereAdapter.getWhereCase() : null;
+		if (keyset) {
+			whereCase = appendKeysetCase(whereCase, keysetColumns, descending);
+		}
+		return buildSql(selectAdapter.getSelectSql(), getAllJoinMap(), whereCase,
+				groupAdapter != null ? groupAdapter.getGroupBy() : null,
+				orderAdapter != null ? orderAdapter.getOrder() : null,
+				limitAdapter != null ? limitAdapter.getLimit() : null);
+	}
+
+	private String buildCountSql() {
+		return buildSql(selectAdapter.getSelectSql(), getSearchCountJoinMap(),
+				whereAdapter != null ? whereAdapter.getWhereCase() : null,
+				groupAdapter != null ? groupAdapter.getGroupBy() : null, null, null);
+	}
+
+	private static String buildSql(String selectSql, Map<String, String> joinMap, String whereCase,
+								   String groupBy, String order, String limit) {
+		StringBuilder sb = new StringBuilder();
+		// select
+		sb.append(selectSql);
+		// join
+		for (Entry<String, String> next : joinMap.entrySet()) {
+			sb.append(" ").append(next.getValue());
+		}
+		// where
+		if (whereCase != null) {
+			sb.append(" ").append(whereCase);
+		}
+		// group
+		if (groupBy != null) {
+			sb.append(" ").append(groupBy);
+		}
+		// order
+		if (order != null) {
+			sb.append(" ").append(order);
+		}
+		// limit
+		if (limit != null) {
+			sb.append(" ").append(limit);
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * 由各适配器的类型与 getPlanKey() 组成计划key，只取sql形态而不拼接sql；
+	 * 任一参与拼接的适配器未提供key时返回null，此时不缓存
+	 * @param withOrderAndLimit 是否包含排序与分页适配器
+	 * @param keyset 是否追加了键集条件
+	 */
+	private Object planKey(String type, boolean withOrderAndLimit, boolean keyset) {
+		Object selectKey = selectAdapter.getPlanKey();
+		if (selectKey == null) {
+			return null;
+		}
+		Object whereKey = null;
+		if (whereAdapter != null && (whereKey = whereAdapter.getPlanKey()) == null) {
+			return null;
+		}
+		Object groupKey = null;
+		if (groupAdapter != null && (groupKey = groupAdapter.getPlanKey()) == null) {
+			return null;
+		}
+		if (!withOrderAndLimit) {
+			return SqlPlanCache.key(type, selectAdapter.getClass(), selectKey,
+					typeOf(whereAdapter), whereKey, typeOf(groupAdapter), groupKey);
+		}
+		Object orderKey = null;
+		if (orderAdapter != null && (orderKey = orderAdapter.getPlanKey()) == null) {
+			return null;
+		}
+		Object limitKey = null;
+		if (limitAdapter != null && (limitKey = limitAdapter.getPlanKey()) == null) {
+			return null;
+		}
+		return SqlPlanCache.key(type, selectAdapter.getClass(), selectKey,
+				typeOf(whereAdapter), whereKey, typeOf(groupAdapter), groupKey,
+				typeOf(orderAdapter), orderKey, typeOf(limitAdapter), limitKey, keyset);
+	}
+
+	private static Class<?> typeOf(Object adapter) {
+		return adapter != null ? adapter.getClass() : null;
+	}
+
+	/**
+	 * 在where条件后追加键集条件，展开为 (a &gt; ?) OR (a = ? AND b &gt; ?) ...，不依赖行值比较语法
+	 */
+	private static String appendKeysetCase(String whereCase, String[] columns, boolean descending) {
+		String op = descending ? " < ?" : " > ?";
+		StringBuilder keysetCase = new StringBuilder();
+		for (int i = 0; i < columns.length; i++) {
+			if (i > 0) {
+				keysetCase.append(" OR ");
+			}
+			keysetCase.append("(");
+			for (int j = 0; j < i; j++) {
+				keysetCase.append(columns[j]).append(" = ? AND ");
+			}
+			keysetCase.append(columns[i]).append(op).append(")");
+		}
+
+		String trimmed = whereCase != null ? whereCase.trim() : "";
+		if (trimmed.isEmpty()) {
+			return "WHERE (" + keysetCase + ")";
+		}
+		if (trimmed.length() > 5 && trimmed.regionMatches(true, 0, "WHERE", 0, 5)
+				&& !Character.isJavaIdentifierPart(trimmed.charAt(5))) {
+			// 原条件加括号，避免其中的OR改变优先级
+			return "WHERE (" + trimmed.substring(5).trim() + ") AND (" + keysetCase + ")";
+		}
+		return trimmed + " AND (" + keysetCase + ")";
+	}
+
+	private static int setKeysetStatements(int index, PreparedStatement pstmt, Object[] values) throws SQLException {
+		for (int i = 0; i < values.length; i++) {
+			for (int j = 0; j <= i; j++) {
+				pstmt.setObject(index++, values[j]);
+			}
+		}
+		return index;
+	}
+
+	private static void closeQuietly(ResultSet rs, PreparedStatement pstmt) {
+		if (rs != null) {
+			try {
+				rs.close();
+			} catch (SQLException e) {
+				e.printStackTrace();
+			}
+		}
+		if (pstmt != null) {
+			try {
+				pstmt.close();
+			} catch (SQLException e) {
+				e.printStackTrace();
+			}
 		}
-		return list;
 	}
 	
 	@SuppressWarnings("UnusedAssignment")
@@ -180,28 +412,11 @@ public abstract class SimpleSelectJdbcProcessor<T> {
 		long count = 0;
 		try {
 			assert(selectAdapter != null);
-			
-			StringBuilder sb = new StringBuilder();
-			// select
-			String selectSql = selectAdapter.getSelectSql();
-			sb.append(selectSql);
-			// join
-			Map<String, String> joinMap = getSearchCountJoinMap();
-			for (Entry<String, String> next : joinMap.entrySet()) {
-				sb.append(" ").append(next.getValue());
-			}
-			// where
-			if (whereAdapter != null) {
-				String whereCase = whereAdapter.getWhereCase();
-				sb.append(" ").append(whereCase);
-			}
-			// group
-			if (groupAdapter != null) {
-				String groupBy = groupAdapter.getGroupBy();
-				sb.append(" ").append(groupBy);
-			}
-			
-			pstmt = conn.prepareStatement(sb.toString());
+
+			Object planKey = planKey(PLAN_COUNT, false, false);
+			String sql = planKey != null ? PLAN_CACHE.get(planKey, this::buildCountSql) : buildCountSql();
+
+			pstmt = conn.prepareStatement(sql);
 			if (whereAdapter != null) {
 				int index = 1;
 				index = whereAdapter.setStatements(index, pstmt);
@@ -214,20 +429,7 @@ public abstract class SimpleSelectJdbcProcessor<T> {
 			logger.error("Error occured when search Count", e);
 			throw new RuntimeException(e.getMessage(), e);
 		} finally {
-			if (rs != null) {
-				try {
-					rs.close();
-				} catch (SQLException e) {
-					e.printStackTrace();
-				}
-			}
-			if (pstmt != null) {
-				try {
-					pstmt.close();
-				} catch (SQLException e) {
-					e.printStackTrace();
-				}
-			}
+			closeQuietly(rs, pstmt);
 		}
 		return count;
 	}
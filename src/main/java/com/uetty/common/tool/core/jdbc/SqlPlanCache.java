@@ -0,0 +1,139 @@
+package com.uetty.common.tool.core.jdbc;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * SQL计划缓存，缓存按适配器拼接出的sql、动态sql模板的解析结果等
+ * <p>容量有限，超出时淘汰最久未使用的计划，偶发的一次性计划不会挤占常用计划；
+ * 稳定运行后可通过命中数确认没有重复解析</p>
+ */
+public class SqlPlanCache {
+
+	public static final int DEFAULT_MAXIMUM_SIZE = 2048;
+
+	private final Map<Object, Object> plans; // 按访问顺序排列，由自身加锁保护
+	private final int maximumSize;
+
+	private final LongAdder hitCount = new LongAdder();
+	private final LongAdder missCount = new LongAdder();
+	private final LongAdder evictionCount = new LongAdder();
+
+	public SqlPlanCache() {
+		this(DEFAULT_MAXIMUM_SIZE);
+	}
+
+	public SqlPlanCache(int maximumSize) {
+		this.maximumSize = maximumSize;
+		this.plans = new LinkedHashMap<Object, Object>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Object, Object> eldest) {
+				if (size() > SqlPlanCache.this.maximumSize) {
+					evictionCount.increment();
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	/**
+	 * 取出缓存的计划，不存在时生成
+	 * @param key 计划的key，需正确实现equals和hashCode，可使用 {@link #key(Object...)}
+	 * @param builder 计划生成方法
+	 */
+	@SuppressWarnings("unchecked")
+	public <V> V get(Object key, Supplier<V> builder) {
+		Object plan;
+		synchronized (plans) {
+			plan = plans.get(key);
+		}
+		if (plan != null) {
+			hitCount.increment();
+			return (V) plan;
+		}
+		missCount.increment();
+		// 在锁外生成，并发生成同一计划时保留先放入的
+		V built = builder.get();
+		if (built != null && maximumSize > 0) {
+			Object existing;
+			synchronized (plans) {
+				existing = plans.putIfAbsent(key, built);
+			}
+			if (existing != null) {
+				return (V) existing;
+			}
+		}
+		return built;
+	}
+
+	public long getHitCount() {
+		return hitCount.sum();
+	}
+
+	public long getMissCount() {
+		return missCount.sum();
+	}
+
+	/**
+	 * 因超出容量被淘汰的计划数
+	 */
+	public long getEvictionCount() {
+		return evictionCount.sum();
+	}
+
+	public int size() {
+		synchronized (plans) {
+			return plans.size();
+		}
+	}
+
+	public int getMaximumSize() {
+		return maximumSize;
+	}
+
+	public void clear() {
+		synchronized (plans) {
+			plans.clear();
+		}
+	}
+
+	/**
+	 * 以多个组成部分构建计划的key，按顺序比较
+	 */
+	public static Object key(Object... parts) {
+		return new PlanKey(parts);
+	}
+
+	private static final class PlanKey {
+		private final Object[] parts;
+		private final int hashCode;
+
+		PlanKey(Object[] parts) {
+			this.parts = parts;
+			this.hashCode = Arrays.deepHashCode(parts);
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) {
+				return true;
+			}
+			if (!(o instanceof PlanKey)) {
+				return false;
+			}
+			PlanKey that = (PlanKey) o;
+			return hashCode == that.hashCode && Arrays.deepEquals(parts, that.parts);
+		}
+
+		@Override
+		public int hashCode() {
+			return hashCode;
+		}
+	}
+}
@@ -15,4 +15,13 @@ public interface WhereAdapter {
 	int setStatements(int index, PreparedStatement pstmt) throws SQLException;
 	
 	Map<String, String> getJoinMap();
+
+	/**
+	 * sql形态的key，用于缓存拼接出的sql，返回null（默认）时不缓存
+	 * <p>返回值相同时，该适配器拼接出的sql片段与join条件必须相同；
+	 * 不同实现类的key互不影响，不需要包含类型信息</p>
+	 */
+	default Object getPlanKey() {
+		return null;
+	}
 }
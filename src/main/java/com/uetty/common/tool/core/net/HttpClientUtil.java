@@ -7,6 +7,8 @@ import org.apache.http.Header;
 import org.apache.http.HttpEntity;
 import org.apache.http.HttpHost;
 import org.apache.http.HttpMessage;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
 import org.apache.http.NameValuePair;
 import org.apache.http.client.config.RequestConfig;
 import org.apache.http.client.entity.UrlEncodedFormEntity;
@@ -17,28 +19,60 @@ import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.client.methods.HttpPut;
 import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.conn.routing.HttpRoute;
 import org.apache.http.entity.ContentType;
 import org.apache.http.entity.InputStreamEntity;
 import org.apache.http.entity.StringEntity;
 import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
 import org.apache.http.impl.client.HttpClientBuilder;
 import org.apache.http.impl.conn.DefaultProxyRoutePlanner;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClientBuilder;
+import org.apache.http.impl.nio.client.HttpAsyncClients;
+import org.apache.http.impl.nio.conn.PoolingNHttpClientConnectionManager;
+import org.apache.http.impl.nio.reactor.DefaultConnectingIOReactor;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
 import org.apache.http.message.BasicHeader;
 import org.apache.http.message.BasicNameValuePair;
+import org.apache.http.nio.reactor.IOReactorException;
+import org.apache.http.pool.PoolStats;
 import org.apache.http.protocol.HTTP;
 import org.apache.http.util.EntityUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
 import java.net.URI;
 import java.net.URLEncoder;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 
 @SuppressWarnings("unused")
@@ -50,10 +84,20 @@ public class HttpClientUtil {
     private static final int DEF_CONN_TIMEOUT = 30_000;
     private static final int DEF_READ_TIMEOUT = 30_000;
 
+    /**
+     * 下载写文件的缓冲区大小
+     */
+    private static final int TRANSFER_BUFFER_SIZE = 64 * 1024;
+
     private static final String DEFAULT_CONTENT_TYPE = "application/x-www-form-urlencoded";
     private static final String CONTENT_TYPE_JSON = "application/json";
     private static final String CONTENT_TYPE_MULTIPART = "multipart/form-data";
     private static final String CONTENT_DISPOSITION = "Content-Disposition";
+    private static final String HEADER_RANGE = "Range";
+
+    private static volatile PoolConfig poolConfig = new PoolConfig();
+    private static volatile PooledClient pooledClient;
+    private static volatile AsyncClient asyncClient;
 
     // 将map型转为请求参数型
     @SuppressWarnings("unchecked")
@@ -279,7 +323,7 @@ public class HttpClientUtil {
                 .setSocketTimeout(DEF_READ_TIMEOUT).build();
     }
 
-    private static Map<String, List<String>> getResponseHeaders(CloseableHttpResponse response) {
+    private static Map<String, List<String>> getResponseHeaders(HttpResponse response) {
         Header[] headers = response.getAllHeaders();
         Map<String, List<String>> headerMap = new HashMap<>();
         for (Header header : headers) {
@@ -293,6 +337,33 @@ public class HttpClientUtil {
         return headerMap;
     }
 
+    private static String getFileName(Map<String, List<String>> headers) {
+        List<String> dispositions = headers.get(CONTENT_DISPOSITION);
+        if (dispositions == null) {
+            // 部分服务端返回的头名大小写不规范
+            for (Map.Entry<String, List<String>> entry : headers.entrySet()) {
+                if (CONTENT_DISPOSITION.equalsIgnoreCase(entry.getKey())) {
+                    dispositions = entry.getValue();
+                    break;
+                }
+            }
+        }
+        if (dispositions != null && dispositions.size() > 0 && dispositions.get(0).contains("filename=")) {
+            String fileNameDisp = dispositions.get(0);
+            String fileName = fileNameDisp.substring(fileNameDisp.indexOf("filename=") + 9);
+            if (fileName.length() > 0 && !"".equals(fileName.trim())) {
+                return fileName;
+            }
+        }
+        return null;
+    }
+
+    private static Map<String, Object> withRange(Map<String, Object> headers, long start, long end) {
+        Map<String, Object> rangeHeaders = headers != null ? new HashMap<>(headers) : new HashMap<>();
+        rangeHeaders.put(HEADER_RANGE, "bytes=" + start + "-" + (end >= 0 ? String.valueOf(end) : ""));
+        return rangeHeaders;
+    }
+
     private static HttpPost createPost(String uri, Map<String, Object> headers, Map<String, Object> params) {
         HttpPost httpPost = new HttpPost(uri);
         setHeaders(httpPost, headers);
@@ -353,7 +424,86 @@ public class HttpClientUtil {
         return httpClientBuilder;
     }
 
+    /**
+     * 获取共享的连接池客户端（首次调用时按当前连接池配置创建）
+     */
+    private static CloseableHttpClient getPooledHttpClient() {
+        PooledClient client = pooledClient;
+        if (client != null) {
+            return client.httpClient;
+        }
+        synchronized (HttpClientUtil.class) {
+            if (pooledClient == null) {
+                pooledClient = new PooledClient(poolConfig);
+            }
+            return pooledClient.httpClient;
+        }
+    }
+
+    /**
+     * 修改连接池配置，旧的连接池会被关闭（正在进行中的请求可能失败，应在启动阶段调用）
+     * <p>代理配置（系统属性 proxy.host、proxy.port）在连接池创建时读取，修改代理后也需要调用本方法重建</p>
+     */
+    public static void configurePool(PoolConfig config) {
+        PooledClient old;
+        AsyncClient oldAsync;
+        synchronized (HttpClientUtil.class) {
+            poolConfig = config != null ? config : new PoolConfig();
+            old = pooledClient;
+            pooledClient = null;
+            oldAsync = asyncClient;
+            asyncClient = null;
+        }
+        if (old != null) {
+            old.close();
+        }
+        if (oldAsync != null) {
+            oldAsync.close();
+        }
+    }
+
+    /**
+     * 关闭共享连接池（包括异步客户端），下次请求时会重新创建
+     */
+    public static void shutdownPool() {
+        configurePool(poolConfig);
+    }
+
+    /**
+     * 连接池整体统计（租用中、等待中、空闲、上限）
+     */
+    public static PoolStats getPoolStats() {
+        PooledClient client = pooledClient;
+        if (client == null) {
+            return new PoolStats(0, 0, 0, poolConfig.getMaxTotal());
+        }
+        return client.connectionManager.getTotalStats();
+    }
+
+    /**
+     * 各路由（目标主机）的连接池统计
+     */
+    public static Map<String, PoolStats> getRoutePoolStats() {
+        Map<String, PoolStats> statsMap = new HashMap<>();
+        PooledClient client = pooledClient;
+        if (client == null) {
+            return statsMap;
+        }
+        for (HttpRoute route : client.connectionManager.getRoutes()) {
+            statsMap.put(route.getTargetHost().toURI(), client.connectionManager.getStats(route));
+        }
+        return statsMap;
+    }
+
     private static void setProxy(HttpClientBuilder httpClientBuilder) {
+        HttpHost proxy = getProxy();
+        if (proxy != null) {
+            DefaultProxyRoutePlanner routePlanner = new DefaultProxyRoutePlanner(proxy);
+            httpClientBuilder.setRoutePlanner(routePlanner);
+        }
+    }
+
+    private static HttpHost getProxy() {
         String proxyHost = System.getProperty("proxy.host");
         String proxyPort = System.getProperty("proxy.port");
         Integer port = null;
@@ -361,23 +511,22 @@ public class HttpClientUtil {
             port = proxyPort == null ? null : Integer.valueOf(proxyPort);
         } catch (Exception ignore) {}
         if (proxyHost != null && port != null) {
-            HttpHost proxy = new HttpHost(proxyHost, port);
-            DefaultProxyRoutePlanner routePlanner = new DefaultProxyRoutePlanner(proxy);
-            httpClientBuilder.setRoutePlanner(routePlanner);
+            return new HttpHost(proxyHost, port);
         }
+        return null;
     }
 
     private static HttpResponseVo doRequest(HttpUriRequest request) {
         HttpResponseVo hrr = new HttpResponseVo();
-        HttpClientBuilder httpClientBuilder = getHttpClientBuilder();
+        CloseableHttpClient httpClient = getPooledHttpClient();
 
-        try (CloseableHttpClient httpClient = httpClientBuilder.build();
-             CloseableHttpResponse response = httpClient.execute(request)) {
+        // 共享客户端不关闭，只关闭响应；响应体读完后连接归还连接池复用
+        try (CloseableHttpResponse response = httpClient.execute(request)) {
 
             int code = response.getStatusLine().getStatusCode();
             Map<String, List<String>> headers = getResponseHeaders(response);
             HttpEntity entity = response.getEntity();
-            String body = EntityUtils.toString(entity, DEFAULT_CHARSET);
+            String body = entity != null ? EntityUtils.toString(entity, DEFAULT_CHARSET) : null;
 
             hrr.setCode(code);
             hrr.setHeaders(headers);
@@ -423,10 +572,9 @@ public class HttpClientUtil {
 
     private static HttpResponseVo doLoad(HttpUriRequest request, Consumer<InputStream> inputStreamConsumer) {
         HttpResponseVo hrr = new HttpResponseVo();
-        HttpClientBuilder httpClientBuilder = getHttpClientBuilder();
+        CloseableHttpClient httpClient = getPooledHttpClient();
 
-        try (CloseableHttpClient httpClient = httpClientBuilder.build();
-             CloseableHttpResponse response = httpClient.execute(request)) {
+        try (CloseableHttpResponse response = httpClient.execute(request)) {
 
             int code = response.getStatusLine().getStatusCode();
             Map<String, List<String>> headers = getResponseHeaders(response);
@@ -434,17 +582,112 @@ public class HttpClientUtil {
 
             hrr.setCode(code);
             hrr.setHeaders(headers);
+            hrr.setFileName(getFileName(headers));
+
+            inputStreamConsumer.accept(entity.getContent());
+            // 读完剩余内容，连接才能归还连接池复用（否则关闭响应时连接会被直接关闭）
+            EntityUtils.consume(entity);
+
+        } catch (IOException e) {
+            LOG.error(e.getMessage(), e);
+        }
+        return hrr;
+    }
+
+    /**
+     * GET下载到文件，响应体经固定大小的缓冲区写入文件通道，内存占用与文件大小无关
+     * <p>响应码非2xx时不写文件，响应体作为字符串放入body；
+     * 写入文件完成后才设置响应码，传输中断（文件不完整）时响应码为空</p>
+     */
+    public static HttpResponseVo doGetDownload(String uri, Path target, Map<String, Object> headers, Map<String, Object> params) {
+        HttpGetWithEntity httpGet = createGet(uri, headers, params);
+        return doDownload(httpGet, target, 0, true);
+    }
+
+    /**
+     * POST下载到文件
+     * @see #doGetDownload(String, Path, Map, Map)
+     */
+    public static HttpResponseVo doPostDownload(String uri, Path target, Map<String, Object> headers, Map<String, Object> params) {
+        HttpPost httpPost = createPost(uri, headers, params);
+        return doDownload(httpPost, target, 0, true);
+    }
+
+    /**
+     * 断点续传下载：目标文件已存在时只请求剩余部分（Range: bytes=已有大小-）并追加写入
+     * <p>服务端不支持Range（返回200）时重新下载整个文件；返回416时视为已下载完成</p>
+     */
+    public static HttpResponseVo doGetDownloadResume(String uri, Path target, Map<String, Object> headers, Map<String, Object> params) {
+        long existing;
+        try {
+            existing = Files.exists(target) ? Files.size(target) : 0;
+        } catch (IOException e) {
+            LOG.error(e.getMessage(), e);
+            return new HttpResponseVo();
+        }
+        if (existing > 0) {
+            headers = withRange(headers, existing, -1);
+        }
+        HttpGetWithEntity httpGet = createGet(uri, headers, params);
+        return doDownload(httpGet, target, existing, true);
+    }
+
+    /**
+     * 下载指定字节范围 [start, end]，写入目标文件的相同位置，多个范围可并行下载到同一文件
+     * <p>end小于0表示到文件末尾；只有返回206时才写入文件。服务端不支持Range（返回200）时不写入文件，
+     * 避免覆盖其他并行下载的分段，调用方可根据返回码200改为整体下载</p>
+     */
+    public static HttpResponseVo doGetRangeDownload(String uri, Path target, long start, long end,
+                                                    Map<String, Object> headers, Map<String, Object> params) {
+        HttpGetWithEntity httpGet = createGet(uri, withRange(headers, start, end), params);
+        return doDownload(httpGet, target, start, false);
+    }
+
+    /**
+     * @param acceptFullContent 服务端忽略Range返回200时，是否用完整内容重写文件
+     */
+    private static HttpResponseVo doDownload(HttpUriRequest request, Path target, long rangeStart, boolean acceptFullContent) {
+        HttpResponseVo hrr = new HttpResponseVo();
+        CloseableHttpClient httpClient = getPooledHttpClient();
+
+        try (CloseableHttpResponse response = httpClient.execute(request)) {
+
+            int code = response.getStatusLine().getStatusCode();
+            Map<String, List<String>> headers = getResponseHeaders(response);
+            HttpEntity entity = response.getEntity();
+
+            hrr.setHeaders(headers);
+            hrr.setFileName(getFileName(headers));
 
-            List<String> dispositions = headers.get(CONTENT_DISPOSITION);
-            if (dispositions != null && dispositions.size() > 0 && dispositions.get(0).contains("filename=")) {
-                String fileNameDisp = dispositions.get(0);
-                String fileName = fileNameDisp.substring(fileNameDisp.indexOf("filename=") + 9);
-                if (fileName.length() > 0 && !"".equals(fileName.trim())) {
-                    hrr.setFileName(fileName);
+            if (entity == null) {
+                hrr.setCode(code);
+                return hrr;
+            }
+            boolean partial = code == HttpStatus.SC_PARTIAL_CONTENT;
+            if (partial || (code == HttpStatus.SC_OK && acceptFullContent)) {
+                // 200表示服务端忽略了Range，返回的是完整内容
+                long written;
+                try (InputStream in = entity.getContent()) {
+                    written = transferToFile(in, target, partial ? rangeStart : 0, !partial);
+                }
+                long contentLength = entity.getContentLength();
+                if (contentLength >= 0 && written != contentLength) {
+                    LOG.error("download incomplete, expected {} bytes but got {}", contentLength, written);
+                    return hrr;
                 }
+                // 写入完成后才设置响应码，传输失败时响应码为空
+                hrr.setCode(code);
+                return hrr;
+            }
+            hrr.setCode(code);
+            if (code == HttpStatus.SC_OK) {
+                // 分段下载时服务端不支持Range，不读取响应体直接关闭连接
+                return hrr;
+            } else if (code == HttpStatus.SC_REQUESTED_RANGE_NOT_SATISFIABLE) {
+                EntityUtils.consume(entity);
+            } else {
+                hrr.setBody(EntityUtils.toString(entity, DEFAULT_CHARSET));
             }
-
-            inputStreamConsumer.accept(entity.getContent());
 
         } catch (IOException e) {
             LOG.error(e.getMessage(), e);
@@ -452,6 +695,503 @@ public class HttpClientUtil {
         return hrr;
     }
 
+    /**
+     * @return 写入的字节数
+     */
+    private static long transferToFile(InputStream in, Path target, long position, boolean truncate) throws IOException {
+        long start = position;
+        Set<OpenOption> options = new HashSet<>();
+        options.add(StandardOpenOption.CREATE);
+        options.add(StandardOpenOption.WRITE);
+        if (truncate) {
+            options.add(StandardOpenOption.TRUNCATE_EXISTING);
+        }
+        try (FileChannel fileChannel = FileChannel.open(target, options);
+             ReadableByteChannel source = Channels.newChannel(in)) {
+            // transferFrom 在position超过文件大小时不写入，分段并行下载时后面的段可能先到，因此按位置写入
+            ByteBuffer buffer = ByteBuffer.allocate(TRANSFER_BUFFER_SIZE);
+            while (source.read(buffer) >= 0) {
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    position += fileChannel.write(buffer, position);
+                }
+                buffer.clear();
+            }
+        }
+        return position - start;
+    }
+
+    /**
+     * GET请求，以流的形式返回响应体，不在内存中缓冲
+     * <p>调用方必须关闭返回值（建议 try-with-resources），读完响应体后关闭连接归还连接池，
+     * 未读完时关闭会直接断开连接</p>
+     */
+    public static HttpStreamResponse doGetStream(String uri, Map<String, Object> headers, Map<String, Object> params) {
+        HttpGetWithEntity httpGet = createGet(uri, headers, params);
+        return doStream(httpGet);
+    }
+
+    /**
+     * POST请求，以流的形式返回响应体
+     * @see #doGetStream(String, Map, Map)
+     */
+    public static HttpStreamResponse doPostStream(String uri, Map<String, Object> headers, Map<String, Object> params) {
+        HttpPost httpPost = createPost(uri, headers, params);
+        return doStream(httpPost);
+    }
+
+    private static HttpStreamResponse doStream(HttpUriRequest request) {
+        CloseableHttpClient httpClient = getPooledHttpClient();
+        CloseableHttpResponse response = null;
+        try {
+            response = httpClient.execute(request);
+            HttpEntity entity = response.getEntity();
+            return new HttpStreamResponse(response, entity != null ? entity.getContent() : null);
+        } catch (IOException e) {
+            LOG.error(e.getMessage(), e);
+            if (response != null) {
+                try {
+                    response.close();
+                } catch (IOException ignore) {}
+            }
+            return new HttpStreamResponse(null, null);
+        }
+    }
+
+    /**
+     * 获取共享的异步客户端（首次调用时按当前连接池配置创建）
+     */
+    private static AsyncClient getAsyncClient() {
+        AsyncClient client = asyncClient;
+        if (client != null) {
+            return client;
+        }
+        synchronized (HttpClientUtil.class) {
+            if (asyncClient == null) {
+                asyncClient = new AsyncClient(poolConfig);
+            }
+            return asyncClient;
+        }
+    }
+
+    /**
+     * 异步客户端当前未完成的请求数
+     */
+    public static int getAsyncInFlight() {
+        AsyncClient client = asyncClient;
+        return client == null ? 0 : client.inFlight();
+    }
+
+    private static CompletableFuture<HttpResponseVo> doRequestAsync(HttpUriRequest request) {
+        try {
+            return getAsyncClient().execute(request);
+        } catch (RuntimeException e) {
+            CompletableFuture<HttpResponseVo> future = new CompletableFuture<>();
+            future.completeExceptionally(e);
+            return future;
+        }
+    }
+
+    /**
+     * 异步POST请求
+     * <p>基于NIO客户端，少量IO线程即可支撑大量并发请求；未完成的请求数达到 maxInFlight 时，
+     * 请求进入等待队列，有请求完成时依次发出，调用线程不会阻塞；等待队列也已满（maxPending）时，
+     * 返回以 RejectedExecutionException 结束的future</p>
+     * <p>future在IO线程上完成，后续耗时操作请使用 thenApplyAsync 等方法切换到其他线程</p>
+     */
+    public static CompletableFuture<HttpResponseVo> doPostAsync(String uri, Map<String, Object> headers, Map<String, Object> params) {
+        HttpPost httpPost = createPost(uri, headers, params);
+        return doRequestAsync(httpPost);
+    }
+
+    /**
+     * 异步GET请求
+     * @see #doPostAsync(String, Map, Map)
+     */
+    public static CompletableFuture<HttpResponseVo> doGetAsync(String uri, Map<String, Object> headers, Map<String, Object> params) {
+        HttpGetWithEntity httpGet = createGet(uri, headers, params);
+        return doRequestAsync(httpGet);
+    }
+
+    /**
+     * 异步PUT请求
+     * @see #doPostAsync(String, Map, Map)
+     */
+    public static CompletableFuture<HttpResponseVo> doPutAsync(String uri, Map<String, Object> headers, Map<String, Object> params) {
+        HttpPut httpPut = createPut(uri, headers, params);
+        return doRequestAsync(httpPut);
+    }
+
+    /**
+     * 异步DELETE请求
+     * @see #doPostAsync(String, Map, Map)
+     */
+    public static CompletableFuture<HttpResponseVo> doDeleteAsync(String uri, Map<String, Object> headers, Map<String, Object> params) {
+        HttpDelete httpDelete = createDelete(uri, headers, params);
+        return doRequestAsync(httpDelete);
+    }
+
+    /**
+     * 连接池配置
+     */
+    public static class PoolConfig {
+
+        /**
+         * 连接池最大连接数
+         */
+        private int maxTotal = 200;
+        /**
+         * 每个路由（目标主机）默认最大连接数
+         */
+        private int defaultMaxPerRoute = 20;
+        /**
+         * 指定路由的最大连接数，key 形如 https://api.github.com 或 http://10.0.0.1:8080
+         */
+        private Map<String, Integer> maxPerRoute = new HashMap<>();
+        /**
+         * 服务端未声明 Keep-Alive 时连接的保持时间
+         */
+        private long keepAliveMillis = 30_000;
+        /**
+         * 空闲超过该时间的连接由后台线程关闭
+         */
+        private long maxIdleMillis = 60_000;
+        /**
+         * 连接空闲超过该时间后，复用前先检查是否已被服务端关闭
+         */
+        private int validateAfterInactivityMillis = 2_000;
+        /**
+         * 异步客户端IO线程数
+         */
+        private int ioThreads = Runtime.getRuntime().availableProcessors();
+        /**
+         * 异步客户端最大未完成请求数（包括等待连接的请求）
+         */
+        private int maxInFlight = 512;
+        /**
+         * 未完成请求数达到上限时，排队等待发出的最大请求数，超出时立即拒绝，小于等于0时不排队
+         */
+        private int maxPending = 4096;
+
+        public int getMaxTotal() {
+            return maxTotal;
+        }
+
+        public void setMaxTotal(int maxTotal) {
+            this.maxTotal = maxTotal;
+        }
+
+        public int getDefaultMaxPerRoute() {
+            return defaultMaxPerRoute;
+        }
+
+        public void setDefaultMaxPerRoute(int defaultMaxPerRoute) {
+            this.defaultMaxPerRoute = defaultMaxPerRoute;
+        }
+
+        public Map<String, Integer> getMaxPerRoute() {
+            return maxPerRoute;
+        }
+
+        public void setMaxPerRoute(Map<String, Integer> maxPerRoute) {
+            this.maxPerRoute = maxPerRoute;
+        }
+
+        public long getKeepAliveMillis() {
+            return keepAliveMillis;
+        }
+
+        public void setKeepAliveMillis(long keepAliveMillis) {
+            this.keepAliveMillis = keepAliveMillis;
+        }
+
+        public long getMaxIdleMillis() {
+            return maxIdleMillis;
+        }
+
+        public void setMaxIdleMillis(long maxIdleMillis) {
+            this.maxIdleMillis = maxIdleMillis;
+        }
+
+        public int getValidateAfterInactivityMillis() {
+            return validateAfterInactivityMillis;
+        }
+
+        public void setValidateAfterInactivityMillis(int validateAfterInactivityMillis) {
+            this.validateAfterInactivityMillis = validateAfterInactivityMillis;
+        }
+
+        public int getIoThreads() {
+            return ioThreads;
+        }
+
+        public void setIoThreads(int ioThreads) {
+            this.ioThreads = ioThreads;
+        }
+
+        public int getMaxInFlight() {
+            return maxInFlight;
+        }
+
+        public void setMaxInFlight(int maxInFlight) {
+            this.maxInFlight = maxInFlight;
+        }
+
+        public int getMaxPending() {
+            return maxPending;
+        }
+
+        public void setMaxPending(int maxPending) {
+            this.maxPending = maxPending;
+        }
+    }
+
+    /**
+     * 连接池与基于连接池的共享客户端
+     */
+    private static class PooledClient {
+
+        private final PoolingHttpClientConnectionManager connectionManager;
+        private final CloseableHttpClient httpClient;
+
+        PooledClient(PoolConfig config) {
+            connectionManager = new PoolingHttpClientConnectionManager();
+            connectionManager.setMaxTotal(config.getMaxTotal());
+            connectionManager.setDefaultMaxPerRoute(config.getDefaultMaxPerRoute());
+            connectionManager.setValidateAfterInactivity(config.getValidateAfterInactivityMillis());
+            HttpHost proxy = getProxy();
+            if (config.getMaxPerRoute() != null) {
+                for (Map.Entry<String, Integer> entry : config.getMaxPerRoute().entrySet()) {
+                    connectionManager.setMaxPerRoute(toRoute(entry.getKey(), proxy), entry.getValue());
+                }
+            }
+
+            long keepAliveMillis = config.getKeepAliveMillis();
+            ConnectionKeepAliveStrategy keepAliveStrategy = (response, context) -> {
+                long keepAlive = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+                return keepAlive > 0 ? keepAlive : keepAliveMillis;
+            };
+
+            // 共享客户端不保存cookie，否则一个调用方收到的cookie会随其他调用方的请求发送
+            HttpClientBuilder httpClientBuilder = getHttpClientBuilder()
+                    .setConnectionManager(connectionManager)
+                    .setKeepAliveStrategy(keepAliveStrategy)
+                    .disableCookieManagement()
+                    .evictExpiredConnections()
+                    .evictIdleConnections(config.getMaxIdleMillis(), TimeUnit.MILLISECONDS);
+            httpClient = httpClientBuilder.build();
+        }
+
+        /**
+         * 按 DefaultRoutePlanner 的方式生成路由（补全默认端口、https标记为安全、经代理时带上代理），
+         * 否则 HttpRoute.equals 匹配不到，指定的连接数不会生效
+         */
+        static HttpRoute toRoute(String uri, HttpHost proxy) {
+            HttpHost host = HttpHost.create(uri);
+            boolean secure = "https".equalsIgnoreCase(host.getSchemeName());
+            if (host.getPort() <= 0) {
+                host = new HttpHost(host.getHostName(), secure ? 443 : 80, host.getSchemeName());
+            }
+            return proxy == null ? new HttpRoute(host, null, secure) : new HttpRoute(host, null, proxy, secure);
+        }
+
+        void close() {
+            try {
+                httpClient.close();
+            } catch (IOException e) {
+                LOG.warn(e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * 基于NIO连接池的异步客户端，用信号量限制未完成的请求数，超出的请求排队，有请求完成时发出
+     * <p>依赖 httpasyncclient，只在首次发起异步请求时加载</p>
+     */
+    private static class AsyncClient {
+
+        private final PoolingNHttpClientConnectionManager connectionManager;
+        private final CloseableHttpAsyncClient httpClient;
+        private final Semaphore inFlightPermits;
+        private final int maxInFlight;
+        private final Queue<PendingRequest> pending = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger pendingCount = new AtomicInteger();
+        private final int maxPending;
+        /**
+         * 发出排队请求的循环只由一个线程执行，其他线程只增加计数，由执行中的线程再循环一次
+         */
+        private final AtomicInteger drainWip = new AtomicInteger();
+
+        AsyncClient(PoolConfig config) {
+            IOReactorConfig ioReactorConfig = IOReactorConfig.custom()
+                    .setIoThreadCount(Math.max(1, config.getIoThreads()))
+                    .setConnectTimeout(DEF_CONN_TIMEOUT)
+                    .setSoTimeout(DEF_READ_TIMEOUT)
+                    .build();
+            try {
+                connectionManager = new PoolingNHttpClientConnectionManager(new DefaultConnectingIOReactor(ioReactorConfig));
+            } catch (IOReactorException e) {
+                throw new RuntimeException(e);
+            }
+            connectionManager.setMaxTotal(config.getMaxTotal());
+            connectionManager.setDefaultMaxPerRoute(config.getDefaultMaxPerRoute());
+            HttpHost proxy = getProxy();
+            if (config.getMaxPerRoute() != null) {
+                for (Map.Entry<String, Integer> entry : config.getMaxPerRoute().entrySet()) {
+                    connectionManager.setMaxPerRoute(PooledClient.toRoute(entry.getKey(), proxy), entry.getValue());
+                }
+            }
+
+            long keepAliveMillis = config.getKeepAliveMillis();
+            ConnectionKeepAliveStrategy keepAliveStrategy = (response, context) -> {
+                long keepAlive = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+                return keepAlive > 0 ? keepAlive : keepAliveMillis;
+            };
+
+            // 共享客户端不保存cookie，避免在不同调用方之间传递
+            HttpAsyncClientBuilder httpClientBuilder = HttpAsyncClients.custom()
+                    .setConnectionManager(connectionManager)
+                    .setKeepAliveStrategy(keepAliveStrategy)
+                    .disableCookieManagement();
+            if (proxy != null) {
+                httpClientBuilder.setProxy(proxy);
+            }
+            httpClient = httpClientBuilder.build();
+            httpClient.start();
+
+            maxInFlight = Math.max(1, config.getMaxInFlight());
+            inFlightPermits = new Semaphore(maxInFlight);
+            maxPending = Math.max(0, config.getMaxPending());
+        }
+
+        int inFlight() {
+            return maxInFlight - inFlightPermits.availablePermits();
+        }
+
+        CompletableFuture<HttpResponseVo> execute(HttpUriRequest request) {
+            CompletableFuture<HttpResponseVo> future = new CompletableFuture<>();
+            if (inFlightPermits.tryAcquire()) {
+                if (!dispatch(request, future)) {
+                    drainPending();
+                }
+                return future;
+            }
+            if (pendingCount.incrementAndGet() > maxPending) {
+                pendingCount.decrementAndGet();
+                future.completeExceptionally(new RejectedExecutionException(
+                        "too many in-flight async requests, max in-flight " + maxInFlight + ", max pending " + maxPending));
+                return future;
+            }
+            pending.offer(new PendingRequest(request, future));
+            // 入队前可能已有请求完成并归还了许可
+            drainPending();
+            return future;
+        }
+
+        private void release() {
+            inFlightPermits.release();
+            drainPending();
+        }
+
+        /**
+         * 有空闲许可时依次发出排队的请求，等待中已被取消的请求直接跳过
+         */
+        private void drainPending() {
+            if (drainWip.getAndIncrement() != 0) {
+                return;
+            }
+            int missed = 1;
+            do {
+                while (!pending.isEmpty() && inFlightPermits.tryAcquire()) {
+                    PendingRequest next = pending.poll();
+                    if (next == null) {
+                        inFlightPermits.release();
+                        break;
+                    }
+                    pendingCount.decrementAndGet();
+                    if (next.future.isDone()) {
+                        inFlightPermits.release();
+                        continue;
+                    }
+                    dispatch(next.request, next.future);
+                }
+                missed = drainWip.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        /**
+         * 发出请求，调用前需已获取许可
+         * @return 请求是否已交给客户端，失败时已归还许可
+         */
+        private boolean dispatch(HttpUriRequest request, CompletableFuture<HttpResponseVo> future) {
+            FutureCallback<HttpResponse> callback = new FutureCallback<HttpResponse>() {
+                @Override
+                public void completed(HttpResponse response) {
+                    release();
+                    try {
+                        HttpResponseVo hrr = new HttpResponseVo();
+                        hrr.setCode(response.getStatusLine().getStatusCode());
+                        hrr.setHeaders(getResponseHeaders(response));
+                        HttpEntity entity = response.getEntity();
+                        hrr.setBody(entity != null ? EntityUtils.toString(entity, DEFAULT_CHARSET) : null);
+                        future.complete(hrr);
+                    } catch (IOException | RuntimeException e) {
+                        future.completeExceptionally(e);
+                    }
+                }
+
+                @Override
+                public void failed(Exception e) {
+                    release();
+                    future.completeExceptionally(e);
+                }
+
+                @Override
+                public void cancelled() {
+                    release();
+                    future.cancel(false);
+                }
+            };
+
+            try {
+                Future<HttpResponse> requestFuture = httpClient.execute(request, callback);
+                // 调用方取消时同时取消底层请求
+                future.whenComplete((r, e) -> {
+                    if (future.isCancelled()) {
+                        requestFuture.cancel(true);
+                    }
+                });
+            } catch (RuntimeException e) {
+                // 客户端已关闭等情况，回调不会被调用
+                inFlightPermits.release();
+                future.completeExceptionally(e);
+                return false;
+            }
+            return true;
+        }
+
+        void close() {
+            try {
+                httpClient.close();
+            } catch (IOException e) {
+                LOG.warn(e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * 等待发出的异步请求
+     */
+    private static class PendingRequest {
+        private final HttpUriRequest request;
+        private final CompletableFuture<HttpResponseVo> future;
+
+        PendingRequest(HttpUriRequest request, CompletableFuture<HttpResponseVo> future) {
+            this.request = request;
+            this.future = future;
+        }
+    }
+
     /**
      * 违反正统规范的GET请求包含请求体
      */
@@ -482,6 +1222,66 @@ public class HttpClientUtil {
         }
     }
 
+    /**
+     * 流式响应，关闭时释放连接
+     */
+    public static class HttpStreamResponse implements Closeable {
+
+        private final CloseableHttpResponse response;
+        private final InputStream body;
+        private final Integer code;
+        private final Map<String, List<String>> headers;
+        private final String fileName;
+
+        private HttpStreamResponse(CloseableHttpResponse response, InputStream body) {
+            this.response = response;
+            this.body = body;
+            if (response != null) {
+                this.code = response.getStatusLine().getStatusCode();
+                this.headers = getResponseHeaders(response);
+                this.fileName = HttpClientUtil.getFileName(headers);
+            } else {
+                this.code = null;
+                this.headers = null;
+                this.fileName = null;
+            }
+        }
+
+        /**
+         * 请求失败时为null
+         */
+        public Integer getCode() {
+            return code;
+        }
+
+        public Map<String, List<String>> getHeaders() {
+            return headers;
+        }
+
+        public String getFileName() {
+            return fileName;
+        }
+
+        /**
+         * 响应体，无响应体或请求失败时为null
+         */
+        public InputStream getBody() {
+            return body;
+        }
+
+        @Override
+        public void close() {
+            if (response == null) {
+                return;
+            }
+            try {
+                response.close();
+            } catch (IOException e) {
+                LOG.warn(e.getMessage(), e);
+            }
+        }
+    }
+
     public static class HttpResponseVo {
 
         private Integer code;
@@ -0,0 +1,245 @@
+package com.uetty.common.tool.core.reflect;
+
+import java.beans.BeanInfo;
+import java.beans.IntrospectionException;
+import java.beans.Introspector;
+import java.beans.PropertyDescriptor;
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * 预编译的属性读取器
+ * <p>每个类的每个属性只解析一次（getter优先，其次字段），之后直接调用生成的函数，避免每次读取都走反射查找；
+ * 缓存挂在 ClassValue 上；生成的读取器强引用所属的类，缓存会使类无法卸载，不宜用于动态生成的临时类</p>
+ * <p>属性路径支持以 . 分隔的嵌套属性（按getter声明的返回类型解析），中间值为null时结果为null</p>
+ * @see ReflectUtil#getFieldValue(Object, String)
+ */
+@SuppressWarnings("unused")
+public class PropertyAccessors {
+
+	private static final Function<Object, Object> NOT_FOUND = bean -> null;
+
+	private static final ClassValue<ClassAccessors> ACCESSORS = new ClassValue<ClassAccessors>() {
+		@Override
+		protected ClassAccessors computeValue(Class<?> type) {
+			return new ClassAccessors(type);
+		}
+	};
+
+	private PropertyAccessors() {
+	}
+
+	/**
+	 * 获取属性读取函数
+	 * @param beanClass 对象类型，Map类型按key读取
+	 * @param propertyPath 属性名，可用 . 分隔嵌套属性
+	 * @return 读取函数，属性不存在时返回null
+	 */
+	public static Function<Object, Object> getter(Class<?> beanClass, String propertyPath) {
+		Function<Object, Object> getter = ACCESSORS.get(beanClass).getter(propertyPath);
+		return getter != NOT_FOUND ? getter : null;
+	}
+
+	/**
+	 * 读取属性值
+	 * @throws IllegalArgumentException 属性不存在
+	 */
+	public static Object getValue(Object bean, String propertyPath) {
+		if (bean == null) {
+			return null;
+		}
+		Function<Object, Object> getter = getter(bean.getClass(), propertyPath);
+		if (getter == null) {
+			throw new IllegalArgumentException("property[" + propertyPath + "] not found in " + bean.getClass().getName());
+		}
+		return getter.apply(bean);
+	}
+
+	/**
+	 * 类的所有可读属性（getter，不含getClass），按属性名排序
+	 */
+	public static Map<String, Function<Object, Object>> getters(Class<?> beanClass) {
+		return ACCESSORS.get(beanClass).readableProperties();
+	}
+
+	private static final class ClassAccessors {
+		private final Class<?> type;
+		private final ConcurrentHashMap<String, Function<Object, Object>> getters = new ConcurrentHashMap<>();
+		private volatile Map<String, Function<Object, Object>> readableProperties;
+
+		ClassAccessors(Class<?> type) {
+			this.type = type;
+		}
+
+		Function<Object, Object> getter(String propertyPath) {
+			Function<Object, Object> getter = getters.get(propertyPath);
+			if (getter == null) {
+				getter = getters.computeIfAbsent(propertyPath, path -> compilePath(type, path));
+			}
+			return getter;
+		}
+
+		Map<String, Function<Object, Object>> readableProperties() {
+			Map<String, Function<Object, Object>> properties = readableProperties;
+			if (properties == null) {
+				properties = new LinkedHashMap<>();
+				for (PropertyDescriptor descriptor : propertyDescriptors(type)) {
+					if (descriptor.getReadMethod() == null || "class".equals(descriptor.getName())) {
+						continue;
+					}
+					properties.put(descriptor.getName(), getter(descriptor.getName()));
+				}
+				properties = Collections.unmodifiableMap(properties);
+				readableProperties = properties;
+			}
+			return properties;
+		}
+	}
+
+	private static Function<Object, Object> compilePath(Class<?> type, String path) {
+		int dot = path.indexOf('.');
+		if (dot < 0) {
+			Member member = compileProperty(type, path);
+			return member != null ? member.getter : NOT_FOUND;
+		}
+
+		Member first = compileProperty(type, path.substring(0, dot));
+		if (first == null) {
+			return NOT_FOUND;
+		}
+		String rest = path.substring(dot + 1);
+		Function<Object, Object> head = first.getter;
+		if (first.valueType == Object.class || first.valueType.isInterface() && !Map.class.isAssignableFrom(first.valueType)) {
+			// 声明类型不确定，按运行时类型解析后半段
+			return bean -> {
+				Object value = head.apply(bean);
+				return value != null ? getValue(value, rest) : null;
+			};
+		}
+		Function<Object, Object> tail = ACCESSORS.get(first.valueType).getter(rest);
+		if (tail == NOT_FOUND) {
+			return NOT_FOUND;
+		}
+		return bean -> {
+			Object value = head.apply(bean);
+			return value != null ? tail.apply(value) : null;
+		};
+	}
+
+	private static Member compileProperty(Class<?> type, String name) {
+		if (Map.class.isAssignableFrom(type)) {
+			return new Member(bean -> ((Map<?, ?>) bean).get(name), Object.class);
+		}
+		for (PropertyDescriptor descriptor : propertyDescriptors(type)) {
+			Method readMethod = descriptor.getReadMethod();
+			if (readMethod != null && descriptor.getName().equals(name)) {
+				return new Member(compileMethod(type, readMethod), readMethod.getReturnType());
+			}
+		}
+		for (Class<?> clz = type; clz != null && clz != Object.class; clz = clz.getSuperclass()) {
+			try {
+				Field field = clz.getDeclaredField(name);
+				if (Modifier.isStatic(field.getModifiers())) {
+					continue;
+				}
+				field.setAccessible(true);
+				MethodHandle handle = MethodHandles.lookup().unreflectGetter(field)
+						.asType(MethodType.methodType(Object.class, Object.class));
+				return new Member(handleFunction(handle), field.getType());
+			} catch (NoSuchFieldException ignore) {
+			} catch (IllegalAccessException | RuntimeException e) {
+				return null;
+			}
+		}
+		return null;
+	}
+
+	private static PropertyDescriptor[] propertyDescriptors(Class<?> type) {
+		try {
+			BeanInfo beanInfo = Introspector.getBeanInfo(type);
+			return beanInfo.getPropertyDescriptors();
+		} catch (IntrospectionException e) {
+			return new PropertyDescriptor[0];
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static Function<Object, Object> compileMethod(Class<?> type, Method method) {
+		MethodHandles.Lookup lookup = MethodHandles.lookup();
+		try {
+			if (isLambdaAccessible(method)) {
+				// 生成直接调用getter的函数，调用开销与普通方法调用相当
+				MethodHandle handle = lookup.unreflect(method);
+				CallSite site = LambdaMetafactory.metafactory(lookup, "apply",
+						MethodType.methodType(Function.class),
+						MethodType.methodType(Object.class, Object.class),
+						handle,
+						MethodType.methodType(boxed(method.getReturnType()), method.getDeclaringClass()));
+				return (Function<Object, Object>) site.getTarget().invokeExact();
+			}
+			method.setAccessible(true);
+			MethodHandle handle = lookup.unreflect(method).asType(MethodType.methodType(Object.class, Object.class));
+			return handleFunction(handle);
+		} catch (Throwable e) {
+			return bean -> ReflectUtil.invokeMethod(bean, method.getName());
+		}
+	}
+
+	/**
+	 * 生成的函数类以本类为宿主，只有在本类的类加载器中可见的公共类的公共方法才能直接绑定
+	 */
+	private static boolean isLambdaAccessible(Method method) {
+		Class<?> declaringClass = method.getDeclaringClass();
+		if (!Modifier.isPublic(method.getModifiers()) || !Modifier.isPublic(declaringClass.getModifiers())) {
+			return false;
+		}
+		try {
+			ClassLoader loader = PropertyAccessors.class.getClassLoader();
+			return Class.forName(declaringClass.getName(), false, loader) == declaringClass
+					&& (method.getReturnType().isPrimitive()
+					|| Class.forName(method.getReturnType().getName(), false, loader) == method.getReturnType());
+		} catch (ClassNotFoundException | LinkageError e) {
+			return false;
+		}
+	}
+
+	private static Function<Object, Object> handleFunction(MethodHandle handle) {
+		return bean -> {
+			try {
+				return handle.invokeExact(bean);
+			} catch (RuntimeException | Error e) {
+				throw e;
+			} catch (Throwable e) {
+				throw new RuntimeException(e);
+			}
+		};
+	}
+
+	private static Class<?> boxed(Class<?> type) {
+		if (!type.isPrimitive()) {
+			return type;
+		}
+		return MethodType.methodType(type).wrap().returnType();
+	}
+
+	private static final class Member {
+		private final Function<Object, Object> getter;
+		private final Class<?> valueType;
+
+		Member(Function<Object, Object> getter, Class<?> valueType) {
+			this.getter = getter;
+			this.valueType = valueType;
+		}
+	}
+}
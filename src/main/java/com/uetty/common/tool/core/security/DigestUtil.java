@@ -1,15 +1,30 @@
 package com.uetty.common.tool.core.security;
 
 import com.uetty.common.tool.core.FileUtil;
+import com.uetty.common.tool.core.security.MultiDigest.Algorithm;
 
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * 摘要计算工具
+ * <p>文件摘要通过内存映射读取，同一文件需要多种摘要时使用 {@link #digest(File, Algorithm...)} 一次读取同时计算；
+ * 超大文件可使用 {@link #treeHash(File, Algorithm, int, Executor)} 分块并行计算树形摘要</p>
  */
 @SuppressWarnings("unused")
 public class DigestUtil {
@@ -86,7 +101,168 @@ public class DigestUtil {
         return calculateDigest(bytes, "SHA-512");
     }
 
+    /**
+     * 小于该大小的文件直接读取，不做内存映射
+     */
+    private static final int MAP_THRESHOLD = 1024 * 1024;
+
+    /**
+     * 单次内存映射的大小
+     */
+    private static final int MAP_WINDOW = 64 * 1024 * 1024;
+
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * 树形摘要默认分块大小
+     */
+    public static final int DEFAULT_TREE_CHUNK_SIZE = 8 * 1024 * 1024;
+
+    private static final byte LEAF_PREFIX = 0;
+
+    private static final byte NODE_PREFIX = 1;
+
+    /**
+     * 一次读取文件，同时计算多种摘要
+     * @param file 文件
+     * @param algorithms 算法
+     * @return 各算法的十六进制结果
+     */
+    public static Map<Algorithm, String> digest(File file, Algorithm... algorithms) throws IOException {
+        MultiDigest digest = new MultiDigest(algorithms);
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            update(digest, channel, 0, channel.size());
+        }
+        return digest.hexDigest();
+    }
+
+    /**
+     * 一次读取输入流，同时计算多种摘要（不关闭输入流）
+     * @param inputStream 输入流
+     * @param algorithms 算法
+     * @return 各算法的十六进制结果
+     */
+    public static Map<Algorithm, String> digest(InputStream inputStream, Algorithm... algorithms) throws IOException {
+        MultiDigest digest = new MultiDigest(algorithms);
+        byte[] buffer = new byte[READ_BUFFER_SIZE];
+        int len;
+        while ((len = inputStream.read(buffer)) != -1) {
+            digest.update(buffer, 0, len);
+        }
+        return digest.hexDigest();
+    }
+
+    /**
+     * 分块并行计算文件的树形摘要（Merkle树，默认分块大小、公共ForkJoinPool）
+     * @see #treeHash(File, Algorithm, int, Executor)
+     */
+    public static String treeHash(File file, Algorithm algorithm) throws IOException {
+        return treeHash(file, algorithm, DEFAULT_TREE_CHUNK_SIZE, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * 分块并行计算文件的树形摘要（Merkle树）
+     * <p>文件按chunkSize分块，叶子节点为 H(0x00 + 分块数据)，父节点为 H(0x01 + 左子节点 + 右子节点)，
+     * 每层节点数为奇数时最后一个节点直接提升到上一层；空文件为单个空分块</p>
+     * <p>结果与分块大小有关，且不等于整个文件的普通摘要，双方需约定相同的分块大小</p>
+     * @param file 文件
+     * @param algorithm 摘要算法（不支持校验和类算法）
+     * @param chunkSize 分块大小
+     * @param executor 计算分块摘要的线程池
+     * @return 根节点的十六进制摘要
+     */
+    public static String treeHash(File file, Algorithm algorithm, int chunkSize, Executor executor) throws IOException {
+        if (algorithm.isChecksum()) {
+            throw new IllegalArgumentException("tree hash requires a message digest algorithm: " + algorithm);
+        }
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("chunk size must be positive");
+        }
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            List<CompletableFuture<byte[]>> futures = new ArrayList<>();
+            long position = 0;
+            do {
+                long start = position;
+                long len = Math.min(chunkSize, size - start);
+                futures.add(CompletableFuture.supplyAsync(() -> hashLeaf(channel, start, len, algorithm), executor));
+                position += len;
+            } while (position < size);
+
+            List<byte[]> level = new ArrayList<>(futures.size());
+            try {
+                for (CompletableFuture<byte[]> future : futures) {
+                    level.add(future.join());
+                }
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof UncheckedIOException) {
+                    throw ((UncheckedIOException) e.getCause()).getCause();
+                }
+                throw e;
+            }
+            MessageDigest instance = MultiDigest.newMessageDigest(algorithm);
+            while (level.size() > 1) {
+                List<byte[]> parents = new ArrayList<>((level.size() + 1) / 2);
+                for (int i = 0; i + 1 < level.size(); i += 2) {
+                    instance.update(NODE_PREFIX);
+                    instance.update(level.get(i));
+                    instance.update(level.get(i + 1));
+                    parents.add(instance.digest());
+                }
+                if (level.size() % 2 == 1) {
+                    parents.add(level.get(level.size() - 1));
+                }
+                level = parents;
+            }
+            return toHexString(level.get(0));
+        }
+    }
+
+    private static byte[] hashLeaf(FileChannel channel, long position, long len, Algorithm algorithm) {
+        MultiDigest digest = new MultiDigest(algorithm);
+        digest.update(new byte[]{LEAF_PREFIX});
+        try {
+            update(digest, channel, position, len);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return digest.digest().get(algorithm);
+    }
+
+    /**
+     * 读取通道中指定区间的数据计算摘要，大文件分段内存映射，小文件直接读取
+     */
+    private static void update(MultiDigest digest, FileChannel channel, long position, long len) throws IOException {
+        long end = position + len;
+        if (len < MAP_THRESHOLD) {
+            ByteBuffer buffer = ByteBuffer.allocate((int) Math.max(len, 1));
+            while (position < end) {
+                buffer.clear();
+                buffer.limit((int) Math.min(buffer.capacity(), end - position));
+                int n = channel.read(buffer, position);
+                if (n < 0) {
+                    break;
+                }
+                buffer.flip();
+                digest.update(buffer);
+                position += n;
+            }
+            return;
+        }
+        while (position < end) {
+            long size = Math.min(MAP_WINDOW, end - position);
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+            digest.update(mapped);
+            position += size;
+        }
+    }
+
     private static String calculateDigest(File file, String algorithm) throws NoSuchAlgorithmException, IOException {
+        for (Algorithm value : Algorithm.values()) {
+            if (algorithm.equals(value.getJdkName())) {
+                return digest(file, value).get(value);
+            }
+        }
         // 获取算法对象
         MessageDigest instance = MessageDigest
                 .getInstance(algorithm);
@@ -115,7 +291,7 @@ public class DigestUtil {
         return toHexString(digest);
     }
 
-    private static String toHexString(byte[] digest) {
+    static String toHexString(byte[] digest) {
         StringBuilder sb = new StringBuilder();
         for (byte b : digest) {
             int j = b & 0xff;// 获取字节的低八位有效值
@@ -0,0 +1,377 @@
+package com.uetty.common.tool.core.security;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.zip.CRC32;
+import java.util.zip.Checksum;
+
+/**
+ * 多算法摘要，同一份数据一次读取同时计算多种摘要/校验和
+ * <p>非线程安全，每次计算使用一个实例</p>
+ * <pre>
+ * MultiDigest digest = new MultiDigest(Algorithm.MD5, Algorithm.SHA_256);
+ * try (InputStream is = digest.wrap(uploadStream)) {
+ *     // 边上传边计算
+ * }
+ * String md5 = digest.hexDigest(Algorithm.MD5);
+ * </pre>
+ */
+@SuppressWarnings("unused")
+public class MultiDigest {
+
+    public enum Algorithm {
+        MD5("MD5"),
+        SHA_1("SHA-1"),
+        SHA_224("SHA-224"),
+        SHA_256("SHA-256"),
+        SHA_384("SHA-384"),
+        SHA_512("SHA-512"),
+        /**
+         * 校验和，结果为4字节大端序
+         */
+        CRC32(null),
+        /**
+         * Castagnoli多项式的CRC32，结果为4字节大端序
+         */
+        CRC32C(null),
+        ;
+
+        private final String jdkName;
+
+        Algorithm(String jdkName) {
+            this.jdkName = jdkName;
+        }
+
+        /**
+         * MessageDigest算法名，校验和类算法返回null
+         */
+        public String getJdkName() {
+            return jdkName;
+        }
+
+        public boolean isChecksum() {
+            return jdkName == null;
+        }
+    }
+
+    /**
+     * 直接内存数据拷贝到堆内数组时的分块大小
+     */
+    private static final int SCRATCH_SIZE = 64 * 1024;
+
+    private static final Supplier<Checksum> CRC32C_FACTORY = crc32cFactory();
+
+    private final Algorithm[] algorithms;
+    private final MessageDigest[] digests;
+    private final Checksum[] checksums;
+    private byte[] scratch;
+
+    public MultiDigest(Algorithm... algorithms) {
+        if (algorithms == null || algorithms.length == 0) {
+            throw new IllegalArgumentException("algorithms must not be empty");
+        }
+        this.algorithms = Arrays.stream(algorithms).distinct().toArray(Algorithm[]::new);
+        this.digests = new MessageDigest[this.algorithms.length];
+        this.checksums = new Checksum[this.algorithms.length];
+        for (int i = 0; i < this.algorithms.length; i++) {
+            Algorithm algorithm = this.algorithms[i];
+            if (algorithm == Algorithm.CRC32) {
+                checksums[i] = new CRC32();
+            } else if (algorithm == Algorithm.CRC32C) {
+                checksums[i] = CRC32C_FACTORY.get();
+            } else {
+                digests[i] = newMessageDigest(algorithm);
+            }
+        }
+    }
+
+    static MessageDigest newMessageDigest(Algorithm algorithm) {
+        try {
+            return MessageDigest.getInstance(algorithm.getJdkName());
+        } catch (NoSuchAlgorithmException e) {
+            // 以上算法为JDK必须提供的算法
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public Algorithm[] getAlgorithms() {
+        return algorithms.clone();
+    }
+
+    public void update(byte[] bytes, int offset, int len) {
+        for (int i = 0; i < algorithms.length; i++) {
+            if (digests[i] != null) {
+                digests[i].update(bytes, offset, len);
+            } else {
+                checksums[i].update(bytes, offset, len);
+            }
+        }
+    }
+
+    public void update(byte[] bytes) {
+        update(bytes, 0, bytes.length);
+    }
+
+    /**
+     * 计算缓冲区中 position 到 limit 的数据，计算后 position 移到 limit
+     * <p>直接内存（包括内存映射）按块拷贝到堆内数组后再交给各算法，每块只拷贝一次</p>
+     */
+    public void update(ByteBuffer buffer) {
+        if (buffer.hasArray()) {
+            update(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+            buffer.position(buffer.limit());
+            return;
+        }
+        if (scratch == null) {
+            scratch = new byte[SCRATCH_SIZE];
+        }
+        while (buffer.hasRemaining()) {
+            int len = Math.min(buffer.remaining(), scratch.length);
+            buffer.get(scratch, 0, len);
+            update(scratch, 0, len);
+        }
+    }
+
+    /**
+     * 完成计算并返回结果，之后实例被重置，可重新计算
+     */
+    public Map<Algorithm, byte[]> digest() {
+        Map<Algorithm, byte[]> result = new EnumMap<>(Algorithm.class);
+        for (int i = 0; i < algorithms.length; i++) {
+            result.put(algorithms[i], finish(i));
+        }
+        return result;
+    }
+
+    /**
+     * 完成计算并返回十六进制结果，之后实例被重置，可重新计算
+     */
+    public Map<Algorithm, String> hexDigest() {
+        Map<Algorithm, String> result = new EnumMap<>(Algorithm.class);
+        for (int i = 0; i < algorithms.length; i++) {
+            result.put(algorithms[i], DigestUtil.toHexString(finish(i)));
+        }
+        return result;
+    }
+
+    /**
+     * 完成计算并返回指定算法的十六进制结果，之后实例被重置（所有算法）
+     */
+    public String hexDigest(Algorithm algorithm) {
+        String hex = hexDigest().get(algorithm);
+        if (hex == null) {
+            throw new IllegalArgumentException("algorithm not included: " + algorithm);
+        }
+        return hex;
+    }
+
+    public void reset() {
+        for (int i = 0; i < algorithms.length; i++) {
+            if (digests[i] != null) {
+                digests[i].reset();
+            } else {
+                checksums[i].reset();
+            }
+        }
+    }
+
+    private byte[] finish(int i) {
+        if (digests[i] != null) {
+            return digests[i].digest();
+        }
+        long value = checksums[i].getValue();
+        checksums[i].reset();
+        return new byte[]{(byte) (value >>> 24), (byte) (value >>> 16), (byte) (value >>> 8), (byte) value};
+    }
+
+    /**
+     * 包装输入流，读取的数据同时计算摘要（skip跳过的数据也会计算），读完后调用 {@link #digest()} 取结果
+     */
+    public InputStream wrap(InputStream inputStream) {
+        return new DigestInputStream(inputStream, this);
+    }
+
+    /**
+     * 包装通道，读取的数据同时计算摘要，读完后调用 {@link #digest()} 取结果
+     */
+    public ReadableByteChannel wrap(ReadableByteChannel channel) {
+        return new DigestChannel(channel, this);
+    }
+
+    private static class DigestInputStream extends FilterInputStream {
+        private final MultiDigest digest;
+
+        DigestInputStream(InputStream in, MultiDigest digest) {
+            super(in);
+            this.digest = digest;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = in.read();
+            if (b >= 0) {
+                digest.update(new byte[]{(byte) b}, 0, 1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = in.read(b, off, len);
+            if (n > 0) {
+                digest.update(b, off, n);
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            // 跳过的数据也要参与计算，否则摘要不完整
+            byte[] buf = new byte[(int) Math.min(n, 8192)];
+            long skipped = 0;
+            while (skipped < n) {
+                int len = read(buf, 0, (int) Math.min(buf.length, n - skipped));
+                if (len < 0) {
+                    break;
+                }
+                skipped += len;
+            }
+            return skipped;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        @Override
+        public synchronized void mark(int readlimit) {
+        }
+
+        @Override
+        public synchronized void reset() throws IOException {
+            throw new IOException("mark/reset not supported");
+        }
+    }
+
+    private static class DigestChannel implements ReadableByteChannel {
+        private final ReadableByteChannel channel;
+        private final MultiDigest digest;
+
+        DigestChannel(ReadableByteChannel channel, MultiDigest digest) {
+            this.channel = channel;
+            this.digest = digest;
+        }
+
+        @Override
+        public int read(ByteBuffer dst) throws IOException {
+            int position = dst.position();
+            int n = channel.read(dst);
+            if (n > 0) {
+                ByteBuffer read = dst.duplicate();
+                read.position(position);
+                read.limit(position + n);
+                digest.update(read);
+            }
+            return n;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return channel.isOpen();
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    /**
+     * JDK9以上自带 java.util.zip.CRC32C（有硬件指令加速），JDK8使用纯Java实现
+     */
+    @SuppressWarnings("unchecked")
+    private static Supplier<Checksum> crc32cFactory() {
+        try {
+            Class<? extends Checksum> clz = (Class<? extends Checksum>) Class.forName("java.util.zip.CRC32C");
+            clz.newInstance();
+            return () -> {
+                try {
+                    return clz.newInstance();
+                } catch (ReflectiveOperationException e) {
+                    throw new IllegalStateException(e);
+                }
+            };
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return Crc32c::new;
+        }
+    }
+
+    /**
+     * CRC32C（Castagnoli，反射多项式 0x82F63B78），slicing-by-8 查表实现
+     */
+    static final class Crc32c implements Checksum {
+        private static final int POLY = 0x82F63B78;
+        private static final int[][] TABLE = new int[8][256];
+
+        static {
+            for (int n = 0; n < 256; n++) {
+                int c = n;
+                for (int k = 0; k < 8; k++) {
+                    c = (c & 1) != 0 ? (c >>> 1) ^ POLY : c >>> 1;
+                }
+                TABLE[0][n] = c;
+            }
+            for (int n = 0; n < 256; n++) {
+                for (int k = 1; k < 8; k++) {
+                    TABLE[k][n] = (TABLE[k - 1][n] >>> 8) ^ TABLE[0][TABLE[k - 1][n] & 0xff];
+                }
+            }
+        }
+
+        private int crc = 0xffffffff;
+
+        @Override
+        public void update(int b) {
+            crc = (crc >>> 8) ^ TABLE[0][(crc ^ b) & 0xff];
+        }
+
+        @Override
+        public void update(byte[] b, int off, int len) {
+            int c = crc;
+            int[] t0 = TABLE[0], t1 = TABLE[1], t2 = TABLE[2], t3 = TABLE[3];
+            int[] t4 = TABLE[4], t5 = TABLE[5], t6 = TABLE[6], t7 = TABLE[7];
+            while (len >= 8) {
+                int one = c ^ ((b[off] & 0xff) | (b[off + 1] & 0xff) << 8 | (b[off + 2] & 0xff) << 16 | (b[off + 3] & 0xff) << 24);
+                int two = (b[off + 4] & 0xff) | (b[off + 5] & 0xff) << 8 | (b[off + 6] & 0xff) << 16 | (b[off + 7] & 0xff) << 24;
+                c = t7[one & 0xff] ^ t6[(one >>> 8) & 0xff] ^ t5[(one >>> 16) & 0xff] ^ t4[one >>> 24]
+                        ^ t3[two & 0xff] ^ t2[(two >>> 8) & 0xff] ^ t1[(two >>> 16) & 0xff] ^ t0[two >>> 24];
+                off += 8;
+                len -= 8;
+            }
+            while (len-- > 0) {
+                c = (c >>> 8) ^ t0[(c ^ b[off++]) & 0xff];
+            }
+            crc = c;
+        }
+
+        @Override
+        public long getValue() {
+            return (~crc) & 0xffffffffL;
+        }
+
+        @Override
+        public void reset() {
+            crc = 0xffffffff;
+        }
+    }
+}
@@ -0,0 +1,670 @@
+package com.uetty.common.tool.core.security;
+
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.introspect.AnnotatedMember;
+import com.fasterxml.jackson.databind.introspect.BeanPropertyDefinition;
+import com.uetty.common.tool.core.reflect.PropertyAccessors;
+import com.uetty.common.tool.core.string.OUIDGenerator;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.beans.Introspector;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.AnnotatedElement;
+import java.lang.reflect.Field;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * 平台间签名，验签引擎
+ * <p>签名原文与 {@link SignatureUtil} 相同：参数按名称排序后拼接为 k1=v1&amp;k2=v2...，
+ * 值的文本形式与经过JSON序列化再解析后的值一致，因此与原有签名结果兼容（原文按UTF-8编码）</p>
+ * <p>与 {@link SignatureUtil} 原实现的区别：</p>
+ * <blockquote>
+ * <p>普通对象的属性通过 {@link PropertyAccessors} 预编译的读取函数直接读取，属性列表按类缓存，不再整体序列化为JSON再解析；
+ * 带有Jackson注解的类、以及复杂类型的属性值仍按JSON处理，保证结果一致</p>
+ * <p>签名原文边生成边以UTF-8写入线程复用的 MessageDigest / Mac，不生成中间字符串</p>
+ * <p>支持HMAC-SHA256签名，以及基于随机串（nonce）的防重放检查</p>
+ * </blockquote>
+ * @author vince
+ */
+@SuppressWarnings("unused")
+public class RequestSigner {
+
+	/**
+	 * 随机串参数名，开启nonce后加入签名参数
+	 */
+	public static final String PARAM_NONCE = "nonce";
+
+	public enum Algorithm {
+		/**
+		 * 原文末尾拼接 &amp;secret=密钥 后计算MD5，与 {@link SignatureUtil} 兼容
+		 */
+		MD5,
+		/**
+		 * 以密钥计算原文的HMAC-SHA256，原文中不含密钥
+		 */
+		HMAC_SHA256,
+	}
+
+	private static final String PARAM_SECRET = "secret";
+
+	private static final ObjectMapper MAPPER = new ObjectMapper();
+
+	private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+	private static final ThreadLocal<MessageDigest> MD5_DIGEST = ThreadLocal.withInitial(() -> {
+		try {
+			return MessageDigest.getInstance("MD5");
+		} catch (GeneralSecurityException e) {
+			throw new IllegalStateException(e);
+		}
+	});
+
+	/**
+	 * HMAC-SHA256实例按线程在所有签名器间共享，密钥与上次不同时重新初始化
+	 */
+	private static final ThreadLocal<KeyedMac> HMAC_SHA256 = ThreadLocal.withInitial(KeyedMac::new);
+
+	private static final ThreadLocal<CanonicalWriter> WRITER = ThreadLocal.withInitial(CanonicalWriter::new);
+
+	private static final ClassValue<BeanPlan> BEAN_PLANS = new ClassValue<BeanPlan>() {
+		@Override
+		protected BeanPlan computeValue(Class<?> type) {
+			return BeanPlan.compile(type);
+		}
+	};
+
+	private final Algorithm algorithm;
+
+	/**
+	 * MD5签名时追加在原文末尾的 &amp;secret=密钥
+	 */
+	private final byte[] secretSuffix;
+
+	private final SecretKeySpec hmacKey;
+
+	private long timeoutMillis = SignatureUtil.TIMEOUT_MILLISECONDS;
+
+	private boolean useNonce;
+
+	private ReplayCache replayCache;
+
+	public RequestSigner(String secret) {
+		this(Algorithm.MD5, secret);
+	}
+
+	public RequestSigner(Algorithm algorithm, String secret) {
+		Objects.requireNonNull(algorithm);
+		Objects.requireNonNull(secret);
+		this.algorithm = algorithm;
+		if (algorithm == Algorithm.HMAC_SHA256) {
+			this.hmacKey = new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256");
+			this.secretSuffix = null;
+		} else {
+			this.secretSuffix = ("&" + PARAM_SECRET + "=" + secret).getBytes(StandardCharsets.UTF_8);
+			this.hmacKey = null;
+		}
+	}
+
+	public Algorithm getAlgorithm() {
+		return algorithm;
+	}
+
+	public long getTimeoutMillis() {
+		return timeoutMillis;
+	}
+
+	/**
+	 * 时间戳有效时长，默认 {@link SignatureUtil#TIMEOUT_MILLISECONDS}
+	 */
+	public RequestSigner setTimeoutMillis(long timeoutMillis) {
+		if (timeoutMillis <= 0) {
+			throw new IllegalArgumentException("timeout must be positive");
+		}
+		this.timeoutMillis = timeoutMillis;
+		return this;
+	}
+
+	public boolean isUseNonce() {
+		return useNonce;
+	}
+
+	/**
+	 * 加签时是否附加随机串参数 {@link #PARAM_NONCE}
+	 */
+	public RequestSigner setUseNonce(boolean useNonce) {
+		this.useNonce = useNonce;
+		return this;
+	}
+
+	public ReplayCache getReplayCache() {
+		return replayCache;
+	}
+
+	/**
+	 * 设置后验签时要求携带随机串，有效期内同一随机串只能使用一次
+	 */
+	public RequestSigner setReplayCache(ReplayCache replayCache) {
+		this.replayCache = replayCache;
+		return this;
+	}
+
+	/**
+	 * 计算签名（参数中的 {@link SignatureUtil#PARAM_SIGNATURE} 不参与签名）
+	 * @param params 请求参数，可以是Pojo，也可以是Map
+	 * @return 小写十六进制签名字符串
+	 */
+	public String sign(Object params) {
+		Objects.requireNonNull(params);
+		CanonicalWriter writer = begin();
+		forEachParam(params, (name, value, converted) -> {
+			if (!SignatureUtil.PARAM_SIGNATURE.equals(name)) {
+				writer.writeParam(name, value, converted);
+			}
+		});
+		return end(writer);
+	}
+
+	/**
+	 * 数据加签
+	 * @param params 原始请求参数可以是Pojo，也可以是Map
+	 * @return 按参数名排序的map，包含原始请求参数值、时间戳、随机串（开启时）、签名
+	 */
+	public Map<String, Object> signData(Object params) {
+		Objects.requireNonNull(params);
+		TreeMap<String, Object> map = new TreeMap<>();
+		forEachParam(params, (name, value, converted) -> map.put(name, value));
+		map.put(SignatureUtil.PARAM_TIMESTAMP, System.currentTimeMillis());
+		if (useNonce) {
+			map.put(PARAM_NONCE, OUIDGenerator.generate());
+		}
+		map.remove(SignatureUtil.PARAM_SIGNATURE);
+		map.put(SignatureUtil.PARAM_SIGNATURE, sign(map));
+		return map;
+	}
+
+	/**
+	 * 数据验签
+	 * @param params 验签数据值 可以是Map或者Pojo，需包含时间戳、签名字段，设置了 {@link ReplayCache} 时还需包含随机串
+	 * @throws SignatureUtil.SignatureException 验签不通过
+	 */
+	public void assertValid(Object params) {
+		Objects.requireNonNull(params);
+		Object[] special = new Object[3];
+		CanonicalWriter writer = begin();
+		forEachParam(params, (name, value, converted) -> {
+			if (SignatureUtil.PARAM_SIGNATURE.equals(name)) {
+				special[0] = value;
+				return;
+			}
+			if (SignatureUtil.PARAM_TIMESTAMP.equals(name)) {
+				special[1] = value;
+			} else if (PARAM_NONCE.equals(name)) {
+				special[2] = value;
+			}
+			writer.writeParam(name, value, converted);
+		});
+		String signedString = end(writer);
+
+		Long t = toLong(special[1]);
+		long cur = System.currentTimeMillis();
+		if (t == null || (t + timeoutMillis) < cur) {
+			throw new SignatureUtil.SignatureException("signature time timeout: msg timestamp --> " + t + ", system timestamp --> " + cur, SignatureUtil.ERR_TIMEOUT);
+		}
+		String signature = special[0] != null ? special[0].toString() : null;
+		if (signature == null || !MessageDigest.isEqual(signedString.getBytes(StandardCharsets.US_ASCII), signature.getBytes(StandardCharsets.US_ASCII))) {
+			throw new SignatureUtil.SignatureException("signature invalid, value --> " + SignatureUtil.obj2JsonString(params), SignatureUtil.ERR_SIGN);
+		}
+		if (replayCache != null) {
+			// 签名通过后才记录随机串，避免伪造请求占用随机串
+			String nonce = special[2] != null ? special[2].toString() : null;
+			if (nonce == null || nonce.isEmpty()) {
+				throw new SignatureUtil.SignatureException("signature nonce required", SignatureUtil.ERR_REPLAY);
+			}
+			// 时间戳在有效期内的请求都需防重放，取较晚的时间计算过期时间
+			if (!replayCache.record(nonce, Math.max(t, cur) + timeoutMillis)) {
+				throw new SignatureUtil.SignatureException("signature nonce replayed: " + nonce, SignatureUtil.ERR_REPLAY);
+			}
+		}
+	}
+
+	private static Long toLong(Object value) {
+		if (value instanceof Number) {
+			return ((Number) value).longValue();
+		}
+		if (value != null) {
+			try {
+				return Long.parseLong(value.toString());
+			} catch (NumberFormatException ignore) {
+			}
+		}
+		return null;
+	}
+
+	private CanonicalWriter begin() {
+		CanonicalWriter writer = WRITER.get();
+		if (algorithm == Algorithm.HMAC_SHA256) {
+			writer.reset(null, HMAC_SHA256.get().init(hmacKey));
+		} else {
+			writer.reset(MD5_DIGEST.get(), null);
+		}
+		return writer;
+	}
+
+	private String end(CanonicalWriter writer) {
+		byte[] digest;
+		if (algorithm == Algorithm.HMAC_SHA256) {
+			writer.flush();
+			digest = writer.mac.doFinal();
+		} else {
+			writer.writeRaw(secretSuffix, writer.first ? 1 : 0);
+			writer.flush();
+			digest = writer.digest.digest();
+		}
+		writer.reset(null, null);
+		return toHexString(digest);
+	}
+
+	private static String toHexString(byte[] bytes) {
+		char[] chars = new char[bytes.length * 2];
+		for (int i = 0; i < bytes.length; i++) {
+			chars[i * 2] = HEX_DIGITS[(bytes[i] >> 4) & 0xf];
+			chars[i * 2 + 1] = HEX_DIGITS[bytes[i] & 0xf];
+		}
+		return new String(chars);
+	}
+
+	private interface ParamVisitor {
+		/**
+		 * @param converted 值是否已经过JSON序列化、解析
+		 */
+		void visit(String name, Object value, boolean converted);
+	}
+
+	/**
+	 * 按参数名顺序遍历参数
+	 */
+	@SuppressWarnings("unchecked")
+	private static void forEachParam(Object params, ParamVisitor visitor) {
+		if (params instanceof Map) {
+			Map<?, ?> map = (Map<?, ?>) params;
+			if (map instanceof SortedMap && ((SortedMap<?, ?>) map).comparator() == null && allStringKeys(map)) {
+				for (Map.Entry<?, ?> entry : map.entrySet()) {
+					visitor.visit((String) entry.getKey(), entry.getValue(), false);
+				}
+				return;
+			}
+			if (allStringKeys(map)) {
+				List<Map.Entry<String, Object>> entries = new ArrayList<>(((Map<String, Object>) map).entrySet());
+				entries.sort(Map.Entry.comparingByKey());
+				for (Map.Entry<String, Object> entry : entries) {
+					visitor.visit(entry.getKey(), entry.getValue(), false);
+				}
+				return;
+			}
+		} else {
+			BeanPlan plan = BEAN_PLANS.get(params.getClass());
+			if (plan.names != null) {
+				for (int i = 0; i < plan.names.length; i++) {
+					visitor.visit(plan.names[i], plan.getters.get(i).apply(params), false);
+				}
+				return;
+			}
+		}
+		// 无法直接读取的对象，按原方式整体序列化为JSON再解析
+		TreeMap<String, Object> map = SignatureUtil.obj2Map(params);
+		Objects.requireNonNull(map);
+		for (Map.Entry<String, Object> entry : map.entrySet()) {
+			visitor.visit(entry.getKey(), entry.getValue(), true);
+		}
+	}
+
+	private static boolean allStringKeys(Map<?, ?> map) {
+		for (Object key : map.keySet()) {
+			if (!(key instanceof String)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * 普通对象的可签名属性，按Jackson的属性发现规则确定属性名，读取使用预编译的读取函数
+	 */
+	private static final class BeanPlan {
+		/**
+		 * 为null表示该类不能直接读取，需走JSON处理
+		 */
+		private final String[] names;
+		private final List<Function<Object, Object>> getters;
+
+		private BeanPlan(String[] names, List<Function<Object, Object>> getters) {
+			this.names = names;
+			this.getters = getters;
+		}
+
+		static BeanPlan compile(Class<?> type) {
+			if (!isPlainBean(type)) {
+				return new BeanPlan(null, null);
+			}
+			BeanDescription description = MAPPER.getSerializationConfig().introspect(MAPPER.constructType(type));
+			TreeMap<String, Function<Object, Object>> properties = new TreeMap<>();
+			for (BeanPropertyDefinition property : description.findProperties()) {
+				AnnotatedMember accessor = property.getAccessor();
+				if (accessor == null || !property.couldSerialize()) {
+					continue;
+				}
+				Member member = accessor.getMember();
+				Function<Object, Object> getter = PropertyAccessors.getter(type, beanPropertyName(member));
+				if (getter == null) {
+					return new BeanPlan(null, null);
+				}
+				properties.put(property.getName(), getter);
+			}
+			if (properties.isEmpty()) {
+				// Jackson对无属性的对象有特殊处理
+				return new BeanPlan(null, null);
+			}
+			return new BeanPlan(properties.keySet().toArray(new String[0]),
+					new ArrayList<>(properties.values()));
+		}
+
+		private static String beanPropertyName(Member member) {
+			String name = member.getName();
+			if (member instanceof Method) {
+				if (name.startsWith("get") && name.length() > 3) {
+					return Introspector.decapitalize(name.substring(3));
+				}
+				if (name.startsWith("is") && name.length() > 2) {
+					return Introspector.decapitalize(name.substring(2));
+				}
+			}
+			return name;
+		}
+
+		/**
+		 * 非JDK类型、非容器类型，且整个继承链上没有Jackson注解（注解可能改变属性名、取值或序列化方式）
+		 */
+		private static boolean isPlainBean(Class<?> type) {
+			if (type.isArray() || type.isEnum() || type.isPrimitive() || type.getName().startsWith("java")
+					|| Iterable.class.isAssignableFrom(type) || Map.Entry.class.isAssignableFrom(type)) {
+				return false;
+			}
+			for (Class<?> clz = type; clz != null && clz != Object.class; clz = clz.getSuperclass()) {
+				if (hasJacksonAnnotation(clz)) {
+					return false;
+				}
+				for (Field field : clz.getDeclaredFields()) {
+					if (hasJacksonAnnotation(field)) {
+						return false;
+					}
+				}
+				for (Method method : clz.getDeclaredMethods()) {
+					if (hasJacksonAnnotation(method)) {
+						return false;
+					}
+				}
+			}
+			return true;
+		}
+
+		private static boolean hasJacksonAnnotation(AnnotatedElement element) {
+			for (Annotation annotation : element.getAnnotations()) {
+				if (annotation.annotationType().getName().startsWith("com.fasterxml.jackson.")) {
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+
+	/**
+	 * 线程复用的 Mac 及其当前密钥
+	 */
+	private static final class KeyedMac {
+		private final Mac mac;
+		private SecretKeySpec key;
+
+		KeyedMac() {
+			try {
+				mac = Mac.getInstance("HmacSHA256");
+			} catch (GeneralSecurityException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+
+		Mac init(SecretKeySpec key) {
+			if (key != this.key && !key.equals(this.key)) {
+				try {
+					mac.init(key);
+				} catch (GeneralSecurityException e) {
+					throw new IllegalStateException(e);
+				}
+				this.key = key;
+			}
+			return mac;
+		}
+	}
+
+	/**
+	 * 签名原文写入器，按UTF-8编码写入缓冲区，缓冲区满时写入摘要
+	 */
+	private static final class CanonicalWriter {
+		private final byte[] buf = new byte[1024];
+		private int pos;
+		private MessageDigest digest;
+		private Mac mac;
+		/**
+		 * 是否尚未写入参数
+		 */
+		private boolean first;
+
+		/**
+		 * 同时重置摘要，丢弃上次签名中途异常时残留的内容
+		 */
+		void reset(MessageDigest digest, Mac mac) {
+			if (digest != null) {
+				digest.reset();
+			}
+			if (mac != null) {
+				mac.reset();
+			}
+			this.digest = digest;
+			this.mac = mac;
+			this.pos = 0;
+			this.first = true;
+		}
+
+		void writeParam(String name, Object value, boolean converted) {
+			if (!first) {
+				writeByte('&');
+			}
+			first = false;
+			writeString(name);
+			writeByte('=');
+			if (converted || value == null) {
+				writeString(String.valueOf(value));
+			} else if (value instanceof String) {
+				writeString((String) value);
+			} else if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+				writeLong(((Number) value).longValue());
+			} else if (value instanceof Boolean) {
+				writeString((Boolean) value ? "true" : "false");
+			} else if (value instanceof Double) {
+				writeString(Double.toString((Double) value));
+			} else if (value.getClass() == Date.class) {
+				// Jackson默认将日期序列化为时间戳
+				writeLong(((Date) value).getTime());
+			} else if (value instanceof Character) {
+				writeChar((Character) value, 0, null);
+			} else {
+				writeString(String.valueOf(convert(value)));
+			}
+		}
+
+		/**
+		 * 其他类型（浮点、大数、枚举、集合、嵌套对象等）与原实现一样经过JSON序列化、解析
+		 */
+		private Object convert(Object value) {
+			try {
+				return MAPPER.readValue(MAPPER.writeValueAsString(value), Object.class);
+			} catch (Exception e) {
+				throw new IllegalArgumentException("can't convert value: " + value, e);
+			}
+		}
+
+		void writeRaw(byte[] bytes, int offset) {
+			for (int i = offset; i < bytes.length; i++) {
+				writeByte(bytes[i]);
+			}
+		}
+
+		private void writeString(String str) {
+			for (int i = 0, len = str.length(); i < len; i++) {
+				i = writeChar(str.charAt(i), i, str);
+			}
+		}
+
+		/**
+		 * @return 最后读取的字符下标（代理对占两个字符）
+		 */
+		private int writeChar(char c, int index, String str) {
+			if (c < 0x80) {
+				writeByte(c);
+			} else if (c < 0x800) {
+				writeByte(0xc0 | (c >> 6));
+				writeByte(0x80 | (c & 0x3f));
+			} else if (Character.isHighSurrogate(c) && str != null && index + 1 < str.length()
+					&& Character.isLowSurrogate(str.charAt(index + 1))) {
+				int cp = Character.toCodePoint(c, str.charAt(index + 1));
+				writeByte(0xf0 | (cp >> 18));
+				writeByte(0x80 | ((cp >> 12) & 0x3f));
+				writeByte(0x80 | ((cp >> 6) & 0x3f));
+				writeByte(0x80 | (cp & 0x3f));
+				return index + 1;
+			} else if (Character.isSurrogate(c)) {
+				// 不成对的代理字符，与 String.getBytes(UTF_8) 一致替换为 ?
+				writeByte('?');
+			} else {
+				writeByte(0xe0 | (c >> 12));
+				writeByte(0x80 | ((c >> 6) & 0x3f));
+				writeByte(0x80 | (c & 0x3f));
+			}
+			return index;
+		}
+
+		private void writeLong(long val) {
+			if (val == Long.MIN_VALUE) {
+				writeString(Long.toString(val));
+				return;
+			}
+			if (val < 0) {
+				writeByte('-');
+				val = -val;
+			}
+			if (pos + 20 > buf.length) {
+				flush();
+			}
+			int len = 1;
+			for (long v = val / 10; v != 0; v /= 10) {
+				len++;
+			}
+			for (int i = pos + len - 1; i >= pos; i--) {
+				buf[i] = (byte) ('0' + val % 10);
+				val /= 10;
+			}
+			pos += len;
+		}
+
+		private void writeByte(int b) {
+			if (pos == buf.length) {
+				flush();
+			}
+			buf[pos++] = (byte) b;
+		}
+
+		void flush() {
+			if (pos == 0) {
+				return;
+			}
+			if (mac != null) {
+				mac.update(buf, 0, pos);
+			} else {
+				digest.update(buf, 0, pos);
+			}
+			pos = 0;
+		}
+	}
+
+	/**
+	 * 随机串防重放缓存（单机内存），记录有效期内已使用的随机串
+	 */
+	public static class ReplayCache {
+
+		private final ConcurrentHashMap<String, Long> nonces = new ConcurrentHashMap<>();
+
+		private final int maxSize;
+
+		private volatile long nextPurgeTime;
+
+		/**
+		 * @param maxSize 最多记录的随机串数量，超出时拒绝新的随机串（防止内存被刷爆）
+		 */
+		public ReplayCache(int maxSize) {
+			if (maxSize <= 0) {
+				throw new IllegalArgumentException("max size must be positive");
+			}
+			this.maxSize = maxSize;
+		}
+
+		public ReplayCache() {
+			this(1_000_000);
+		}
+
+		/**
+		 * 记录随机串
+		 * @param nonce 随机串
+		 * @param expireAt 过期时间（毫秒时间戳）
+		 * @return 首次出现返回true，有效期内重复出现或缓存已满返回false
+		 */
+		public boolean record(String nonce, long expireAt) {
+			long now = System.currentTimeMillis();
+			purgeExpired(now, false);
+			if (nonces.size() >= maxSize) {
+				purgeExpired(now, true);
+				if (nonces.size() >= maxSize) {
+					return false;
+				}
+			}
+			Long prev = nonces.putIfAbsent(nonce, expireAt);
+			if (prev == null) {
+				return true;
+			}
+			// 已过期未清理的记录可以复用
+			return prev < now && nonces.replace(nonce, prev, expireAt);
+		}
+
+		public int size() {
+			return nonces.size();
+		}
+
+		/**
+		 * 清理过期记录，非强制时每秒最多执行一次
+		 */
+		private void purgeExpired(long now, boolean force) {
+			if (!force && now < nextPurgeTime) {
+				return;
+			}
+			nextPurgeTime = now + 1000;
+			nonces.values().removeIf(expireAt -> expireAt < now);
+		}
+	}
+}
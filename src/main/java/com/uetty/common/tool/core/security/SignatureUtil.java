@@ -4,7 +4,6 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.security.NoSuchAlgorithmException;
 import java.util.*;
 
 
@@ -24,6 +23,10 @@ public class SignatureUtil {
 	 * 验签失败（通常是密钥错误或数据不一致导致）
 	 */
 	public static final int ERR_SIGN = 2;
+	/**
+	 * 随机串缺失或重复使用（重放请求）
+	 */
+	public static final int ERR_REPLAY = 3;
 	/**
 	 * 有效时长，防止相同参数复用
 	 */
@@ -36,7 +39,8 @@ public class SignatureUtil {
 	 * 加签结果数据参数名
 	 */
 	public static final String PARAM_SIGNATURE = "signature";
-	private static final String PARAM_SECRET = "secret";
+
+	private static final ObjectMapper MAPPER = new ObjectMapper();
 	
 	/**
 	 * 数据加签
@@ -50,14 +54,7 @@ public class SignatureUtil {
 	 * </blockquote>
 	 */
 	public static Map<String, Object> signData(Object params, String secret) {
-		TreeMap<String, Object> map = obj2Map(params);
-		Objects.requireNonNull(map);
-		map.put(PARAM_TIMESTAMP, System.currentTimeMillis());
-		// 计算签名字符串
-		String signedString = getSignedString(map, secret);
-		map.put(PARAM_SIGNATURE, signedString);
-		
-		return map;
+		return new RequestSigner(secret).signData(params);
 	}
 	
 	/**
@@ -68,56 +65,16 @@ public class SignatureUtil {
 	 * <p>String类型签名字符串 字段名/键名为：{@linkplain SignatureUtil#PARAM_SIGNATURE}
 	 * </blockquote>
 	 * @param secret 验签时使用的密钥
+	 * @see RequestSigner 需要HMAC-SHA256签名或防重放时使用
 	 */
 	public static void assertValid(Object params, String secret) {
-		TreeMap<String, Object> map = obj2Map(params);
-		Objects.requireNonNull(map);
-
-		Long t = (Long) map.get(PARAM_TIMESTAMP);
-		long cur = System.currentTimeMillis();
-		if ((t + TIMEOUT_MILLISECONDS) < cur) {
-			throw new SignatureException("signature time timeout: msg timestamp --> " + t +", system timestamp --> " + cur, ERR_TIMEOUT);
-		}
-		// 签名值计算
-		String signedString = getSignedString(map, secret);
-		String signature = (String) map.get(PARAM_SIGNATURE);
-		if (!Objects.equals(signedString, signature)) {
-			throw new SignatureException("signature invalid, value --> " + obj2JsonString(map), ERR_SIGN);
-		}
-	}
-	
-	/**
-	 * 签名字符串计算
-	 */
-	private static String getSignedString(TreeMap<String, Object> map, String secret) {
-		try {
-			StringBuilder sb = new StringBuilder();
-
-			for (String k : map.keySet()) {
-				if (PARAM_SIGNATURE.equals(k)) {
-					continue;
-				}
-				sb.append("&");
-				sb.append(k);
-				sb.append("=");
-				sb.append(map.get(k));
-			}
-			sb.append("&");
-			sb.append(PARAM_SECRET);
-			sb.append("=");
-			sb.append(secret);
-			return DigestUtil.md5Sum(sb.toString().substring(1));
-		} catch (NoSuchAlgorithmException e) {
-			logger.error(e.getMessage(), e);
-		}
-		return null;
+		new RequestSigner(secret).assertValid(params);
 	}
 
 	@SuppressWarnings("unchecked")
 	public static TreeMap<String, Object> obj2Map(Object obj) {
-		ObjectMapper objectMapper = new ObjectMapper();
         try {
-			return objectMapper.readValue(objectMapper.writeValueAsString(obj), TreeMap.class);
+			return MAPPER.readValue(MAPPER.writeValueAsString(obj), TreeMap.class);
 		} catch (Exception e) {
 			logger.error(e.getMessage(), e);
 		}
@@ -126,7 +83,7 @@ public class SignatureUtil {
 	
 	public static String obj2JsonString(Object obj) {
 		try {
-			return new ObjectMapper().writeValueAsString(obj);
+			return MAPPER.writeValueAsString(obj);
 		} catch (Exception e) {
 			logger.error(e.getMessage(), e);
 		}
@@ -4,10 +4,15 @@ import java.net.InetAddress;
 import java.util.Iterator;
 import java.util.ServiceLoader;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 /**
  * Ordered Universally Unique Identifier
  * 时间顺序的通用唯一标识符
+ * <p>格式：10位时间戳 + 17位JVM标识 + 5位序列号，共32位字符</p>
+ * <p>序列号按线程分段：高5位为分段号，低20位为分段内计数，线程各自在所属分段计数，互不竞争；
+ * 每个分段每毫秒从0开始计数，同一线程生成的ID严格递增，不同线程生成的ID按毫秒有序</p>
+ * <p>高吞吐场景可用 generateInto 写入复用的缓冲区、generate(n) 批量生成，或使用16字节的二进制形式作为数据库主键</p>
  * @author vince
  */
 public class OUIDGenerator {
@@ -61,31 +66,85 @@ public class OUIDGenerator {
      */
     private final static Byte[] REWRITE_IP_SEGMENT = { (byte) 112, null, null, null};
 
-    public static String generate() {
-        return getTime(TIMESTAMP_DIGITS) +
-                JVM_ID +
-                getSerial();
-    }
+    /**
+     * 字符串形式ID的长度
+     */
+    public static final int LENGTH = 32;
+
+    /**
+     * 二进制形式ID的字节数
+     */
+    public static final int BINARY_LENGTH = 16;
+
+    private static final int TIME_LEN = 10;
+    private static final int JVM_ID_LEN = 17;
+    private static final int SERIAL_LEN = 5;
 
-    private static String getTime(char[] digits) {
-        long currentTimeMillis = System.currentTimeMillis();
-        // 10位32进制，足以表示以毫秒计的3万年时间（当前系统时间肯定大于1970年，因此直接省略符号位处理）
-        return format32(digits, currentTimeMillis, 10);
+    public static String generate() {
+        char[] chars = new char[LENGTH];
+        generateInto(chars, 0);
+        return new String(chars);
     }
 
     private static String format32(char[] digit, long val, int len) {
         char[] chars = new char[len];
-        for (int i = chars.length - 1; i >= 0; i--) {
+        format32(digit, val, chars, 0, len);
+        return new String(chars);
+    }
+
+    private static void format32(char[] digit, long val, char[] buf, int offset, int len) {
+        for (int i = offset + len - 1; i >= offset; i--) {
             // 获取字节的低5位有效值
             int j = (int) (val & 0x1f);
-            chars[i] = digit[j];
+            buf[i] = digit[j];
             val = val >> 5;
         }
-        return new String(chars);
     }
 
+    /**
+     * 时间戳为10位32进制，足以表示以毫秒计的3万年时间（当前系统时间肯定大于1970年，因此直接省略符号位处理）
+     */
+    private static void writeId(char[] buf, int offset, long time, long serial) {
+        format32(TIMESTAMP_DIGITS, time, buf, offset, TIME_LEN);
+        System.arraycopy(JVM_ID_CHARS, 0, buf, offset + TIME_LEN, JVM_ID_LEN);
+        format32(TIMESTAMP_DIGITS, serial, buf, offset + TIME_LEN + JVM_ID_LEN, SERIAL_LEN);
+    }
+
+    private static void writeId(byte[] buf, int offset, long time, long serial) {
+        for (int i = offset + TIME_LEN - 1; i >= offset; i--) {
+            buf[i] = TIMESTAMP_BYTES[(int) (time & 0x1f)];
+            time = time >> 5;
+        }
+        System.arraycopy(JVM_ID_BYTES, 0, buf, offset + TIME_LEN, JVM_ID_LEN);
+        for (int i = offset + LENGTH - 1; i >= offset + TIME_LEN + JVM_ID_LEN; i--) {
+            buf[i] = TIMESTAMP_BYTES[(int) (serial & 0x1f)];
+            serial = serial >> 5;
+        }
+    }
+
+    private static final byte[] TIMESTAMP_BYTES = toAscii(TIMESTAMP_DIGITS);
+
+    private static byte[] toAscii(char[] chars) {
+        byte[] bytes = new byte[chars.length];
+        for (int i = 0; i < chars.length; i++) {
+            bytes[i] = (byte) chars[i];
+        }
+        return bytes;
+    }
+
+    /**
+     * JVM启动（类加载）时间
+     */
+    private static final long JVM_START_MILLIS = System.currentTimeMillis();
+
+    private static final long JVM_IP_ADDR = initIpAddr();
+
     public static final String JVM_ID = initJvm();
 
+    private static final char[] JVM_ID_CHARS = JVM_ID.toCharArray();
+
+    private static final byte[] JVM_ID_BYTES = toAscii(JVM_ID_CHARS);
+
     /**
      * spi机制获取IP
      */
@@ -134,7 +193,7 @@ public class OUIDGenerator {
     }
 
     @SuppressWarnings({"ConstantConditions", "RedundantSuppression"})
-    private static String initJvm() {
+    private static long initIpAddr() {
         long ipAddr;
         try {
 
@@ -162,17 +221,164 @@ public class OUIDGenerator {
             e.printStackTrace();
             ipAddr = 0;
         }
+        return ipAddr;
+    }
+
+    private static String initJvm() {
+        return format32(JVM_IP_DIGITS, JVM_IP_ADDR, 7) + format32(JVM_STAT_DIGITS, JVM_START_MILLIS, 10);
+    }
+
+    /**
+     * 分段数，序列号的高5位为分段号
+     * <p>原先所有线程共用一个 AtomicInteger 序列号，高并发下CAS竞争严重，改为分段后各线程基本无竞争</p>
+     */
+    private static final int STRIPES = 32;
+
+    /**
+     * 序列号低20位为分段内计数，每个分段每毫秒最多 1048576 个ID
+     */
+    private static final int COUNTER_BITS = 20;
+    private static final long COUNTER_MASK = (1L << COUNTER_BITS) - 1;
+
+    /**
+     * 各分段状态：毫秒时间 << 20 | 下一个可用计数
+     * <p>相邻分段间隔16个long（128字节），避免伪共享</p>
+     */
+    private static final int STRIPE_PADDING = 16;
+    private static final AtomicLongArray STRIPE_STATES = new AtomicLongArray(STRIPES * STRIPE_PADDING);
+
+    private static final AtomicInteger STRIPE_INDEX = new AtomicInteger();
+
+    private static final ThreadLocal<Integer> THREAD_STRIPE = ThreadLocal.withInitial(
+            () -> STRIPE_INDEX.getAndIncrement() & (STRIPES - 1));
+
+    /**
+     * 在当前线程的分段中预留count个连续序列号
+     * <p>计数用完时借用下一毫秒，系统时间回拨时沿用已记录的时间，保证同一分段内严格递增</p>
+     * @return 毫秒时间 << 20 | 第一个计数
+     */
+    private static long reserve(int stripe, int count) {
+        int index = stripe * STRIPE_PADDING;
+        while (true) {
+            long state = STRIPE_STATES.get(index);
+            long stateTime = state >>> COUNTER_BITS;
+            long now = System.currentTimeMillis();
+            long base;
+            if (now > stateTime) {
+                base = now << COUNTER_BITS;
+            } else if ((state & COUNTER_MASK) + count <= COUNTER_MASK + 1) {
+                base = state;
+            } else {
+                base = (stateTime + 1) << COUNTER_BITS;
+            }
+            if (STRIPE_STATES.compareAndSet(index, state, base + count)) {
+                return base;
+            }
+        }
+    }
+
+    private static int currentStripe() {
+        return THREAD_STRIPE.get();
+    }
+
+    private static long stripedSerial(int stripe, long counter) {
+        return ((long) stripe << COUNTER_BITS) | counter;
+    }
 
-        return format32(JVM_IP_DIGITS, ipAddr, 7) + getTime(JVM_STAT_DIGITS);
+    /**
+     * 生成ID写入字符数组（分段序列号）
+     * @param buf 目标数组
+     * @param offset 写入位置，写入 {@link #LENGTH} 个字符
+     */
+    public static void generateInto(char[] buf, int offset) {
+        checkRange(buf.length, offset, LENGTH);
+        int stripe = currentStripe();
+        long state = reserve(stripe, 1);
+        writeId(buf, offset, state >>> COUNTER_BITS, stripedSerial(stripe, state & COUNTER_MASK));
     }
 
-    private static final AtomicInteger SEQ = new AtomicInteger((int) (Math.random() * Integer.MAX_VALUE / 1000));
+    /**
+     * 生成ID以ASCII字节写入字节数组（分段序列号）
+     * @param buf 目标数组
+     * @param offset 写入位置，写入 {@link #LENGTH} 个字节
+     */
+    public static void generateInto(byte[] buf, int offset) {
+        checkRange(buf.length, offset, LENGTH);
+        int stripe = currentStripe();
+        long state = reserve(stripe, 1);
+        writeId(buf, offset, state >>> COUNTER_BITS, stripedSerial(stripe, state & COUNTER_MASK));
+    }
 
-    private static String getSerial() {
-        long serial = SEQ.incrementAndGet() & 0x1ffffff;
-        // 单实例每毫秒最大允许产生 33554431 个ID，
-        // MAC i7 4核下3线程测试每毫秒产生ID数在1.9万左右，故该容量导致ID重复的概率几乎为0
-        return format32(TIMESTAMP_DIGITS, serial, 5);
+    /**
+     * 批量生成ID（分段序列号），返回的ID按顺序严格递增
+     * @param n 数量
+     * @return ID数组
+     */
+    public static String[] generate(int n) {
+        String[] ids = new String[n];
+        int stripe = currentStripe();
+        char[] chars = new char[LENGTH];
+        int i = 0;
+        while (i < n) {
+            // 一次预留一批序列号，批量大小不超过单个分段每毫秒的容量
+            int batch = (int) Math.min(n - i, COUNTER_MASK + 1);
+            long state = reserve(stripe, batch);
+            long time = state >>> COUNTER_BITS;
+            long counter = state & COUNTER_MASK;
+            for (int k = 0; k < batch; k++) {
+                writeId(chars, 0, time, stripedSerial(stripe, counter + k));
+                ids[i++] = new String(chars);
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * 生成16字节二进制形式的ID，适合作为数据库主键（如 BINARY(16)）
+     * <p>前8字节：44位毫秒时间 + 20位分段内计数；后8字节：5位分段号 + 32位IP + JVM启动时间的低27位；
+     * 按无符号字节比较的顺序与生成时间顺序一致</p>
+     * <p>二进制形式独立于字符串形式，两者不能互相转换</p>
+     * @param buf 目标数组
+     * @param offset 写入位置，写入 {@link #BINARY_LENGTH} 个字节
+     */
+    public static void generateBinaryInto(byte[] buf, int offset) {
+        checkRange(buf.length, offset, BINARY_LENGTH);
+        long[] pair = new long[2];
+        generateBinaryInto(pair, 0);
+        for (int i = 0; i < 8; i++) {
+            buf[offset + i] = (byte) (pair[0] >>> (56 - i * 8));
+            buf[offset + 8 + i] = (byte) (pair[1] >>> (56 - i * 8));
+        }
+    }
+
+    /**
+     * 生成二进制形式的ID，以两个long写入（高位在前），格式见 {@link #generateBinaryInto(byte[], int)}
+     * @param buf 目标数组
+     * @param offset 写入位置，写入2个long
+     */
+    public static void generateBinaryInto(long[] buf, int offset) {
+        checkRange(buf.length, offset, 2);
+        int stripe = currentStripe();
+        long state = reserve(stripe, 1);
+        buf[offset] = state;
+        buf[offset + 1] = BINARY_JVM_ID | ((long) stripe << 59);
+    }
+
+    public static byte[] generateBinary() {
+        byte[] bytes = new byte[BINARY_LENGTH];
+        generateBinaryInto(bytes, 0);
+        return bytes;
+    }
+
+    /**
+     * 二进制形式中的JVM标识：32位IP + 启动时间低27位
+     */
+    private static final long BINARY_JVM_ID = ((JVM_IP_ADDR & 0xffffffffL) << 27) | (JVM_START_MILLIS & 0x7ffffff);
+
+    private static void checkRange(int length, int offset, int len) {
+        if (offset < 0 || offset > length - len) {
+            throw new IndexOutOfBoundsException("offset " + offset + ", length " + len + ", buffer length " + length);
+        }
     }
 
     private static long toLong(byte[] bytes) {
@@ -183,7 +389,44 @@ public class OUIDGenerator {
         return result;
     }
 
-    public static void main(String[] args) {
+    /**
+     * 各生成方式的吞吐量对比（每线程每秒生成ID数），线程数等于CPU核数
+     */
+    public static void main(String[] args) throws InterruptedException {
         System.out.println(generate());
+        System.out.println(generate(3)[2]);
+
+        int threads = Runtime.getRuntime().availableProcessors();
+        int count = 2_000_000;
+        ThreadLocal<char[]> chars = ThreadLocal.withInitial(() -> new char[LENGTH]);
+        ThreadLocal<byte[]> bytes = ThreadLocal.withInitial(() -> new byte[LENGTH]);
+        ThreadLocal<long[]> longs = ThreadLocal.withInitial(() -> new long[2]);
+        benchmark("generate()", threads, count, 1, () -> generate());
+        benchmark("generateInto(char[])", threads, count, 1, () -> generateInto(chars.get(), 0));
+        benchmark("generateInto(byte[])", threads, count, 1, () -> generateInto(bytes.get(), 0));
+        benchmark("generate(1000)", threads, count / 1000, 1000, () -> generate(1000));
+        benchmark("generateBinaryInto(long[])", threads, count, 1, () -> generateBinaryInto(longs.get(), 0));
+    }
+
+    private static void benchmark(String name, int threads, int count, int idsPerCall, Runnable task) throws InterruptedException {
+        // 预热
+        for (int i = 0; i < count / 10; i++) {
+            task.run();
+        }
+        Thread[] workers = new Thread[threads];
+        long st = System.nanoTime();
+        for (int t = 0; t < threads; t++) {
+            workers[t] = new Thread(() -> {
+                for (int i = 0; i < count; i++) {
+                    task.run();
+                }
+            });
+            workers[t].start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        long nanos = System.nanoTime() - st;
+        System.out.println(name + ": " + threads + " threads, " + (long) count * idsPerCall * 1_000_000_000L / nanos + " ids/s per thread");
     }
 }
\ No newline at end of file
@@ -14,6 +14,8 @@ public class StringUtil {
 	static final String DOMAIN_CATCH_PATTERN = "(?i)^https?://([-a-zA-Z0-9]+(\\.[-a-zA-Z0-9]+)+)(:\\d+)?(/.*)?";
 
 	static final String URL_PATTERN = "(?i)^https?://[-a-zA-Z0-9]+(\\.[-a-zA-Z0-9]+)+(:\\d+)?(/.*)?";
+
+	private static final Pattern EMAIL_REGEX = Pattern.compile(EMAIL_PATTERN);
 	/**
 	 * 下划线命名转驼峰
 	 * @param str 下划线字符串
@@ -83,8 +85,7 @@ public class StringUtil {
 		if(str == null || "".equals(str.trim())) {
 			return false;
 		}
-		Pattern p = Pattern.compile(EMAIL_PATTERN);
-		Matcher matcher = p.matcher(str);
+		Matcher matcher = EMAIL_REGEX.matcher(str);
 		return matcher.matches();
 	}
 
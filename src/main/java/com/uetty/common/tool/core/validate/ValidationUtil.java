@@ -6,18 +6,31 @@ import lombok.extern.slf4j.Slf4j;
 import javax.validation.ValidationException;
 import javax.validation.constraints.*;
 import java.lang.annotation.Annotation;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Array;
 import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
 import java.util.*;
 
 /**
  * 注解验参封装
  * 依赖javax.validation:validation-api中的注解
+ * <p>每个类只解析一次：字段读取编译为MethodHandle，正则预编译，注解处理器提前确定，
+ * 验参计划缓存在 ClassValue 上，之后每次验参只需依次读取字段并检查</p>
  */
 @SuppressWarnings("unused")
 @Slf4j
 public class ValidationUtil {
 
+    private static final ClassValue<FieldPlan[]> PLANS = new ClassValue<FieldPlan[]>() {
+        @Override
+        protected FieldPlan[] computeValue(Class<?> type) {
+            return compilePlan(type);
+        }
+    };
+
     /**
      * 根据注解自动验参（无分组）
      * @param obj 验参类
@@ -27,66 +40,171 @@ public class ValidationUtil {
     }
 
     /**
-     * 根据注解自动验参
+     * 根据注解自动验参，遇到第一个不通过的检查即抛出异常
      * @param obj 验参类
      * @param group 分组组对象
+     * @throws ValidationException 验参不通过
      */
     public static void validate(Object obj, Class<?> group) {
         if (obj == null) {
             return;
         }
-        Class<?> clz = obj.getClass();
-        Map<Field, Set<Annotation>> annotations = getAnnotations(clz);
-        for (Map.Entry<Field, Set<Annotation>> fieldSetEntry : annotations.entrySet()) {
-            Field field = fieldSetEntry.getKey();
-            String fieldName = field.getName();
-            Object val;
+        for (FieldPlan fieldPlan : PLANS.get(obj.getClass())) {
+            String message = fieldPlan.check(obj, group, null);
+            if (message != null) {
+                throwException(message);
+            }
+        }
+    }
+
+    /**
+     * 根据注解自动验参（无分组），检查全部字段后再抛出异常
+     * @param obj 验参类
+     */
+    public static void validateAll(Object obj) {
+        validateAll(obj, null);
+    }
+
+    /**
+     * 根据注解自动验参，检查全部字段后再抛出异常
+     * @param obj 验参类
+     * @param group 分组组对象
+     * @throws ValidationException 验参不通过，异常信息为所有不通过项，以 ; 分隔
+     */
+    public static void validateAll(Object obj, Class<?> group) {
+        List<String> violations = getViolations(obj, group);
+        if (!violations.isEmpty()) {
+            throwException(String.join("; ", violations));
+        }
+    }
+
+    /**
+     * 根据注解自动验参，返回所有不通过项，不抛出异常
+     * @param obj 验参类
+     * @param group 分组组对象
+     * @return 不通过项的提示信息，全部通过时返回空列表
+     */
+    public static List<String> getViolations(Object obj, Class<?> group) {
+        if (obj == null) {
+            return Collections.emptyList();
+        }
+        List<String> violations = new ArrayList<>();
+        for (FieldPlan fieldPlan : PLANS.get(obj.getClass())) {
+            fieldPlan.check(obj, group, violations);
+        }
+        return violations;
+    }
+
+    /**
+     * 解析该类下所有带验参注解的属性（本类声明的属性及继承的public属性）
+     * @param clz 类class
+     */
+    private static FieldPlan[] compilePlan(Class<?> clz) {
+        Set<Field> fields = new LinkedHashSet<>(Arrays.asList(clz.getDeclaredFields()));
+        fields.addAll(Arrays.asList(clz.getFields()));
+
+        List<FieldPlan> plans = new ArrayList<>();
+        for (Field field : fields) {
+            List<Constraint> constraints = new ArrayList<>();
+            for (Annotation anno : field.getAnnotations()) {
+                ValidatorEnums validatorEnums = ValidatorEnums.valueOf(anno.annotationType());
+                if (validatorEnums != null) {
+                    constraints.add(validatorEnums.validator.compile(field.getName(), anno));
+                }
+            }
+            if (constraints.isEmpty()) {
+                continue;
+            }
+            MethodHandle reader;
             try {
-                val = field.get(obj);
+                reader = fieldReader(field);
             } catch (Exception e) {
                 log.error(e.getMessage(), e);
                 continue;
             }
-            Set<Annotation> annos = fieldSetEntry.getValue();
-            for (Annotation anno : annos) {
-                ValidatorEnums validatorEnums = ValidatorEnums.valueOf(anno.getClass());
-                if (validatorEnums != null
-                        && validatorEnums.validator.accept(group, anno)) {
-                    validatorEnums.validator.validateAnnotation(val, fieldName, anno);
-                }
-            }
+            plans.add(new FieldPlan(reader, constraints.toArray(new Constraint[0])));
         }
+        return plans.toArray(new FieldPlan[0]);
     }
 
     /**
-     * 获取该类下所有属性与其注解
-     * @param clz 类class
+     * 编译字段读取句柄，统一为 (Object)Object 类型
      */
-    private static Map<Field, Set<Annotation>> getAnnotations(Class<?> clz) {
-        Map<Field, Set<Annotation>> map = new HashMap<>();
-        Field[] fields = clz.getFields();
-        for (Field field : fields) {
-            field.setAccessible(true);
-            putAnnotations(map, field);
+    private static MethodHandle fieldReader(Field field) throws IllegalAccessException {
+        field.setAccessible(true);
+        MethodHandle handle = MethodHandles.lookup().unreflectGetter(field);
+        if (Modifier.isStatic(field.getModifiers())) {
+            handle = MethodHandles.dropArguments(handle, 0, Object.class);
         }
+        return handle.asType(MethodType.methodType(Object.class, Object.class));
+    }
 
-        Field[] declaredFields = clz.getDeclaredFields();
-        for (Field field : declaredFields) {
-            field.setAccessible(true);
-            putAnnotations(map, field);
+    /**
+     * 单个属性的验参计划
+     */
+    private static final class FieldPlan {
+        private final MethodHandle reader;
+        private final Constraint[] constraints;
+
+        FieldPlan(MethodHandle reader, Constraint[] constraints) {
+            this.reader = reader;
+            this.constraints = constraints;
+        }
+
+        /**
+         * @param violations 为null时遇到不通过项即返回其提示信息，否则收集所有不通过项
+         * @return 第一个不通过项的提示信息，全部通过时返回null
+         */
+        String check(Object obj, Class<?> group, List<String> violations) {
+            Object val;
+            try {
+                val = (Object) reader.invokeExact(obj);
+            } catch (Throwable e) {
+                log.error(e.getMessage(), e);
+                return null;
+            }
+            String first = null;
+            for (Constraint constraint : constraints) {
+                if (!acceptGroup(group, constraint.groups)) {
+                    continue;
+                }
+                String message = constraint.check.check(val);
+                if (message == null) {
+                    continue;
+                }
+                if (violations == null) {
+                    return message;
+                }
+                violations.add(message);
+                if (first == null) {
+                    first = message;
+                }
+            }
+            return first;
         }
-        return map;
     }
 
-    private static void putAnnotations(Map<Field, Set<Annotation>> map, Field field) {
-        Annotation[] annotations = field.getAnnotations();
+    /**
+     * 预编译的单个注解检查
+     */
+    private static final class Constraint {
+        private final Class<?>[] groups;
+        private final Check check;
 
-        Set<Annotation> set = new HashSet<>(Arrays.asList(annotations));
-        map.compute(field, (k, v) -> {
-            if (v == null) return set;
-            v.addAll(set);
-            return v;
-        });
+        Constraint(Class<?>[] groups, Check check) {
+            this.groups = groups;
+            this.check = check;
+        }
+    }
+
+    /**
+     * 检查函数
+     */
+    private interface Check {
+        /**
+         * @return 不通过时返回提示信息，通过时返回null
+         */
+        String check(Object value);
     }
 
     private static String getMessage(String message, String def) {
@@ -96,35 +214,12 @@ public class ValidationUtil {
         return message;
     }
 
-    private static String patternAddFlags(String regexp, Pattern.Flag[] flags) {
-        Set<Pattern.Flag> flagSet = new HashSet<>(Arrays.asList(flags));
-        StringBuilder regexpBuilder = new StringBuilder(regexp);
-        for (Pattern.Flag flag : flagSet) {
-            switch (flag) {
-                case UNIX_LINES:
-                    regexpBuilder.insert(0, "(?d)");
-                    break;
-                case CASE_INSENSITIVE:
-                    regexpBuilder.insert(0, "(?i)");
-                    break;
-                case COMMENTS:
-                    regexpBuilder.insert(0, "(?x)");
-                    break;
-                case MULTILINE:
-                    regexpBuilder.insert(0, "(?m)");
-                    break;
-                case DOTALL:
-                    regexpBuilder.insert(0, "(?s)");
-                    break;
-                case UNICODE_CASE:
-                    regexpBuilder.insert(0, "(?u)");
-                    break;
-                case CANON_EQ:
-                    // 不支持
-                    break;
-            }
+    private static java.util.regex.Pattern compilePattern(String regexp, Pattern.Flag[] flags) {
+        int intFlags = 0;
+        for (Pattern.Flag flag : flags) {
+            intFlags |= flag.getValue();
         }
-        return regexpBuilder.toString();
+        return java.util.regex.Pattern.compile(regexp, intFlags);
     }
 
     /**
@@ -149,6 +244,19 @@ public class ValidationUtil {
          throw new ValidationException(message);
     }
 
+    private static int sizeOf(Object value) {
+        if (value instanceof CharSequence) {
+            return ((CharSequence) value).length();
+        } else if (value instanceof Collection) {
+            return ((Collection<?>) value).size();
+        } else if (value.getClass().isArray()) {
+            return Array.getLength(value);
+        } else if (value instanceof Map) {
+            return ((Map<?, ?>) value).size();
+        }
+        return -1;
+    }
+
     /**
      * 检查器接口
      * @param <T>
@@ -156,16 +264,15 @@ public class ValidationUtil {
     @SuppressWarnings("unchecked")
     private interface Validator<T extends Annotation> {
 
-        boolean accept0(Class<?> clz, T t);
-
-        void validateAnnotation0(Object value, String fieldName, T t);
+        Class<?>[] groups0(T t);
 
-        default boolean accept(Class<?> clz, Annotation annotation) {
-            return accept0(clz, (T) annotation);
-        }
+        /**
+         * 预编译检查函数，提示信息、正则等在此处一次性准备好
+         */
+        Check compile0(String fieldName, T t);
 
-        default void validateAnnotation(Object value, String fieldName, Annotation annotation) {
-            validateAnnotation0(value, fieldName, (T) annotation);
+        default Constraint compile(String fieldName, Annotation annotation) {
+            return new Constraint(groups0((T) annotation), compile0(fieldName, (T) annotation));
         }
     }
 
@@ -180,17 +287,15 @@ public class ValidationUtil {
          */
         NOT_BLANK(NotBlank.class, new Validator<NotBlank>() {
             @Override
-            public boolean accept0(Class<?> clz, NotBlank notBlank) {
-                return ValidationUtil.acceptGroup(clz, notBlank.groups());
+            public Class<?>[] groups0(NotBlank notBlank) {
+                return notBlank.groups();
             }
 
             @Override
-            public void validateAnnotation0(Object value, String fieldName, NotBlank notBlank) {
-                if (value == null || StringUtil.isBlank(value.toString())) {
-                    ValidationUtil.throwException(
-                            ValidationUtil.getMessage(notBlank.message(),
-                            StringUtil.camelToUnderLineStyle(fieldName) + " cannot be blank"));
-                }
+            public Check compile0(String fieldName, NotBlank notBlank) {
+                String message = ValidationUtil.getMessage(notBlank.message(),
+                        StringUtil.camelToUnderLineStyle(fieldName) + " cannot be blank");
+                return value -> value == null || StringUtil.isBlank(value.toString()) ? message : null;
             }
         }),
         /**
@@ -198,17 +303,15 @@ public class ValidationUtil {
          */
         NOT_EMPTY(NotEmpty.class, new Validator<NotEmpty>() {
             @Override
-            public boolean accept0(Class<?> clz, NotEmpty annotation) {
-                return ValidationUtil.acceptGroup(clz, annotation.groups());
+            public Class<?>[] groups0(NotEmpty notEmpty) {
+                return notEmpty.groups();
             }
 
             @Override
-            public void validateAnnotation0(Object value, String fieldName, NotEmpty notEmpty) {
-                if (value == null || StringUtil.isEmpty(value.toString())) {
-                    ValidationUtil.throwException(
-                            ValidationUtil.getMessage(notEmpty.message(),
-                            StringUtil.camelToBlankSeparate(fieldName) + " cannot be empty"));
-                }
+            public Check compile0(String fieldName, NotEmpty notEmpty) {
+                String message = ValidationUtil.getMessage(notEmpty.message(),
+                        StringUtil.camelToBlankSeparate(fieldName) + " cannot be empty");
+                return value -> value == null || StringUtil.isEmpty(value.toString()) ? message : null;
             }
         }),
         /**
@@ -216,62 +319,43 @@ public class ValidationUtil {
          */
         NOT_NULL(NotNull.class, new Validator<NotNull>() {
             @Override
-            public boolean accept0(Class<?> clz, NotNull notNull) {
-                return ValidationUtil.acceptGroup(clz, notNull.groups());
+            public Class<?>[] groups0(NotNull notNull) {
+                return notNull.groups();
             }
 
             @Override
-            public void validateAnnotation0(Object value, String fieldName, NotNull notNull) {
-                if (value == null) {
-                    ValidationUtil.throwException(
-                            ValidationUtil.getMessage(notNull.message(),
-                            StringUtil.camelToBlankSeparate(fieldName) + " required"));
-                }
+            public Check compile0(String fieldName, NotNull notNull) {
+                String message = ValidationUtil.getMessage(notNull.message(),
+                        StringUtil.camelToBlankSeparate(fieldName) + " required");
+                return value -> value == null ? message : null;
             }
         }),
         /**
          * Size注解处理
          */
         SIZE(Size.class, new Validator<Size>() {
-            // 复用封装
-            private void throwException(String fieldName, Size size) {
-                String message = ValidationUtil.getMessage(size.message(),
-                        StringUtil.camelToBlankSeparate(fieldName) + " length must between " + size.min() + " and " + size.max());
-
-                ValidationUtil.throwException(message);
-            }
-
             @Override
-            public boolean accept0(Class<?> clz, Size size) {
-                return ValidationUtil.acceptGroup(clz, size.groups());
+            public Class<?>[] groups0(Size size) {
+                return size.groups();
             }
 
             @Override
-            public void validateAnnotation0(Object value, String fieldName, Size size) {
-                if (value == null) {
-                    return;
-                }
-                if (value instanceof CharSequence) {
-                    int len = ((CharSequence) value).length();
-                    if (size.min() > len || size.max() < len) {
-                        this.throwException(fieldName, size);
-                    }
-                } else if (value instanceof Collection) {
-                    Collection<?> collection = (Collection<?>) value;
-                    if (size.min() > collection.size() || size.max() < collection.size()) {
-                        this.throwException(fieldName, size);
-                    }
-                } else if (value.getClass().isArray()) {
-                    int len = Array.getLength(value);
-                    if (size.min() > len || size.max() < len) {
-                        this.throwException(fieldName, size);
+            public Check compile0(String fieldName, Size size) {
+                String message = ValidationUtil.getMessage(size.message(),
+                        StringUtil.camelToBlankSeparate(fieldName) + " length must between " + size.min() + " and " + size.max());
+                int min = size.min();
+                int max = size.max();
+                return value -> {
+                    if (value == null) {
+                        return null;
                     }
-                } else if (value instanceof Map) {
-                    Map<?, ?> map = (Map<?, ?>) value;
-                    if (size.min() > map.size() || size.max() < map.size()) {
-                        this.throwException(fieldName, size);
+                    int len = ValidationUtil.sizeOf(value);
+                    // 不支持的类型不检查
+                    if (len < 0) {
+                        return null;
                     }
-                }
+                    return min > len || max < len ? message : null;
+                };
             }
         }),
         /**
@@ -280,23 +364,16 @@ public class ValidationUtil {
         MAX(Max.class, new Validator<Max>() {
 
             @Override
-            public boolean accept0(Class<?> clz, Max max) {
-                return ValidationUtil.acceptGroup(clz, max.groups());
+            public Class<?>[] groups0(Max max) {
+                return max.groups();
             }
 
             @Override
-            public void validateAnnotation0(Object value, String fieldName, Max max) {
-                if (!(value instanceof Number)) {
-                    return;
-                }
+            public Check compile0(String fieldName, Max max) {
                 long val = max.value();
-
-                Number number = (Number) value;
-                if (number.longValue() > val) {
-                    String message = ValidationUtil.getMessage(max.message(),
-                            StringUtil.camelToBlankSeparate(fieldName) + " cannot greater than " + val);
-                    ValidationUtil.throwException(message);
-                }
+                String message = ValidationUtil.getMessage(max.message(),
+                        StringUtil.camelToBlankSeparate(fieldName) + " cannot greater than " + val);
+                return value -> value instanceof Number && ((Number) value).longValue() > val ? message : null;
             }
         }),
         /**
@@ -305,23 +382,16 @@ public class ValidationUtil {
         MIN(Min.class, new Validator<Min>() {
 
             @Override
-            public boolean accept0(Class<?> clz, Min min) {
-                return ValidationUtil.acceptGroup(clz, min.groups());
+            public Class<?>[] groups0(Min min) {
+                return min.groups();
             }
 
             @Override
-            public void validateAnnotation0(Object value, String fieldName, Min min) {
-                if (!(value instanceof Number)) {
-                    return;
-                }
+            public Check compile0(String fieldName, Min min) {
                 long val = min.value();
-
-                Number number = (Number) value;
-                if (number.longValue() < val) {
-                    String message = ValidationUtil.getMessage(min.message(),
-                            StringUtil.camelToBlankSeparate(fieldName) + " cannot less than " + val);
-                    ValidationUtil.throwException(message);
-                }
+                String message = ValidationUtil.getMessage(min.message(),
+                        StringUtil.camelToBlankSeparate(fieldName) + " cannot less than " + val);
+                return value -> value instanceof Number && ((Number) value).longValue() < val ? message : null;
             }
         }),
         /**
@@ -329,21 +399,16 @@ public class ValidationUtil {
          */
         PATTERN(Pattern.class, new Validator<Pattern>() {
             @Override
-            public boolean accept0(Class<?> clz, Pattern pattern) {
-                return ValidationUtil.acceptGroup(clz, pattern.groups());
+            public Class<?>[] groups0(Pattern pattern) {
+                return pattern.groups();
             }
 
             @Override
-            public void validateAnnotation0(Object value, String fieldName, Pattern pattern) {
-                if (value == null) {
-                    return;
-                }
-                String regexp = patternAddFlags(pattern.regexp(), pattern.flags());
-                if (!value.toString().matches(regexp)) {
-                    ValidationUtil.throwException(
-                            ValidationUtil.getMessage(pattern.message(),
-                            StringUtil.camelToUnderLineStyle(fieldName) + " invalid value"));
-                }
+            public Check compile0(String fieldName, Pattern pattern) {
+                String message = ValidationUtil.getMessage(pattern.message(),
+                        StringUtil.camelToUnderLineStyle(fieldName) + " invalid value");
+                java.util.regex.Pattern regex = ValidationUtil.compilePattern(pattern.regexp(), pattern.flags());
+                return value -> value != null && !regex.matcher(value.toString()).matches() ? message : null;
             }
         }),
         /**
@@ -351,22 +416,25 @@ public class ValidationUtil {
          */
         EMAIL(Email.class, new Validator<Email>() {
             @Override
-            public boolean accept0(Class<?> group, Email email) {
-                return ValidationUtil.acceptGroup(group, email.groups());
+            public Class<?>[] groups0(Email email) {
+                return email.groups();
             }
+
             @Override
-            public void validateAnnotation0(Object value, String fieldName, Email email) {
-                String val = value + "";
-                if(!StringUtil.checkEmail(val)) {
-                    ValidationUtil.throwException(
-                            ValidationUtil.getMessage(email.message(), "email invalid"));
-                }
-                String regexp = ValidationUtil.patternAddFlags(email.regexp(), email.flags());
+            public Check compile0(String fieldName, Email email) {
+                String message = ValidationUtil.getMessage(email.message(), "email invalid");
                 // 额外的验证
-                if (!val.matches(regexp)) {
-                    ValidationUtil.throwException(
-                            ValidationUtil.getMessage(email.message(), "email invalid"));
-                }
+                java.util.regex.Pattern regex = ValidationUtil.compilePattern(email.regexp(), email.flags());
+                return value -> {
+                    if (value == null) {
+                        return null;
+                    }
+                    String val = value.toString();
+                    if (!StringUtil.checkEmail(val) || !regex.matcher(val).matches()) {
+                        return message;
+                    }
+                    return null;
+                };
             }
         }),
         ;
@@ -382,6 +450,9 @@ public class ValidationUtil {
             this.validator = validator;
         }
 
+        /**
+         * @param clz 注解类型（{@link Annotation#annotationType()}，注解实例的getClass()是代理类）
+         */
         public static ValidatorEnums valueOf(Class<?> clz) {
             ValidatorEnums[] values = ValidatorEnums.values();
             for (ValidatorEnums value : values) {
@@ -392,5 +463,5 @@ public class ValidationUtil {
             return null;
         }
     }
-    
+
 }